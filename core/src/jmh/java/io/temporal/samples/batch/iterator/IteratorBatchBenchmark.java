@@ -0,0 +1,100 @@
+package io.temporal.samples.batch.iterator;
+
+import io.temporal.client.WorkflowClient;
+import io.temporal.client.WorkflowOptions;
+import io.temporal.testing.TestWorkflowEnvironment;
+import io.temporal.worker.Worker;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the wall-clock time of a whole batch of {@link RecordLoaderImpl#PAGE_COUNT} pages in the
+ * in-memory test server, with a child workflow per record ({@code child}) and with chunks of
+ * records processed by activities ({@code inline}). Records don't take any time to process, so
+ * the score is the orchestration cost. The throughput is the number of records, {@code pageSize}
+ * times {@link RecordLoaderImpl#PAGE_COUNT}, divided by the score.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class IteratorBatchBenchmark {
+
+  private static final String TASK_QUEUE = "IteratorBatchBenchmark";
+
+  public static class NoopRecordProcessorWorkflowImpl implements RecordProcessorWorkflow {
+
+    @Override
+    public void processRecord(SingleRecord r) {}
+  }
+
+  public static class NoopRecordChunkProcessorImpl extends RecordChunkProcessorImpl {
+
+    @Override
+    protected void processRecord(SingleRecord record) {}
+  }
+
+  @Param({"20"})
+  public int pageSize;
+
+  @Param({"10"})
+  public int chunkSize;
+
+  private TestWorkflowEnvironment testEnvironment;
+  private WorkflowClient client;
+
+  @Setup
+  public void setUp() {
+    testEnvironment = TestWorkflowEnvironment.newInstance();
+    Worker worker = testEnvironment.newWorker(TASK_QUEUE);
+    worker.registerWorkflowImplementationTypes(
+        IteratorBatchWorkflowImpl.class,
+        InlineIteratorBatchWorkflowImpl.class,
+        NoopRecordProcessorWorkflowImpl.class);
+    worker.registerActivitiesImplementations(
+        new RecordLoaderImpl(), new NoopRecordChunkProcessorImpl());
+    testEnvironment.start();
+    client = testEnvironment.getWorkflowClient();
+  }
+
+  @TearDown
+  public void tearDown() {
+    testEnvironment.close();
+  }
+
+  @Benchmark
+  public int child() {
+    return client
+        .newWorkflowStub(IteratorBatchWorkflow.class, newOptions())
+        .processBatch(pageSize, 0);
+  }
+
+  @Benchmark
+  public int inline() {
+    return client
+        .newWorkflowStub(InlineIteratorBatchWorkflow.class, newOptions())
+        .processBatch(pageSize, chunkSize, 0);
+  }
+
+  private static WorkflowOptions newOptions() {
+    // Child workflow ids are derived from the parent workflow id, so every batch has its own.
+    return WorkflowOptions.newBuilder()
+        .setTaskQueue(TASK_QUEUE)
+        .setWorkflowId("batch-" + UUID.randomUUID())
+        .build();
+  }
+}
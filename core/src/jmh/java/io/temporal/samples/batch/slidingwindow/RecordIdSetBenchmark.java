@@ -0,0 +1,72 @@
+package io.temporal.samples.batch.slidingwindow;
+
+import io.temporal.api.common.v1.Payload;
+import io.temporal.common.converter.DataConverter;
+import io.temporal.common.converter.DefaultDataConverter;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the time of serializing and deserializing the in-flight record ids of a sliding window
+ * stored in a {@link HashSet} and in a {@link RecordIdSet}, as the workflow does on every
+ * continue-as-new. The payload size of each is printed during the setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RecordIdSetBenchmark {
+
+  /** Some window far from the beginning of the partition. */
+  private static final int OFFSET = 1_000_000;
+
+  private final DataConverter converter = DefaultDataConverter.newDefaultInstance();
+
+  @Param({"1000", "10000", "100000"})
+  public int windowSize;
+
+  private Set<Integer> hashSet;
+
+  private RecordIdSet recordIdSet;
+
+  @Setup
+  public void setUp() {
+    hashSet = new HashSet<>();
+    recordIdSet = new RecordIdSet();
+    for (int i = OFFSET; i < OFFSET + windowSize; i++) {
+      hashSet.add(i);
+      recordIdSet.add(i);
+    }
+    System.out.printf(
+        "%nwindow %d: HashSet %d bytes, RecordIdSet %d bytes%n",
+        windowSize,
+        converter.toPayload(hashSet).get().getSerializedSize(),
+        converter.toPayload(recordIdSet).get().getSerializedSize());
+  }
+
+  @Benchmark
+  public Object hashSet() {
+    Payload payload = converter.toPayload(hashSet).get();
+    return converter.fromPayload(payload, Set.class, Set.class);
+  }
+
+  @Benchmark
+  public Object recordIdSet() {
+    Payload payload = converter.toPayload(recordIdSet).get();
+    return converter.fromPayload(payload, RecordIdSet.class, RecordIdSet.class);
+  }
+}
@@ -0,0 +1,50 @@
+package io.temporal.samples.benchmark;
+
+import com.google.protobuf.ByteString;
+import io.temporal.api.common.v1.Payload;
+import io.temporal.common.converter.EncodingKeys;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Generates the payloads used as the input of the codec benchmarks. */
+public final class BenchmarkPayloads {
+
+  private static final String ALPHABET =
+      "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 ";
+
+  private static final ByteString JSON_ENCODING = ByteString.copyFromUtf8("json/plain");
+
+  private BenchmarkPayloads() {}
+
+  /**
+   * Returns a JSON document of exactly the given size in bytes. The document is a single string
+   * field filled with random text, so it looks like a typical activity argument and is not
+   * trivially compressible.
+   */
+  public static byte[] newJson(int size, long seed) {
+    String prefix = "{\"value\":\"";
+    String suffix = "\"}";
+    int textSize = Math.max(0, size - prefix.length() - suffix.length());
+    Random random = new Random(seed);
+    StringBuilder json = new StringBuilder(size).append(prefix);
+    for (int i = 0; i < textSize; i++) {
+      json.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+    }
+    return json.append(suffix).toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /** Returns a batch of JSON payloads as the default data converter would produce them. */
+  public static List<Payload> newBatch(int payloadSize, int batchSize) {
+    List<Payload> payloads = new ArrayList<>(batchSize);
+    for (int i = 0; i < batchSize; i++) {
+      payloads.add(
+          Payload.newBuilder()
+              .putMetadata(EncodingKeys.METADATA_ENCODING_KEY, JSON_ENCODING)
+              .setData(ByteString.copyFrom(newJson(payloadSize, i)))
+              .build());
+    }
+    return payloads;
+  }
+}
@@ -0,0 +1,65 @@
+package io.temporal.samples.benchmark;
+
+import io.temporal.api.common.v1.Payload;
+import io.temporal.payload.codec.PayloadCodec;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures encode and decode throughput of a {@link PayloadCodec}. One operation encodes or
+ * decodes a batch of {@code batchSize} payloads of {@code payloadSize} bytes each, which is what
+ * the SDK does for the arguments or the result of a single activity or workflow. So the number of
+ * bytes processed per second is the score multiplied by {@code payloadSize * batchSize}.
+ *
+ * <p>Subclasses create the codec under test.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public abstract class PayloadCodecBenchmark {
+
+  @Param({"100", "1024", "65536", "1048576", "4194304"})
+  public int payloadSize;
+
+  @Param({"1", "10", "100"})
+  public int batchSize;
+
+  private PayloadCodec codec;
+
+  private List<Payload> decoded;
+
+  private List<Payload> encoded;
+
+  protected abstract PayloadCodec createCodec() throws Exception;
+
+  @Setup
+  public void setUp() throws Exception {
+    codec = createCodec();
+    decoded = BenchmarkPayloads.newBatch(payloadSize, batchSize);
+    encoded = codec.encode(decoded);
+  }
+
+  @Benchmark
+  public List<Payload> encode() {
+    return codec.encode(decoded);
+  }
+
+  @Benchmark
+  public List<Payload> decode() {
+    return codec.decode(encoded);
+  }
+}
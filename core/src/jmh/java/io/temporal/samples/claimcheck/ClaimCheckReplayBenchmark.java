@@ -0,0 +1,144 @@
+package io.temporal.samples.claimcheck;
+
+import io.temporal.activity.ActivityInterface;
+import io.temporal.activity.ActivityOptions;
+import io.temporal.client.WorkflowClientOptions;
+import io.temporal.client.WorkflowOptions;
+import io.temporal.common.WorkflowExecutionHistory;
+import io.temporal.common.converter.CodecDataConverter;
+import io.temporal.common.converter.DataConverter;
+import io.temporal.common.converter.DefaultDataConverter;
+import io.temporal.testing.TestEnvironmentOptions;
+import io.temporal.testing.TestWorkflowEnvironment;
+import io.temporal.testing.WorkflowReplayer;
+import io.temporal.worker.Worker;
+import io.temporal.workflow.Workflow;
+import io.temporal.workflow.WorkflowInterface;
+import io.temporal.workflow.WorkflowMethod;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the replay time of a workflow with {@link #RECORD_COUNT} activity results of 256KB
+ * without ({@code none}) and with ({@code claimCheck}) {@link ClaimCheckCodec}. The workflow runs
+ * once in the in-memory test server during the setup, which prints the history size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ClaimCheckReplayBenchmark {
+
+  private static final int RECORD_SIZE = 256 * 1024;
+
+  private static final int RECORD_COUNT = 10;
+
+  private static final String TASK_QUEUE = "ClaimCheckReplayBenchmark";
+
+  @WorkflowInterface
+  public interface LargePayloadWorkflow {
+    @WorkflowMethod
+    int process(int count);
+  }
+
+  @ActivityInterface
+  public interface LargePayloadActivities {
+    String load(int index);
+  }
+
+  public static class LargePayloadWorkflowImpl implements LargePayloadWorkflow {
+
+    private final LargePayloadActivities activities =
+        Workflow.newActivityStub(
+            LargePayloadActivities.class,
+            ActivityOptions.newBuilder().setStartToCloseTimeout(Duration.ofSeconds(10)).build());
+
+    @Override
+    public int process(int count) {
+      int total = 0;
+      for (int i = 0; i < count; i++) {
+        total += activities.load(i).length();
+      }
+      return total;
+    }
+  }
+
+  public static class LargePayloadActivitiesImpl implements LargePayloadActivities {
+
+    @Override
+    public String load(int index) {
+      // Only a few distinct records, so some of them are deduplicated.
+      StringBuilder record = new StringBuilder(RECORD_SIZE);
+      while (record.length() < RECORD_SIZE) {
+        record.append("record ").append(index % 3).append(' ').append(record.length()).append(' ');
+      }
+      return record.substring(0, RECORD_SIZE);
+    }
+  }
+
+  @Param({"none", "claimCheck"})
+  public String codec;
+
+  private TestWorkflowEnvironment testEnvironment;
+
+  private Worker worker;
+
+  private WorkflowExecutionHistory history;
+
+  @Setup
+  public void setUp() {
+    DataConverter dataConverter =
+        codec.equals("none")
+            ? DefaultDataConverter.newDefaultInstance()
+            : new CodecDataConverter(
+                DefaultDataConverter.newDefaultInstance(),
+                Collections.singletonList(new ClaimCheckCodec(new InMemoryBlobStore())));
+    testEnvironment =
+        TestWorkflowEnvironment.newInstance(
+            TestEnvironmentOptions.newBuilder()
+                .setWorkflowClientOptions(
+                    WorkflowClientOptions.newBuilder().setDataConverter(dataConverter).build())
+                .build());
+    worker = testEnvironment.newWorker(TASK_QUEUE);
+    worker.registerWorkflowImplementationTypes(LargePayloadWorkflowImpl.class);
+    worker.registerActivitiesImplementations(new LargePayloadActivitiesImpl());
+    testEnvironment.start();
+
+    testEnvironment
+        .getWorkflowClient()
+        .newWorkflowStub(
+            LargePayloadWorkflow.class,
+            WorkflowOptions.newBuilder()
+                .setWorkflowId("large-payload")
+                .setTaskQueue(TASK_QUEUE)
+                .build())
+        .process(RECORD_COUNT);
+    history = testEnvironment.getWorkflowClient().fetchHistory("large-payload");
+    System.out.printf("%n%s: %d history bytes%n", codec, history.getHistory().getSerializedSize());
+  }
+
+  @TearDown
+  public void tearDown() {
+    testEnvironment.close();
+  }
+
+  @Benchmark
+  public void replay() throws Exception {
+    WorkflowReplayer.replayWorkflowExecution(history, worker);
+  }
+}
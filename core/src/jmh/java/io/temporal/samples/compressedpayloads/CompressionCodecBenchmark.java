@@ -0,0 +1,111 @@
+package io.temporal.samples.compressedpayloads;
+
+import io.temporal.api.common.v1.Payload;
+import io.temporal.common.converter.DataConverter;
+import io.temporal.common.converter.DefaultDataConverter;
+import io.temporal.samples.dsl.model.Flow;
+import io.temporal.samples.dsl.model.FlowAction;
+import io.temporal.samples.workflowstreams.Shared;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the CPU cost of the compression algorithms of {@link CompressionCodec} on JSON payloads
+ * like the workflow streams events and the DSL flow definitions. The compression ratio of each
+ * combination is printed during the setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CompressionCodecBenchmark {
+
+  /** Codec configuration: the adaptive selection or a fixed algorithm. */
+  @Param({"adaptive", "lz4", "zstd", "deflate"})
+  public String compression;
+
+  /** Kind of the payload content. */
+  @Param({"streamEvents", "flowDefinition"})
+  public String content;
+
+  /** Number of events or flow actions in the payload. */
+  @Param({"100", "10000"})
+  public int count;
+
+  private final DataConverter converter = DefaultDataConverter.newDefaultInstance();
+
+  private CompressionCodec codec;
+
+  private List<Payload> decoded;
+
+  private List<Payload> encoded;
+
+  @Setup
+  public void setUp() {
+    codec =
+        compression.equals("adaptive")
+            ? new CompressionCodec()
+            : new CompressionCodec(0, CompressionCodec.Algorithm.fromName(compression));
+    Object value = content.equals("streamEvents") ? newStreamEvents(count) : newFlow(count);
+    decoded = Collections.singletonList(converter.toPayload(value).get());
+    encoded = codec.encode(decoded);
+    int size = decoded.get(0).getSerializedSize();
+    int compressedSize = encoded.get(0).getSerializedSize();
+    System.out.printf(
+        "%n%s %s x%d: %d -> %d bytes, ratio %.3f%n",
+        compression, content, count, size, compressedSize, (double) compressedSize / size);
+  }
+
+  @Benchmark
+  public List<Payload> encode() {
+    return codec.encode(decoded);
+  }
+
+  @Benchmark
+  public List<Payload> decode() {
+    return codec.decode(encoded);
+  }
+
+  private static List<Object> newStreamEvents(int count) {
+    List<Object> events = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      switch (i % 4) {
+        case 0:
+          events.add(new Shared.StatusEvent("processing", "order-" + i / 4));
+          break;
+        case 1:
+          events.add(new Shared.ProgressEvent("Charged card for order-" + i / 4));
+          break;
+        case 2:
+          events.add(new Shared.TickEvent(i));
+          break;
+        default:
+          events.add(new Shared.TextDelta(" token" + i));
+      }
+    }
+    return events;
+  }
+
+  private static Flow newFlow(int count) {
+    List<FlowAction> actions = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      actions.add(new FlowAction("Action" + i, "Compensate" + i, i % 10, 3 + i % 5, i + 1));
+    }
+    return new Flow("benchmarkFlow", "Benchmark Flow", "Flow with " + count + " actions", actions);
+  }
+}
@@ -0,0 +1,124 @@
+package io.temporal.samples.dsl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the interpretation overhead of {@link JsonDslWorkflowImpl} per action: testing the
+ * condition ({@code condition}), selecting the input ({@code select}) and merging the result
+ * ({@code merge}) into the state. {@code step} does all three, as the workflow does for every
+ * action, and {@code compileAndStep} compiles the expressions first, which the cached plans avoid.
+ * Compare the scores, in microseconds, with the activity latency, usually milliseconds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FlowExpressionBenchmark {
+
+  @Param({FlowExpression.JQ, FlowExpression.JSON_PATH})
+  public String language;
+
+  /** Number of fields of the state besides the order. */
+  @Param({"10", "1000"})
+  public int stateFields;
+
+  private FlowExpression condition;
+  private FlowExpression inputSelector;
+  private FlowExpression resultMerger;
+
+  private JsonNode state;
+
+  private final JsonNode result = TextNode.valueOf("Activity one done...");
+
+  @Setup
+  public void setUp() {
+    condition = FlowExpression.compile(language, conditionExpression());
+    inputSelector = FlowExpression.compile(language, inputSelectorExpression());
+    resultMerger = FlowExpression.compile(language, resultMergerExpression());
+    state = newState(stateFields);
+  }
+
+  @Benchmark
+  public boolean condition() {
+    return condition.test(state);
+  }
+
+  @Benchmark
+  public JsonNode select() {
+    return inputSelector.select(state);
+  }
+
+  @Benchmark
+  public JsonNode merge() {
+    return resultMerger.merge(state, result);
+  }
+
+  @Benchmark
+  public JsonNode step() {
+    if (!condition.test(state)) {
+      return state;
+    }
+    inputSelector.select(state);
+    return resultMerger.merge(state, result);
+  }
+
+  @Benchmark
+  public JsonNode compileAndStep() {
+    FlowExpression compiledCondition = FlowExpression.compile(language, conditionExpression());
+    FlowExpression compiledSelector = FlowExpression.compile(language, inputSelectorExpression());
+    FlowExpression compiledMerger = FlowExpression.compile(language, resultMergerExpression());
+    if (!compiledCondition.test(state)) {
+      return state;
+    }
+    compiledSelector.select(state);
+    return compiledMerger.merge(state, result);
+  }
+
+  private String conditionExpression() {
+    return language.equals(FlowExpression.JQ)
+        ? ".order.amount < 100"
+        : "$[?(@.order.amount < 100)]";
+  }
+
+  private String inputSelectorExpression() {
+    return language.equals(FlowExpression.JQ) ? ".order" : "$.order";
+  }
+
+  private String resultMergerExpression() {
+    return language.equals(FlowExpression.JQ) ? ".one = $result" : "$.one";
+  }
+
+  private static JsonNode newState(int fields) {
+    JsonNodeFactory factory = JsonNodeFactory.instance;
+    ObjectNode state = factory.objectNode();
+    ObjectNode order = state.putObject("order");
+    order.put("id", "order-1234");
+    order.put("amount", 42);
+    ArrayNode items = order.putArray("items");
+    for (int i = 0; i < 10; i++) {
+      items.addObject().put("sku", "sku-" + i).put("quantity", i + 1);
+    }
+    for (int i = 0; i < fields; i++) {
+      state.put("field" + i, "value " + i);
+    }
+    return state;
+  }
+}
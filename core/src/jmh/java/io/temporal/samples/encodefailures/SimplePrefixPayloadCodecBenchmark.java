@@ -0,0 +1,12 @@
+package io.temporal.samples.encodefailures;
+
+import io.temporal.payload.codec.PayloadCodec;
+import io.temporal.samples.benchmark.PayloadCodecBenchmark;
+
+public class SimplePrefixPayloadCodecBenchmark extends PayloadCodecBenchmark {
+
+  @Override
+  protected PayloadCodec createCodec() {
+    return new SimplePrefixPayloadCodec();
+  }
+}
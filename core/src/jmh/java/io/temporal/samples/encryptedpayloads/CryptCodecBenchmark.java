@@ -0,0 +1,12 @@
+package io.temporal.samples.encryptedpayloads;
+
+import io.temporal.payload.codec.PayloadCodec;
+import io.temporal.samples.benchmark.PayloadCodecBenchmark;
+
+public class CryptCodecBenchmark extends PayloadCodecBenchmark {
+
+  @Override
+  protected PayloadCodec createCodec() {
+    return new CryptCodec();
+  }
+}
@@ -0,0 +1,35 @@
+package io.temporal.samples.encryptedpayloads;
+
+import io.temporal.payload.codec.PayloadCodec;
+import io.temporal.samples.benchmark.PayloadCodecBenchmark;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.TearDown;
+
+/** Benchmarks {@link CryptCodec} that processes lists of payloads over 64KB in parallel. */
+public class ParallelCryptCodecBenchmark extends PayloadCodecBenchmark {
+
+  private static final int PARALLEL_THRESHOLD_BYTES = 64 * 1024;
+
+  private ThreadPoolExecutor executor;
+
+  @Override
+  protected PayloadCodec createCodec() {
+    int threads = Runtime.getRuntime().availableProcessors();
+    executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            1,
+            TimeUnit.MINUTES,
+            new ArrayBlockingQueue<>(threads * 16),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    return new CryptCodec(executor, PARALLEL_THRESHOLD_BYTES);
+  }
+
+  @TearDown
+  public void shutdownExecutor() {
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,13 @@
+package io.temporal.samples.encryptedpayloads;
+
+import io.temporal.payload.codec.PayloadCodec;
+import io.temporal.samples.benchmark.PayloadCodecBenchmark;
+
+/** Baseline for {@link CryptCodecBenchmark}. */
+public class UncachedCryptCodecBenchmark extends PayloadCodecBenchmark {
+
+  @Override
+  protected PayloadCodec createCodec() {
+    return new UncachedCryptCodec();
+  }
+}
@@ -0,0 +1,21 @@
+package io.temporal.samples.keymanagementencryption.awsencryptionsdk;
+
+import com.amazonaws.encryptionsdk.AwsCrypto;
+import com.amazonaws.encryptionsdk.CryptoAlgorithm;
+import io.temporal.payload.codec.PayloadCodec;
+import java.time.Duration;
+
+/** Benchmarks {@link KeyringCodec} that reuses data keys from a {@link DataKeyCache}. */
+public class CachingKeyringCodecBenchmark extends KeyringCodecBenchmark {
+
+  @Override
+  protected PayloadCodec createCodec() {
+    AwsCrypto crypto =
+        AwsCrypto.builder()
+            .withEncryptionAlgorithm(CryptoAlgorithm.ALG_AES_256_GCM_HKDF_SHA512_COMMIT_KEY)
+            .build();
+    DataKeyCache cache =
+        new DataKeyCache(100, Duration.ofMinutes(5), Long.MAX_VALUE, Long.MAX_VALUE);
+    return new KeyringCodec(crypto, createKeyring(), false, cache);
+  }
+}
@@ -0,0 +1,39 @@
+package io.temporal.samples.keymanagementencryption.awsencryptionsdk;
+
+import io.temporal.payload.codec.PayloadCodec;
+import io.temporal.samples.benchmark.PayloadCodecBenchmark;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import software.amazon.cryptography.materialproviders.IKeyring;
+import software.amazon.cryptography.materialproviders.MaterialProviders;
+import software.amazon.cryptography.materialproviders.model.AesWrappingAlg;
+import software.amazon.cryptography.materialproviders.model.CreateRawAesKeyringInput;
+import software.amazon.cryptography.materialproviders.model.MaterialProvidersConfig;
+
+/**
+ * Benchmarks {@link KeyringCodec} with a raw AES keyring. The sample uses an AWS KMS keyring, which
+ * adds a network call per payload on top of the local cost measured here.
+ */
+public class KeyringCodecBenchmark extends PayloadCodecBenchmark {
+
+  @Override
+  protected PayloadCodec createCodec() {
+    return new KeyringCodec(createKeyring());
+  }
+
+  static IKeyring createKeyring() {
+    byte[] wrappingKey = new byte[32];
+    new SecureRandom().nextBytes(wrappingKey);
+    MaterialProviders materialProviders =
+        MaterialProviders.builder()
+            .MaterialProvidersConfig(MaterialProvidersConfig.builder().build())
+            .build();
+    return materialProviders.CreateRawAesKeyring(
+        CreateRawAesKeyringInput.builder()
+            .keyNamespace("benchmark")
+            .keyName("benchmark-key")
+            .wrappingKey(ByteBuffer.wrap(wrappingKey))
+            .wrappingAlg(AesWrappingAlg.ALG_AES256_GCM_IV12_TAG16)
+            .build());
+  }
+}
@@ -0,0 +1,132 @@
+package io.temporal.samples.payloadconverter.binary;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import io.temporal.api.common.v1.Payload;
+import io.temporal.common.converter.DataConverter;
+import io.temporal.common.converter.DefaultDataConverter;
+import io.temporal.samples.batch.slidingwindow.SingleRecord;
+import io.temporal.samples.dsl.model.Flow;
+import io.temporal.samples.dsl.model.FlowAction;
+import io.temporal.samples.hello.HelloAccumulator.Greeting;
+import io.temporal.samples.workflowstreams.Shared;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the encoded size and the serialization ({@code encode}) and deserialization ({@code
+ * decode}) time of {@link BinaryPayloadConverter} with the default JSON converter on the sample
+ * DTOs. The encoded size of each combination is printed during the setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BinaryPayloadConverterBenchmark {
+
+  /**
+   * The format: json for the default converter or the name of a {@link
+   * BinaryPayloadConverter.Format}. Protobuf doesn't support collections, so the greetings are
+   * converted to JSON with it.
+   */
+  @Param({"json", "smile", "cbor", "protobuf"})
+  public String format;
+
+  /** The DTO to convert. */
+  @Param({"statusEvent", "textDelta", "singleRecord", "flow", "greetings"})
+  public String dto;
+
+  private DataConverter converter;
+
+  private Object value;
+
+  private Class<?> valueClass;
+
+  private Type valueType;
+
+  private Payload payload;
+
+  @Setup
+  public void setUp() {
+    converter =
+        format.equals("json")
+            ? DefaultDataConverter.newDefaultInstance()
+            : BinaryPayloadConverter.newDataConverter(
+                new BinaryPayloadConverter(
+                    BinaryPayloadConverter.Format.valueOf(format.toUpperCase(Locale.ROOT)),
+                    Shared.StatusEvent.class,
+                    Shared.TextDelta.class,
+                    SingleRecord.class,
+                    Flow.class,
+                    Greeting.class));
+    switch (dto) {
+      case "statusEvent":
+        value = new Shared.StatusEvent("processing", "order-1234");
+        break;
+      case "textDelta":
+        value = new Shared.TextDelta(" token");
+        break;
+      case "singleRecord":
+        value = new SingleRecord(1234);
+        break;
+      case "flow":
+        value = newFlow(100);
+        break;
+      default:
+        value = newGreetings(100);
+    }
+    valueClass = value instanceof Deque ? Deque.class : value.getClass();
+    valueType =
+        value instanceof Deque ? new TypeReference<Deque<Greeting>>() {}.getType() : valueClass;
+    payload = encode();
+    System.out.printf(
+        "%n%s %s: %d bytes, %s%n",
+        format,
+        dto,
+        payload.getData().size(),
+        payload.getMetadataOrThrow("encoding").toStringUtf8());
+  }
+
+  @Benchmark
+  public Payload encode() {
+    return converter.toPayload(value).get();
+  }
+
+  @Benchmark
+  public Object decode() {
+    return converter.fromPayload(payload, valueClass, valueType);
+  }
+
+  private static Flow newFlow(int count) {
+    List<FlowAction> actions = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      actions.add(new FlowAction("Action" + i, "Compensate" + i, i % 10, 3 + i % 5, i + 1));
+    }
+    return new Flow("benchmarkFlow", "Benchmark Flow", "Flow with " + count + " actions", actions);
+  }
+
+  private static Deque<Greeting> newGreetings(int count) {
+    Deque<Greeting> greetings = new ArrayDeque<>(count);
+    for (int i = 0; i < count; i++) {
+      greetings.add(new Greeting("Hello " + i, i % 2 == 0 ? "blue" : "red", "key-" + i));
+    }
+    return greetings;
+  }
+}
@@ -0,0 +1,122 @@
+package io.temporal.samples.payloadconverter.cloudevents;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.protobuf.ByteString;
+import io.cloudevents.CloudEvent;
+import io.cloudevents.core.builder.CloudEventBuilder;
+import io.cloudevents.core.format.EventFormat;
+import io.cloudevents.core.provider.EventFormatProvider;
+import io.cloudevents.jackson.JsonFormat;
+import io.temporal.api.common.v1.Payload;
+import io.temporal.samples.benchmark.BenchmarkPayloads;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures serialization ({@code encode}) and deserialization ({@code decode}) throughput of
+ * {@link CloudEventsPayloadConverter}. One operation converts a batch of {@code batchSize} events
+ * with JSON data of {@code payloadSize} bytes each. {@code decodeData} deserializes only the data
+ * of the events. {@code encodeEventFormat} and {@code decodeEventFormat} go through the generic
+ * CloudEvents {@link EventFormat} and copy the event JSON to and from byte arrays, as the converter
+ * used to.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CloudEventsPayloadConverterBenchmark {
+
+  @Param({"1024", "16384", "65536", "1048576"})
+  public int payloadSize;
+
+  @Param({"1", "10", "100"})
+  public int batchSize;
+
+  private final CloudEventsPayloadConverter converter = new CloudEventsPayloadConverter();
+
+  private final EventFormat eventFormat =
+      EventFormatProvider.getInstance().resolveFormat(JsonFormat.CONTENT_TYPE);
+
+  private List<CloudEvent> events;
+
+  private List<Payload> payloads;
+
+  @Setup
+  public void setUp() {
+    events = new ArrayList<>(batchSize);
+    for (int i = 0; i < batchSize; i++) {
+      events.add(
+          CloudEventBuilder.v1()
+              .withId(String.valueOf(i))
+              .withType("example.benchmark")
+              .withSource(URI.create("http://temporal.io"))
+              .withData("application/json", BenchmarkPayloads.newJson(payloadSize, i))
+              .build());
+    }
+    payloads = encode();
+  }
+
+  @Benchmark
+  public List<Payload> encode() {
+    List<Payload> result = new ArrayList<>(events.size());
+    for (CloudEvent event : events) {
+      result.add(converter.toData(event).get());
+    }
+    return result;
+  }
+
+  @Benchmark
+  public List<CloudEvent> decode() {
+    List<CloudEvent> result = new ArrayList<>(payloads.size());
+    for (Payload payload : payloads) {
+      result.add(converter.fromData(payload, CloudEvent.class, CloudEvent.class));
+    }
+    return result;
+  }
+
+  @Benchmark
+  public List<JsonNode> decodeData() {
+    List<JsonNode> result = new ArrayList<>(payloads.size());
+    for (Payload payload : payloads) {
+      result.add(converter.fromData(payload, JsonNode.class, JsonNode.class));
+    }
+    return result;
+  }
+
+  @Benchmark
+  public List<Payload> encodeEventFormat() {
+    List<Payload> result = new ArrayList<>(events.size());
+    for (CloudEvent event : events) {
+      result.add(
+          Payload.newBuilder()
+              .putMetadata("encoding", ByteString.copyFromUtf8("json/plain"))
+              .setData(ByteString.copyFrom(eventFormat.serialize(event)))
+              .build());
+    }
+    return result;
+  }
+
+  @Benchmark
+  public List<CloudEvent> decodeEventFormat() {
+    List<CloudEvent> result = new ArrayList<>(payloads.size());
+    for (Payload payload : payloads) {
+      result.add(eventFormat.deserialize(payload.getData().toByteArray()));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,226 @@
+package io.temporal.samples.batch.common;
+
+import com.uber.m3.tally.Scope;
+import io.temporal.api.common.v1.Payload;
+import io.temporal.common.converter.DefaultDataConverter;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Values loaded ahead in the background, shared by the PrefetchingRecordLoader of every batch
+ * sample. A loader reads ahead the pages or records that follow the requested one, so the next
+ * request usually finds its value already loaded and doesn't stall.
+ *
+ * <p>The memory budget is in bytes: the buffered values are weighed when they are loaded, and a
+ * value being loaded counts as the size of the last loaded one. When the budget is exceeded, the
+ * eldest values are dropped and loaded again on demand. Values are keyed, so concurrent batches
+ * don't interfere with each other.
+ *
+ * <p>Reports the {@value #STALL_LATENCY_METRIC} timer, the {@value #STALLS_METRIC} and {@value
+ * #HITS_METRIC} counters and the {@value #BUFFERED_BYTES_METRIC} gauge to the given metrics scope.
+ * The scope reports nothing unless it is created with a reporter, as in the metrics sample.
+ *
+ * <p>The buffer is local to the worker process. A value is served from it only if the activity
+ * that requests it runs on the same worker that loaded it ahead. Otherwise it is loaded on demand.
+ */
+public final class ReadAheadBuffer<K, V> {
+
+  private static final Logger log = LoggerFactory.getLogger(ReadAheadBuffer.class);
+
+  /** Time spent waiting for a value that was not loaded in advance. */
+  public static final String STALL_LATENCY_METRIC = "batch_record_loader_stall_latency";
+
+  public static final String STALLS_METRIC = "batch_record_loader_stalls";
+  public static final String HITS_METRIC = "batch_record_loader_hits";
+  public static final String BUFFERED_BYTES_METRIC = "batch_record_loader_buffered_bytes";
+
+  private static final class Entry<V> {
+    Future<V> future;
+
+    /** Weight of the value, or its estimate while it is loaded. */
+    long bytes;
+  }
+
+  private final ExecutorService executor;
+  private final ToLongFunction<V> weigher;
+  private final long maxBufferedBytes;
+  private final Scope metricsScope;
+
+  /** Values that are loaded or being loaded in the background, in insertion order. */
+  private final Map<K, Entry<V>> buffer = new LinkedHashMap<>();
+
+  // Guarded by buffer.
+  private long bufferedBytes;
+  private long lastValueBytes;
+
+  private final LongAdder stallNanos = new LongAdder();
+  private final LongAdder stallCount = new LongAdder();
+  private final LongAdder hitCount = new LongAdder();
+
+  /**
+   * @param executor executor that runs the background loads
+   * @param weigher size of a value in bytes, see {@link #serializedSize}
+   * @param maxBufferedBytes memory budget of the buffered values
+   * @param metricsScope scope the stall and buffer metrics are reported to
+   */
+  public ReadAheadBuffer(
+      ExecutorService executor,
+      ToLongFunction<V> weigher,
+      long maxBufferedBytes,
+      Scope metricsScope) {
+    if (maxBufferedBytes < 1) {
+      throw new IllegalArgumentException("Expected maxBufferedBytes > 0: " + maxBufferedBytes);
+    }
+    this.executor = executor;
+    this.weigher = weigher;
+    this.maxBufferedBytes = maxBufferedBytes;
+    this.metricsScope = metricsScope;
+  }
+
+  /** Returns the value of a key, loaded ahead if it was, otherwise loaded now. */
+  public V get(K key, Supplier<V> load) {
+    Entry<V> entry;
+    synchronized (buffer) {
+      entry = buffer.remove(key);
+      if (entry != null) {
+        bufferedBytes -= entry.bytes;
+        reportBufferedBytes();
+      }
+    }
+    V result = null;
+    long start = System.nanoTime();
+    boolean stalled = entry == null || !entry.future.isDone();
+    if (entry != null) {
+      try {
+        result = entry.future.get();
+      } catch (ExecutionException e) {
+        // Load it again synchronously to report the failure to the caller.
+        log.warn("Background load of " + key + " failed", e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+    }
+    if (result == null) {
+      stalled = true;
+      result = load.get();
+    }
+    if (stalled) {
+      long nanos = System.nanoTime() - start;
+      stallNanos.add(nanos);
+      stallCount.increment();
+      metricsScope.timer(STALL_LATENCY_METRIC).record(com.uber.m3.util.Duration.ofNanos(nanos));
+      metricsScope.counter(STALLS_METRIC).inc(1);
+    } else {
+      hitCount.increment();
+      metricsScope.counter(HITS_METRIC).inc(1);
+    }
+    return result;
+  }
+
+  /** Loads the values of the keys in the background, unless they are buffered already. */
+  public void readAhead(List<K> keys, Function<K, V> load) {
+    synchronized (buffer) {
+      for (K key : keys) {
+        if (buffer.containsKey(key)) {
+          continue;
+        }
+        long estimate = lastValueBytes;
+        Iterator<Entry<V>> eldest = buffer.values().iterator();
+        while (eldest.hasNext() && bufferedBytes + estimate > maxBufferedBytes) {
+          evict(eldest, null);
+        }
+        if (bufferedBytes + estimate > maxBufferedBytes) {
+          // A single value doesn't fit.
+          break;
+        }
+        Entry<V> entry = new Entry<>();
+        entry.bytes = estimate;
+        bufferedBytes += estimate;
+        buffer.put(key, entry);
+        entry.future =
+            executor.submit(
+                () -> {
+                  V value = load.apply(key);
+                  loaded(key, entry, weigher.applyAsLong(value));
+                  return value;
+                });
+      }
+      reportBufferedBytes();
+    }
+  }
+
+  private void loaded(K key, Entry<V> entry, long bytes) {
+    synchronized (buffer) {
+      lastValueBytes = bytes;
+      if (buffer.get(key) != entry) {
+        // Already requested or evicted.
+        return;
+      }
+      bufferedBytes += bytes - entry.bytes;
+      entry.bytes = bytes;
+      // The estimate was short. The value itself may go, it is loaded again on demand.
+      Iterator<Entry<V>> eldest = buffer.values().iterator();
+      while (eldest.hasNext() && bufferedBytes > maxBufferedBytes) {
+        evict(eldest, entry);
+      }
+      reportBufferedBytes();
+    }
+  }
+
+  /** Removes the next entry, and cancels its load unless it is the one completing. */
+  private void evict(Iterator<Entry<V>> eldest, Entry<V> completing) {
+    Entry<V> entry = eldest.next();
+    if (entry != completing) {
+      entry.future.cancel(true);
+    }
+    bufferedBytes -= entry.bytes;
+    eldest.remove();
+  }
+
+  private void reportBufferedBytes() {
+    metricsScope.gauge(BUFFERED_BYTES_METRIC).update(bufferedBytes);
+  }
+
+  /** Total time spent waiting for values that were not loaded in advance. */
+  public Duration getStallTime() {
+    return Duration.ofNanos(stallNanos.sum());
+  }
+
+  /** Number of requests that had to wait for a value to load. */
+  public long getStallCount() {
+    return stallCount.sum();
+  }
+
+  /** Number of requests that were served from the buffer without waiting. */
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /** Bytes of the buffered values, and estimates of the values being loaded. */
+  public long getBufferedBytes() {
+    synchronized (buffer) {
+      return bufferedBytes;
+    }
+  }
+
+  /** Size of the default encoding of a value, which is what an activity returns. */
+  public static long serializedSize(Object value) {
+    return DefaultDataConverter.STANDARD_INSTANCE
+        .toPayload(value)
+        .map(Payload::getSerializedSize)
+        .orElse(0);
+  }
+}
@@ -0,0 +1,50 @@
+package io.temporal.samples.batch.heartbeatingactivity;
+
+import java.util.BitSet;
+
+/**
+ * Tracks records that complete out of order and maintains a contiguous low-watermark.
+ *
+ * <p>The watermark is the smallest offset that is not yet completed. All records below it are
+ * known to be processed, so it is safe to report it as the heartbeat offset. An activity retry
+ * that resumes from the watermark neither skips nor re-runs any record of the completed prefix.
+ */
+final class CompletionWatermark {
+
+  /** Number of completed bits to accumulate below the watermark before they are discarded. */
+  private static final int COMPACTION_THRESHOLD = 64 * 1024;
+
+  /** Offset that corresponds to bit 0 of {@link #completed}. */
+  private int base;
+
+  private int watermark;
+
+  private BitSet completed = new BitSet();
+
+  CompletionWatermark(int startOffset) {
+    this.base = startOffset;
+    this.watermark = startOffset;
+  }
+
+  /** Marks the record at the given offset as completed and advances the watermark if possible. */
+  synchronized void complete(int offset) {
+    if (offset < watermark) {
+      throw new IllegalArgumentException(
+          "Offset " + offset + " is below the watermark " + watermark);
+    }
+    completed.set(offset - base);
+    if (offset != watermark) {
+      return;
+    }
+    watermark = base + completed.nextClearBit(watermark - base);
+    if (watermark - base >= COMPACTION_THRESHOLD) {
+      completed = completed.get(watermark - base, Math.max(completed.length(), watermark - base));
+      base = watermark;
+    }
+  }
+
+  /** Returns the smallest offset that is not yet completed. */
+  synchronized int get() {
+    return watermark;
+  }
+}
@@ -6,15 +6,23 @@ import io.temporal.serviceclient.WorkflowServiceStubs;
 import io.temporal.worker.Worker;
 import io.temporal.worker.WorkerFactory;
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * A worker process that hosts implementations of HeartbeatingActivityBatchWorkflow and
  * RecordProcessorActivity.
+ *
+ * <p>Pass the number of records to process concurrently as the first argument to use {@link
+ * ParallelRecordProcessorActivityImpl} instead of the sequential implementation.
  */
 public final class HeartbeatingActivityBatchWorker {
 
   static final String TASK_QUEUE = "HeartbeatingActivityBatch";
 
+  /** Memory budget of the records loaded ahead. */
+  static final long MAX_BUFFERED_BYTES = 1024 * 1024;
+
   public static void main(String[] args) {
     // Load configuration from environment and files
     ClientConfigProfile profile;
@@ -33,8 +41,24 @@ public final class HeartbeatingActivityBatchWorker {
 
     worker.registerWorkflowImplementationTypes(HeartbeatingActivityBatchWorkflowImpl.class);
 
-    worker.registerActivitiesImplementations(
-        new RecordProcessorActivityImpl(new RecordLoaderImpl(), new RecordProcessorImpl()));
+    // Loads the following records in the background while the current ones are processed.
+    RecordLoader recordLoader =
+        new PrefetchingRecordLoader(
+            new RecordLoaderImpl(),
+            Executors.newFixedThreadPool(4),
+            100,
+            MAX_BUFFERED_BYTES,
+            service.getOptions().getMetricsScope());
+    if (args.length > 0) {
+      int parallelism = Integer.parseInt(args[0]);
+      ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+      worker.registerActivitiesImplementations(
+          new ParallelRecordProcessorActivityImpl(
+              recordLoader, new RecordProcessorImpl(), executor, parallelism));
+    } else {
+      worker.registerActivitiesImplementations(
+          new RecordProcessorActivityImpl(recordLoader, new RecordProcessorImpl()));
+    }
     factory.start();
     System.out.println("Worker started for task queue: " + TASK_QUEUE);
   }
@@ -0,0 +1,124 @@
+package io.temporal.samples.batch.heartbeatingactivity;
+
+import io.temporal.activity.Activity;
+import io.temporal.activity.ActivityExecutionContext;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * RecordProcessorActivity implementation that processes multiple records in parallel.
+ *
+ * <p>Records are loaded sequentially by the activity thread and handed to an executor. At most
+ * {@code maxInFlight} records are processed at the same time, so memory use stays bounded no
+ * matter how large the dataset is. Records complete out of order, so the offset reported through
+ * heartbeat is the low-watermark tracked by {@link CompletionWatermark}: the first offset that is
+ * not yet processed. On activity retry processing resumes from that offset. Records that completed
+ * above the watermark before the failure are processed again, records below it never are.
+ *
+ * <p>The executor is owned by the caller and can be shared by all activity invocations of a
+ * worker. Heartbeats are always sent from the activity thread.
+ */
+public class ParallelRecordProcessorActivityImpl implements RecordProcessorActivity {
+
+  private static final Logger log =
+      LoggerFactory.getLogger(ParallelRecordProcessorActivityImpl.class);
+
+  private final RecordLoader recordLoader;
+
+  private final RecordProcessor recordProcessor;
+
+  private final ExecutorService executor;
+
+  private final int maxInFlight;
+
+  /**
+   * @param recordLoader used to load records sequentially by offset
+   * @param recordProcessor used to process records. Must be thread safe.
+   * @param executor executor that runs record processing
+   * @param maxInFlight maximum number of records that are processed concurrently
+   */
+  public ParallelRecordProcessorActivityImpl(
+      RecordLoader recordLoader,
+      RecordProcessor recordProcessor,
+      ExecutorService executor,
+      int maxInFlight) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+    }
+    this.recordLoader = recordLoader;
+    this.recordProcessor = recordProcessor;
+    this.executor = executor;
+    this.maxInFlight = maxInFlight;
+  }
+
+  @Override
+  public int processRecords() {
+    // On activity retry load the last reported watermark from the heartbeat details.
+    ActivityExecutionContext context = Activity.getExecutionContext();
+    Optional<Integer> heartbeatDetails = context.getHeartbeatDetails(Integer.class);
+    int offset = heartbeatDetails.orElse(0);
+    log.info("Activity processRecords started with offset=" + offset);
+
+    CompletionWatermark watermark = new CompletionWatermark(offset);
+    Semaphore inFlight = new Semaphore(maxInFlight);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    try {
+      while (failure.get() == null) {
+        Optional<SingleRecord> record = recordLoader.getRecord(offset);
+        if (!record.isPresent()) {
+          break;
+        }
+        inFlight.acquire();
+        submit(record.get(), offset, watermark, inFlight, failure);
+        // Heartbeat only the contiguous prefix of completed records.
+        context.heartbeat(watermark.get());
+        offset++;
+      }
+      // Wait for the records that are still being processed.
+      inFlight.acquire(maxInFlight);
+      inFlight.release(maxInFlight);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Activity.wrap(e);
+    }
+    context.heartbeat(watermark.get());
+    Throwable e = failure.get();
+    if (e instanceof Error) {
+      throw (Error) e;
+    }
+    if (e != null) {
+      throw Activity.wrap(e);
+    }
+    return watermark.get();
+  }
+
+  private void submit(
+      SingleRecord record,
+      int offset,
+      CompletionWatermark watermark,
+      Semaphore inFlight,
+      AtomicReference<Throwable> failure) {
+    try {
+      executor.execute(
+          () -> {
+            try {
+              recordProcessor.processRecord(record);
+              watermark.complete(offset);
+            } catch (Throwable e) {
+              // Any failure, an Error included, stops the watermark and fails the activity.
+              failure.compareAndSet(null, e);
+            } finally {
+              inFlight.release();
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      inFlight.release();
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package io.temporal.samples.batch.heartbeatingactivity;
+
+import com.uber.m3.tally.Scope;
+import io.temporal.samples.batch.common.ReadAheadBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * RecordLoader decorator that reads ahead of the current offset.
+ *
+ * <p>When a record at some offset is requested, the following {@code readAhead} records are loaded
+ * in the background, so the next {@link #getRecord(int)} calls usually find them already loaded,
+ * see {@link ReadAheadBuffer}. Records are keyed by offset, so multiple activities that share the
+ * loader don't interfere with each other.
+ */
+public final class PrefetchingRecordLoader implements RecordLoader {
+
+  private final RecordLoader delegate;
+
+  private final int readAhead;
+
+  private final ReadAheadBuffer<Integer, Optional<SingleRecord>> buffer;
+
+  /**
+   * @param delegate loader that is used to load the records
+   * @param executor executor that runs the background loads
+   * @param readAhead number of records after the requested one to load in the background
+   * @param maxBufferedBytes memory budget of the records loaded ahead
+   * @param metricsScope scope the stall metrics are reported to
+   */
+  public PrefetchingRecordLoader(
+      RecordLoader delegate,
+      ExecutorService executor,
+      int readAhead,
+      long maxBufferedBytes,
+      Scope metricsScope) {
+    if (readAhead < 1) {
+      throw new IllegalArgumentException("Expected readAhead > 0: " + readAhead);
+    }
+    this.delegate = delegate;
+    this.readAhead = readAhead;
+    this.buffer =
+        new ReadAheadBuffer<>(
+            executor,
+            record -> record.map(ReadAheadBuffer::serializedSize).orElse(0L),
+            maxBufferedBytes,
+            metricsScope);
+  }
+
+  @Override
+  public Optional<SingleRecord> getRecord(int offset) {
+    Optional<SingleRecord> result = buffer.get(offset, () -> delegate.getRecord(offset));
+    if (result.isPresent()) {
+      List<Integer> next = new ArrayList<>();
+      for (int i = 1; i <= readAhead; i++) {
+        next.add(offset + i);
+      }
+      buffer.readAhead(next, delegate::getRecord);
+    }
+    return result;
+  }
+
+  public ReadAheadBuffer<?, ?> getBuffer() {
+    return buffer;
+  }
+}
@@ -0,0 +1,34 @@
+package io.temporal.samples.batch.iterator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** Result of {@link RecordChunkProcessor#processRecords(java.util.List)}. */
+public class ChunkResult {
+  private int processedCount;
+
+  private Map<Integer, String> failures = new HashMap<>();
+
+  public ChunkResult(int processedCount, Map<Integer, String> failures) {
+    this.processedCount = processedCount;
+    this.failures = failures;
+  }
+
+  /** JSON deserializer needs it */
+  public ChunkResult() {}
+
+  /** Number of records of the chunk that were processed successfully. */
+  public int getProcessedCount() {
+    return processedCount;
+  }
+
+  /** Failure messages of the records that failed to process keyed by record id. */
+  public Map<Integer, String> getFailures() {
+    return failures;
+  }
+
+  @Override
+  public String toString() {
+    return "ChunkResult{" + "processedCount=" + processedCount + ", failures=" + failures + '}';
+  }
+}
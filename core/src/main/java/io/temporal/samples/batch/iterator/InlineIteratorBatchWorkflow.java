@@ -0,0 +1,19 @@
+package io.temporal.samples.batch.iterator;
+
+import io.temporal.workflow.WorkflowInterface;
+import io.temporal.workflow.WorkflowMethod;
+
+@WorkflowInterface
+public interface InlineIteratorBatchWorkflow {
+
+  /**
+   * Processes the batch of records.
+   *
+   * @param pageSize the number of records to process in a single workflow run.
+   * @param chunkSize the number of records to process in a single activity invocation.
+   * @param offset the offset of the first record to process. 0 to start the batch processing.
+   * @return total number of processed records.
+   */
+  @WorkflowMethod
+  int processBatch(int pageSize, int chunkSize, int offset);
+}
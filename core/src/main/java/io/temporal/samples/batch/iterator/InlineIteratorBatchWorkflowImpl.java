@@ -0,0 +1,77 @@
+package io.temporal.samples.batch.iterator;
+
+import io.temporal.activity.ActivityOptions;
+import io.temporal.failure.ApplicationFailure;
+import io.temporal.workflow.Async;
+import io.temporal.workflow.Promise;
+import io.temporal.workflow.Workflow;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+
+/**
+ * Implements iterator workflow pattern without child workflows.
+ *
+ * <p>A single workflow run processes a single page of records. The page is split into chunks and
+ * each chunk is processed by a single RecordChunkProcessor activity invocation. All chunks of a
+ * page are processed in parallel. Compared to {@link IteratorBatchWorkflowImpl} it adds a few
+ * history events per chunk instead of a whole child workflow execution per record.
+ *
+ * <p>After all chunks complete the new run of the workflow is created using continue as new. The
+ * new run processes the next page of records.
+ */
+public final class InlineIteratorBatchWorkflowImpl implements InlineIteratorBatchWorkflow {
+
+  private static final Logger log = Workflow.getLogger(InlineIteratorBatchWorkflowImpl.class);
+
+  private final RecordLoader recordLoader =
+      Workflow.newActivityStub(
+          RecordLoader.class,
+          ActivityOptions.newBuilder().setStartToCloseTimeout(Duration.ofSeconds(5)).build());
+
+  private final RecordChunkProcessor chunkProcessor =
+      Workflow.newActivityStub(
+          RecordChunkProcessor.class,
+          ActivityOptions.newBuilder().setStartToCloseTimeout(Duration.ofMinutes(5)).build());
+
+  /** Stub used to continue-as-new. */
+  private final InlineIteratorBatchWorkflow nextRun =
+      Workflow.newContinueAsNewStub(InlineIteratorBatchWorkflow.class);
+
+  @Override
+  public int processBatch(int pageSize, int chunkSize, int offset) {
+    if (chunkSize <= 0) {
+      // Would split the page into chunks forever.
+      throw ApplicationFailure.newFailure(
+          "chunkSize must be positive: " + chunkSize, "invalid input");
+    }
+    // Loads a page of records
+    List<SingleRecord> records = recordLoader.getRecords(pageSize, offset);
+    // No more records in the dataset. Completes the workflow.
+    if (records.isEmpty()) {
+      return offset;
+    }
+    // Starts an activity per chunk asynchronously.
+    List<Promise<ChunkResult>> results = new ArrayList<>();
+    for (int from = 0; from < records.size(); from += chunkSize) {
+      List<SingleRecord> chunk =
+          new ArrayList<>(records.subList(from, Math.min(from + chunkSize, records.size())));
+      results.add(Async.function(chunkProcessor::processRecords, chunk));
+    }
+    // Waits for all chunks to complete.
+    Promise.allOf(results).get();
+
+    // Failed records are only logged for the sample brevity.
+    // A real application could store them or process them again.
+    for (Promise<ChunkResult> result : results) {
+      ChunkResult chunkResult = result.get();
+      if (!chunkResult.getFailures().isEmpty()) {
+        log.warn("Failed to process records: " + chunkResult.getFailures());
+      }
+    }
+
+    // Continues as new with the increased offset.
+    return nextRun.processBatch(pageSize, chunkSize, offset + records.size());
+  }
+}
@@ -9,7 +9,10 @@ import io.temporal.envconfig.ClientConfigProfile;
 import io.temporal.serviceclient.WorkflowServiceStubs;
 import java.io.IOException;
 
-/** Starts a single execution of IteratorBatchWorkflow. */
+/**
+ * Starts a single execution of IteratorBatchWorkflow. Pass "inline" as the first argument to start
+ * InlineIteratorBatchWorkflow instead.
+ */
 public class IteratorBatchStarter {
 
   public static void main(String[] args) {
@@ -26,9 +29,16 @@ public class IteratorBatchStarter {
     WorkflowClient workflowClient =
         WorkflowClient.newInstance(service, profile.toWorkflowClientOptions());
     WorkflowOptions options = WorkflowOptions.newBuilder().setTaskQueue(TASK_QUEUE).build();
-    IteratorBatchWorkflow batchWorkflow =
-        workflowClient.newWorkflowStub(IteratorBatchWorkflow.class, options);
-    WorkflowExecution execution = WorkflowClient.start(batchWorkflow::processBatch, 5, 0);
+    WorkflowExecution execution;
+    if (args.length > 0 && args[0].equals("inline")) {
+      InlineIteratorBatchWorkflow batchWorkflow =
+          workflowClient.newWorkflowStub(InlineIteratorBatchWorkflow.class, options);
+      execution = WorkflowClient.start(batchWorkflow::processBatch, 5, 2, 0);
+    } else {
+      IteratorBatchWorkflow batchWorkflow =
+          workflowClient.newWorkflowStub(IteratorBatchWorkflow.class, options);
+      execution = WorkflowClient.start(batchWorkflow::processBatch, 5, 0);
+    }
     System.out.println(
         "Started batch workflow. WorkflowId="
             + execution.getWorkflowId()
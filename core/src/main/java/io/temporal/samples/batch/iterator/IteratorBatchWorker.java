@@ -6,15 +6,19 @@ import io.temporal.serviceclient.WorkflowServiceStubs;
 import io.temporal.worker.Worker;
 import io.temporal.worker.WorkerFactory;
 import java.io.IOException;
+import java.util.concurrent.Executors;
 
 /**
- * A worker process that hosts implementations of IteratorBatchWorkflow and RecordProcessorWorkflow
- * as well as RecordLoader activity.
+ * A worker process that hosts implementations of IteratorBatchWorkflow, InlineIteratorBatchWorkflow
+ * and RecordProcessorWorkflow as well as RecordLoader and RecordChunkProcessor activities.
  */
 public final class IteratorBatchWorker {
 
   static final String TASK_QUEUE = "IteratorBatch";
 
+  /** Memory budget of the records loaded ahead. */
+  static final long MAX_BUFFERED_BYTES = 1024 * 1024;
+
   public static void main(String[] args) {
     // Load configuration from environment and files
     ClientConfigProfile profile;
@@ -32,9 +36,19 @@ public final class IteratorBatchWorker {
     Worker worker = factory.newWorker(TASK_QUEUE);
 
     worker.registerWorkflowImplementationTypes(
-        IteratorBatchWorkflowImpl.class, RecordProcessorWorkflowImpl.class);
-
-    worker.registerActivitiesImplementations(new RecordLoaderImpl());
+        IteratorBatchWorkflowImpl.class,
+        InlineIteratorBatchWorkflowImpl.class,
+        RecordProcessorWorkflowImpl.class);
+
+    worker.registerActivitiesImplementations(new RecordChunkProcessorImpl());
+    // Loads the following pages in the background while the current ones are processed.
+    worker.registerActivitiesImplementations(
+        new PrefetchingRecordLoader(
+            new RecordLoaderImpl(),
+            Executors.newFixedThreadPool(4),
+            2,
+            MAX_BUFFERED_BYTES,
+            service.getOptions().getMetricsScope()));
     factory.start();
     System.out.println("Worker started for task queue: " + TASK_QUEUE);
   }
@@ -0,0 +1,20 @@
+package io.temporal.samples.batch.iterator;
+
+import io.temporal.activity.ActivityInterface;
+import java.util.List;
+
+/** Activity that processes a chunk of records in a single invocation. */
+@ActivityInterface
+public interface RecordChunkProcessor {
+
+  /**
+   * Processes a chunk of records.
+   *
+   * <p>A failure to process a single record doesn't fail the activity. It is reported in the
+   * result instead. So an activity retry doesn't reprocess the records that succeeded.
+   *
+   * @param records records to process.
+   * @return number of processed records and failures of records that could not be processed.
+   */
+  ChunkResult processRecords(List<SingleRecord> records);
+}
@@ -0,0 +1,33 @@
+package io.temporal.samples.batch.iterator;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Fake RecordChunkProcessor implementation. */
+public class RecordChunkProcessorImpl implements RecordChunkProcessor {
+
+  private static final Logger log = LoggerFactory.getLogger(RecordChunkProcessorImpl.class);
+
+  @Override
+  public ChunkResult processRecords(List<SingleRecord> records) {
+    int processedCount = 0;
+    Map<Integer, String> failures = new HashMap<>();
+    for (SingleRecord record : records) {
+      try {
+        processRecord(record);
+        processedCount++;
+      } catch (RuntimeException e) {
+        failures.put(record.getId(), String.valueOf(e.getMessage()));
+      }
+    }
+    return new ChunkResult(processedCount, failures);
+  }
+
+  /** Application specific record processing logic goes here. */
+  protected void processRecord(SingleRecord record) {
+    log.info("Processed " + record);
+  }
+}
@@ -0,0 +1,186 @@
+package io.temporal.samples.batch.slidingwindow;
+
+/**
+ * Sliding window size controller that uses additive increase, multiplicative decrease (AIMD).
+ *
+ * <p>The window grows by roughly one record for every window worth of completions while children
+ * complete quickly. It is halved when a child reports a failure or when the estimated child
+ * latency rises above {@code latencyTolerance} times the lowest latency observed so far. The child
+ * latency is estimated using Little's law as the number of records in flight divided by the
+ * completion rate. So no per child state is needed.
+ *
+ * <p>All the state is kept in bean properties, so the window is passed to the next run through
+ * {@link ProcessBatchInput} on continue-as-new and keeps its size and statistics. The time is
+ * passed from the workflow by the caller to keep the code deterministic.
+ */
+public final class AdaptiveWindow {
+
+  /** Weight of the latest sample in the exponentially weighted moving averages. */
+  private static final double SMOOTHING = 0.1;
+
+  private int minimumSize = 1;
+
+  private int maximumSize;
+
+  private double size;
+
+  private double latencyTolerance = 2.0;
+
+  private double decreaseFactor = 0.5;
+
+  private long lastCompletionMillis;
+
+  private double averageIntervalMillis;
+
+  private double minimumLatencyMillis;
+
+  private int completionsSinceDecrease;
+
+  /**
+   * @param initialSize the size of the window to start from.
+   * @param maximumSize the maximum size the window can grow to.
+   */
+  public AdaptiveWindow(int initialSize, int maximumSize) {
+    if (initialSize < 1 || maximumSize < initialSize) {
+      throw new IllegalArgumentException(
+          "Expected 0 < initialSize <= maximumSize, got initialSize="
+              + initialSize
+              + ", maximumSize="
+              + maximumSize);
+    }
+    this.size = initialSize;
+    this.maximumSize = maximumSize;
+  }
+
+  /** JSON deserializer needs it */
+  public AdaptiveWindow() {}
+
+  /**
+   * Updates the window after a child reported its completion.
+   *
+   * @param nowMillis current workflow time.
+   * @param inFlight the number of records still being processed.
+   * @param failed true if the child failed to process its record.
+   */
+  public void onCompletion(long nowMillis, int inFlight, boolean failed) {
+    if (lastCompletionMillis > 0) {
+      long interval = Math.max(0, nowMillis - lastCompletionMillis);
+      averageIntervalMillis =
+          averageIntervalMillis == 0
+              ? (double) interval
+              : SMOOTHING * interval + (1 - SMOOTHING) * averageIntervalMillis;
+    }
+    lastCompletionMillis = nowMillis;
+    completionsSinceDecrease++;
+
+    double latency = estimatedLatencyMillis(inFlight + 1);
+    if (latency > 0 && (minimumLatencyMillis == 0 || latency < minimumLatencyMillis)) {
+      minimumLatencyMillis = latency;
+    }
+    boolean congested = failed || latency > minimumLatencyMillis * latencyTolerance;
+    if (congested) {
+      // Decreases at most once per window worth of completions to react to a single congestion
+      // event only once.
+      if (completionsSinceDecrease >= size) {
+        size = Math.max(minimumSize, size * decreaseFactor);
+        completionsSinceDecrease = 0;
+      }
+    } else {
+      size = Math.min(maximumSize, size + 1 / size);
+    }
+  }
+
+  /** Current number of children allowed to run in parallel. */
+  public int windowSize() {
+    return (int) size;
+  }
+
+  /** Observed number of completions per second. 0 if not known yet. */
+  public double completionRate() {
+    return averageIntervalMillis == 0 ? 0 : 1000 / averageIntervalMillis;
+  }
+
+  private double estimatedLatencyMillis(int inFlight) {
+    double rate = completionRate();
+    return rate == 0 ? 0 : inFlight / rate * 1000;
+  }
+
+  /** The size below which the window never shrinks. */
+  public int getMinimumSize() {
+    return minimumSize;
+  }
+
+  public void setMinimumSize(int minimumSize) {
+    this.minimumSize = minimumSize;
+  }
+
+  /** The size above which the window never grows. */
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  public void setMaximumSize(int maximumSize) {
+    this.maximumSize = maximumSize;
+  }
+
+  public double getSize() {
+    return size;
+  }
+
+  public void setSize(double size) {
+    this.size = size;
+  }
+
+  /**
+   * How many times the estimated child latency can exceed the lowest observed one before the
+   * window shrinks.
+   */
+  public double getLatencyTolerance() {
+    return latencyTolerance;
+  }
+
+  public void setLatencyTolerance(double latencyTolerance) {
+    this.latencyTolerance = latencyTolerance;
+  }
+
+  /** The factor the window size is multiplied by when it shrinks. */
+  public double getDecreaseFactor() {
+    return decreaseFactor;
+  }
+
+  public void setDecreaseFactor(double decreaseFactor) {
+    this.decreaseFactor = decreaseFactor;
+  }
+
+  public long getLastCompletionMillis() {
+    return lastCompletionMillis;
+  }
+
+  public void setLastCompletionMillis(long lastCompletionMillis) {
+    this.lastCompletionMillis = lastCompletionMillis;
+  }
+
+  public double getAverageIntervalMillis() {
+    return averageIntervalMillis;
+  }
+
+  public void setAverageIntervalMillis(double averageIntervalMillis) {
+    this.averageIntervalMillis = averageIntervalMillis;
+  }
+
+  public double getMinimumLatencyMillis() {
+    return minimumLatencyMillis;
+  }
+
+  public void setMinimumLatencyMillis(double minimumLatencyMillis) {
+    this.minimumLatencyMillis = minimumLatencyMillis;
+  }
+
+  public int getCompletionsSinceDecrease() {
+    return completionsSinceDecrease;
+  }
+
+  public void setCompletionsSinceDecrease(int completionsSinceDecrease) {
+    this.completionsSinceDecrease = completionsSinceDecrease;
+  }
+}
@@ -1,17 +1,22 @@
 package io.temporal.samples.batch.slidingwindow;
 
-import java.util.Set;
-
 /** Used as a result of {@link SlidingWindowBatchWorkflow#getProgress()} query. */
 public final class BatchProgress {
 
   private final int progress;
 
-  private final Set<Integer> currentRecords;
+  private final RecordIdSet currentRecords;
+
+  private final int slidingWindowSize;
 
-  public BatchProgress(int progress, Set<Integer> currentRecords) {
+  private final double completionRate;
+
+  public BatchProgress(
+      int progress, RecordIdSet currentRecords, int slidingWindowSize, double completionRate) {
     this.progress = progress;
     this.currentRecords = currentRecords;
+    this.slidingWindowSize = slidingWindowSize;
+    this.completionRate = completionRate;
   }
 
   /** Count of completed record processing child workflows. */
@@ -20,7 +25,17 @@ public final class BatchProgress {
   }
 
   /** Ids of records that are currently being processed by child workflows. */
-  public Set<Integer> getCurrentRecords() {
+  public RecordIdSet getCurrentRecords() {
     return currentRecords;
   }
+
+  /** Current number of record processing child workflows allowed to run in parallel. */
+  public int getSlidingWindowSize() {
+    return slidingWindowSize;
+  }
+
+  /** Observed number of child workflow completions per second. */
+  public double getCompletionRate() {
+    return completionRate;
+  }
 }
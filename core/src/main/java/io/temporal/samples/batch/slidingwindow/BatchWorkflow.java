@@ -13,11 +13,15 @@ public interface BatchWorkflow {
    *     run.
    * @param slidingWindowSize the number of records to process in parallel by a single sliding
    *     window workflow. Can be larger than the pageSize.
+   * @param maximumSlidingWindowSize if larger than slidingWindowSize, the sliding window size of
+   *     each SlidingWindowBatchWorkflow adapts to the observed child completion rate and failures
+   *     starting from slidingWindowSize up to this value. Otherwise the window size is fixed.
    * @param partitions defines the number of SlidingWindowBatchWorkflows to run in parallel. If
    *     number of partitions is too low the update rate of a single SlidingWindowBatchWorkflows can
    *     get too high.
    * @return total number of processed records.
    */
   @WorkflowMethod
-  int processBatch(int pageSize, int slidingWindowSize, int partitions);
+  int processBatch(
+      int pageSize, int slidingWindowSize, int maximumSlidingWindowSize, int partitions);
 }
@@ -18,7 +18,8 @@ public class BatchWorkflowImpl implements BatchWorkflow {
           ActivityOptions.newBuilder().setStartToCloseTimeout(Duration.ofSeconds(5)).build());
 
   @Override
-  public int processBatch(int pageSize, int slidingWindowSize, int partitions) {
+  public int processBatch(
+      int pageSize, int slidingWindowSize, int maximumSlidingWindowSize, int partitions) {
     // The sample partitions the data set into continuous ranges.
     // A real application can choose any other way to divide the records into multiple collections.
     int totalCount = recordLoader.getRecordCount();
@@ -40,6 +41,9 @@ public class BatchWorkflowImpl implements BatchWorkflow {
       input.setSlidingWindowSize(slidingWindowSize);
       input.setOffset(offset);
       input.setMaximumOffset(maximumOffset);
+      if (maximumSlidingWindowSize > slidingWindowSize) {
+        input.setAdaptiveWindow(new AdaptiveWindow(slidingWindowSize, maximumSlidingWindowSize));
+      }
 
       Promise<Integer> partitionResult = Async.function(partitionWorkflow::processBatch, input);
       results.add(partitionResult);
@@ -0,0 +1,143 @@
+package io.temporal.samples.batch.slidingwindow;
+
+import io.temporal.client.WorkflowClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces record completions and failures reported by children into batched signals to their
+ * parents.
+ *
+ * <p>Completions are buffered per parent workflow. A buffer is flushed as a single {@link
+ * SlidingWindowBatchWorkflow#reportCompletions(List, List)} signal when it reaches {@code
+ * maxBatchSize} records or when {@code maxDelay} passes since the first record was added to it,
+ * whichever comes first. The signals to different parents are sent in parallel, so a slow signal
+ * doesn't delay the others. The future returned by {@link #add(String, int, boolean)} completes
+ * when the signal is delivered, so the caller can retry the report if the worker fails before the
+ * flush.
+ */
+public final class CompletionAggregator {
+
+  private static final Logger log = LoggerFactory.getLogger(CompletionAggregator.class);
+
+  private static final class Batch {
+    private final List<Integer> recordIds = new ArrayList<>();
+    private final List<Integer> failedRecordIds = new ArrayList<>();
+    private final List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+    int size() {
+      return recordIds.size() + failedRecordIds.size();
+    }
+  }
+
+  private final WorkflowClient client;
+
+  private final int maxBatchSize;
+
+  private final Duration maxDelay;
+
+  /** Runs the flush timers. */
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+  /** Sends the signals. */
+  private final ExecutorService sender;
+
+  /** Batches that are not flushed yet keyed by parent workflow id. */
+  private final Map<String, Batch> batches = new HashMap<>();
+
+  /**
+   * @param client client used to signal parent workflows.
+   * @param maxBatchSize maximum number of record ids in a single signal.
+   * @param maxDelay maximum time a completion waits in the buffer before it is signaled.
+   * @param maxConcurrentSignals maximum number of signals sent at the same time.
+   */
+  public CompletionAggregator(
+      WorkflowClient client, int maxBatchSize, Duration maxDelay, int maxConcurrentSignals) {
+    this.client = client;
+    this.maxBatchSize = maxBatchSize;
+    this.maxDelay = maxDelay;
+    this.sender = Executors.newFixedThreadPool(maxConcurrentSignals);
+  }
+
+  /**
+   * Adds a completion to the buffer of the parent.
+   *
+   * @param failed true if the child completed without processing its record.
+   * @return future that completes when the completion is delivered to the parent.
+   */
+  @SuppressWarnings("FutureReturnValueIgnored")
+  public CompletableFuture<Void> add(String parentWorkflowId, int recordId, boolean failed) {
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    Batch full = null;
+    synchronized (batches) {
+      Batch batch = batches.get(parentWorkflowId);
+      if (batch == null) {
+        batch = new Batch();
+        batches.put(parentWorkflowId, batch);
+        Batch scheduled = batch;
+        scheduler.schedule(
+            () -> flush(parentWorkflowId, scheduled), maxDelay.toMillis(), TimeUnit.MILLISECONDS);
+      }
+      if (failed) {
+        batch.failedRecordIds.add(recordId);
+      } else {
+        batch.recordIds.add(recordId);
+      }
+      batch.futures.add(result);
+      if (batch.size() >= maxBatchSize) {
+        batches.remove(parentWorkflowId);
+        full = batch;
+      }
+    }
+    if (full != null) {
+      Batch toSend = full;
+      sender.execute(() -> send(parentWorkflowId, toSend));
+    }
+    return result;
+  }
+
+  /** Sends the batch if it wasn't already sent because it reached the maximum size. */
+  private void flush(String parentWorkflowId, Batch batch) {
+    synchronized (batches) {
+      if (!batches.remove(parentWorkflowId, batch)) {
+        return;
+      }
+    }
+    sender.execute(() -> send(parentWorkflowId, batch));
+  }
+
+  private void send(String parentWorkflowId, Batch batch) {
+    try {
+      SlidingWindowBatchWorkflow parent =
+          client.newWorkflowStub(SlidingWindowBatchWorkflow.class, parentWorkflowId);
+      parent.reportCompletions(batch.recordIds, batch.failedRecordIds);
+      batch.futures.forEach(f -> f.complete(null));
+    } catch (RuntimeException e) {
+      log.warn("Failed to report completions to " + parentWorkflowId, e);
+      batch.futures.forEach(f -> f.completeExceptionally(e));
+    }
+  }
+
+  /** Stops the flush timer and the signals. Completions that are not flushed yet are failed. */
+  public void shutdown() {
+    scheduler.shutdownNow();
+    sender.shutdownNow();
+    synchronized (batches) {
+      for (Batch batch : batches.values()) {
+        batch.futures.forEach(
+            f -> f.completeExceptionally(new IllegalStateException("Aggregator is shut down")));
+      }
+      batches.clear();
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package io.temporal.samples.batch.slidingwindow;
+
+import io.temporal.activity.ActivityInterface;
+
+/**
+ * Local activity that reports record processing completions to a SlidingWindowBatchWorkflow.
+ *
+ * <p>Used instead of signaling the parent directly from a child to coalesce completions of many
+ * children into a single {@link SlidingWindowBatchWorkflow#reportCompletions(java.util.List,
+ * java.util.List)} signal. As a local activity it adds a single marker event to the history of the
+ * child, where a signal adds two events.
+ */
+@ActivityInterface
+public interface CompletionReporter {
+
+  /**
+   * Reports a record completion. Returns after the signal that contains the record id is delivered
+   * to the parent.
+   *
+   * @param parentWorkflowId id of the SlidingWindowBatchWorkflow that started the child.
+   * @param recordId id of the processed record.
+   * @param failed true if the child completed without processing the record.
+   */
+  void reportCompletion(String parentWorkflowId, int recordId, boolean failed);
+}
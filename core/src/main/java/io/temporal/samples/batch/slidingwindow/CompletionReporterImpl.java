@@ -0,0 +1,32 @@
+package io.temporal.samples.batch.slidingwindow;
+
+import io.temporal.activity.Activity;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * CompletionReporter implementation that hands completions to a {@link CompletionAggregator}.
+ *
+ * <p>The local activity waits until the aggregated signal is delivered, which is at most the flush
+ * delay of the aggregator. If the signal fails or the worker dies before the flush, the local
+ * activity fails and is retried. A duplicated completion is ignored by the parent.
+ */
+public class CompletionReporterImpl implements CompletionReporter {
+
+  private final CompletionAggregator aggregator;
+
+  public CompletionReporterImpl(CompletionAggregator aggregator) {
+    this.aggregator = aggregator;
+  }
+
+  @Override
+  public void reportCompletion(String parentWorkflowId, int recordId, boolean failed) {
+    try {
+      aggregator.add(parentWorkflowId, recordId, failed).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Activity.wrap(e);
+    } catch (ExecutionException e) {
+      throw Activity.wrap(e.getCause());
+    }
+  }
+}
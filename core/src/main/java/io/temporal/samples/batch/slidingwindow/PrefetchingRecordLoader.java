@@ -0,0 +1,71 @@
+package io.temporal.samples.batch.slidingwindow;
+
+import com.uber.m3.tally.Scope;
+import io.temporal.samples.batch.common.ReadAheadBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * RecordLoader activity implementation that loads the following pages in the background.
+ *
+ * <p>RecordIterable requests pages of a partition in offset order. After a page is returned, the
+ * next {@code readAheadPages} pages are loaded from the delegate while the workflow processes the
+ * current one, see {@link ReadAheadBuffer}. Pages are keyed by their size and offset. Partitions of
+ * the same batch request pages in different offset ranges, so the memory budget should fit the
+ * number of partitions times {@code readAheadPages} pages.
+ */
+public final class PrefetchingRecordLoader implements RecordLoader {
+
+  private final RecordLoader delegate;
+
+  private final int readAheadPages;
+
+  private final ReadAheadBuffer<List<Integer>, List<SingleRecord>> buffer;
+
+  /**
+   * @param delegate loader that is used to load the pages
+   * @param executor executor that runs the background loads
+   * @param readAheadPages number of pages after the requested one to load in the background
+   * @param maxBufferedBytes memory budget of the pages loaded ahead
+   * @param metricsScope scope the stall metrics are reported to
+   */
+  public PrefetchingRecordLoader(
+      RecordLoader delegate,
+      ExecutorService executor,
+      int readAheadPages,
+      long maxBufferedBytes,
+      Scope metricsScope) {
+    if (readAheadPages < 1) {
+      throw new IllegalArgumentException("Expected readAheadPages > 0: " + readAheadPages);
+    }
+    this.delegate = delegate;
+    this.readAheadPages = readAheadPages;
+    this.buffer =
+        new ReadAheadBuffer<>(
+            executor, ReadAheadBuffer::serializedSize, maxBufferedBytes, metricsScope);
+  }
+
+  @Override
+  public List<SingleRecord> getRecords(int pageSize, int offset) {
+    List<SingleRecord> result =
+        buffer.get(List.of(pageSize, offset), () -> delegate.getRecords(pageSize, offset));
+    if (!result.isEmpty()) {
+      List<List<Integer>> next = new ArrayList<>();
+      for (int i = 0; i < readAheadPages; i++) {
+        next.add(List.of(pageSize, offset + result.size() + i * pageSize));
+      }
+      buffer.readAhead(next, page -> delegate.getRecords(page.get(0), page.get(1)));
+    }
+    return result;
+  }
+
+  @Override
+  public int getRecordCount() {
+    return delegate.getRecordCount();
+  }
+
+  public ReadAheadBuffer<?, ?> getBuffer() {
+    return buffer;
+  }
+}
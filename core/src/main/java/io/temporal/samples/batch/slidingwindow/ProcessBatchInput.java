@@ -1,8 +1,5 @@
 package io.temporal.samples.batch.slidingwindow;
 
-import java.util.HashSet;
-import java.util.Set;
-
 /** Input of {@link SlidingWindowBatchWorkflow#processBatch(ProcessBatchInput)} */
 public final class ProcessBatchInput {
   private int pageSize;
@@ -14,14 +11,19 @@ public final class ProcessBatchInput {
 
   private int progress;
 
-  private Set<Integer> currentRecords = new HashSet<>();
+  private RecordIdSet currentRecords = new RecordIdSet();
+
+  private AdaptiveWindow adaptiveWindow;
 
   /** the number of records to load in a single RecordLoader.getRecords call. */
   public void setPageSize(int pageSize) {
     this.pageSize = pageSize;
   }
 
-  /** the number of parallel record processing child workflows to execute. */
+  /**
+   * the number of parallel record processing child workflows to execute. The initial size of the
+   * window if {@link #setAdaptiveWindow(AdaptiveWindow)} is set.
+   */
   public void setSlidingWindowSize(int slidingWindowSize) {
     this.slidingWindowSize = slidingWindowSize;
   }
@@ -44,14 +46,24 @@ public final class ProcessBatchInput {
   /**
    * Ids of records that are being processed by child workflows.
    *
-   * <p>This puts a limit on the sliding window size as workflow arguments cannot exceed 2MB in JSON
-   * format. Another practical limit is the number of signals a workflow can handle per second.
-   * Adjust the number of partitions to keep this rate at a reasonable value.
+   * <p>The ids are stored as a compact bitmap, so the 2MB limit on workflow arguments doesn't limit
+   * the sliding window size in practice. The practical limit is the number of signals a workflow
+   * can handle per second. Adjust the number of partitions to keep this rate at a reasonable value.
    */
-  public void setCurrentRecords(Set<Integer> currentRecords) {
+  public void setCurrentRecords(RecordIdSet currentRecords) {
     this.currentRecords = currentRecords;
   }
 
+  /**
+   * Adjusts the sliding window size to the observed completion rate and failures of children. Null
+   * to keep the window size fixed to {@link #setSlidingWindowSize(int)}.
+   *
+   * <p>Passed to the next run on continue-as-new to keep the window size and its statistics.
+   */
+  public void setAdaptiveWindow(AdaptiveWindow adaptiveWindow) {
+    this.adaptiveWindow = adaptiveWindow;
+  }
+
   public int getPageSize() {
     return pageSize;
   }
@@ -72,7 +84,11 @@ public final class ProcessBatchInput {
     return progress;
   }
 
-  public Set<Integer> getCurrentRecords() {
+  public RecordIdSet getCurrentRecords() {
     return currentRecords;
   }
+
+  public AdaptiveWindow getAdaptiveWindow() {
+    return adaptiveWindow;
+  }
 }
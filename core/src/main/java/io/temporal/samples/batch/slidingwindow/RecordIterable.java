@@ -9,7 +9,13 @@ import java.util.List;
 import java.util.NoSuchElementException;
 import org.jetbrains.annotations.NotNull;
 
-/** Iterable implementation that relies on RecordLoader activity. */
+/**
+ * Iterable implementation that relies on RecordLoader activity.
+ *
+ * <p>Pages are not requested ahead from the workflow: SlidingWindowBatchWorkflow continues as new
+ * after a page, which would abandon the request. The following pages are loaded ahead by {@link
+ * PrefetchingRecordLoader} on the worker instead.
+ */
 public class RecordIterable implements Iterable<SingleRecord> {
 
   /**
@@ -34,12 +40,7 @@ public class RecordIterable implements Iterable<SingleRecord> {
 
     RecordIterator() {
       this.offset = initialOffset;
-      if (initialOffset > maximumOffset) {
-        this.lastPage = new ArrayList<>();
-      } else {
-        int size = Math.min(pageSize, maximumOffset - offset);
-        this.lastPage = recordLoader.getRecords(size, offset);
-      }
+      this.lastPage = loadPage(offset);
     }
 
     @Override
@@ -57,10 +58,18 @@ public class RecordIterable implements Iterable<SingleRecord> {
       if (size == index) {
         offset += index;
         index = 0;
-        lastPage = recordLoader.getRecords(pageSize, offset);
+        lastPage = loadPage(offset);
       }
       return result;
     }
+
+    private List<SingleRecord> loadPage(int pageOffset) {
+      int size = Math.min(pageSize, maximumOffset - pageOffset);
+      if (size <= 0) {
+        return new ArrayList<>();
+      }
+      return recordLoader.getRecords(size, pageOffset);
+    }
   }
 
   private final int initialOffset;
@@ -1,5 +1,7 @@
 package io.temporal.samples.batch.slidingwindow;
 
+import io.temporal.activity.LocalActivityOptions;
+import io.temporal.failure.TemporalFailure;
 import io.temporal.workflow.Workflow;
 import java.time.Duration;
 import java.util.Optional;
@@ -11,18 +13,31 @@ public final class RecordProcessorWorkflowImpl implements RecordProcessorWorkflo
   public static final Logger log = Workflow.getLogger(RecordProcessorWorkflowImpl.class);
   private final Random random = Workflow.newRandom();
 
+  /**
+   * Coalesces completions of many children into a single signal to the parent. Completes after the
+   * signal is delivered and is retried otherwise.
+   */
+  private final CompletionReporter completionReporter =
+      Workflow.newLocalActivityStub(
+          CompletionReporter.class,
+          LocalActivityOptions.newBuilder().setStartToCloseTimeout(Duration.ofMinutes(1)).build());
+
   @Override
   public void processRecord(SingleRecord r) {
-    processRecordImpl(r);
+    boolean failed = false;
+    try {
+      processRecordImpl(r);
+    } catch (TemporalFailure e) {
+      // Failure of an activity or a child workflow invoked by the processing logic.
+      log.warn("Failed to process " + r, e);
+      failed = true;
+    }
     // This workflow is always expected to have a parent.
     // But for unit testing it might be useful to skip the notification.
     Optional<String> parentWorkflowId = Workflow.getInfo().getParentWorkflowId();
     if (parentWorkflowId.isPresent()) {
-      String parentId = parentWorkflowId.get();
-      SlidingWindowBatchWorkflow parent =
-          Workflow.newExternalWorkflowStub(SlidingWindowBatchWorkflow.class, parentId);
       // Notify parent about record processing completion
-      parent.reportCompletion(r.getId());
+      completionReporter.reportCompletion(parentWorkflowId.get(), r.getId(), failed);
     }
   }
 
@@ -26,7 +26,7 @@ public class SlidingWindowBatchStarter {
         WorkflowClient.newInstance(service, profile.toWorkflowClientOptions());
     WorkflowOptions options = WorkflowOptions.newBuilder().setTaskQueue(TASK_QUEUE).build();
     BatchWorkflow batchWorkflow = workflowClient.newWorkflowStub(BatchWorkflow.class, options);
-    WorkflowClient.start(batchWorkflow::processBatch, 10, 25, 3);
+    WorkflowClient.start(batchWorkflow::processBatch, 10, 25, 100, 3);
     System.out.println("Started batch workflow with 3 partitions");
     System.exit(0);
   }
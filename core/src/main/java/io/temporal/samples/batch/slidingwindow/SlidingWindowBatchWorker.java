@@ -6,12 +6,17 @@ import io.temporal.serviceclient.WorkflowServiceStubs;
 import io.temporal.worker.Worker;
 import io.temporal.worker.WorkerFactory;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
 
 /** Hosts sliding window batch sample workflow and activity implementations. */
 public final class SlidingWindowBatchWorker {
 
   static final String TASK_QUEUE = "SlidingWindow";
 
+  /** Memory budget of the records loaded ahead. */
+  static final long MAX_BUFFERED_BYTES = 1024 * 1024;
+
   public static void main(String[] args) {
     // Load configuration from environment and files
     ClientConfigProfile profile;
@@ -32,7 +37,19 @@ public final class SlidingWindowBatchWorker {
         BatchWorkflowImpl.class,
         SlidingWindowBatchWorkflowImpl.class,
         RecordProcessorWorkflowImpl.class);
-    worker.registerActivitiesImplementations(new RecordLoaderImpl());
+    // Loads the following pages in the background while the current ones are processed.
+    worker.registerActivitiesImplementations(
+        new PrefetchingRecordLoader(
+            new RecordLoaderImpl(),
+            Executors.newFixedThreadPool(4),
+            2,
+            MAX_BUFFERED_BYTES,
+            service.getOptions().getMetricsScope()));
+    // Coalesces completions reported by children into signals of up to 100 records, and sends up
+    // to 8 signals to different parents at the same time.
+    worker.registerActivitiesImplementations(
+        new CompletionReporterImpl(
+            new CompletionAggregator(client, 100, Duration.ofMillis(500), 8)));
 
     factory.start();
 
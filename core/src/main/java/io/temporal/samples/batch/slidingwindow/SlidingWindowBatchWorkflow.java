@@ -4,6 +4,7 @@ import io.temporal.workflow.QueryMethod;
 import io.temporal.workflow.SignalMethod;
 import io.temporal.workflow.WorkflowInterface;
 import io.temporal.workflow.WorkflowMethod;
+import java.util.List;
 
 @WorkflowInterface
 public interface SlidingWindowBatchWorkflow {
@@ -19,6 +20,24 @@ public interface SlidingWindowBatchWorkflow {
   @SignalMethod
   void reportCompletion(int recordId);
 
+  /**
+   * Reports completion of multiple records at once. Used by {@link CompletionAggregator} to reduce
+   * the number of signals the parent receives.
+   *
+   * @param recordIds records that were processed.
+   * @param failedRecordIds records whose child completed without processing them, as reported by
+   *     {@link #reportFailure(int)}.
+   */
+  @SignalMethod
+  void reportCompletions(List<Integer> recordIds, List<Integer> failedRecordIds);
+
+  /**
+   * Reports that a child workflow completed without processing its record. The parent counts it as
+   * completed, but shrinks the adaptive sliding window.
+   */
+  @SignalMethod
+  void reportFailure(int recordId);
+
   @QueryMethod
   BatchProgress getProgress();
 }
@@ -21,7 +21,7 @@ public final class SlidingWindowBatchWorkflowImpl implements SlidingWindowBatchW
       Workflow.newContinueAsNewStub(SlidingWindowBatchWorkflow.class);
 
   /** Contains ids of records that are being processed by child workflows. */
-  private Set<Integer> currentRecords;
+  private RecordIdSet currentRecords;
 
   /**
    * Used to accumulate records to remove for signals delivered before processBatch method started
@@ -32,6 +32,9 @@ public final class SlidingWindowBatchWorkflowImpl implements SlidingWindowBatchW
   /** Count of completed record processing child workflows. */
   private int progress;
 
+  /** Controls the number of children that run in parallel. */
+  private AdaptiveWindow window;
+
   /**
    * @return number of processed records
    */
@@ -49,6 +52,12 @@ public final class SlidingWindowBatchWorkflowImpl implements SlidingWindowBatchW
     int offset = input.getOffset();
     int maximumOffset = input.getMaximumOffset();
     int slidingWindowSize = input.getSlidingWindowSize();
+    // A fixed size window is an adaptive window that can neither grow nor shrink.
+    this.window = input.getAdaptiveWindow();
+    if (window == null) {
+      window = new AdaptiveWindow(slidingWindowSize, slidingWindowSize);
+      window.setMinimumSize(slidingWindowSize);
+    }
 
     Iterable<SingleRecord> records = new RecordIterable(pageSize, offset, maximumOffset);
     List<Promise<WorkflowExecution>> childrenStartedByThisRun = new ArrayList<>();
@@ -56,7 +65,7 @@ public final class SlidingWindowBatchWorkflowImpl implements SlidingWindowBatchW
     Iterator<SingleRecord> recordIterator = records.iterator();
     while (true) {
       // After starting slidingWindowSize children blocks until a completion signal is received.
-      Workflow.await(() -> currentRecords.size() < slidingWindowSize);
+      Workflow.await(() -> currentRecords.size() < window.windowSize());
       // Completes workflow, if no more records to process.
       if (!recordIterator.hasNext()) {
         // Awaits for all children to complete
@@ -100,6 +109,9 @@ public final class SlidingWindowBatchWorkflowImpl implements SlidingWindowBatchW
         newInput.setMaximumOffset(maximumOffset);
         newInput.setProgress(progress);
         newInput.setCurrentRecords(currentRecords);
+        if (input.getAdaptiveWindow() != null) {
+          newInput.setAdaptiveWindow(window);
+        }
         return nextRun.processBatch(newInput);
       }
     }
@@ -107,7 +119,27 @@ public final class SlidingWindowBatchWorkflowImpl implements SlidingWindowBatchW
 
   @Override
   public void reportCompletion(int recordId) {
+    onCompletion(recordId, false);
+  }
+
+  @Override
+  public void reportCompletions(List<Integer> recordIds, List<Integer> failedRecordIds) {
+    for (int recordId : recordIds) {
+      onCompletion(recordId, false);
+    }
+    for (int recordId : failedRecordIds) {
+      onCompletion(recordId, true);
+    }
+  }
+
+  @Override
+  public void reportFailure(int recordId) {
+    onCompletion(recordId, true);
+  }
+
+  private void onCompletion(int recordId, boolean failed) {
     // Handle situation when signal handler is called before the workflow main method.
+    // Such completions are not taken into account by the adaptive window.
     if (currentRecords == null) {
       recordsToRemove.add(recordId);
       return;
@@ -115,11 +147,16 @@ public final class SlidingWindowBatchWorkflowImpl implements SlidingWindowBatchW
     // Dedupes signals as in some edge cases they can be duplicated.
     if (currentRecords.remove(recordId)) {
       progress++;
+      window.onCompletion(Workflow.currentTimeMillis(), currentRecords.size(), failed);
     }
   }
 
   @Override
   public BatchProgress getProgress() {
-    return new BatchProgress(progress, currentRecords);
+    if (window == null) {
+      return new BatchProgress(progress, currentRecords, 0, 0);
+    }
+    return new BatchProgress(
+        progress, currentRecords, window.windowSize(), window.completionRate());
   }
 }
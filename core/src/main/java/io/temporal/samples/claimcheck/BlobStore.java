@@ -0,0 +1,21 @@
+package io.temporal.samples.claimcheck;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * Storage of the payloads offloaded by {@link ClaimCheckCodec}. Blobs are content addressed: the
+ * key is the hash of the data. So a key is always written with the same data and implementations
+ * can skip writing a key that already exists.
+ */
+public interface BlobStore {
+
+  /** Stores the data under the given key. */
+  void put(String key, ByteString data);
+
+  /**
+   * Returns the data stored under the key.
+   *
+   * @throws IllegalArgumentException if there is no data for the key.
+   */
+  ByteString get(String key);
+}
@@ -0,0 +1,155 @@
+package io.temporal.samples.claimcheck;
+
+import com.google.protobuf.ByteString;
+import io.temporal.api.common.v1.Payload;
+import io.temporal.common.converter.EncodingKeys;
+import io.temporal.payload.codec.PayloadCodec;
+import io.temporal.payload.codec.PayloadCodecException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Codec that implements the claim check pattern. Payloads larger than a threshold are written to a
+ * {@link BlobStore} and replaced by a small payload that references them. So large activity inputs
+ * and results don't inflate the workflow history, which is loaded on every replay.
+ *
+ * <p>The reference is the SHA-256 hash of the payload, so equal payloads are stored only once.
+ * Decoded payloads are kept in an LRU cache limited by their total size, as the same payloads are
+ * decoded again on every replay of a workflow.
+ */
+public class ClaimCheckCodec implements PayloadCodec {
+  static final ByteString METADATA_ENCODING =
+      ByteString.copyFrom("binary/claim-check", StandardCharsets.UTF_8);
+
+  /** Default size of the smallest payload that is offloaded to the blob store. */
+  public static final int DEFAULT_THRESHOLD_BYTES = 128 * 1024;
+
+  /** Default maximum total size of the cached payloads. */
+  public static final long DEFAULT_CACHE_BYTES = 256L * 1024 * 1024;
+
+  private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+  private final BlobStore blobStore;
+  private final int thresholdBytes;
+  private final long cacheBytes;
+
+  /** Access ordered, so the iteration starts from the least recently used payload. */
+  private final LinkedHashMap<String, Payload> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long cachedBytes;
+
+  public ClaimCheckCodec(BlobStore blobStore) {
+    this(blobStore, DEFAULT_THRESHOLD_BYTES, DEFAULT_CACHE_BYTES);
+  }
+
+  /**
+   * @param blobStore the store of the offloaded payloads.
+   * @param thresholdBytes the size of the smallest payload that is offloaded.
+   * @param cacheBytes the maximum total size of the cached payloads.
+   */
+  public ClaimCheckCodec(BlobStore blobStore, int thresholdBytes, long cacheBytes) {
+    this.blobStore = blobStore;
+    this.thresholdBytes = thresholdBytes;
+    this.cacheBytes = cacheBytes;
+  }
+
+  @NotNull
+  @Override
+  public List<Payload> encode(@NotNull List<Payload> payloads) {
+    return payloads.stream().map(this::encodePayload).collect(Collectors.toList());
+  }
+
+  @NotNull
+  @Override
+  public List<Payload> decode(@NotNull List<Payload> payloads) {
+    return payloads.stream().map(this::decodePayload).collect(Collectors.toList());
+  }
+
+  private Payload encodePayload(Payload payload) {
+    if (payload.getSerializedSize() < thresholdBytes) {
+      return payload;
+    }
+    ByteString data = payload.toByteString();
+    String key = hash(data);
+    if (getCached(key) == null) {
+      // The blob was either never stored or evicted from the cache. Stores that already have the
+      // blob skip the write.
+      blobStore.put(key, data);
+      putCached(key, payload);
+    }
+    return Payload.newBuilder()
+        .putMetadata(EncodingKeys.METADATA_ENCODING_KEY, METADATA_ENCODING)
+        .setData(ByteString.copyFrom(key, StandardCharsets.US_ASCII))
+        .build();
+  }
+
+  private Payload decodePayload(Payload payload) {
+    if (!METADATA_ENCODING.equals(
+        payload.getMetadataOrDefault(EncodingKeys.METADATA_ENCODING_KEY, null))) {
+      return payload;
+    }
+    String key = payload.getData().toString(StandardCharsets.US_ASCII);
+    if (!KEY_PATTERN.matcher(key).matches()) {
+      throw new PayloadCodecException("Invalid claim check: " + key);
+    }
+    Payload cached = getCached(key);
+    if (cached != null) {
+      return cached;
+    }
+    Payload decoded;
+    try {
+      ByteString data = blobStore.get(key);
+      if (!key.equals(hash(data))) {
+        throw new PayloadCodecException("Blob doesn't match its claim check: " + key);
+      }
+      decoded = Payload.parseFrom(data);
+    } catch (PayloadCodecException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new PayloadCodecException(e);
+    }
+    putCached(key, decoded);
+    return decoded;
+  }
+
+  private synchronized Payload getCached(String key) {
+    return cache.get(key);
+  }
+
+  private synchronized void putCached(String key, Payload payload) {
+    int size = payload.getSerializedSize();
+    if (size > cacheBytes) {
+      return;
+    }
+    Payload previous = cache.put(key, payload);
+    if (previous != null) {
+      cachedBytes -= previous.getSerializedSize();
+    }
+    cachedBytes += size;
+    Iterator<Map.Entry<String, Payload>> iterator = cache.entrySet().iterator();
+    while (cachedBytes > cacheBytes) {
+      cachedBytes -= iterator.next().getValue().getSerializedSize();
+      iterator.remove();
+    }
+  }
+
+  private static String hash(ByteString data) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    digest.update(data.asReadOnlyByteBuffer());
+    return HexFormat.of().formatHex(digest.digest());
+  }
+}
@@ -0,0 +1,68 @@
+package io.temporal.samples.claimcheck;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Blob store that keeps every blob in a file of a local directory. The directory has to be shared
+ * by all the workers and clients, so it is useful for local runs. Production deployments would
+ * use an object store like S3 instead.
+ *
+ * <p>Blobs are memory mapped when read, so reading a large blob doesn't copy it to the heap. It is
+ * safe because a file is never modified once it is written.
+ */
+public class FileBlobStore implements BlobStore {
+
+  private final Path directory;
+
+  public FileBlobStore(Path directory) {
+    this.directory = directory;
+    try {
+      Files.createDirectories(directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void put(String key, ByteString data) {
+    Path path = directory.resolve(key);
+    if (Files.exists(path)) {
+      // Same key always has the same content.
+      return;
+    }
+    try {
+      // Writes to a temporary file first, so readers never see a partially written blob.
+      Path temporary = Files.createTempFile(directory, key, ".tmp");
+      try (OutputStream output = Files.newOutputStream(temporary)) {
+        data.writeTo(output);
+      }
+      Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public ByteString get(String key) {
+    try (FileChannel channel = FileChannel.open(directory.resolve(key), StandardOpenOption.READ)) {
+      // The mapping stays valid after the channel is closed.
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return UnsafeByteOperations.unsafeWrap(buffer);
+    } catch (NoSuchFileException e) {
+      throw new IllegalArgumentException("Blob not found: " + key, e);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package io.temporal.samples.claimcheck;
+
+import com.google.protobuf.ByteString;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Blob store that keeps the blobs in memory. Useful for tests only. */
+public class InMemoryBlobStore implements BlobStore {
+
+  private final Map<String, ByteString> blobs = new ConcurrentHashMap<>();
+
+  @Override
+  public void put(String key, ByteString data) {
+    blobs.putIfAbsent(key, data);
+  }
+
+  @Override
+  public ByteString get(String key) {
+    ByteString data = blobs.get(key);
+    if (data == null) {
+      throw new IllegalArgumentException("Blob not found: " + key);
+    }
+    return data;
+  }
+
+  /** Number of stored blobs. */
+  public int size() {
+    return blobs.size();
+  }
+}
@@ -0,0 +1,307 @@
+package io.temporal.samples.compressedpayloads;
+
+import com.github.luben.zstd.Zstd;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import io.temporal.api.common.v1.Payload;
+import io.temporal.common.converter.EncodingKeys;
+import io.temporal.payload.codec.PayloadCodec;
+import io.temporal.payload.codec.PayloadCodecException;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import javax.annotation.Nullable;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Codec that compresses payloads larger than a threshold. Smaller payloads are passed through
+ * untouched, as compressing them saves little and costs a metadata entry.
+ *
+ * <p>Unless an algorithm is given, it is picked per payload. A sample of the payload is compressed
+ * with LZ4 first to measure its compressibility. Payloads that don't compress, like already
+ * compressed or encrypted data, are passed through. Payloads up to {@code largePayloadBytes} are
+ * compressed with Zstd, which gives the best ratio at a moderate CPU cost. Larger ones are
+ * compressed with LZ4, which is several times faster. The algorithm and the uncompressed size are
+ * recorded in the payload metadata, so any algorithm can be decoded regardless of the
+ * configuration.
+ *
+ * <p>Encrypted data doesn't compress, so when used together with an encryption codec this codec
+ * must be applied first. {@link io.temporal.common.converter.CodecDataConverter} encodes with the
+ * codecs from the last to the first one, so it goes after the encryption codec in the list.
+ */
+public class CompressionCodec implements PayloadCodec {
+  static final ByteString METADATA_ENCODING =
+      ByteString.copyFrom("binary/compressed", StandardCharsets.UTF_8);
+
+  static final String METADATA_COMPRESSION_KEY = "compression";
+
+  static final String METADATA_UNCOMPRESSED_SIZE_KEY = "compression-uncompressed-size";
+
+  /** Default size of the smallest payload to compress. */
+  public static final int DEFAULT_THRESHOLD_BYTES = 1024;
+
+  /** Default size of the smallest payload that is compressed with LZ4 instead of Zstd. */
+  public static final int DEFAULT_LARGE_PAYLOAD_BYTES = 1024 * 1024;
+
+  /**
+   * Default size of the largest payload to decompress. The uncompressed size is read from the
+   * payload metadata, so it is checked before the buffer is allocated.
+   */
+  public static final int DEFAULT_MAX_UNCOMPRESSED_BYTES = 64 * 1024 * 1024;
+
+  /** Size of the sample used to estimate the compressibility. */
+  private static final int SAMPLE_BYTES = 4096;
+
+  /** Payloads with a sample that doesn't compress below this ratio are not compressed. */
+  private static final double MAX_COMPRESSION_RATIO = 0.9;
+
+  private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+
+  /** Supported compression algorithms. */
+  public enum Algorithm {
+    LZ4("lz4") {
+      @Override
+      byte[] compress(byte[] data) {
+        return LZ4_FACTORY.fastCompressor().compress(data);
+      }
+
+      @Override
+      byte[] decompress(byte[] data, int uncompressedSize) {
+        LZ4SafeDecompressor decompressor = LZ4_FACTORY.safeDecompressor();
+        return decompressor.decompress(data, uncompressedSize);
+      }
+    },
+    ZSTD("zstd") {
+      @Override
+      byte[] compress(byte[] data) {
+        return Zstd.compress(data, ZSTD_LEVEL);
+      }
+
+      @Override
+      byte[] decompress(byte[] data, int uncompressedSize) {
+        return Zstd.decompress(data, uncompressedSize);
+      }
+    },
+    DEFLATE("deflate") {
+      @Override
+      byte[] compress(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+          deflater.setInput(data);
+          deflater.finish();
+          ByteArrayOutputStream output = new ByteArrayOutputStream(data.length / 2 + 64);
+          byte[] buffer = new byte[8192];
+          while (!deflater.finished()) {
+            output.write(buffer, 0, deflater.deflate(buffer));
+          }
+          return output.toByteArray();
+        } finally {
+          deflater.end();
+        }
+      }
+
+      @Override
+      byte[] decompress(byte[] data, int uncompressedSize) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+          inflater.setInput(data);
+          byte[] result = new byte[uncompressedSize];
+          int size = 0;
+          while (size < uncompressedSize && !inflater.finished()) {
+            int inflated = inflater.inflate(result, size, uncompressedSize - size);
+            if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+              break;
+            }
+            size += inflated;
+          }
+          if (size != uncompressedSize || !inflater.finished()) {
+            throw new DataFormatException("Unexpected uncompressed size");
+          }
+          return result;
+        } finally {
+          inflater.end();
+        }
+      }
+    };
+
+    private static final int ZSTD_LEVEL = 3;
+
+    private final String name;
+    private final ByteString metadataValue;
+
+    Algorithm(String name) {
+      this.name = name;
+      this.metadataValue = ByteString.copyFrom(name, StandardCharsets.UTF_8);
+    }
+
+    /** Name of the algorithm recorded in the payload metadata. */
+    public String getName() {
+      return name;
+    }
+
+    abstract byte[] compress(byte[] data);
+
+    abstract byte[] decompress(byte[] data, int uncompressedSize) throws Exception;
+
+    static Algorithm fromName(String name) {
+      for (Algorithm algorithm : values()) {
+        if (algorithm.name.equals(name)) {
+          return algorithm;
+        }
+      }
+      throw new PayloadCodecException("Unknown compression algorithm: " + name);
+    }
+  }
+
+  private final int thresholdBytes;
+  private final int largePayloadBytes;
+  private final int maxUncompressedBytes;
+  @Nullable private final Algorithm algorithm;
+
+  /** Creates a codec that compresses payloads over 1KB with an algorithm picked per payload. */
+  public CompressionCodec() {
+    this(DEFAULT_THRESHOLD_BYTES, DEFAULT_LARGE_PAYLOAD_BYTES);
+  }
+
+  /**
+   * Creates a codec that picks the algorithm per payload and decompresses payloads up to 64MB.
+   *
+   * @param thresholdBytes the size of the smallest payload to compress.
+   * @param largePayloadBytes the size of the smallest payload to compress with LZ4 instead of
+   *     Zstd.
+   */
+  public CompressionCodec(int thresholdBytes, int largePayloadBytes) {
+    this(thresholdBytes, largePayloadBytes, DEFAULT_MAX_UNCOMPRESSED_BYTES);
+  }
+
+  /**
+   * Creates a codec that picks the algorithm per payload.
+   *
+   * @param thresholdBytes the size of the smallest payload to compress.
+   * @param largePayloadBytes the size of the smallest payload to compress with LZ4 instead of
+   *     Zstd.
+   * @param maxUncompressedBytes the size of the largest payload to decompress. Larger payloads are
+   *     not compressed, and compressed ones that claim a larger size are rejected.
+   */
+  public CompressionCodec(int thresholdBytes, int largePayloadBytes, int maxUncompressedBytes) {
+    this(thresholdBytes, largePayloadBytes, maxUncompressedBytes, null);
+  }
+
+  /**
+   * Creates a codec that always uses the given algorithm and decompresses payloads up to 64MB.
+   * Payloads that don't get smaller are still passed through.
+   *
+   * @param thresholdBytes the size of the smallest payload to compress.
+   * @param algorithm the compression algorithm.
+   */
+  public CompressionCodec(int thresholdBytes, Algorithm algorithm) {
+    this(thresholdBytes, Integer.MAX_VALUE, DEFAULT_MAX_UNCOMPRESSED_BYTES, algorithm);
+  }
+
+  private CompressionCodec(
+      int thresholdBytes,
+      int largePayloadBytes,
+      int maxUncompressedBytes,
+      @Nullable Algorithm algorithm) {
+    if (maxUncompressedBytes <= 0) {
+      throw new IllegalArgumentException("maxUncompressedBytes must be positive");
+    }
+    this.thresholdBytes = thresholdBytes;
+    this.largePayloadBytes = largePayloadBytes;
+    this.maxUncompressedBytes = maxUncompressedBytes;
+    this.algorithm = algorithm;
+  }
+
+  @NotNull
+  @Override
+  public List<Payload> encode(@NotNull List<Payload> payloads) {
+    return payloads.stream().map(this::encodePayload).collect(Collectors.toList());
+  }
+
+  @NotNull
+  @Override
+  public List<Payload> decode(@NotNull List<Payload> payloads) {
+    return payloads.stream().map(this::decodePayload).collect(Collectors.toList());
+  }
+
+  private Payload encodePayload(Payload payload) {
+    // Payloads over the maximum would be rejected when decoded.
+    if (payload.getSerializedSize() < thresholdBytes
+        || payload.getSerializedSize() > maxUncompressedBytes) {
+      return payload;
+    }
+    byte[] data = payload.toByteArray();
+    Algorithm selected = selectAlgorithm(data);
+    if (selected == null) {
+      return payload;
+    }
+    byte[] compressed = selected.compress(data);
+    if (compressed.length >= data.length) {
+      return payload;
+    }
+    return Payload.newBuilder()
+        .putMetadata(EncodingKeys.METADATA_ENCODING_KEY, METADATA_ENCODING)
+        .putMetadata(METADATA_COMPRESSION_KEY, selected.metadataValue)
+        .putMetadata(
+            METADATA_UNCOMPRESSED_SIZE_KEY, ByteString.copyFromUtf8(String.valueOf(data.length)))
+        .setData(UnsafeByteOperations.unsafeWrap(compressed))
+        .build();
+  }
+
+  private Payload decodePayload(Payload payload) {
+    if (!METADATA_ENCODING.equals(
+        payload.getMetadataOrDefault(EncodingKeys.METADATA_ENCODING_KEY, null))) {
+      return payload;
+    }
+    try {
+      Algorithm compression =
+          Algorithm.fromName(
+              payload.getMetadataOrThrow(METADATA_COMPRESSION_KEY).toStringUtf8());
+      int uncompressedSize =
+          Integer.parseInt(
+              payload.getMetadataOrThrow(METADATA_UNCOMPRESSED_SIZE_KEY).toStringUtf8());
+      // Checked before the decompression allocates a buffer of that size.
+      if (uncompressedSize < 0 || uncompressedSize > maxUncompressedBytes) {
+        throw new PayloadCodecException(
+            "Uncompressed size "
+                + uncompressedSize
+                + " is not between 0 and the maximum of "
+                + maxUncompressedBytes);
+      }
+      byte[] data = compression.decompress(payload.getData().toByteArray(), uncompressedSize);
+      if (data.length != uncompressedSize) {
+        throw new PayloadCodecException("Unexpected uncompressed size: " + data.length);
+      }
+      return Payload.parseFrom(data);
+    } catch (PayloadCodecException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new PayloadCodecException(e);
+    }
+  }
+
+  /** Returns the algorithm to compress the payload with or null if it is not worth compressing. */
+  @Nullable
+  Algorithm selectAlgorithm(byte[] data) {
+    if (algorithm != null) {
+      return algorithm;
+    }
+    // Compressing a sample with LZ4 takes a few microseconds.
+    int sampleSize = Math.min(data.length, SAMPLE_BYTES);
+    LZ4Compressor compressor = LZ4_FACTORY.fastCompressor();
+    byte[] compressedSample = new byte[compressor.maxCompressedLength(sampleSize)];
+    int compressedSampleSize =
+        compressor.compress(data, 0, sampleSize, compressedSample, 0, compressedSample.length);
+    if (compressedSampleSize > sampleSize * MAX_COMPRESSION_RATIO) {
+      return null;
+    }
+    return data.length >= largePayloadBytes ? Algorithm.LZ4 : Algorithm.ZSTD;
+  }
+}
@@ -1,49 +1,119 @@
 package io.temporal.samples.dsl;
 
 import io.temporal.activity.ActivityOptions;
-import io.temporal.common.RetryOptions;
 import io.temporal.failure.ActivityFailure;
 import io.temporal.failure.ApplicationFailure;
 import io.temporal.samples.dsl.model.Flow;
-import io.temporal.samples.dsl.model.FlowAction;
 import io.temporal.workflow.ActivityStub;
+import io.temporal.workflow.Promise;
 import io.temporal.workflow.Workflow;
-import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
 
+/**
+ * Runs the actions of a flow as a dependency graph. Every action starts as soon as the actions it
+ * depends on completed, so independent actions run concurrently and the flow takes the time of
+ * its longest chain of dependent actions instead of the sum of all of them.
+ *
+ * <p>When an action fails, the workflow waits for the running actions, then runs the {@code
+ * compensateBy} activities of the completed actions in reverse topological order: an action is
+ * compensated after all the actions that depended on it.
+ */
 public class DslWorkflowImpl implements DslWorkflow {
+
+  private static final Logger log = Workflow.getLogger(DslWorkflowImpl.class);
+
   @Override
   public String run(Flow flow, String input) {
-    if (flow == null || flow.getActions().isEmpty()) {
-      throw ApplicationFailure.newFailure(
-          "Flow is null or does not have any actions", "illegal flow");
+    FlowPlan plan;
+    try {
+      plan = FlowPlan.cached(flow);
+    } catch (IllegalArgumentException e) {
+      throw ApplicationFailure.newFailure(e.getMessage(), "illegal flow");
     }
+    return execute(plan, input);
+  }
 
+  /** Runs a compiled flow. Shared with {@link RegisteredDslWorkflowImpl}. */
+  static String execute(FlowPlan plan, String input) {
     try {
-      return runActions(flow, input);
+      return runActions(plan, input);
     } catch (ActivityFailure e) {
       throw ApplicationFailure.newFailure(
           "failing execution after compensation initiated", e.getCause().getClass().getName());
     }
   }
 
-  private String runActions(Flow flow, String input) {
-    List<String> results = new ArrayList<>();
-    for (FlowAction action : flow.getActions()) {
-      // build activity options based on flow action input
-      ActivityOptions.Builder activityOptionsBuilder = ActivityOptions.newBuilder();
-      activityOptionsBuilder.setStartToCloseTimeout(
-          Duration.ofSeconds(action.getStartToCloseSec()));
-      if (action.getRetries() > 0) {
-        activityOptionsBuilder.setRetryOptions(
-            RetryOptions.newBuilder().setMaximumAttempts(action.getRetries()).build());
+  private static String runActions(FlowPlan plan, String input) {
+    FlowGraph graph = plan.getGraph();
+    // Stubs by options. The plan shares the options of the actions with the same configuration.
+    Map<ActivityOptions, ActivityStub> stubs = new IdentityHashMap<>();
+    List<Promise<String>> results =
+        new ArrayList<>(Collections.nCopies(graph.getNodes().size(), null));
+    for (FlowGraph.Node node : graph.getTopologicalOrder()) {
+      ActivityStub activityStub =
+          stubs.computeIfAbsent(plan.getActivityOptions(node), Workflow::newUntypedActivityStub);
+      String activityType = node.getAction().getAction();
+      List<Promise<String>> dependencies = new ArrayList<>();
+      for (FlowGraph.Node dependency : node.getDependencies()) {
+        dependencies.add(results.get(dependency.getIndex()));
       }
-      // create untyped activity stub and run activity based on flow action
-      ActivityStub activityStub = Workflow.newUntypedActivityStub(activityOptionsBuilder.build());
+      // A failed dependency fails the action without running it.
+      Promise<String> result =
+          dependencies.isEmpty()
+              ? activityStub.executeAsync(activityType, String.class, input)
+              : Promise.allOf(dependencies)
+                  .thenCompose(v -> activityStub.executeAsync(activityType, String.class, input));
+      results.set(node.getIndex(), result);
+    }
 
-      results.add(activityStub.execute(action.getAction(), String.class, input));
+    // Waits for all the actions, so none is running when the compensation starts.
+    ActivityFailure failure = null;
+    for (FlowGraph.Node node : graph.getTopologicalOrder()) {
+      try {
+        results.get(node.getIndex()).get();
+      } catch (ActivityFailure e) {
+        if (failure == null) {
+          failure = e;
+        }
+      }
+    }
+    if (failure != null) {
+      compensate(plan, stubs, results, input);
+      throw failure;
+    }
+
+    List<String> values = new ArrayList<>();
+    for (Promise<String> result : results) {
+      values.add(result.get());
+    }
+    return String.join(",", values);
+  }
+
+  private static void compensate(
+      FlowPlan plan,
+      Map<ActivityOptions, ActivityStub> stubs,
+      List<Promise<String>> results,
+      String input) {
+    List<FlowGraph.Node> order = new ArrayList<>(plan.getGraph().getTopologicalOrder());
+    Collections.reverse(order);
+    for (FlowGraph.Node node : order) {
+      String compensateBy = node.getAction().getCompensateBy();
+      if (compensateBy == null
+          || compensateBy.isEmpty()
+          || results.get(node.getIndex()).getFailure() != null) {
+        continue;
+      }
+      try {
+        stubs.get(plan.getActivityOptions(node)).execute(compensateBy, String.class, input);
+      } catch (ActivityFailure e) {
+        // Compensates the other actions anyway.
+        log.error("Failed to compensate " + node.getAction().getAction(), e);
+      }
     }
-    return String.join(",", results);
   }
 }
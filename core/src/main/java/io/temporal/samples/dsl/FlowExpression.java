@@ -0,0 +1,188 @@
+package io.temporal.samples.dsl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.InvalidPathException;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.JsonPathException;
+import com.jayway.jsonpath.Option;
+import com.jayway.jsonpath.spi.json.JacksonJsonNodeJsonProvider;
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
+import java.util.ArrayList;
+import java.util.List;
+import net.thisptr.jackson.jq.BuiltinFunctionLoader;
+import net.thisptr.jackson.jq.JsonQuery;
+import net.thisptr.jackson.jq.Scope;
+import net.thisptr.jackson.jq.Versions;
+import net.thisptr.jackson.jq.exception.JsonQueryException;
+
+/**
+ * A jq or JsonPath expression of a flow, compiled once and shared by all the executions of the
+ * flow. Expressions only read the state they are given, so they are thread safe.
+ *
+ * <p>An expression selects a value from the state, tests a condition on it or merges an activity
+ * result into it:
+ *
+ * <ul>
+ *   <li>jq: the expression is applied to the state, with the activity result bound to {@code
+ *       $result} when merging. For example {@code .order}, {@code .price < 100} and {@code .price =
+ *       $result}.
+ *   <li>JsonPath: the expression reads from the state, and when merging it is the path where the
+ *       result is written. For example {@code $.order}, {@code $[?(@.price < 100)]} and {@code
+ *       $.price}.
+ * </ul>
+ */
+abstract class FlowExpression {
+
+  static final String JQ = "jq";
+  static final String JSON_PATH = "jsonpath";
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  /** Scope with the jq builtin functions. Only read once initialized. */
+  private static final Scope JQ_ROOT_SCOPE = Scope.newEmptyScope();
+
+  static {
+    BuiltinFunctionLoader.getInstance().loadFunctions(Versions.JQ_1_6, JQ_ROOT_SCOPE);
+  }
+
+  private static final Configuration JSON_PATH_CONFIGURATION =
+      Configuration.builder()
+          .jsonProvider(new JacksonJsonNodeJsonProvider(MAPPER))
+          .mappingProvider(new JacksonMappingProvider(MAPPER))
+          // Reads a missing property as null and lets a merge create it.
+          .options(Option.DEFAULT_PATH_LEAF_TO_NULL)
+          .build();
+
+  private final String expression;
+
+  private FlowExpression(String expression) {
+    this.expression = expression;
+  }
+
+  /**
+   * Compiles an expression.
+   *
+   * @param language {@value #JQ} or {@value #JSON_PATH}, jq when null.
+   * @throws IllegalArgumentException if the language is unknown or the expression is not valid.
+   */
+  static FlowExpression compile(String language, String expression) {
+    if (language == null || JQ.equals(language)) {
+      return new Jq(expression);
+    }
+    if (JSON_PATH.equals(language)) {
+      return new JsonPathExpression(expression);
+    }
+    throw new IllegalArgumentException("Unknown expression language: " + language);
+  }
+
+  /**
+   * Evaluates the expression on the state.
+   *
+   * @throws FlowExpressionException if the evaluation fails.
+   */
+  abstract JsonNode select(JsonNode state);
+
+  /**
+   * Returns a new state with the result merged into it. The given state is not modified.
+   *
+   * @throws FlowExpressionException if the evaluation fails.
+   */
+  abstract JsonNode merge(JsonNode state, JsonNode result);
+
+  /**
+   * Tests a condition on the state. Missing values, null, false and empty arrays, which JsonPath
+   * filters return when nothing matches, are false.
+   */
+  boolean test(JsonNode state) {
+    JsonNode value = select(state);
+    return !(value == null
+        || value.isNull()
+        || value.isMissingNode()
+        || (value.isBoolean() && !value.booleanValue())
+        || (value.isArray() && value.isEmpty()));
+  }
+
+  @Override
+  public String toString() {
+    return expression;
+  }
+
+  private static final class Jq extends FlowExpression {
+    private final JsonQuery query;
+
+    Jq(String expression) {
+      super(expression);
+      try {
+        query = JsonQuery.compile(expression, Versions.JQ_1_6);
+      } catch (JsonQueryException e) {
+        throw new IllegalArgumentException("Invalid jq expression: " + expression, e);
+      }
+    }
+
+    @Override
+    JsonNode select(JsonNode state) {
+      return apply(Scope.newChildScope(JQ_ROOT_SCOPE), state);
+    }
+
+    @Override
+    JsonNode merge(JsonNode state, JsonNode result) {
+      Scope scope = Scope.newChildScope(JQ_ROOT_SCOPE);
+      scope.setValue("result", result);
+      return apply(scope, state);
+    }
+
+    /** Returns the first output, as the state is a single document. */
+    private JsonNode apply(Scope scope, JsonNode state) {
+      List<JsonNode> output = new ArrayList<>(1);
+      try {
+        query.apply(scope, state, output::add);
+      } catch (JsonQueryException e) {
+        throw new FlowExpressionException(this, e);
+      }
+      return output.isEmpty() ? NullNode.getInstance() : output.get(0);
+    }
+  }
+
+  private static final class JsonPathExpression extends FlowExpression {
+    private final JsonPath path;
+
+    JsonPathExpression(String expression) {
+      super(expression);
+      try {
+        path = JsonPath.compile(expression);
+      } catch (InvalidPathException e) {
+        throw new IllegalArgumentException("Invalid JsonPath expression: " + expression, e);
+      }
+    }
+
+    @Override
+    JsonNode select(JsonNode state) {
+      Object value;
+      try {
+        value = path.read(state, JSON_PATH_CONFIGURATION);
+      } catch (JsonPathException e) {
+        throw new FlowExpressionException(this, e);
+      }
+      if (value == null) {
+        return NullNode.getInstance();
+      }
+      // Leaf values are unwrapped to Java values by the JSON provider.
+      return value instanceof JsonNode ? (JsonNode) value : MAPPER.valueToTree(value);
+    }
+
+    @Override
+    JsonNode merge(JsonNode state, JsonNode result) {
+      if ("$".equals(path.getPath())) {
+        return result;
+      }
+      try {
+        return path.set(state.deepCopy(), result, JSON_PATH_CONFIGURATION);
+      } catch (JsonPathException e) {
+        throw new FlowExpressionException(this, e);
+      }
+    }
+  }
+}
@@ -0,0 +1,12 @@
+package io.temporal.samples.dsl;
+
+/**
+ * Thrown when a compiled {@link FlowExpression} fails on a state, for example when it adds a number
+ * to an object. The flow is valid, so the execution fails instead of retrying the workflow task.
+ */
+final class FlowExpressionException extends RuntimeException {
+
+  FlowExpressionException(FlowExpression expression, Exception cause) {
+    super("Failed to evaluate " + expression + ": " + cause.getMessage(), cause);
+  }
+}
@@ -0,0 +1,188 @@
+package io.temporal.samples.dsl;
+
+import io.temporal.samples.dsl.model.Flow;
+import io.temporal.samples.dsl.model.FlowAction;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Dependency graph of the activities of a {@link Flow}. Parallel blocks are flattened into their
+ * actions, and the dependencies on a block become dependencies on all its actions.
+ */
+final class FlowGraph {
+
+  /** An activity of the flow with the activities it waits for. */
+  static final class Node {
+    private final int index;
+    private final FlowAction action;
+    private final Set<Node> dependencies = new LinkedHashSet<>();
+    private final List<Node> dependents = new ArrayList<>();
+
+    private Node(int index, FlowAction action) {
+      this.index = index;
+      this.action = action;
+    }
+
+    /** Position of the activity in the flow, parallel blocks being flattened. */
+    int getIndex() {
+      return index;
+    }
+
+    FlowAction getAction() {
+      return action;
+    }
+
+    Set<Node> getDependencies() {
+      return dependencies;
+    }
+  }
+
+  private final List<Node> nodes;
+  private final List<Node> topologicalOrder;
+
+  private FlowGraph(List<Node> nodes, List<Node> topologicalOrder) {
+    this.nodes = nodes;
+    this.topologicalOrder = topologicalOrder;
+  }
+
+  /** Activities in the flow order. */
+  List<Node> getNodes() {
+    return nodes;
+  }
+
+  /** Activities ordered so that every activity comes after its dependencies. */
+  List<Node> getTopologicalOrder() {
+    return topologicalOrder;
+  }
+
+  /**
+   * Builds the graph of a flow.
+   *
+   * @throws IllegalArgumentException if the flow is not valid or has a dependency cycle.
+   */
+  static FlowGraph of(Flow flow) {
+    List<FlowAction> actions = flow.getActions();
+    List<Node> nodes = new ArrayList<>();
+    Map<String, List<Node>> nodesById = new HashMap<>();
+    // Nodes of every action of the flow, several for a parallel block
+    List<List<Node>> entries = new ArrayList<>();
+    for (FlowAction action : actions) {
+      List<Node> entry = new ArrayList<>();
+      if (action.getParallel() != null) {
+        if (action.getAction() != null || action.getParallel().isEmpty()) {
+          throw new IllegalArgumentException(
+              "A parallel block must have actions and no activity: " + action.getId());
+        }
+        for (FlowAction member : action.getParallel()) {
+          if (member.getParallel() != null) {
+            throw new IllegalArgumentException(
+                "Nested parallel blocks are not supported: " + action.getId());
+          }
+          entry.add(addNode(member, nodes, nodesById));
+        }
+        if (action.getId() != null) {
+          nodesById.computeIfAbsent(action.getId(), id -> new ArrayList<>()).addAll(entry);
+        }
+      } else {
+        entry.add(addNode(action, nodes, nodesById));
+      }
+      entries.add(entry);
+    }
+
+    for (int i = 0; i < actions.size(); i++) {
+      FlowAction action = actions.get(i);
+      List<Node> entry = entries.get(i);
+      List<Node> dependencies =
+          action.getDependsOn() == null
+              ? (i == 0 ? Collections.<Node>emptyList() : entries.get(i - 1))
+              : resolve(action.getDependsOn(), nodesById);
+      if (action.getParallel() != null) {
+        for (int j = 0; j < entry.size(); j++) {
+          FlowAction member = action.getParallel().get(j);
+          entry
+              .get(j)
+              .dependencies
+              .addAll(
+                  member.getDependsOn() == null
+                      ? dependencies
+                      : resolve(member.getDependsOn(), nodesById));
+        }
+      } else {
+        entry.get(0).dependencies.addAll(dependencies);
+      }
+      if (action.getNext() != 0) {
+        if (action.getNext() < 1 || action.getNext() > actions.size()) {
+          throw new IllegalArgumentException("Invalid next action: " + action.getNext());
+        }
+        for (Node successor : entries.get(action.getNext() - 1)) {
+          successor.dependencies.addAll(entry);
+        }
+      }
+    }
+    return new FlowGraph(
+        Collections.unmodifiableList(nodes), Collections.unmodifiableList(sort(nodes)));
+  }
+
+  private static Node addNode(
+      FlowAction action, List<Node> nodes, Map<String, List<Node>> nodesById) {
+    if (action.getAction() == null || action.getAction().isEmpty()) {
+      throw new IllegalArgumentException("Flow action without activity: " + action.getId());
+    }
+    Node node = new Node(nodes.size(), action);
+    nodes.add(node);
+    String id = action.getId() != null ? action.getId() : action.getAction();
+    nodesById.computeIfAbsent(id, i -> new ArrayList<>()).add(node);
+    return node;
+  }
+
+  private static List<Node> resolve(List<String> ids, Map<String, List<Node>> nodesById) {
+    List<Node> result = new ArrayList<>();
+    for (String id : ids) {
+      List<Node> nodes = nodesById.get(id);
+      if (nodes == null) {
+        throw new IllegalArgumentException("Unknown action in dependsOn: " + id);
+      }
+      result.addAll(nodes);
+    }
+    return result;
+  }
+
+  /**
+   * Kahn's algorithm. Ready activities are taken in the flow order, so the order is deterministic
+   * as workflow code requires.
+   */
+  private static List<Node> sort(List<Node> nodes) {
+    int[] pending = new int[nodes.size()];
+    PriorityQueue<Node> ready = new PriorityQueue<>(Comparator.comparingInt(Node::getIndex));
+    for (Node node : nodes) {
+      pending[node.index] = node.dependencies.size();
+      for (Node dependency : node.dependencies) {
+        dependency.dependents.add(node);
+      }
+      if (pending[node.index] == 0) {
+        ready.add(node);
+      }
+    }
+    List<Node> result = new ArrayList<>(nodes.size());
+    while (!ready.isEmpty()) {
+      Node node = ready.poll();
+      result.add(node);
+      for (Node dependent : node.dependents) {
+        if (--pending[dependent.index] == 0) {
+          ready.add(dependent);
+        }
+      }
+    }
+    if (result.size() < nodes.size()) {
+      throw new IllegalArgumentException("Flow actions have a dependency cycle");
+    }
+    return result;
+  }
+}
@@ -0,0 +1,200 @@
+package io.temporal.samples.dsl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.temporal.activity.ActivityOptions;
+import io.temporal.common.RetryOptions;
+import io.temporal.samples.dsl.model.Flow;
+import io.temporal.samples.dsl.model.FlowAction;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable execution plan of a {@link Flow}: the dependency graph of its actions, their activity
+ * options and their compiled expressions. A plan is compiled once and can be shared by all the
+ * executions of the flow, see {@link FlowRegistry}.
+ *
+ * <p>Actions with the same timeout and retries share the same {@link ActivityOptions} instance, so
+ * an execution creates one activity stub per distinct configuration instead of one per action.
+ */
+public final class FlowPlan {
+
+  /** Sorted properties, so equal flows always have the same hash. */
+  private static final ObjectWriter CANONICAL_WRITER =
+      JsonMapper.builder()
+          .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+          .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+          .build()
+          .writer();
+
+  private static final int CACHE_SIZE = 256;
+
+  /**
+   * Recently used plans by flow. Flows are compared by content, without serializing them. Access
+   * ordered, so the eldest entry is the least used.
+   */
+  private static final Map<Flow, FlowPlan> CACHE =
+      new LinkedHashMap<Flow, FlowPlan>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Flow, FlowPlan> eldest) {
+          return size() > CACHE_SIZE;
+        }
+      };
+
+  /** Activity options by configuration, shared by all the plans. */
+  private static final Map<String, ActivityOptions> ACTIVITY_OPTIONS = new ConcurrentHashMap<>();
+
+  private final String id;
+  private final String hash;
+  private final FlowGraph graph;
+  private final List<ActivityOptions> activityOptions;
+  private final List<FlowExpression> inputSelectors;
+  private final List<FlowExpression> resultMergers;
+  private final List<FlowExpression> conditions;
+
+  private FlowPlan(
+      String id,
+      String hash,
+      FlowGraph graph,
+      List<ActivityOptions> activityOptions,
+      List<FlowExpression> inputSelectors,
+      List<FlowExpression> resultMergers,
+      List<FlowExpression> conditions) {
+    this.id = id;
+    this.hash = hash;
+    this.graph = graph;
+    this.activityOptions = activityOptions;
+    this.inputSelectors = inputSelectors;
+    this.resultMergers = resultMergers;
+    this.conditions = conditions;
+  }
+
+  /**
+   * Compiles a flow.
+   *
+   * @throws IllegalArgumentException if the flow is not valid.
+   */
+  public static FlowPlan compile(Flow flow) {
+    if (flow == null || flow.getActions() == null || flow.getActions().isEmpty()) {
+      throw new IllegalArgumentException("Flow is null or does not have any actions");
+    }
+    FlowGraph graph = FlowGraph.of(flow);
+    List<ActivityOptions> activityOptions = new ArrayList<>();
+    List<FlowExpression> inputSelectors = new ArrayList<>();
+    List<FlowExpression> resultMergers = new ArrayList<>();
+    List<FlowExpression> conditions = new ArrayList<>();
+    String language = flow.getExpressionLanguage();
+    for (FlowGraph.Node node : graph.getNodes()) {
+      FlowAction action = node.getAction();
+      activityOptions.add(activityOptions(action));
+      inputSelectors.add(expression(language, action.getInputSelector()));
+      resultMergers.add(expression(language, action.getResultMerger()));
+      conditions.add(expression(language, action.getCondition()));
+    }
+    return new FlowPlan(
+        flow.getId(),
+        hash(flow),
+        graph,
+        Collections.unmodifiableList(activityOptions),
+        Collections.unmodifiableList(inputSelectors),
+        Collections.unmodifiableList(resultMergers),
+        Collections.unmodifiableList(conditions));
+  }
+
+  /**
+   * Returns the plan of a flow from a cache of the recently used plans, or compiles it. Saves the
+   * compilation of the flows that are passed with every workflow start. A cache hit only compares
+   * the flow fields, and the flow must not be modified once cached.
+   *
+   * @throws IllegalArgumentException if the flow is not valid.
+   */
+  public static FlowPlan cached(Flow flow) {
+    if (flow == null) {
+      return compile(null);
+    }
+    synchronized (CACHE) {
+      FlowPlan plan = CACHE.get(flow);
+      if (plan != null) {
+        return plan;
+      }
+    }
+    FlowPlan plan = compile(flow);
+    synchronized (CACHE) {
+      CACHE.put(flow, plan);
+    }
+    return plan;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  /** SHA-256 of the canonical JSON of the flow. Identifies the flow content. */
+  public String getHash() {
+    return hash;
+  }
+
+  FlowGraph getGraph() {
+    return graph;
+  }
+
+  /** Options of the activity of a node. Equal configurations return the same instance. */
+  ActivityOptions getActivityOptions(FlowGraph.Node node) {
+    return activityOptions.get(node.getIndex());
+  }
+
+  /** Compiled input selector of a node, null if not set. */
+  FlowExpression getInputSelector(FlowGraph.Node node) {
+    return inputSelectors.get(node.getIndex());
+  }
+
+  /** Compiled result merger of a node, null if not set. */
+  FlowExpression getResultMerger(FlowGraph.Node node) {
+    return resultMergers.get(node.getIndex());
+  }
+
+  /** Compiled condition of a node, null if not set. */
+  FlowExpression getCondition(FlowGraph.Node node) {
+    return conditions.get(node.getIndex());
+  }
+
+  private static FlowExpression expression(String language, String expression) {
+    return expression == null ? null : FlowExpression.compile(language, expression);
+  }
+
+  private static ActivityOptions activityOptions(FlowAction action) {
+    return ACTIVITY_OPTIONS.computeIfAbsent(
+        action.getStartToCloseSec() + "/" + action.getRetries(),
+        key -> {
+          // build activity options based on flow action input
+          ActivityOptions.Builder activityOptionsBuilder = ActivityOptions.newBuilder();
+          activityOptionsBuilder.setStartToCloseTimeout(
+              Duration.ofSeconds(action.getStartToCloseSec()));
+          if (action.getRetries() > 0) {
+            activityOptionsBuilder.setRetryOptions(
+                RetryOptions.newBuilder().setMaximumAttempts(action.getRetries()).build());
+          }
+          return activityOptionsBuilder.build();
+        });
+  }
+
+  private static String hash(Flow flow) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(CANONICAL_WRITER.writeValueAsBytes(flow)));
+    } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
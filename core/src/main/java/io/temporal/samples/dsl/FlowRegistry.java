@@ -0,0 +1,55 @@
+package io.temporal.samples.dsl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.temporal.samples.dsl.model.Flow;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiled flows by id and version. Workers register the flows they run, and starters reference a
+ * flow by id and version instead of sending the whole flow with every workflow start.
+ *
+ * <p>A registered version can't change, as the executions that use it must replay the same flow.
+ * Publish a new version instead.
+ */
+public class FlowRegistry {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final Map<String, FlowPlan> plans = new ConcurrentHashMap<>();
+
+  /**
+   * Compiles and registers a flow.
+   *
+   * @throws IllegalArgumentException if the flow is not valid.
+   * @throws IllegalStateException if the version is already registered with a different content.
+   */
+  public FlowPlan register(Flow flow, String version) {
+    FlowPlan plan = FlowPlan.compile(flow);
+    FlowPlan registered = plans.putIfAbsent(key(flow.getId(), version), plan);
+    if (registered == null) {
+      return plan;
+    }
+    if (!registered.getHash().equals(plan.getHash())) {
+      throw new IllegalStateException(
+          "Flow " + flow.getId() + " version " + version + " is already registered");
+    }
+    return registered;
+  }
+
+  /** Loads a flow from a JSON resource and registers it. */
+  public FlowPlan register(URL resource, String version) throws IOException {
+    return register(MAPPER.readValue(resource, Flow.class), version);
+  }
+
+  /** Returns the registered plan or null. */
+  public FlowPlan get(String id, String version) {
+    return plans.get(key(id, version));
+  }
+
+  private static String key(String id, String version) {
+    return id + ":" + version;
+  }
+}
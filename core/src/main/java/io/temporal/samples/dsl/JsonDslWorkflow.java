@@ -0,0 +1,21 @@
+package io.temporal.samples.dsl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.temporal.samples.dsl.model.Flow;
+import io.temporal.workflow.WorkflowInterface;
+import io.temporal.workflow.WorkflowMethod;
+
+/**
+ * Pipes a JSON state document through a flow. The actions select their input from the state and
+ * merge their result into it with jq or JsonPath expressions.
+ */
+@WorkflowInterface
+public interface JsonDslWorkflow {
+  /**
+   * @param flow the flow to run.
+   * @param state the initial state.
+   * @return the final state.
+   */
+  @WorkflowMethod
+  JsonNode run(Flow flow, JsonNode state);
+}
@@ -0,0 +1,141 @@
+package io.temporal.samples.dsl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import io.temporal.activity.ActivityOptions;
+import io.temporal.failure.ActivityFailure;
+import io.temporal.failure.ApplicationFailure;
+import io.temporal.samples.dsl.model.Flow;
+import io.temporal.workflow.ActivityStub;
+import io.temporal.workflow.Promise;
+import io.temporal.workflow.Workflow;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+
+/**
+ * Interprets a flow over a JSON state document. Runs the actions as a dependency graph like {@link
+ * DslWorkflowImpl}, and for every action:
+ *
+ * <ol>
+ *   <li>tests its condition on the state and skips the action when it is false,
+ *   <li>selects the activity input from the state with its input selector,
+ *   <li>merges the activity result into the state with its result merger.
+ * </ol>
+ *
+ * <p>The expressions are compiled once per flow by {@link FlowPlan}. An action sees the state when
+ * it becomes ready, and the results of concurrent actions are merged in their completion order.
+ */
+public class JsonDslWorkflowImpl implements JsonDslWorkflow {
+
+  private static final Logger log = Workflow.getLogger(JsonDslWorkflowImpl.class);
+
+  private JsonNode state;
+
+  @Override
+  public JsonNode run(Flow flow, JsonNode state) {
+    FlowPlan plan;
+    try {
+      plan = FlowPlan.cached(flow);
+    } catch (IllegalArgumentException e) {
+      throw ApplicationFailure.newFailure(e.getMessage(), "illegal flow");
+    }
+    this.state = state == null ? NullNode.getInstance() : state;
+    try {
+      runActions(plan);
+    } catch (ActivityFailure e) {
+      throw ApplicationFailure.newFailure(
+          "failing execution after compensation initiated", e.getCause().getClass().getName());
+    } catch (FlowExpressionException e) {
+      // Fails the execution instead of retrying the workflow task, as a replay fails the same way.
+      throw ApplicationFailure.newFailure(e.getMessage(), "expression failure");
+    }
+    return this.state;
+  }
+
+  private void runActions(FlowPlan plan) {
+    FlowGraph graph = plan.getGraph();
+    Map<ActivityOptions, ActivityStub> stubs = new IdentityHashMap<>();
+    List<Promise<JsonNode>> results =
+        new ArrayList<>(Collections.nCopies(graph.getNodes().size(), null));
+    // Inputs of the actions that ran, passed to their compensations as well.
+    List<JsonNode> inputs = new ArrayList<>(Collections.nCopies(graph.getNodes().size(), null));
+    for (FlowGraph.Node node : graph.getTopologicalOrder()) {
+      ActivityStub activityStub =
+          stubs.computeIfAbsent(plan.getActivityOptions(node), Workflow::newUntypedActivityStub);
+      List<Promise<JsonNode>> dependencies = new ArrayList<>();
+      for (FlowGraph.Node dependency : node.getDependencies()) {
+        dependencies.add(results.get(dependency.getIndex()));
+      }
+      // Also for the actions without dependencies, so a failed expression fails the promise of the
+      // action instead of the loop that starts the actions.
+      Promise<JsonNode> result =
+          Promise.allOf(dependencies).thenCompose(v -> runAction(plan, node, activityStub, inputs));
+      results.set(node.getIndex(), result);
+    }
+
+    RuntimeException failure = null;
+    for (FlowGraph.Node node : graph.getTopologicalOrder()) {
+      try {
+        results.get(node.getIndex()).get();
+      } catch (ActivityFailure | FlowExpressionException e) {
+        if (failure == null) {
+          failure = e;
+        }
+      }
+    }
+    if (failure != null) {
+      compensate(plan, stubs, results, inputs);
+      throw failure;
+    }
+  }
+
+  private Promise<JsonNode> runAction(
+      FlowPlan plan, FlowGraph.Node node, ActivityStub activityStub, List<JsonNode> inputs) {
+    FlowExpression condition = plan.getCondition(node);
+    if (condition != null && !condition.test(state)) {
+      return Workflow.newPromise(NullNode.getInstance());
+    }
+    FlowExpression inputSelector = plan.getInputSelector(node);
+    JsonNode input = inputSelector == null ? state : inputSelector.select(state);
+    inputs.set(node.getIndex(), input);
+    FlowExpression resultMerger = plan.getResultMerger(node);
+    return activityStub
+        .executeAsync(node.getAction().getAction(), JsonNode.class, input)
+        .thenApply(
+            result -> {
+              if (resultMerger != null) {
+                state = resultMerger.merge(state, result);
+              }
+              return result;
+            });
+  }
+
+  private static void compensate(
+      FlowPlan plan,
+      Map<ActivityOptions, ActivityStub> stubs,
+      List<Promise<JsonNode>> results,
+      List<JsonNode> inputs) {
+    List<FlowGraph.Node> order = new ArrayList<>(plan.getGraph().getTopologicalOrder());
+    Collections.reverse(order);
+    for (FlowGraph.Node node : order) {
+      String compensateBy = node.getAction().getCompensateBy();
+      JsonNode input = inputs.get(node.getIndex());
+      // Skipped and failed actions are not compensated.
+      if (compensateBy == null
+          || compensateBy.isEmpty()
+          || input == null
+          || results.get(node.getIndex()).getFailure() != null) {
+        continue;
+      }
+      try {
+        stubs.get(plan.getActivityOptions(node)).execute(compensateBy, JsonNode.class, input);
+      } catch (ActivityFailure e) {
+        log.error("Failed to compensate " + node.getAction().getAction(), e);
+      }
+    }
+  }
+}
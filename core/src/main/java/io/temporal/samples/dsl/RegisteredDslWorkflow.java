@@ -0,0 +1,12 @@
+package io.temporal.samples.dsl;
+
+import io.temporal.samples.dsl.model.FlowReference;
+import io.temporal.workflow.WorkflowInterface;
+import io.temporal.workflow.WorkflowMethod;
+
+/** Runs a flow registered in the {@link FlowRegistry} of the workers. */
+@WorkflowInterface
+public interface RegisteredDslWorkflow {
+  @WorkflowMethod
+  String run(FlowReference flow, String input);
+}
@@ -0,0 +1,40 @@
+package io.temporal.samples.dsl;
+
+import io.temporal.samples.dsl.model.FlowReference;
+
+/**
+ * Runs a precompiled plan from the registry, so neither the flow is sent with the workflow start
+ * nor compiled by the workflow. Register it with a factory that passes the registry:
+ *
+ * <pre>
+ * worker.registerWorkflowImplementationFactory(
+ *     RegisteredDslWorkflow.class, () -&gt; new RegisteredDslWorkflowImpl(registry));
+ * </pre>
+ */
+public class RegisteredDslWorkflowImpl implements RegisteredDslWorkflow {
+
+  private final FlowRegistry registry;
+
+  public RegisteredDslWorkflowImpl(FlowRegistry registry) {
+    this.registry = registry;
+  }
+
+  /**
+   * Fails the workflow task, instead of the execution, when the flow is not registered or has a
+   * different content. The task is retried, so the execution resumes once a worker with the
+   * expected flow picks it up, for example during a rolling deployment.
+   */
+  @Override
+  public String run(FlowReference flow, String input) {
+    FlowPlan plan = registry.get(flow.getId(), flow.getVersion());
+    if (plan == null) {
+      throw new IllegalStateException(
+          "Flow " + flow.getId() + " version " + flow.getVersion() + " is not registered");
+    }
+    if (flow.getHash() != null && !flow.getHash().equals(plan.getHash())) {
+      throw new IllegalStateException(
+          "Flow " + flow.getId() + " version " + flow.getVersion() + " has a different content");
+    }
+    return DslWorkflowImpl.execute(plan, input);
+  }
+}
@@ -1,10 +1,9 @@
 package io.temporal.samples.dsl;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.temporal.client.WorkflowClient;
 import io.temporal.client.WorkflowOptions;
 import io.temporal.envconfig.ClientConfigProfile;
-import io.temporal.samples.dsl.model.Flow;
+import io.temporal.samples.dsl.model.FlowReference;
 import io.temporal.serviceclient.WorkflowServiceStubs;
 import io.temporal.worker.Worker;
 import io.temporal.worker.WorkerFactory;
@@ -13,7 +12,14 @@ import java.io.IOException;
 public class Starter {
 
   public static void main(String[] args) {
-    Flow flow = getFlowFromResource();
+    // Flows are compiled once when the worker starts. Workflows reference them by id and version.
+    FlowRegistry registry = new FlowRegistry();
+    try {
+      registry.register(Starter.class.getClassLoader().getResource("dsl/sampleflow.json"), "1");
+      registry.register(Starter.class.getClassLoader().getResource("dsl/parallelflow.json"), "1");
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to load flows", e);
+    }
 
     // Load configuration from environment and files
     ClientConfigProfile profile;
@@ -29,32 +35,24 @@ public class Starter {
     WorkerFactory factory = WorkerFactory.newInstance(client);
     Worker worker = factory.newWorker("dsl-task-queue");
     worker.registerWorkflowImplementationTypes(DslWorkflowImpl.class);
+    worker.registerWorkflowImplementationFactory(
+        RegisteredDslWorkflow.class, () -> new RegisteredDslWorkflowImpl(registry));
     worker.registerActivitiesImplementations(new DslActivitiesImpl());
     factory.start();
 
-    DslWorkflow workflow =
+    RegisteredDslWorkflow workflow =
         client.newWorkflowStub(
-            DslWorkflow.class,
+            RegisteredDslWorkflow.class,
             WorkflowOptions.newBuilder()
                 .setWorkflowId("dsl-workflow")
                 .setTaskQueue("dsl-task-queue")
                 .build());
 
-    String result = workflow.run(flow, "sample input");
+    // Only the reference to the flow is sent with the workflow start.
+    String result = workflow.run(new FlowReference("sampleFlow", "1"), "sample input");
 
     System.out.println("Result: " + result);
 
     System.exit(0);
   }
-
-  private static Flow getFlowFromResource() {
-    ObjectMapper objectMapper = new ObjectMapper();
-    try {
-      return objectMapper.readValue(
-          Starter.class.getClassLoader().getResource("dsl/sampleflow.json"), Flow.class);
-    } catch (Exception e) {
-      e.printStackTrace();
-      return null;
-    }
-  }
 }
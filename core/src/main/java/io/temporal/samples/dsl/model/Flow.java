@@ -1,12 +1,14 @@
 package io.temporal.samples.dsl.model;
 
 import java.util.List;
+import java.util.Objects;
 
 public class Flow {
   private String id;
   private String name;
   private String description;
   private List<FlowAction> actions;
+  private String expressionLanguage;
 
   public Flow() {}
 
@@ -48,4 +50,38 @@ public class Flow {
   public void setActions(List<FlowAction> actions) {
     this.actions = actions;
   }
+
+  /**
+   * Language of the selectors, mergers and conditions of the actions: "jq", the default, or
+   * "jsonpath".
+   */
+  public String getExpressionLanguage() {
+    return expressionLanguage;
+  }
+
+  public void setExpressionLanguage(String expressionLanguage) {
+    this.expressionLanguage = expressionLanguage;
+  }
+
+  /** Compares the content, so equal flows share a compiled plan. */
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Flow)) {
+      return false;
+    }
+    Flow that = (Flow) o;
+    return Objects.equals(id, that.id)
+        && Objects.equals(name, that.name)
+        && Objects.equals(description, that.description)
+        && Objects.equals(actions, that.actions)
+        && Objects.equals(expressionLanguage, that.expressionLanguage);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(id, name, description, actions, expressionLanguage);
+  }
 }
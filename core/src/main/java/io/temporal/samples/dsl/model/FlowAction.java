@@ -1,11 +1,27 @@
 package io.temporal.samples.dsl.model;
 
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A step of a {@link Flow}. Either an activity to run or a parallel block of actions.
+ *
+ * <p>An action runs once all the actions it depends on completed. Actions without dependencies run
+ * concurrently. When {@code dependsOn} is not set, the action depends on the previous action of
+ * the list, so a flow without dependencies runs its actions in order.
+ */
 public class FlowAction {
+  private String id;
   private String action;
   private String compensateBy;
   private int retries;
   private int startToCloseSec;
   private int next;
+  private List<String> dependsOn;
+  private List<FlowAction> parallel;
+  private String inputSelector;
+  private String resultMerger;
+  private String condition;
 
   public FlowAction() {}
 
@@ -18,6 +34,16 @@ public class FlowAction {
     this.next = next;
   }
 
+  /** Identifies the action in {@code dependsOn}. Defaults to the activity name. */
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  /** Activity type to run. Not set for a parallel block. */
   public String getAction() {
     return action;
   }
@@ -26,6 +52,7 @@ public class FlowAction {
     this.action = action;
   }
 
+  /** Activity type that undoes the action when the flow fails after the action completed. */
   public String getCompensateBy() {
     return compensateBy;
   }
@@ -50,6 +77,10 @@ public class FlowAction {
     this.startToCloseSec = startToCloseSec;
   }
 
+  /**
+   * Position in the flow actions of an action that must run after this one, counting from 1. 0
+   * means none.
+   */
   public int getNext() {
     return next;
   }
@@ -57,4 +88,100 @@ public class FlowAction {
   public void setNext(int next) {
     this.next = next;
   }
+
+  /**
+   * Ids of the actions that must complete before this one. The id of a parallel block stands for
+   * all its actions. An empty list makes the action start with the flow.
+   */
+  public List<String> getDependsOn() {
+    return dependsOn;
+  }
+
+  public void setDependsOn(List<String> dependsOn) {
+    this.dependsOn = dependsOn;
+  }
+
+  /**
+   * Actions of a parallel block. They run concurrently once the dependencies of the block
+   * completed, unless they declare their own dependencies.
+   */
+  public List<FlowAction> getParallel() {
+    return parallel;
+  }
+
+  public void setParallel(List<FlowAction> parallel) {
+    this.parallel = parallel;
+  }
+
+  /**
+   * Expression that selects the activity input from the state of a {@link
+   * io.temporal.samples.dsl.JsonDslWorkflow}. The whole state when not set.
+   */
+  public String getInputSelector() {
+    return inputSelector;
+  }
+
+  public void setInputSelector(String inputSelector) {
+    this.inputSelector = inputSelector;
+  }
+
+  /** Expression that merges the activity result into the state. Unchanged state when not set. */
+  public String getResultMerger() {
+    return resultMerger;
+  }
+
+  public void setResultMerger(String resultMerger) {
+    this.resultMerger = resultMerger;
+  }
+
+  /**
+   * Expression tested on the state when the action is ready to run. The action is skipped when it
+   * is false, and the actions that depend on it run anyway. Mutually exclusive conditions pick a
+   * branch.
+   */
+  public String getCondition() {
+    return condition;
+  }
+
+  public void setCondition(String condition) {
+    this.condition = condition;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof FlowAction)) {
+      return false;
+    }
+    FlowAction that = (FlowAction) o;
+    return retries == that.retries
+        && startToCloseSec == that.startToCloseSec
+        && next == that.next
+        && Objects.equals(id, that.id)
+        && Objects.equals(action, that.action)
+        && Objects.equals(compensateBy, that.compensateBy)
+        && Objects.equals(dependsOn, that.dependsOn)
+        && Objects.equals(parallel, that.parallel)
+        && Objects.equals(inputSelector, that.inputSelector)
+        && Objects.equals(resultMerger, that.resultMerger)
+        && Objects.equals(condition, that.condition);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(
+        id,
+        action,
+        compensateBy,
+        retries,
+        startToCloseSec,
+        next,
+        dependsOn,
+        parallel,
+        inputSelector,
+        resultMerger,
+        condition);
+  }
 }
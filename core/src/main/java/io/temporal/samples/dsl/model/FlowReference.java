@@ -0,0 +1,44 @@
+package io.temporal.samples.dsl.model;
+
+/** References a flow registered on the workers, instead of passing the whole {@link Flow}. */
+public class FlowReference {
+  private String id;
+  private String version;
+  private String hash;
+
+  public FlowReference() {}
+
+  public FlowReference(String id, String version) {
+    this.id = id;
+    this.version = version;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public String getVersion() {
+    return version;
+  }
+
+  public void setVersion(String version) {
+    this.version = version;
+  }
+
+  /**
+   * Expected content hash of the flow. Optional. When set and the workers registered a different
+   * content under this version, the workflow task fails and is retried until a worker with the
+   * expected content picks it up. The execution itself doesn't fail.
+   */
+  public String getHash() {
+    return hash;
+  }
+
+  public void setHash(String hash) {
+    this.hash = hash;
+  }
+}
@@ -1,16 +1,28 @@
 package io.temporal.samples.encryptedpayloads;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.UnsafeByteOperations;
 import io.temporal.api.common.v1.Payload;
 import io.temporal.common.converter.DataConverterException;
 import io.temporal.common.converter.EncodingKeys;
 import io.temporal.payload.codec.PayloadCodec;
 import io.temporal.payload.codec.PayloadCodecException;
+import io.temporal.workflow.unsafe.WorkflowUnsafe;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
@@ -18,6 +30,22 @@ import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import org.jetbrains.annotations.NotNull;
 
+/**
+ * Codec that encrypts payloads with AES/GCM.
+ *
+ * <p>Keys are cached by their ID, as looking them up in a KMS for every payload is too slow. The
+ * ID of the key is stored in the payload metadata and is used to look up the decryption key. So
+ * rotating the key returned by {@link #getKeyId()} doesn't affect decoding of older payloads.
+ * {@link Cipher} and {@link SecureRandom} instances are expensive to create. A cipher is not
+ * thread safe and a shared random is contended, so each thread reuses its own instances.
+ *
+ * <p>A payload is serialized directly into the array that is encrypted in place, and decrypted in
+ * place in a single copy of the encrypted data. So encoding and decoding allocate a single array
+ * of the payload size each, which matters for multi-megabyte payloads.
+ *
+ * <p>Optionally large lists of payloads, like activity arguments or batches of workflow stream
+ * items, are encoded and decoded in parallel. See {@link #CryptCodec(Executor, int)}.
+ */
 class CryptCodec implements PayloadCodec {
   static final ByteString METADATA_ENCODING =
       ByteString.copyFrom("binary/encrypted", StandardCharsets.UTF_8);
@@ -32,27 +60,113 @@ class CryptCodec implements PayloadCodec {
 
   private static final int GCM_NONCE_LENGTH_BYTE = 12;
   private static final int GCM_TAG_LENGTH_BIT = 128;
+  private static final int GCM_TAG_LENGTH_BYTE = GCM_TAG_LENGTH_BIT / 8;
   private static final Charset UTF_8 = StandardCharsets.UTF_8;
 
+  private static final ThreadLocal<Cipher> CIPHERS =
+      ThreadLocal.withInitial(
+          () -> {
+            try {
+              return Cipher.getInstance(CIPHER);
+            } catch (GeneralSecurityException e) {
+              throw new IllegalStateException(e);
+            }
+          });
+
+  private static final ThreadLocal<SecureRandom> RANDOMS =
+      ThreadLocal.withInitial(SecureRandom::new);
+
+  private final ConcurrentMap<String, SecretKey> keys = new ConcurrentHashMap<>();
+
+  private final Executor executor;
+
+  private final int parallelThresholdBytes;
+
+  /** Creates a codec that encodes and decodes payloads sequentially in the calling thread. */
+  CryptCodec() {
+    this.executor = null;
+    this.parallelThresholdBytes = Integer.MAX_VALUE;
+  }
+
+  /**
+   * Creates a codec that encodes and decodes payloads of a list in parallel if their total size
+   * exceeds the threshold. Smaller lists are processed sequentially in the calling thread, as
+   * passing a few small payloads to other threads costs more than encrypting them. The order of
+   * the payloads is preserved.
+   *
+   * @param executor executor to process the payloads. It should be bounded and run tasks in the
+   *     calling thread when it is saturated, for example a ThreadPoolExecutor with a
+   *     CallerRunsPolicy.
+   * @param parallelThresholdBytes the minimum total size of the payloads of a list to process
+   *     them in parallel.
+   */
+  CryptCodec(Executor executor, int parallelThresholdBytes) {
+    this.executor = executor;
+    this.parallelThresholdBytes = parallelThresholdBytes;
+  }
+
   @NotNull
   @Override
   public List<Payload> encode(@NotNull List<Payload> payloads) {
-    return payloads.stream().map(this::encodePayload).collect(Collectors.toList());
+    return map(payloads, this::encodePayload);
   }
 
   @NotNull
   @Override
   public List<Payload> decode(@NotNull List<Payload> payloads) {
-    return payloads.stream().map(this::decodePayload).collect(Collectors.toList());
+    return map(payloads, this::decodePayload);
+  }
+
+  private List<Payload> map(List<Payload> payloads, Function<Payload, Payload> function) {
+    if (executor == null || payloads.size() < 2 || totalSize(payloads) < parallelThresholdBytes) {
+      return payloads.stream().map(function).collect(Collectors.toList());
+    }
+    // Disable deadlock detection as waiting for other threads may take a while when payloads are
+    // encoded or decoded in a workflow thread.
+    return WorkflowUnsafe.deadlockDetectorOff(() -> mapInParallel(payloads, function));
+  }
+
+  private List<Payload> mapInParallel(List<Payload> payloads, Function<Payload, Payload> function) {
+    List<CompletableFuture<Payload>> futures = new ArrayList<>(payloads.size() - 1);
+    for (Payload payload : payloads.subList(1, payloads.size())) {
+      futures.add(CompletableFuture.supplyAsync(() -> function.apply(payload), executor));
+    }
+    List<Payload> result = new ArrayList<>(payloads.size());
+    try {
+      // The calling thread processes the first payload instead of just waiting.
+      result.add(function.apply(payloads.get(0)));
+      for (CompletableFuture<Payload> future : futures) {
+        result.add(future.join());
+      }
+    } catch (RuntimeException e) {
+      // The result is discarded, so the payloads that didn't start yet are skipped instead of
+      // occupying the executor.
+      for (CompletableFuture<Payload> future : futures) {
+        future.cancel(false);
+      }
+      if (e instanceof CompletionException && e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+    return result;
+  }
+
+  private static long totalSize(List<Payload> payloads) {
+    long size = 0;
+    for (Payload payload : payloads) {
+      size += payload.getSerializedSize();
+    }
+    return size;
   }
 
   private Payload encodePayload(Payload payload) {
     String keyId = getKeyId();
     SecretKey key = getKey(keyId);
 
-    byte[] encryptedData;
+    ByteString encryptedData;
     try {
-      encryptedData = encrypt(payload.toByteArray(), key);
+      encryptedData = encrypt(payload, key);
     } catch (Throwable e) {
       throw new DataConverterException(e);
     }
@@ -61,7 +175,7 @@ class CryptCodec implements PayloadCodec {
         .putMetadata(EncodingKeys.METADATA_ENCODING_KEY, METADATA_ENCODING)
         .putMetadata(METADATA_ENCRYPTION_CIPHER_KEY, METADATA_ENCRYPTION_CIPHER)
         .putMetadata(METADATA_ENCRYPTION_KEY_ID_KEY, ByteString.copyFromUtf8(keyId))
-        .setData(ByteString.copyFrom(encryptedData))
+        .setData(encryptedData)
         .build();
   }
 
@@ -76,13 +190,8 @@ class CryptCodec implements PayloadCodec {
       }
       SecretKey key = getKey(keyId);
 
-      byte[] plainData;
-      Payload decryptedPayload;
-
       try {
-        plainData = decrypt(payload.getData().toByteArray(), key);
-        decryptedPayload = Payload.parseFrom(plainData);
-        return decryptedPayload;
+        return decrypt(payload.getData(), key);
       } catch (Throwable e) {
         throw new PayloadCodecException(e);
       }
@@ -101,6 +210,10 @@ class CryptCodec implements PayloadCodec {
   }
 
   private SecretKey getKey(String keyId) {
+    return keys.computeIfAbsent(keyId, this::loadKey);
+  }
+
+  private SecretKey loadKey(String keyId) {
     // Key must be fetched from KMS or other secure storage.
     // Hard coded here only for example purposes.
     return new SecretKeySpec(keyId.getBytes(UTF_8), "AES");
@@ -108,34 +221,48 @@ class CryptCodec implements PayloadCodec {
 
   private static byte[] getNonce(int size) {
     byte[] nonce = new byte[size];
-    new SecureRandom().nextBytes(nonce);
+    RANDOMS.get().nextBytes(nonce);
     return nonce;
   }
 
-  private byte[] encrypt(byte[] plainData, SecretKey key) throws Exception {
+  private ByteString encrypt(Payload payload, SecretKey key) throws Exception {
     byte[] nonce = getNonce(GCM_NONCE_LENGTH_BYTE);
+    int size = payload.getSerializedSize();
 
-    Cipher cipher = Cipher.getInstance(CIPHER);
-    cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH_BIT, nonce));
+    // Nonce, followed by the serialized payload and space for the tag.
+    byte[] result = new byte[GCM_NONCE_LENGTH_BYTE + size + GCM_TAG_LENGTH_BYTE];
+    System.arraycopy(nonce, 0, result, 0, GCM_NONCE_LENGTH_BYTE);
+    CodedOutputStream output = CodedOutputStream.newInstance(result, GCM_NONCE_LENGTH_BYTE, size);
+    payload.writeTo(output);
+    output.checkNoSpaceLeft();
 
-    byte[] encryptedData = cipher.doFinal(plainData);
-    return ByteBuffer.allocate(nonce.length + encryptedData.length)
-        .put(nonce)
-        .put(encryptedData)
-        .array();
+    Cipher cipher = CIPHERS.get();
+    cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH_BIT, nonce));
+    cipher.doFinal(
+        ByteBuffer.wrap(result, GCM_NONCE_LENGTH_BYTE, size),
+        ByteBuffer.wrap(result, GCM_NONCE_LENGTH_BYTE, size + GCM_TAG_LENGTH_BYTE));
+    // The array is never modified after this point, so it is wrapped without copying.
+    return UnsafeByteOperations.unsafeWrap(result);
   }
 
-  private byte[] decrypt(byte[] encryptedDataWithNonce, SecretKey key) throws Exception {
-    ByteBuffer buffer = ByteBuffer.wrap(encryptedDataWithNonce);
-
-    byte[] nonce = new byte[GCM_NONCE_LENGTH_BYTE];
-    buffer.get(nonce);
-    byte[] encryptedData = new byte[buffer.remaining()];
-    buffer.get(encryptedData);
+  private Payload decrypt(ByteString encryptedDataWithNonce, SecretKey key) throws Exception {
+    // ByteString is immutable, so its content is copied once and then decrypted in place.
+    byte[] data = encryptedDataWithNonce.toByteArray();
+    int encryptedSize = data.length - GCM_NONCE_LENGTH_BYTE;
 
-    Cipher cipher = Cipher.getInstance(CIPHER);
-    cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH_BIT, nonce));
+    Cipher cipher = CIPHERS.get();
+    cipher.init(
+        Cipher.DECRYPT_MODE,
+        key,
+        new GCMParameterSpec(GCM_TAG_LENGTH_BIT, data, 0, GCM_NONCE_LENGTH_BYTE));
+    int size =
+        cipher.doFinal(
+            ByteBuffer.wrap(data, GCM_NONCE_LENGTH_BYTE, encryptedSize),
+            ByteBuffer.wrap(data, GCM_NONCE_LENGTH_BYTE, encryptedSize));
 
-    return cipher.doFinal(encryptedData);
+    CodedInputStream input = CodedInputStream.newInstance(data, GCM_NONCE_LENGTH_BYTE, size);
+    // The data of the decrypted payload references the array instead of copying it.
+    input.enableAliasing(true);
+    return Payload.parseFrom(input);
   }
 }
@@ -9,6 +9,7 @@ import io.temporal.client.WorkflowOptions;
 import io.temporal.common.converter.CodecDataConverter;
 import io.temporal.common.converter.DefaultDataConverter;
 import io.temporal.envconfig.ClientConfigProfile;
+import io.temporal.samples.compressedpayloads.CompressionCodec;
 import io.temporal.serviceclient.WorkflowServiceStubs;
 import io.temporal.worker.Worker;
 import io.temporal.worker.WorkerFactory;
@@ -17,7 +18,7 @@ import io.temporal.workflow.WorkflowInterface;
 import io.temporal.workflow.WorkflowMethod;
 import java.io.IOException;
 import java.time.Duration;
-import java.util.Collections;
+import java.util.Arrays;
 
 /**
  * Hello World Temporal workflow that executes a single activity. Requires a local instance the
@@ -88,7 +89,9 @@ public class EncryptedPayloadsActivity {
                 .setDataConverter(
                     new CodecDataConverter(
                         DefaultDataConverter.newDefaultInstance(),
-                        Collections.singletonList(new CryptCodec())))
+                        // Codecs encode from the last to the first one, so payloads are
+                        // compressed before they are encrypted.
+                        Arrays.asList(new CryptCodec(), new CompressionCodec())))
                 .build());
 
     // worker factory that can be used to create workers for specific task queues
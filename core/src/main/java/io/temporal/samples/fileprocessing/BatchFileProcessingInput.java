@@ -0,0 +1,65 @@
+package io.temporal.samples.fileprocessing;
+
+import java.net.URL;
+import java.util.List;
+
+/** Input of {@link BatchFileProcessingWorkflow#processFiles(BatchFileProcessingInput)}. */
+public final class BatchFileProcessingInput {
+  private List<URL> sources;
+
+  private URL destination;
+
+  private int maxFilesInFlight;
+
+  private int offset;
+
+  private BatchFileProcessingProgress progress;
+
+  /** Locations of the files to process. */
+  public void setSources(List<URL> sources) {
+    this.sources = sources;
+  }
+
+  /** Location the processed files are uploaded to. */
+  public void setDestination(URL destination) {
+    this.destination = destination;
+  }
+
+  /**
+   * The maximum number of files that are downloaded, processed or uploaded at the same time by all
+   * the hosts together. It bounds the number of files on the local disks of the hosts.
+   */
+  public void setMaxFilesInFlight(int maxFilesInFlight) {
+    this.maxFilesInFlight = maxFilesInFlight;
+  }
+
+  /** Index of the first source to process. 0 to start the batch. */
+  public void setOffset(int offset) {
+    this.offset = offset;
+  }
+
+  /** Progress of the previous runs. Null to start the batch. */
+  public void setProgress(BatchFileProcessingProgress progress) {
+    this.progress = progress;
+  }
+
+  public List<URL> getSources() {
+    return sources;
+  }
+
+  public URL getDestination() {
+    return destination;
+  }
+
+  public int getMaxFilesInFlight() {
+    return maxFilesInFlight;
+  }
+
+  public int getOffset() {
+    return offset;
+  }
+
+  public BatchFileProcessingProgress getProgress() {
+    return progress;
+  }
+}
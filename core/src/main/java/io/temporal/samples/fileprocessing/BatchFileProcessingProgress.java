@@ -0,0 +1,148 @@
+package io.temporal.samples.fileprocessing;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Progress and aggregate throughput of {@link BatchFileProcessingWorkflow}. Passed to the next run
+ * on continue-as-new, so it covers the whole batch. The times are workflow times.
+ */
+public final class BatchFileProcessingProgress {
+  private int totalFiles;
+
+  private int completedFiles;
+
+  private int failedFiles;
+
+  private int inFlightFiles;
+
+  private long completedBytes;
+
+  private long startMillis;
+
+  private long elapsedMillis;
+
+  private double filesPerSecond;
+
+  private double megabytesPerSecond;
+
+  private Map<String, Integer> filesPerHost = new TreeMap<>();
+
+  public BatchFileProcessingProgress(int totalFiles, long startMillis) {
+    this.totalFiles = totalFiles;
+    this.startMillis = startMillis;
+  }
+
+  /** Jackson needs it */
+  public BatchFileProcessingProgress() {}
+
+  void onCompleted(String hostTaskQueue, long bytes, long nowMillis) {
+    completedFiles++;
+    completedBytes += bytes;
+    filesPerHost.merge(hostTaskQueue, 1, Integer::sum);
+    update(nowMillis);
+  }
+
+  void onFailed(long nowMillis) {
+    failedFiles++;
+    update(nowMillis);
+  }
+
+  private void update(long nowMillis) {
+    elapsedMillis = nowMillis - startMillis;
+    if (elapsedMillis > 0) {
+      filesPerSecond = completedFiles * 1000.0 / elapsedMillis;
+      megabytesPerSecond = completedBytes * 1000.0 / elapsedMillis / (1024 * 1024);
+    }
+  }
+
+  /** Number of files in the batch. */
+  public int getTotalFiles() {
+    return totalFiles;
+  }
+
+  public void setTotalFiles(int totalFiles) {
+    this.totalFiles = totalFiles;
+  }
+
+  /** Number of files downloaded, processed and uploaded. */
+  public int getCompletedFiles() {
+    return completedFiles;
+  }
+
+  public void setCompletedFiles(int completedFiles) {
+    this.completedFiles = completedFiles;
+  }
+
+  /** Number of files that failed after all the retries. */
+  public int getFailedFiles() {
+    return failedFiles;
+  }
+
+  public void setFailedFiles(int failedFiles) {
+    this.failedFiles = failedFiles;
+  }
+
+  /** Number of files being downloaded, processed or uploaded. */
+  public int getInFlightFiles() {
+    return inFlightFiles;
+  }
+
+  public void setInFlightFiles(int inFlightFiles) {
+    this.inFlightFiles = inFlightFiles;
+  }
+
+  /** Total size of the completed files. */
+  public long getCompletedBytes() {
+    return completedBytes;
+  }
+
+  public void setCompletedBytes(long completedBytes) {
+    this.completedBytes = completedBytes;
+  }
+
+  /** Time the batch started at. */
+  public long getStartMillis() {
+    return startMillis;
+  }
+
+  public void setStartMillis(long startMillis) {
+    this.startMillis = startMillis;
+  }
+
+  /** Time from the start of the batch to the last completed or failed file. */
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  public void setElapsedMillis(long elapsedMillis) {
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  /** Completed files per second since the start of the batch. */
+  public double getFilesPerSecond() {
+    return filesPerSecond;
+  }
+
+  public void setFilesPerSecond(double filesPerSecond) {
+    this.filesPerSecond = filesPerSecond;
+  }
+
+  /** Completed megabytes per second since the start of the batch. */
+  public double getMegabytesPerSecond() {
+    return megabytesPerSecond;
+  }
+
+  public void setMegabytesPerSecond(double megabytesPerSecond) {
+    this.megabytesPerSecond = megabytesPerSecond;
+  }
+
+  /** Number of completed files by the task queue of the host that processed them. */
+  public Map<String, Integer> getFilesPerHost() {
+    return filesPerHost;
+  }
+
+  public void setFilesPerHost(Map<String, Integer> filesPerHost) {
+    this.filesPerHost = filesPerHost;
+  }
+}
@@ -0,0 +1,57 @@
+package io.temporal.samples.fileprocessing;
+
+import static io.temporal.samples.fileprocessing.FileProcessingWorker.TASK_QUEUE;
+
+import io.temporal.client.WorkflowClient;
+import io.temporal.client.WorkflowOptions;
+import io.temporal.envconfig.ClientConfigProfile;
+import io.temporal.serviceclient.WorkflowServiceStubs;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Starts a batch file processing sample workflow. */
+public class BatchFileProcessingStarter {
+
+  private static final int FILE_COUNT = 20;
+
+  public static void main(String[] args) throws Exception {
+    // Load configuration from environment and files
+    ClientConfigProfile profile;
+    try {
+      profile = ClientConfigProfile.load();
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to load client configuration", e);
+    }
+
+    WorkflowServiceStubs service =
+        WorkflowServiceStubs.newServiceStubs(profile.toWorkflowServiceStubsOptions());
+    WorkflowClient client = WorkflowClient.newInstance(service, profile.toWorkflowClientOptions());
+    BatchFileProcessingWorkflow workflow =
+        client.newWorkflowStub(
+            BatchFileProcessingWorkflow.class,
+            WorkflowOptions.newBuilder().setTaskQueue(TASK_QUEUE).build());
+
+    List<URL> sources = new ArrayList<>();
+    for (int i = 0; i < FILE_COUNT; i++) {
+      sources.add(new URL("http://www.google.com/?file=" + i));
+    }
+    BatchFileProcessingInput input = new BatchFileProcessingInput();
+    input.setSources(sources);
+    input.setDestination(new URL("http://dummy"));
+    input.setMaxFilesInFlight(8);
+
+    System.out.println("Executing BatchFileProcessingWorkflow");
+    // Use workflow.getProgress() query to watch the throughput while the workflow runs.
+    BatchFileProcessingProgress progress = workflow.processFiles(input);
+    System.out.printf(
+        "Processed %d files (%d failed), %.2f files/s, %.2f MB/s. Files per host: %s%n",
+        progress.getCompletedFiles(),
+        progress.getFailedFiles(),
+        progress.getFilesPerSecond(),
+        progress.getMegabytesPerSecond(),
+        progress.getFilesPerHost());
+    System.exit(0);
+  }
+}
@@ -0,0 +1,22 @@
+package io.temporal.samples.fileprocessing;
+
+import io.temporal.workflow.QueryMethod;
+import io.temporal.workflow.WorkflowInterface;
+import io.temporal.workflow.WorkflowMethod;
+
+/** Contract for the workflow that processes many files in parallel. */
+@WorkflowInterface
+public interface BatchFileProcessingWorkflow {
+
+  /**
+   * Downloads, processes and uploads all the files.
+   *
+   * @return the final progress with the aggregate throughput
+   */
+  @WorkflowMethod
+  BatchFileProcessingProgress processFiles(BatchFileProcessingInput input);
+
+  /** Returns the number of processed files and bytes and the aggregate throughput. */
+  @QueryMethod
+  BatchFileProcessingProgress getProgress();
+}
@@ -0,0 +1,143 @@
+package io.temporal.samples.fileprocessing;
+
+import io.temporal.common.RetryOptions;
+import io.temporal.failure.ActivityFailure;
+import io.temporal.failure.ApplicationFailure;
+import io.temporal.samples.fileprocessing.StoreActivities.TaskQueueFileNamePair;
+import io.temporal.workflow.Async;
+import io.temporal.workflow.Workflow;
+import java.net.URL;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.slf4j.Logger;
+
+/**
+ * Processes many files in parallel. Every file goes through the same chain as in {@link
+ * FileProcessingWorkflowImpl}: the download runs on any host and the process and upload activities
+ * run on the host that downloaded the file.
+ *
+ * <p>Up to {@code maxFilesInFlight} chains run at the same time, each in its own workflow thread.
+ * So the stages are pipelined: a host can download a file while it is processing another one. The
+ * download activities are spread over the hosts by the shared task queue, and each host bounds
+ * the number of activities it runs at the same time through the options of its workers. See
+ * {@link FileProcessingWorker}.
+ *
+ * <p>A failed chain is retried from the download, potentially on a different host. Files that
+ * still fail are counted as failed and don't fail the batch. Calls continue-as-new when the
+ * history grows too large.
+ */
+public class BatchFileProcessingWorkflowImpl implements BatchFileProcessingWorkflow {
+
+  private static final Logger log = Workflow.getLogger(BatchFileProcessingWorkflowImpl.class);
+
+  /** Stub used to call continue-as-new. */
+  private final BatchFileProcessingWorkflow nextRun =
+      Workflow.newContinueAsNewStub(BatchFileProcessingWorkflow.class);
+
+  // Uses the default task queue shared by the pool of workers.
+  private final StoreActivities defaultTaskQueueActivities =
+      Workflow.newActivityStub(
+          StoreActivities.class, FileProcessingWorkflowImpl.downloadActivityOptions());
+
+  /** Activity stubs by host task queue. */
+  private final Map<String, StoreActivities> hostSpecificStores = new HashMap<>();
+
+  private BatchFileProcessingProgress progress;
+
+  private int inFlight;
+
+  @Override
+  public BatchFileProcessingProgress processFiles(BatchFileProcessingInput input) {
+    if (input.getMaxFilesInFlight() <= 0) {
+      // Would wait forever for a free slot.
+      throw ApplicationFailure.newFailure(
+          "maxFilesInFlight must be positive: " + input.getMaxFilesInFlight(), "invalid input");
+    }
+    List<URL> sources = input.getSources();
+    progress = input.getProgress();
+    if (progress == null) {
+      progress = new BatchFileProcessingProgress(sources.size(), Workflow.currentTimeMillis());
+    }
+    int offset = input.getOffset();
+    while (offset < sources.size()) {
+      Workflow.await(() -> inFlight < input.getMaxFilesInFlight());
+      if (Workflow.getInfo().isContinueAsNewSuggested()) {
+        // Lets the started chains complete, as they don't survive continue-as-new.
+        Workflow.await(() -> inFlight == 0);
+        input.setOffset(offset);
+        input.setProgress(progress);
+        return nextRun.processFiles(input);
+      }
+      URL source = sources.get(offset++);
+      inFlight++;
+      progress.setInFlightFiles(inFlight);
+      Async.procedure(this::processFile, source, input.getDestination());
+    }
+    Workflow.await(() -> inFlight == 0);
+    return progress;
+  }
+
+  @Override
+  public BatchFileProcessingProgress getProgress() {
+    return progress;
+  }
+
+  private void processFile(URL source, URL destination) {
+    RetryOptions retryOptions =
+        RetryOptions.newBuilder()
+            .setInitialInterval(Duration.ofSeconds(1))
+            .setMaximumAttempts(3)
+            .build();
+    try {
+      // Retries the whole sequence on any failure, potentially on a different host.
+      TaskQueueFileNamePair downloaded =
+          Workflow.retry(
+              retryOptions, Optional.empty(), () -> processFileImpl(source, destination));
+      progress.onCompleted(
+          downloaded.getHostTaskQueue(), downloaded.getFileSize(), Workflow.currentTimeMillis());
+    } catch (ActivityFailure e) {
+      log.error("Failed to process " + source, e);
+      progress.onFailed(Workflow.currentTimeMillis());
+    } finally {
+      inFlight--;
+      progress.setInFlightFiles(inFlight);
+    }
+  }
+
+  private TaskQueueFileNamePair processFileImpl(URL source, URL destination) {
+    TaskQueueFileNamePair downloaded = defaultTaskQueueActivities.download(source);
+    StoreActivities hostSpecificStore =
+        hostSpecificStores.computeIfAbsent(
+            downloaded.getHostTaskQueue(),
+            taskQueue ->
+                Workflow.newActivityStub(
+                    StoreActivities.class,
+                    FileProcessingWorkflowImpl.hostActivityOptions(
+                        taskQueue, FileProcessingWorkflowImpl.HOST_SCHEDULE_TO_START_TIMEOUT)));
+    try {
+      String processed =
+          ChunkedFileProcessing.process(
+              hostSpecificStore, downloaded, ChunkedFileProcessing.DEFAULT_CHUNK_BYTES);
+      hostSpecificStore.upload(processed, destination);
+    } finally {
+      // Frees the local disk for the next files, also when the chain failed and is retried from
+      // another download. Detached, so it runs when the workflow is cancelled too.
+      Workflow.newDetachedCancellationScope(
+              () -> deleteLocalFiles(hostSpecificStore, downloaded.getFileName()))
+          .run();
+    }
+    return downloaded;
+  }
+
+  /** Doesn't fail the chain, as the host may be gone, and then so are its files. */
+  private static void deleteLocalFiles(StoreActivities hostSpecificStore, String fileName) {
+    try {
+      hostSpecificStore.deleteLocalFiles(fileName);
+    } catch (ActivityFailure e) {
+      log.warn("Failed to delete " + fileName, e);
+    }
+  }
+}
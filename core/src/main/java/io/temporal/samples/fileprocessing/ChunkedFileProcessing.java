@@ -0,0 +1,101 @@
+package io.temporal.samples.fileprocessing;
+
+import io.temporal.common.RetryOptions;
+import io.temporal.failure.ActivityFailure;
+import io.temporal.samples.fileprocessing.StoreActivities.TaskQueueFileNamePair;
+import io.temporal.workflow.Async;
+import io.temporal.workflow.Promise;
+import io.temporal.workflow.Workflow;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Processes a downloaded file on the host that downloaded it. A file larger than a chunk is split
+ * into byte ranges that are processed by parallel activities on the host specific task queue, so
+ * processing a single large file uses all the activity slots of the host instead of one thread.
+ * The processed chunks are then concatenated by a final merge activity.
+ *
+ * <p>The names of the processed chunks are kept in the workflow state, which acts as a checkpoint.
+ * A chunk that fails after all the retries of its activity is processed again on its own, without
+ * processing the other chunks or downloading the file again.
+ */
+final class ChunkedFileProcessing {
+
+  /** Default size of the byte ranges processed in parallel. */
+  static final long DEFAULT_CHUNK_BYTES = 256L * 1024 * 1024;
+
+  /** Retries of the failed chunks, on top of the retries of the chunk activities. */
+  private static final RetryOptions CHUNK_RETRY_OPTIONS =
+      RetryOptions.newBuilder()
+          .setInitialInterval(Duration.ofSeconds(1))
+          .setMaximumAttempts(3)
+          .build();
+
+  private ChunkedFileProcessing() {}
+
+  /**
+   * Processes the downloaded file.
+   *
+   * @param hostSpecificStore the activity stub of the host that downloaded the file.
+   * @param downloaded the downloaded file.
+   * @param chunkBytes the size of the byte ranges processed in parallel.
+   * @return processed file name
+   */
+  static String process(
+      StoreActivities hostSpecificStore, TaskQueueFileNamePair downloaded, long chunkBytes) {
+    long size = downloaded.getFileSize();
+    if (size <= chunkBytes) {
+      return hostSpecificStore.process(downloaded.getFileName());
+    }
+    int chunkCount = (int) ((size + chunkBytes - 1) / chunkBytes);
+    String[] processedChunks = new String[chunkCount];
+    Workflow.retry(
+        CHUNK_RETRY_OPTIONS,
+        Optional.empty(),
+        () ->
+            processChunks(
+                hostSpecificStore, downloaded.getFileName(), size, chunkBytes, processedChunks));
+    return hostSpecificStore.mergeChunks(downloaded.getFileName(), Arrays.asList(processedChunks));
+  }
+
+  /** Processes the chunks that are not done yet and records the processed ones. */
+  private static void processChunks(
+      StoreActivities hostSpecificStore,
+      String fileName,
+      long size,
+      long chunkBytes,
+      String[] processedChunks) {
+    List<Promise<Void>> chunks = new ArrayList<>();
+    for (int i = 0; i < processedChunks.length; i++) {
+      if (processedChunks[i] != null) {
+        continue;
+      }
+      int index = i;
+      long offset = index * chunkBytes;
+      long length = Math.min(chunkBytes, size - offset);
+      chunks.add(
+          Async.function(hostSpecificStore::processChunk, fileName, offset, length)
+              .thenApply(
+                  processed -> {
+                    processedChunks[index] = processed;
+                    return null;
+                  }));
+    }
+    // Waits for all the chunks instead of failing on the first failure, so the chunks that are
+    // still running are not started again by the retry.
+    ActivityFailure failure = null;
+    for (Promise<Void> chunk : chunks) {
+      try {
+        chunk.get();
+      } catch (ActivityFailure e) {
+        failure = e;
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+}
@@ -5,6 +5,7 @@ import io.temporal.envconfig.ClientConfigProfile;
 import io.temporal.serviceclient.WorkflowServiceStubs;
 import io.temporal.worker.Worker;
 import io.temporal.worker.WorkerFactory;
+import io.temporal.worker.WorkerOptions;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
 
@@ -19,6 +20,12 @@ public class FileProcessingWorker {
 
   static final String TASK_QUEUE = "FileProcessing";
 
+  /**
+   * Maximum number of files downloaded by this host at the same time. Bounds the local disk
+   * bandwidth used by the downloads.
+   */
+  static final int MAX_CONCURRENT_DOWNLOADS = 4;
+
   public static void main(String[] args) {
 
     String hostSpecifiTaskQueue = ManagementFactory.getRuntimeMXBean().getName();
@@ -40,13 +47,26 @@ public class FileProcessingWorker {
     // worker factory that can be used to create workers for specific task queues
     WorkerFactory factory = WorkerFactory.newInstance(client);
     // Worker that listens on a task queue and hosts both workflow and activity implementations.
-    final Worker workerForCommonTaskQueue = factory.newWorker(TASK_QUEUE);
-    workerForCommonTaskQueue.registerWorkflowImplementationTypes(FileProcessingWorkflowImpl.class);
+    // Only the download activity is dispatched to it.
+    final Worker workerForCommonTaskQueue =
+        factory.newWorker(
+            TASK_QUEUE,
+            WorkerOptions.newBuilder()
+                .setMaxConcurrentActivityExecutionSize(MAX_CONCURRENT_DOWNLOADS)
+                .build());
+    workerForCommonTaskQueue.registerWorkflowImplementationTypes(
+        FileProcessingWorkflowImpl.class, BatchFileProcessingWorkflowImpl.class);
     StoreActivitiesImpl storeActivityImpl = new StoreActivitiesImpl(hostSpecifiTaskQueue);
     workerForCommonTaskQueue.registerActivitiesImplementations(storeActivityImpl);
 
     // Get worker to poll the host-specific task queue.
-    final Worker workerForHostSpecificTaskQueue = factory.newWorker(hostSpecifiTaskQueue);
+    // Processing is CPU bound, so the host runs at most one process or upload activity per core.
+    final Worker workerForHostSpecificTaskQueue =
+        factory.newWorker(
+            hostSpecifiTaskQueue,
+            WorkerOptions.newBuilder()
+                .setMaxConcurrentActivityExecutionSize(Runtime.getRuntime().availableProcessors())
+                .build());
     workerForHostSpecificTaskQueue.registerActivitiesImplementations(storeActivityImpl);
 
     // Start all workers created by this factory.
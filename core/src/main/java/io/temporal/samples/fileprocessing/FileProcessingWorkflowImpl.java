@@ -14,25 +14,41 @@ import java.util.Optional;
  * through use of a host specific task queue. The first activity returns the name of the host
  * specific task queue and all other activities are dispatched using the stub that is configured
  * with it. This assumes that FileProcessingWorker has a worker running on the same task queue.
+ *
+ * <p>A file larger than a chunk is processed in parallel byte ranges on its host. See {@link
+ * ChunkedFileProcessing}.
  */
 public class FileProcessingWorkflowImpl implements FileProcessingWorkflow {
 
+  /**
+   * How long the process and upload activities can wait for the host. All the chunks of a file are
+   * scheduled at once, and the host runs one activity per core, so a chunk can wait for many
+   * others: a 10GB file on a 4 core host queues 40 chunks for 10 rounds.
+   */
+  static final Duration HOST_SCHEDULE_TO_START_TIMEOUT = Duration.ofMinutes(5);
+
   // Uses the default task queue shared by the pool of workers.
   private final StoreActivities defaultTaskQueueActivities;
 
+  private final long chunkBytes;
+
   public FileProcessingWorkflowImpl() {
+    this(ChunkedFileProcessing.DEFAULT_CHUNK_BYTES);
+  }
+
+  /**
+   * @param chunkBytes the size of the byte ranges of a file that are processed in parallel. At most
+   *     2GB, the size of a memory-mapped region.
+   * @throws IllegalArgumentException if chunkBytes is not positive or larger than 2GB.
+   */
+  public FileProcessingWorkflowImpl(long chunkBytes) {
+    if (chunkBytes <= 0 || chunkBytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("chunkBytes out of (0, 2GB]: " + chunkBytes);
+    }
     // Create activity clients.
-    ActivityOptions ao =
-        ActivityOptions.newBuilder()
-            .setStartToCloseTimeout(Duration.ofSeconds(20))
-            .setRetryOptions(
-                RetryOptions.newBuilder()
-                    .setInitialInterval(Duration.ofSeconds(1))
-                    .setMaximumAttempts(4)
-                    .setDoNotRetry(IllegalArgumentException.class.getName())
-                    .build())
-            .build();
-    this.defaultTaskQueueActivities = Workflow.newActivityStub(StoreActivities.class, ao);
+    this.defaultTaskQueueActivities =
+        Workflow.newActivityStub(StoreActivities.class, downloadActivityOptions());
+    this.chunkBytes = chunkBytes;
   }
 
   @Override
@@ -48,36 +64,66 @@ public class FileProcessingWorkflowImpl implements FileProcessingWorkflow {
 
     // Now initialize stubs that are specific to the returned task queue.
     ActivityOptions hostActivityOptions =
-        ActivityOptions.newBuilder()
-            .setTaskQueue(downloaded.getHostTaskQueue())
-            // Set the amount a time an activity task can stay in the task queue before its picked
-            // up by a Worker. It allows us to support cases where
-            // the activity worker crashes or restarts before the activity starts execution.
-            // This timeout should be specified only when host specific activity task queues are
-            // used like in this sample.
-            // Note that scheduleToStart timeout is not retryable and retry options will ignore it.
-            // This timeout has to be handled by Workflow code.
-            .setScheduleToStartTimeout(Duration.ofSeconds(10))
-            // Set the max time of a single activity execution attempt.
-            // Activity is going to be executed by a Worker listening to the specified
-            // host task queue. If the activity is started but then the activity worker crashes
-            // for some reason, we want to make sure that it is retried after the specified timeout.
-            // This timeout should be be as short as the longest possible execution of the Activity.
-            .setStartToCloseTimeout(Duration.ofSeconds(2))
-            .setRetryOptions(
-                RetryOptions.newBuilder()
-                    .setInitialInterval(Duration.ofSeconds(1))
-                    .setMaximumAttempts(4)
-                    .setDoNotRetry(IllegalArgumentException.class.getName())
-                    .build())
-            .build();
+        hostActivityOptions(downloaded.getHostTaskQueue(), HOST_SCHEDULE_TO_START_TIMEOUT);
     StoreActivities hostSpecificStore =
         Workflow.newActivityStub(StoreActivities.class, hostActivityOptions);
 
     // Call processFile activity to zip the file.
     // Call the activity to process the file using worker-specific task queue.
-    String processed = hostSpecificStore.process(downloaded.getFileName());
+    String processed = ChunkedFileProcessing.process(hostSpecificStore, downloaded, chunkBytes);
     // Call upload activity to upload the zipped file.
     hostSpecificStore.upload(processed, destination);
   }
+
+  /** Options of the download activity, which runs on the task queue shared by all the hosts. */
+  static ActivityOptions downloadActivityOptions() {
+    // Downloading a large file takes a while. The heartbeat timeout detects a failed download
+    // quickly and lets the download activity report its progress, so a retry resumes it.
+    return ActivityOptions.newBuilder()
+        .setStartToCloseTimeout(Duration.ofHours(1))
+        .setHeartbeatTimeout(Duration.ofSeconds(20))
+        .setRetryOptions(
+            RetryOptions.newBuilder()
+                .setInitialInterval(Duration.ofSeconds(1))
+                .setMaximumAttempts(4)
+                .setDoNotRetry(IllegalArgumentException.class.getName())
+                .build())
+        .build();
+  }
+
+  /**
+   * Options of the activities that run on the host that downloaded the file.
+   *
+   * @param hostTaskQueue the task queue of the host.
+   * @param scheduleToStartTimeout how long an activity can wait for the host.
+   */
+  static ActivityOptions hostActivityOptions(
+      String hostTaskQueue, Duration scheduleToStartTimeout) {
+    return ActivityOptions.newBuilder()
+        .setTaskQueue(hostTaskQueue)
+        // Set the amount a time an activity task can stay in the task queue before its picked
+        // up by a Worker. It allows us to support cases where
+        // the activity worker crashes or restarts before the activity starts execution.
+        // This timeout should be specified only when host specific activity task queues are
+        // used like in this sample.
+        // Note that scheduleToStart timeout is not retryable and retry options will ignore it.
+        // This timeout has to be handled by Workflow code.
+        .setScheduleToStartTimeout(scheduleToStartTimeout)
+        // Set the max time of a single activity execution attempt.
+        // This timeout should be as long as the longest possible execution of the Activity.
+        .setStartToCloseTimeout(Duration.ofHours(1))
+        // Activity is going to be executed by a Worker listening to the specified
+        // host task queue. If the activity is started but then the activity worker crashes
+        // for some reason, we want to make sure that it is retried after the specified timeout.
+        // The process activity heartbeats at least every half of a second, so a crash is
+        // detected long before the start to close timeout.
+        .setHeartbeatTimeout(Duration.ofSeconds(2))
+        .setRetryOptions(
+            RetryOptions.newBuilder()
+                .setInitialInterval(Duration.ofSeconds(1))
+                .setMaximumAttempts(4)
+                .setDoNotRetry(IllegalArgumentException.class.getName())
+                .build())
+        .build();
+  }
 }
@@ -2,6 +2,7 @@ package io.temporal.samples.fileprocessing;
 
 import io.temporal.activity.ActivityInterface;
 import java.net.URL;
+import java.util.List;
 
 @ActivityInterface
 public interface StoreActivities {
@@ -9,12 +10,18 @@ public interface StoreActivities {
   final class TaskQueueFileNamePair {
     private String hostTaskQueue;
     private String fileName;
+    private long fileSize;
 
     public TaskQueueFileNamePair(String hostTaskQueue, String fileName) {
       this.hostTaskQueue = hostTaskQueue;
       this.fileName = fileName;
     }
 
+    public TaskQueueFileNamePair(String hostTaskQueue, String fileName, long fileSize) {
+      this(hostTaskQueue, fileName);
+      this.fileSize = fileSize;
+    }
+
     /** Jackson needs it */
     public TaskQueueFileNamePair() {}
 
@@ -25,6 +32,11 @@ public interface StoreActivities {
     public String getFileName() {
       return fileName;
     }
+
+    /** Size of the downloaded file in bytes. */
+    public long getFileSize() {
+      return fileSize;
+    }
   }
 
   /**
@@ -42,6 +54,25 @@ public interface StoreActivities {
    */
   String process(String inputFileName);
 
+  /**
+   * Processes a byte range of a file. Used to process a large file in parallel.
+   *
+   * @param inputFileName source file name
+   * @param offset position of the first byte of the range
+   * @param length number of bytes in the range
+   * @return processed chunk file name
+   */
+  String processChunk(String inputFileName, long offset, long length);
+
+  /**
+   * Concatenates the processed chunks of a file into the processed file.
+   *
+   * @param inputFileName source file name
+   * @param chunkFileNames processed chunk file names in the order of their ranges
+   * @return processed file name
+   */
+  String mergeChunks(String inputFileName, List<String> chunkFileNames);
+
   /**
    * Downloads file to local disk.
    *
@@ -49,4 +80,11 @@ public interface StoreActivities {
    * @return local task queue and downloaded file name
    */
   TaskQueueFileNamePair download(URL url);
+
+  /**
+   * Deletes the downloaded file and the files created from it on the local disk.
+   *
+   * @param localFileName downloaded file name
+   */
+  void deleteLocalFiles(String localFileName);
 }
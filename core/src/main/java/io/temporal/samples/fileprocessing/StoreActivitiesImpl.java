@@ -1,32 +1,159 @@
 package io.temporal.samples.fileprocessing;
 
-import com.google.common.io.Files;
-import com.google.common.io.Resources;
 import io.temporal.activity.Activity;
+import io.temporal.activity.ActivityExecutionContext;
 import java.io.File;
 import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
 
-/** Store activities implementation. */
+/**
+ * Store activities implementation.
+ *
+ * <p>Files are streamed in chunks through NIO channels, so their size is not limited by the heap.
+ * Files are copied with {@link FileChannel#transferFrom} and {@link FileChannel#transferTo}, which
+ * let the kernel copy the data without passing it through the Java heap. They are copied in
+ * slices of {@link #SLICE_BYTES}, and the activity checkpoints every second, or after every chunk
+ * if it comes first: it flushes the written bytes to disk and heartbeats their number. A slow
+ * download or disk still heartbeats well within the heartbeat timeout. A retried activity continues
+ * from the last checkpoint instead of starting over. Note that heartbeats are sent to the service
+ * only if the activity is scheduled with a heartbeat timeout.
+ *
+ * <p>The byte ranges of a large file are processed from memory-mapped regions of the file, so
+ * parallel activities read their ranges without sharing a channel position. Every range is written
+ * to its own chunk file, and the chunk files are concatenated by {@link #mergeChunks}.
+ */
 public class StoreActivitiesImpl implements StoreActivities {
 
+  /** Default maximum number of bytes copied between checkpoints. */
+  public static final long DEFAULT_CHUNK_BYTES = 64L * 1024 * 1024;
+
+  /** Number of bytes copied at once, small enough to be copied in a fraction of a second. */
+  static final long SLICE_BYTES = 256L * 1024;
+
+  /** Maximum time between heartbeats, shortened to a quarter of a shorter heartbeat timeout. */
+  static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(1);
+
+  /** Heartbeat details of the download activity. */
+  public static final class DownloadProgress {
+    private String hostTaskQueue;
+    private String fileName;
+    private long offset;
+
+    public DownloadProgress(String hostTaskQueue, String fileName, long offset) {
+      this.hostTaskQueue = hostTaskQueue;
+      this.fileName = fileName;
+      this.offset = offset;
+    }
+
+    /** Jackson needs it */
+    public DownloadProgress() {}
+
+    /** Task queue of the host that has the partially downloaded file. */
+    public String getHostTaskQueue() {
+      return hostTaskQueue;
+    }
+
+    public String getFileName() {
+      return fileName;
+    }
+
+    /** Number of bytes downloaded and written to disk. */
+    public long getOffset() {
+      return offset;
+    }
+  }
+
   private final String hostSpecificTaskQueue;
 
+  private final long chunkBytes;
+
   public StoreActivitiesImpl(String taskQueue) {
+    this(taskQueue, DEFAULT_CHUNK_BYTES);
+  }
+
+  /**
+   * @param taskQueue the host specific task queue.
+   * @param chunkBytes the maximum number of bytes copied between checkpoints.
+   */
+  public StoreActivitiesImpl(String taskQueue, long chunkBytes) {
     this.hostSpecificTaskQueue = taskQueue;
+    this.chunkBytes = chunkBytes;
   }
 
   @Override
-  @SuppressWarnings("deprecation")
   public TaskQueueFileNamePair download(URL url) {
+    ActivityExecutionContext context = Activity.getExecutionContext();
+    Optional<DownloadProgress> progress = context.getHeartbeatDetails(DownloadProgress.class);
     try {
-      byte[] binary = Resources.toByteArray(url);
-      File destination = new File(Files.createTempDir(), "downloaded");
-      Files.write(binary, destination);
+      Path destination;
+      long offset;
+      if (progress.isPresent()
+          && hostSpecificTaskQueue.equals(progress.get().getHostTaskQueue())
+          && Files.isRegularFile(Paths.get(progress.get().getFileName()))) {
+        destination = Paths.get(progress.get().getFileName());
+        offset = Math.min(progress.get().getOffset(), Files.size(destination));
+        System.out.println("download activity: resuming download of " + url + " at " + offset);
+      } else {
+        // First attempt or the previous attempt ran on another host.
+        destination = Files.createTempDirectory("download").resolve("downloaded");
+        offset = 0;
+      }
+      ReadableByteChannel source = open(url, offset);
+      if (source == null) {
+        // The source doesn't support reading from an offset.
+        offset = 0;
+        source = open(url, 0);
+      }
+      try (ReadableByteChannel input = source;
+          FileChannel output =
+              FileChannel.open(
+                  destination, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+        // Drops the bytes written after the last heartbeat.
+        output.truncate(offset);
+        Checkpoints checkpoints = new Checkpoints(context, offset);
+        while (true) {
+          long transferred = output.transferFrom(input, offset, sliceBytes());
+          if (transferred == 0) {
+            break;
+          }
+          offset += transferred;
+          if (checkpoints.isDue(offset)) {
+            // Makes sure the reported offset never gets ahead of the data on disk.
+            output.force(false);
+            context.heartbeat(
+                new DownloadProgress(hostSpecificTaskQueue, destination.toString(), offset));
+            checkpoints.done(offset);
+          }
+        }
+        output.force(false);
+      }
       System.out.println(
-          "download activity: downloaded from " + url + " to " + destination.getAbsolutePath());
-      return new TaskQueueFileNamePair(hostSpecificTaskQueue, destination.getAbsolutePath());
-    } catch (IOException e) {
+          "download activity: downloaded "
+              + offset
+              + " bytes from "
+              + url
+              + " to "
+              + destination.toAbsolutePath());
+      return new TaskQueueFileNamePair(
+          hostSpecificTaskQueue, destination.toAbsolutePath().toString(), offset);
+    } catch (IOException | URISyntaxException e) {
       throw Activity.wrap(e);
     }
   }
@@ -43,14 +170,114 @@ public class StoreActivitiesImpl implements StoreActivities {
     }
   }
 
-  @SuppressWarnings("deprecation")
   private String processFileImpl(String fileName) throws IOException {
-    File inputFile = new File(fileName);
-    File inputDir = inputFile.getParentFile();
-    File outputFile = new File(inputDir, "processed");
+    ActivityExecutionContext context = Activity.getExecutionContext();
+    long offset = context.getHeartbeatDetails(Long.class).orElse(0L);
+    Path inputFile = Paths.get(fileName);
+    Path outputFile = inputFile.resolveSibling("processed");
     // We don't really process it, just copy to keep the sample simple.
-    Files.copy(inputFile, outputFile);
-    return outputFile.getAbsolutePath();
+    try (FileChannel input = FileChannel.open(inputFile, StandardOpenOption.READ);
+        FileChannel output =
+            FileChannel.open(outputFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      offset = Math.min(offset, output.size());
+      output.truncate(offset);
+      long size = input.size();
+      Checkpoints checkpoints = new Checkpoints(context, offset);
+      while (offset < size) {
+        output.position(offset);
+        offset += input.transferTo(offset, Math.min(sliceBytes(), size - offset), output);
+        if (checkpoints.isDue(offset)) {
+          output.force(false);
+          context.heartbeat(offset);
+          checkpoints.done(offset);
+        }
+      }
+      output.force(false);
+    }
+    return outputFile.toAbsolutePath().toString();
+  }
+
+  @Override
+  public String processChunk(String inputFileName, long offset, long length) {
+    ActivityExecutionContext context = Activity.getExecutionContext();
+    Path inputFile = Paths.get(inputFileName);
+    Path outputFile = inputFile.resolveSibling("processed.chunk-" + offset);
+    // A retried chunk is small enough to be processed again from its start.
+    try (FileChannel input = FileChannel.open(inputFile, StandardOpenOption.READ);
+        FileChannel output =
+            FileChannel.open(
+                outputFile,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+      MappedByteBuffer region = input.map(FileChannel.MapMode.READ_ONLY, offset, length);
+      // We don't really process it, just copy to keep the sample simple.
+      Checkpoints checkpoints = new Checkpoints(context, 0);
+      while (region.hasRemaining()) {
+        ByteBuffer slice = region.slice();
+        slice.limit((int) Math.min(slice.remaining(), sliceBytes()));
+        int written = output.write(slice);
+        region.position(region.position() + written);
+        if (checkpoints.isDue(region.position())) {
+          // Only reports liveness, as a retried chunk starts over.
+          context.heartbeat((long) region.position());
+          checkpoints.done(region.position());
+        }
+      }
+      output.force(false);
+    } catch (IOException e) {
+      throw Activity.wrap(e);
+    }
+    System.out.println(
+        "processChunk activity: processed " + length + " bytes at " + offset + " to " + outputFile);
+    return outputFile.toAbsolutePath().toString();
+  }
+
+  @Override
+  public String mergeChunks(String inputFileName, List<String> chunkFileNames) {
+    ActivityExecutionContext context = Activity.getExecutionContext();
+    Path outputFile = Paths.get(inputFileName).resolveSibling("processed");
+    try {
+      if (Files.exists(outputFile) && !Files.exists(Paths.get(chunkFileNames.get(0)))) {
+        // A previous attempt merged the chunks and deleted them but failed to report it.
+        return outputFile.toAbsolutePath().toString();
+      }
+      try (FileChannel output =
+          FileChannel.open(
+              outputFile,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING)) {
+        Checkpoints checkpoints = new Checkpoints(context, 0);
+        for (String chunkFileName : chunkFileNames) {
+          try (FileChannel chunk =
+              FileChannel.open(Paths.get(chunkFileName), StandardOpenOption.READ)) {
+            long size = chunk.size();
+            long position = 0;
+            while (position < size) {
+              position +=
+                  chunk.transferTo(position, Math.min(sliceBytes(), size - position), output);
+              if (checkpoints.isDue(output.position())) {
+                // Only reports liveness, as a retried merge starts over.
+                context.heartbeat(output.position());
+                checkpoints.done(output.position());
+              }
+            }
+          }
+        }
+        output.force(false);
+      }
+      // Frees the disk only once the merged file is complete. The first chunk goes last as it
+      // tells a retry whether the merge is done.
+      for (int i = chunkFileNames.size() - 1; i >= 0; i--) {
+        Files.deleteIfExists(Paths.get(chunkFileNames.get(i)));
+      }
+    } catch (IOException e) {
+      throw Activity.wrap(e);
+    }
+    System.out.println(
+        "mergeChunks activity: merged " + chunkFileNames.size() + " chunks to " + outputFile);
+    return outputFile.toAbsolutePath().toString();
   }
 
   @Override
@@ -62,4 +289,87 @@ public class StoreActivitiesImpl implements StoreActivities {
     // Faking upload to simplify sample implementation.
     System.out.println("upload activity: uploaded from " + localFileName + " to " + url);
   }
+
+  @Override
+  public void deleteLocalFiles(String localFileName) {
+    Path downloaded = Paths.get(localFileName);
+    try {
+      // Chunks left by a failed parallel processing
+      if (Files.isDirectory(downloaded.getParent())) {
+        try (DirectoryStream<Path> chunks =
+            Files.newDirectoryStream(downloaded.getParent(), "processed.chunk-*")) {
+          for (Path chunk : chunks) {
+            Files.deleteIfExists(chunk);
+          }
+        }
+      }
+      Files.deleteIfExists(downloaded.resolveSibling("processed"));
+      Files.deleteIfExists(downloaded);
+      // The temporary directory created by the download
+      Files.deleteIfExists(downloaded.getParent());
+    } catch (DirectoryNotEmptyException e) {
+      // Not a directory created by the download
+    } catch (IOException e) {
+      throw Activity.wrap(e);
+    }
+    System.out.println("deleteLocalFiles activity: deleted " + localFileName);
+  }
+
+  private long sliceBytes() {
+    return Math.min(SLICE_BYTES, chunkBytes);
+  }
+
+  /**
+   * Tells when to checkpoint a copy: once a chunk was copied since the last checkpoint, or once the
+   * heartbeat interval elapsed.
+   */
+  private final class Checkpoints {
+    private final long intervalNanos;
+    private long offset;
+    private long nanos = System.nanoTime();
+
+    Checkpoints(ActivityExecutionContext context, long offset) {
+      Duration timeout = context.getInfo().getHeartbeatTimeout();
+      Duration interval =
+          timeout.isZero() || timeout.dividedBy(4).compareTo(HEARTBEAT_INTERVAL) >= 0
+              ? HEARTBEAT_INTERVAL
+              : timeout.dividedBy(4);
+      this.intervalNanos = interval.toNanos();
+      this.offset = offset;
+    }
+
+    boolean isDue(long position) {
+      return position - offset >= chunkBytes || System.nanoTime() - nanos >= intervalNanos;
+    }
+
+    void done(long position) {
+      offset = position;
+      nanos = System.nanoTime();
+    }
+  }
+
+  /**
+   * Opens the source at the given offset. Returns null if the source can't be read from the offset.
+   * Local files are opened as file channels, so they are copied by the kernel. HTTP sources are
+   * resumed with a range request.
+   */
+  private static ReadableByteChannel open(URL url, long offset)
+      throws IOException, URISyntaxException {
+    if ("file".equals(url.getProtocol())) {
+      FileChannel channel = FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ);
+      channel.position(offset);
+      return channel;
+    }
+    URLConnection connection = url.openConnection();
+    if (offset > 0) {
+      connection.setRequestProperty("Range", "bytes=" + offset + "-");
+      if (!(connection instanceof HttpURLConnection)
+          || ((HttpURLConnection) connection).getResponseCode()
+              != HttpURLConnection.HTTP_PARTIAL) {
+        connection.getInputStream().close();
+        return null;
+      }
+    }
+    return Channels.newChannel(connection.getInputStream());
+  }
 }
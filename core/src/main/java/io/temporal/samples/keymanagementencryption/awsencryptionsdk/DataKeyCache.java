@@ -0,0 +1,280 @@
+package io.temporal.samples.keymanagementencryption.awsencryptionsdk;
+
+import com.google.protobuf.ByteString;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import software.amazon.cryptography.materialproviders.IKeyring;
+import software.amazon.cryptography.materialproviders.model.DecryptionMaterials;
+import software.amazon.cryptography.materialproviders.model.EncryptedDataKey;
+import software.amazon.cryptography.materialproviders.model.EncryptionMaterials;
+import software.amazon.cryptography.materialproviders.model.OnDecryptInput;
+import software.amazon.cryptography.materialproviders.model.OnDecryptOutput;
+import software.amazon.cryptography.materialproviders.model.OnEncryptInput;
+import software.amazon.cryptography.materialproviders.model.OnEncryptOutput;
+
+/**
+ * Local cache of data keys that lets {@link KeyringCodec} reuse a data key for many payloads
+ * instead of calling KMS for every one of them.
+ *
+ * <p>Encryption keys are cached by the algorithm suite and the encryption context, which is
+ * derived from the serialization context of the codec. A cached key is reused until it gets older
+ * than {@code maxAge}, or it has encrypted {@code maxMessages} payloads or {@code maxBytes} bytes,
+ * whichever comes first. Decryption keys are cached by the encrypted data keys of the message and
+ * expire after {@code maxAge}. These are the same limits the AWS Encryption SDK caching
+ * cryptographic materials manager uses. The payloads are regular AWS Encryption SDK messages, so
+ * they can be decrypted without the cache.
+ *
+ * <p>Algorithm suites with a signature add a per message public key to the encryption context. So
+ * their encryption keys are never reused. Use a suite without a signature, like {@code
+ * ALG_AES_256_GCM_HKDF_SHA512_COMMIT_KEY}, to benefit from the cache when encrypting.
+ */
+public class DataKeyCache {
+
+  private final int capacity;
+  private final long maxAgeNanos;
+  private final long maxMessages;
+  private final long maxBytes;
+  private final LongSupplier nanoClock;
+
+  private final Map<List<Object>, EncryptionEntry> encryptionEntries;
+  private final Map<List<Object>, Entry> decryptionEntries;
+
+  /**
+   * @param capacity maximum number of cached encryption and decryption keys each.
+   * @param maxAge how long a data key can be used after it was generated or decrypted.
+   * @param maxMessages maximum number of payloads encrypted with a single data key.
+   * @param maxBytes maximum number of bytes encrypted with a single data key.
+   */
+  public DataKeyCache(int capacity, Duration maxAge, long maxMessages, long maxBytes) {
+    this(capacity, maxAge, maxMessages, maxBytes, System::nanoTime);
+  }
+
+  DataKeyCache(
+      int capacity, Duration maxAge, long maxMessages, long maxBytes, LongSupplier nanoClock) {
+    if (capacity < 1 || maxAge.isNegative() || maxMessages < 1 || maxBytes < 1) {
+      throw new IllegalArgumentException(
+          "Expected positive capacity, maxAge, maxMessages and maxBytes");
+    }
+    this.capacity = capacity;
+    this.maxAgeNanos = maxAge.toNanos();
+    this.maxMessages = maxMessages;
+    this.maxBytes = maxBytes;
+    this.nanoClock = nanoClock;
+    this.encryptionEntries = newLruMap();
+    this.decryptionEntries = newLruMap();
+  }
+
+  /**
+   * Returns a keyring that uses the cached data keys and calls the given keyring only when there
+   * is no usable cached key. A new keyring is used for every message as the byte limit depends on
+   * the size of the message.
+   *
+   * @param keyring the keyring that generates and decrypts data keys.
+   * @param messageBytes the size of the plaintext of the message.
+   */
+  IKeyring keyring(IKeyring keyring, long messageBytes) {
+    return new CachingKeyring(keyring, messageBytes);
+  }
+
+  /** Removes all the cached keys. */
+  public synchronized void clear() {
+    encryptionEntries.clear();
+    decryptionEntries.clear();
+  }
+
+  /**
+   * Returns the cached entry and counts the message against its limits. Returns null if there is
+   * no entry or it can't be used for one more message.
+   */
+  private synchronized EncryptionEntry useEncryptionEntry(
+      List<Object> cacheKey, long messageBytes) {
+    EncryptionEntry entry = encryptionEntries.get(cacheKey);
+    if (entry == null) {
+      return null;
+    }
+    if (isExpired(entry)
+        || entry.messages >= maxMessages
+        || entry.bytes + messageBytes > maxBytes) {
+      encryptionEntries.remove(cacheKey);
+      return null;
+    }
+    entry.messages++;
+    entry.bytes += messageBytes;
+    return entry;
+  }
+
+  private synchronized void putEncryptionKey(
+      List<Object> cacheKey,
+      ByteBuffer plaintextDataKey,
+      List<EncryptedDataKey> encryptedDataKeys,
+      long messageBytes) {
+    if (messageBytes > maxBytes) {
+      // Not reusable anyway
+      return;
+    }
+    EncryptionEntry entry =
+        new EncryptionEntry(plaintextDataKey, encryptedDataKeys, nanoClock.getAsLong());
+    entry.messages = 1;
+    entry.bytes = messageBytes;
+    encryptionEntries.put(cacheKey, entry);
+  }
+
+  private synchronized ByteBuffer getDecryptionKey(List<Object> cacheKey) {
+    Entry entry = decryptionEntries.get(cacheKey);
+    if (entry == null) {
+      return null;
+    }
+    if (isExpired(entry)) {
+      decryptionEntries.remove(cacheKey);
+      return null;
+    }
+    return entry.plaintextDataKey();
+  }
+
+  private synchronized void putDecryptionKey(List<Object> cacheKey, ByteBuffer plaintextDataKey) {
+    decryptionEntries.put(cacheKey, new Entry(plaintextDataKey, nanoClock.getAsLong()));
+  }
+
+  private boolean isExpired(Entry entry) {
+    return nanoClock.getAsLong() - entry.createdNanos > maxAgeNanos;
+  }
+
+  private <V> Map<List<Object>, V> newLruMap() {
+    return new LinkedHashMap<List<Object>, V>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<List<Object>, V> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  private static List<Object> encryptionCacheKey(EncryptionMaterials materials) {
+    return Arrays.asList(
+        toByteString(materials.algorithmSuite().binaryId()),
+        new HashMap<>(materials.encryptionContext()));
+  }
+
+  private static List<Object> decryptionCacheKey(
+      DecryptionMaterials materials, List<EncryptedDataKey> encryptedDataKeys) {
+    List<Object> dataKeys = new ArrayList<>(encryptedDataKeys.size());
+    for (EncryptedDataKey dataKey : encryptedDataKeys) {
+      dataKeys.add(
+          Arrays.asList(
+              dataKey.keyProviderId(),
+              toByteString(dataKey.keyProviderInfo()),
+              toByteString(dataKey.ciphertext())));
+    }
+    return Arrays.asList(
+        toByteString(materials.algorithmSuite().binaryId()),
+        new HashMap<>(materials.encryptionContext()),
+        dataKeys);
+  }
+
+  private static List<EncryptedDataKey> encryptedDataKeys(List<EncryptedDataKey> dataKeys) {
+    return dataKeys == null ? Collections.emptyList() : dataKeys;
+  }
+
+  private static ByteString toByteString(ByteBuffer buffer) {
+    return ByteString.copyFrom(buffer.duplicate());
+  }
+
+  private static class Entry {
+    private final byte[] plaintextDataKey;
+    private final long createdNanos;
+
+    Entry(ByteBuffer plaintextDataKey, long createdNanos) {
+      ByteBuffer source = plaintextDataKey.duplicate();
+      this.plaintextDataKey = new byte[source.remaining()];
+      source.get(this.plaintextDataKey);
+      this.createdNanos = createdNanos;
+    }
+
+    /** Returns a copy, so callers can't modify the cached key. */
+    ByteBuffer plaintextDataKey() {
+      return ByteBuffer.wrap(plaintextDataKey.clone());
+    }
+  }
+
+  private static class EncryptionEntry extends Entry {
+    private final List<EncryptedDataKey> encryptedDataKeys;
+    private long messages;
+    private long bytes;
+
+    EncryptionEntry(
+        ByteBuffer plaintextDataKey, List<EncryptedDataKey> encryptedDataKeys, long createdNanos) {
+      super(plaintextDataKey, createdNanos);
+      this.encryptedDataKeys = Collections.unmodifiableList(new ArrayList<>(encryptedDataKeys));
+    }
+  }
+
+  /** Keyring that returns cached data keys and calls the wrapped keyring on a cache miss. */
+  private class CachingKeyring implements IKeyring {
+    private final IKeyring keyring;
+    private final long messageBytes;
+
+    CachingKeyring(IKeyring keyring, long messageBytes) {
+      this.keyring = keyring;
+      this.messageBytes = messageBytes;
+    }
+
+    @Override
+    public OnEncryptOutput OnEncrypt(OnEncryptInput input) {
+      EncryptionMaterials materials = input.materials();
+      if (materials.plaintextDataKey() != null) {
+        // The data key was already generated by another keyring.
+        return keyring.OnEncrypt(input);
+      }
+      List<Object> cacheKey = encryptionCacheKey(materials);
+      List<EncryptedDataKey> existing = encryptedDataKeys(materials.encryptedDataKeys());
+      EncryptionEntry entry = useEncryptionEntry(cacheKey, messageBytes);
+      if (entry != null) {
+        List<EncryptedDataKey> dataKeys = new ArrayList<>(existing);
+        dataKeys.addAll(entry.encryptedDataKeys);
+        return OnEncryptOutput.builder()
+            .materials(
+                materials.toBuilder()
+                    .plaintextDataKey(entry.plaintextDataKey())
+                    .encryptedDataKeys(dataKeys)
+                    .build())
+            .build();
+      }
+      OnEncryptOutput output = keyring.OnEncrypt(input);
+      EncryptionMaterials result = output.materials();
+      List<EncryptedDataKey> dataKeys = encryptedDataKeys(result.encryptedDataKeys());
+      // Caches only the data keys added by the wrapped keyring.
+      putEncryptionKey(
+          cacheKey,
+          result.plaintextDataKey(),
+          dataKeys.subList(existing.size(), dataKeys.size()),
+          messageBytes);
+      return output;
+    }
+
+    @Override
+    public OnDecryptOutput OnDecrypt(OnDecryptInput input) {
+      DecryptionMaterials materials = input.materials();
+      if (materials.plaintextDataKey() != null) {
+        // The data key was already decrypted by another keyring.
+        return keyring.OnDecrypt(input);
+      }
+      List<Object> cacheKey = decryptionCacheKey(materials, input.encryptedDataKeys());
+      ByteBuffer cached = getDecryptionKey(cacheKey);
+      if (cached != null) {
+        return OnDecryptOutput.builder()
+            .materials(materials.toBuilder().plaintextDataKey(cached).build())
+            .build();
+      }
+      OnDecryptOutput output = keyring.OnDecrypt(input);
+      putDecryptionKey(cacheKey, output.materials().plaintextDataKey());
+      return output;
+    }
+  }
+}
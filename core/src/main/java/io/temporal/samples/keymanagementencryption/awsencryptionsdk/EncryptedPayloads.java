@@ -1,5 +1,7 @@
 package io.temporal.samples.keymanagementencryption.awsencryptionsdk;
 
+import com.amazonaws.encryptionsdk.AwsCrypto;
+import com.amazonaws.encryptionsdk.CryptoAlgorithm;
 import io.temporal.client.WorkflowClient;
 import io.temporal.client.WorkflowClientOptions;
 import io.temporal.client.WorkflowOptions;
@@ -11,6 +13,7 @@ import io.temporal.serviceclient.WorkflowServiceStubs;
 import io.temporal.worker.Worker;
 import io.temporal.worker.WorkerFactory;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Collections;
 import software.amazon.cryptography.materialproviders.IKeyring;
 import software.amazon.cryptography.materialproviders.MaterialProviders;
@@ -37,6 +40,14 @@ public class EncryptedPayloads {
     final CreateAwsKmsMultiKeyringInput keyringInput =
         CreateAwsKmsMultiKeyringInput.builder().generator(generatorKey).build();
     final IKeyring kmsKeyring = materialProviders.CreateAwsKmsMultiKeyring(keyringInput);
+    // Reuse data keys for up to 5 minutes, 1000 payloads or 100MB instead of calling KMS for every
+    // payload. Caching the encryption keys requires an algorithm suite without a signature.
+    final AwsCrypto crypto =
+        AwsCrypto.builder()
+            .withEncryptionAlgorithm(CryptoAlgorithm.ALG_AES_256_GCM_HKDF_SHA512_COMMIT_KEY)
+            .build();
+    final DataKeyCache dataKeyCache =
+        new DataKeyCache(100, Duration.ofMinutes(5), 1000, 100 * 1024 * 1024);
     // gRPC stubs wrapper that talks to the local docker instance of temporal service.
     // Load configuration from environment and files
     ClientConfigProfile profile;
@@ -57,7 +68,8 @@ public class EncryptedPayloads {
                     new CodecDataConverter(
                         DefaultDataConverter.newDefaultInstance(),
                         // Create our encryption codec
-                        Collections.singletonList(new KeyringCodec(kmsKeyring))))
+                        Collections.singletonList(
+                            new KeyringCodec(crypto, kmsKeyring, false, dataKeyCache))))
                 .build());
 
     // worker factory that can be used to create workers for specific task queues
@@ -23,7 +23,8 @@ import software.amazon.cryptography.materialproviders.IKeyring;
 /**
  * KeyringCodec is a {@link PayloadCodec} that encrypts and decrypts payloads using the AWS
  * Encryption SDK. It uses the provided {@link IKeyring} to encrypt and decrypt payloads. It can
- * optionally support using a {@link SerializationContext}.
+ * optionally support using a {@link SerializationContext} and a {@link DataKeyCache} to avoid a
+ * call to the key provider for every payload.
  */
 class KeyringCodec implements PayloadCodec {
   // Metadata encoding key for the AWS Encryption SDK
@@ -34,6 +35,7 @@ class KeyringCodec implements PayloadCodec {
   private final IKeyring kmsKeyring;
   private final boolean useSerializationContext;
   @Nullable private final SerializationContext serializationContext;
+  @Nullable private final DataKeyCache dataKeyCache;
 
   /**
    * Constructs a new KeyringCodec with the provided {@link IKeyring}. The codec will not use a
@@ -42,10 +44,7 @@ class KeyringCodec implements PayloadCodec {
    * @param kmsKeyring the keyring to use for encryption and decryption.
    */
   public KeyringCodec(IKeyring kmsKeyring) {
-    this.crypto = AwsCrypto.standard();
-    this.kmsKeyring = kmsKeyring;
-    this.useSerializationContext = false;
-    this.serializationContext = null;
+    this(AwsCrypto.standard(), kmsKeyring, false, null);
   }
 
   /**
@@ -57,18 +56,42 @@ class KeyringCodec implements PayloadCodec {
    *     decoding payloads.
    */
   public KeyringCodec(AwsCrypto crypto, IKeyring kmsKeyring, boolean useSerializationContext) {
+    this(crypto, kmsKeyring, useSerializationContext, null);
+  }
+
+  /**
+   * Constructs a new KeyringCodec with the provided {@link IKeyring} that caches data keys.
+   *
+   * @param crypto the AWS Crypto object to use for encryption and decryption. Use an algorithm
+   *     suite without a signature, otherwise data keys are cached only for decryption. See {@link
+   *     DataKeyCache}.
+   * @param kmsKeyring the keyring to use for encryption and decryption.
+   * @param useSerializationContext whether to use a {@link SerializationContext} for encoding and
+   *     decoding payloads.
+   * @param dataKeyCache the cache of data keys, or null to call the keyring for every payload.
+   */
+  public KeyringCodec(
+      AwsCrypto crypto,
+      IKeyring kmsKeyring,
+      boolean useSerializationContext,
+      @Nullable DataKeyCache dataKeyCache) {
     this.crypto = crypto;
     this.kmsKeyring = kmsKeyring;
     this.useSerializationContext = useSerializationContext;
     this.serializationContext = null;
+    this.dataKeyCache = dataKeyCache;
   }
 
   private KeyringCodec(
-      AwsCrypto crypto, IKeyring kmsKeyring, SerializationContext serializationContext) {
+      AwsCrypto crypto,
+      IKeyring kmsKeyring,
+      SerializationContext serializationContext,
+      @Nullable DataKeyCache dataKeyCache) {
     this.crypto = crypto;
     this.kmsKeyring = kmsKeyring;
     this.useSerializationContext = true;
     this.serializationContext = serializationContext;
+    this.dataKeyCache = dataKeyCache;
   }
 
   @NotNull
@@ -95,7 +118,7 @@ class KeyringCodec implements PayloadCodec {
     if (!useSerializationContext) {
       return this;
     }
-    return new KeyringCodec(crypto, kmsKeyring, context);
+    return new KeyringCodec(crypto, kmsKeyring, context, dataKeyCache);
   }
 
   private Map<String, String> getEncryptionContext() {
@@ -116,10 +139,16 @@ class KeyringCodec implements PayloadCodec {
     return Collections.singletonMap("signature", signature);
   }
 
+  private IKeyring getKeyring(long messageBytes) {
+    return dataKeyCache == null ? kmsKeyring : dataKeyCache.keyring(kmsKeyring, messageBytes);
+  }
+
   private Payload encodePayload(Payload payload) {
     byte[] plaintext = payload.toByteArray();
     byte[] ciphertext =
-        crypto.encryptData(kmsKeyring, plaintext, getEncryptionContext()).getResult();
+        crypto
+            .encryptData(getKeyring(plaintext.length), plaintext, getEncryptionContext())
+            .getResult();
     return Payload.newBuilder()
         .setData(ByteString.copyFrom(ciphertext))
         .putMetadata(EncodingKeys.METADATA_ENCODING_KEY, METADATA_ENCODING)
@@ -131,7 +160,9 @@ class KeyringCodec implements PayloadCodec {
         payload.getMetadataOrDefault(EncodingKeys.METADATA_ENCODING_KEY, null))) {
       byte[] ciphertext = payload.getData().toByteArray();
       byte[] plaintext =
-          crypto.decryptData(kmsKeyring, ciphertext, getEncryptionContext()).getResult();
+          crypto
+              .decryptData(getKeyring(ciphertext.length), ciphertext, getEncryptionContext())
+              .getResult();
       try {
         return Payload.parseFrom(plaintext);
       } catch (InvalidProtocolBufferException e) {
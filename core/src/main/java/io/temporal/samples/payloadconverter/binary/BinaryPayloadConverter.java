@@ -0,0 +1,217 @@
+package io.temporal.samples.payloadconverter.binary;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import io.temporal.api.common.v1.Payload;
+import io.temporal.common.converter.ByteArrayPayloadConverter;
+import io.temporal.common.converter.DataConverterException;
+import io.temporal.common.converter.DefaultDataConverter;
+import io.temporal.common.converter.EncodingKeys;
+import io.temporal.common.converter.JacksonJsonPayloadConverter;
+import io.temporal.common.converter.NullPayloadConverter;
+import io.temporal.common.converter.PayloadConverter;
+import io.temporal.common.converter.ProtobufJsonPayloadConverter;
+import io.temporal.common.converter.ProtobufPayloadConverter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Payload converter that serializes the selected types with a binary Jackson format instead of
+ * JSON. Binary formats don't repeat the quotes, colons and commas of the JSON text and encode the
+ * numbers in binary, which makes a large share of the bytes of small, frequent values like stream
+ * events.
+ *
+ * <p>A value is serialized by this converter if its class is one of the selected types or a
+ * subclass of one, or if it is a non-empty collection of such values. Other values are left to
+ * the next converter, usually the JSON one. Use {@link #newDataConverter} to place the converter
+ * before the JSON converter.
+ *
+ * <p>The {@link Format#PROTOBUF} format generates a Protobuf schema from each class and writes
+ * only the field numbers and values. It needs the declared type of the value to be its actual
+ * class and doesn't support collections, which are left to the next converter.
+ *
+ * <p>Payloads are decoded by the converter registered for their encoding, so every worker and
+ * client that reads them needs this converter with the same format.
+ */
+public class BinaryPayloadConverter implements PayloadConverter {
+
+  /** Supported binary formats. */
+  public enum Format {
+    /** Binary JSON format by the Jackson project. Shares repeated property names. */
+    SMILE("binary/smile"),
+    /** Concise Binary Object Representation, RFC 8949. */
+    CBOR("binary/cbor"),
+    /** Protobuf with a schema generated from the class of the value. */
+    PROTOBUF("binary/jackson-protobuf");
+
+    private final String encodingType;
+
+    Format(String encodingType) {
+      this.encodingType = encodingType;
+    }
+
+    public String getEncodingType() {
+      return encodingType;
+    }
+
+    private ObjectMapper newObjectMapper() {
+      ObjectMapper mapper;
+      switch (this) {
+        case SMILE:
+          mapper =
+              SmileMapper.builder()
+                  .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                  .build();
+          break;
+        case CBOR:
+          mapper = new CBORMapper();
+          break;
+        default:
+          mapper = new ProtobufMapper();
+      }
+      // Same as the mapper of JacksonJsonPayloadConverter
+      mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+      mapper.findAndRegisterModules();
+      return mapper;
+    }
+  }
+
+  private final Format format;
+  private final ObjectMapper mapper;
+  private final ByteString encoding;
+  private final List<Class<?>> types;
+  private final ConcurrentMap<JavaType, ProtobufSchema> schemas = new ConcurrentHashMap<>();
+
+  /**
+   * @param format the binary format.
+   * @param types the types serialized with the binary format.
+   */
+  public BinaryPayloadConverter(Format format, Class<?>... types) {
+    this.format = format;
+    this.mapper = format.newObjectMapper();
+    this.encoding = ByteString.copyFrom(format.getEncodingType(), StandardCharsets.UTF_8);
+    this.types = Collections.unmodifiableList(Arrays.asList(types));
+  }
+
+  /**
+   * Returns a data converter with the default payload converters and the given converter right
+   * before the JSON one. {@link DefaultDataConverter#withPayloadConverterOverrides} adds new
+   * converters after the JSON converter, which accepts any value.
+   */
+  public static DefaultDataConverter newDataConverter(BinaryPayloadConverter converter) {
+    return new DefaultDataConverter(
+        new NullPayloadConverter(),
+        new ByteArrayPayloadConverter(),
+        new ProtobufJsonPayloadConverter(),
+        new ProtobufPayloadConverter(),
+        converter,
+        new JacksonJsonPayloadConverter());
+  }
+
+  @Override
+  public String getEncodingType() {
+    return format.getEncodingType();
+  }
+
+  @Override
+  public Optional<Payload> toData(Object value) throws DataConverterException {
+    if (!isSelected(value)) {
+      return Optional.empty();
+    }
+    try {
+      byte[] data;
+      if (format == Format.PROTOBUF) {
+        ProtobufSchema schema = schema(mapper.constructType(value.getClass()));
+        data = mapper.writer(schema).writeValueAsBytes(value);
+      } else {
+        data = mapper.writeValueAsBytes(value);
+      }
+      return Optional.of(
+          Payload.newBuilder()
+              .putMetadata(EncodingKeys.METADATA_ENCODING_KEY, encoding)
+              .setData(UnsafeByteOperations.unsafeWrap(data))
+              .build());
+    } catch (IOException e) {
+      throw new DataConverterException(e);
+    }
+  }
+
+  @Override
+  public <T> T fromData(Payload content, Class<T> valueClass, Type valueType)
+      throws DataConverterException {
+    JavaType type = mapper.getTypeFactory().constructType(valueType);
+    ObjectReader reader = mapper.readerFor(type);
+    if (format == Format.PROTOBUF) {
+      reader = reader.with(schema(type));
+    }
+    try (InputStream input = content.getData().newInput()) {
+      return reader.readValue(input);
+    } catch (IOException e) {
+      throw new DataConverterException(e);
+    }
+  }
+
+  private boolean isSelected(Object value) {
+    if (value == null) {
+      return false;
+    }
+    if (isSelectedType(value.getClass())) {
+      return true;
+    }
+    if (format == Format.PROTOBUF || !(value instanceof Collection)) {
+      return false;
+    }
+    Collection<?> collection = (Collection<?>) value;
+    if (collection.isEmpty()) {
+      return false;
+    }
+    for (Object element : collection) {
+      if (element == null || !isSelectedType(element.getClass())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isSelectedType(Class<?> type) {
+    for (Class<?> selected : types) {
+      if (selected.isAssignableFrom(type)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private ProtobufSchema schema(JavaType type) {
+    ProtobufSchema schema = schemas.get(type);
+    if (schema != null) {
+      return schema;
+    }
+    try {
+      // Generating a schema is orders of magnitude slower than serializing a value.
+      schema = ((ProtobufMapper) mapper).generateSchemaFor(type);
+    } catch (IOException e) {
+      throw new DataConverterException(e);
+    }
+    schemas.putIfAbsent(type, schema);
+    return schema;
+  }
+}
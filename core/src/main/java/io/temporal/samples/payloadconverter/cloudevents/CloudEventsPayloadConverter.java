@@ -1,55 +1,107 @@
 package io.temporal.samples.payloadconverter.cloudevents;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.BinaryNode;
+import com.fasterxml.jackson.databind.node.NullNode;
 import com.google.protobuf.ByteString;
 import io.cloudevents.CloudEvent;
-import io.cloudevents.core.format.EventFormat;
-import io.cloudevents.core.format.EventSerializationException;
-import io.cloudevents.core.provider.EventFormatProvider;
 import io.cloudevents.jackson.JsonFormat;
 import io.temporal.api.common.v1.Payload;
 import io.temporal.common.converter.DataConverterException;
+import io.temporal.common.converter.EncodingKeys;
 import io.temporal.common.converter.PayloadConverter;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 
-/** Payload converter specific to CloudEvents format */
+/**
+ * Payload converter specific to CloudEvents format.
+ *
+ * <p>Events are written straight into the payload data and read straight from it by a Jackson
+ * writer and reader that are created once. So the event JSON is not copied through intermediate
+ * byte arrays.
+ *
+ * <p>Workflow and activity methods that need only the data of an event can declare the parameter
+ * as {@link JsonNode}. Only the {@code data} (or {@code data_base64}) field of the event is parsed
+ * then, the other attributes are skipped.
+ */
 public class CloudEventsPayloadConverter implements PayloadConverter {
 
-  private EventFormat CEFormat =
-      EventFormatProvider.getInstance().resolveFormat(JsonFormat.CONTENT_TYPE);
+  private static final String ENCODING_TYPE = "json/plain";
+
+  private static final ByteString METADATA_ENCODING =
+      ByteString.copyFrom(ENCODING_TYPE, StandardCharsets.UTF_8);
+
+  private static final ObjectMapper MAPPER =
+      new ObjectMapper().registerModule(JsonFormat.getCloudEventJacksonModule());
+
+  private static final ObjectWriter WRITER = MAPPER.writerFor(CloudEvent.class);
+
+  private static final ObjectReader READER = MAPPER.readerFor(CloudEvent.class);
 
   @Override
   public String getEncodingType() {
-    return "json/plain";
+    return ENCODING_TYPE;
   }
 
   @Override
   public Optional<Payload> toData(Object value) throws DataConverterException {
-
     try {
       CloudEvent cloudEvent = (CloudEvent) value;
-      byte[] serialized = CEFormat.serialize(cloudEvent);
+      ByteString.Output output = ByteString.newOutput();
+      WRITER.writeValue(output, cloudEvent);
 
       return Optional.of(
           Payload.newBuilder()
-              .putMetadata(
-                  "encoding", ByteString.copyFrom(getEncodingType(), StandardCharsets.UTF_8))
-              .setData(ByteString.copyFrom(serialized))
+              .putMetadata(EncodingKeys.METADATA_ENCODING_KEY, METADATA_ENCODING)
+              .setData(output.toByteString())
               .build());
 
-    } catch (EventSerializationException | ClassCastException e) {
+    } catch (IOException | ClassCastException e) {
       throw new DataConverterException(e);
     }
   }
 
   @Override
+  @SuppressWarnings("unchecked")
   public <T> T fromData(Payload content, Class<T> valueClass, Type valueType)
       throws DataConverterException {
-    try {
-      return (T) CEFormat.deserialize(content.getData().toByteArray());
-    } catch (ClassCastException e) {
+    try (InputStream input = content.getData().newInput()) {
+      if (JsonNode.class.equals(valueClass)) {
+        return (T) readData(input);
+      }
+      return (T) READER.readValue(input);
+    } catch (IOException | ClassCastException e) {
       throw new DataConverterException(e);
     }
   }
+
+  /** Returns the data of the event, skipping all its other attributes. */
+  private static JsonNode readData(InputStream input) throws IOException {
+    try (JsonParser parser = MAPPER.createParser(input)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new JsonParseException(parser, "Expected a CloudEvent JSON object");
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String name = parser.currentName();
+        parser.nextToken();
+        if ("data".equals(name)) {
+          return MAPPER.readTree(parser);
+        }
+        if ("data_base64".equals(name)) {
+          return BinaryNode.valueOf(parser.getBinaryValue());
+        }
+        parser.skipChildren();
+      }
+      return NullNode.getInstance();
+    }
+  }
 }
@@ -0,0 +1,93 @@
+package io.temporal.samples.workflowstreams;
+
+import java.time.Duration;
+
+/** Flush limits of an {@link AdaptiveStreamPublisher}. */
+public final class AdaptiveBatchingOptions {
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static AdaptiveBatchingOptions getDefaultInstance() {
+    return newBuilder().build();
+  }
+
+  public static final class Builder {
+    private int maxItems = 100;
+    private int maxBytes;
+    private Duration minDelay = Duration.ofMillis(10);
+    private Duration maxDelay = Duration.ofMillis(500);
+
+    private Builder() {}
+
+    /** Flushes as soon as this many items are pending. Default is 100. */
+    public Builder setMaxItems(int maxItems) {
+      this.maxItems = maxItems;
+      return this;
+    }
+
+    /**
+     * Flushes as soon as the pending payloads reach this size, well below the signal size limit.
+     * Every value is then serialized a second time to be weighed, as the client doesn't report the
+     * size of its pending items. Zero, the default, for no byte limit, which suits small items
+     * such as tokens.
+     */
+    public Builder setMaxBytes(int maxBytes) {
+      this.maxBytes = maxBytes;
+      return this;
+    }
+
+    /** Shortest wait before a flush, used when items are sparse. Default is 10ms. */
+    public Builder setMinDelay(Duration minDelay) {
+      this.minDelay = minDelay;
+      return this;
+    }
+
+    /** Longest time an item waits before it is flushed. Default is 500ms. */
+    public Builder setMaxDelay(Duration maxDelay) {
+      this.maxDelay = maxDelay;
+      return this;
+    }
+
+    public AdaptiveBatchingOptions build() {
+      if (maxItems <= 0 || maxBytes < 0) {
+        throw new IllegalArgumentException("Expected maxItems > 0 and maxBytes >= 0");
+      }
+      if (minDelay.isNegative() || maxDelay.compareTo(minDelay) < 0) {
+        throw new IllegalArgumentException("Expected 0 <= minDelay <= maxDelay");
+      }
+      return new AdaptiveBatchingOptions(maxItems, maxBytes, minDelay, maxDelay);
+    }
+  }
+
+  private final int maxItems;
+  private final int maxBytes;
+  private final Duration minDelay;
+  private final Duration maxDelay;
+
+  private AdaptiveBatchingOptions(
+      int maxItems, int maxBytes, Duration minDelay, Duration maxDelay) {
+    this.maxItems = maxItems;
+    this.maxBytes = maxBytes;
+    this.minDelay = minDelay;
+    this.maxDelay = maxDelay;
+  }
+
+  public int getMaxItems() {
+    return maxItems;
+  }
+
+  /** Byte limit of the pending payloads, or zero for none. */
+  public int getMaxBytes() {
+    return maxBytes;
+  }
+
+  public Duration getMinDelay() {
+    return minDelay;
+  }
+
+  public Duration getMaxDelay() {
+    return maxDelay;
+  }
+}
@@ -0,0 +1,290 @@
+package io.temporal.samples.workflowstreams;
+
+import com.uber.m3.tally.DurationBuckets;
+import com.uber.m3.tally.Histogram;
+import com.uber.m3.tally.Scope;
+import com.uber.m3.tally.ValueBuckets;
+import io.temporal.api.common.v1.Payload;
+import io.temporal.common.converter.DefaultDataConverter;
+import io.temporal.workflowstreams.TopicHandle;
+import io.temporal.workflowstreams.WorkflowStreamClient;
+import io.temporal.workflowstreams.WorkflowStreamClientOptions;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes to a workflow stream with adaptive batching. A fixed batch interval either sends a
+ * signal for every few items of a fast producer, or holds the items of a slow one back for the
+ * whole interval. This publisher flushes as soon as {@link AdaptiveBatchingOptions#getMaxItems()}
+ * items, or {@link AdaptiveBatchingOptions#getMaxBytes()} bytes when set, are pending, and
+ * otherwise after a delay tuned from the observed publish rate and signal latency, see {@link
+ * #nextDelayNanos}.
+ *
+ * <p>Flushes run one at a time on a background thread, so {@link #publish} never waits for a
+ * signal. Create the client with {@link #CLIENT_OPTIONS}, which leaves flushing to the publisher.
+ * A failed background flush leaves the items in the client and is retried with exponential
+ * backoff, from {@link #RETRY_INITIAL_INTERVAL} up to {@link #RETRY_MAX_INTERVAL}.
+ *
+ * <p>Reports the {@value #BATCH_SIZE_METRIC} and {@value #PUBLISH_LATENCY_METRIC} histograms to
+ * the given metrics scope: the items per signal, and the time from the publish of an item to its
+ * delivery to the workflow, where subscribers can poll it. The scope reports nothing unless it is
+ * created with a reporter, as in the metrics sample.
+ */
+public class AdaptiveStreamPublisher implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(AdaptiveStreamPublisher.class);
+
+  /** Client options that leave flushing to the publisher: the client timer never fires first. */
+  public static final WorkflowStreamClientOptions CLIENT_OPTIONS =
+      WorkflowStreamClientOptions.newBuilder().setBatchInterval(Duration.ofHours(1)).build();
+
+  public static final String BATCH_SIZE_METRIC = "workflow_stream_publish_batch_size";
+  public static final String PUBLISH_LATENCY_METRIC = "workflow_stream_publish_latency";
+
+  /** Time from the publish of an item to its processing, recorded by the subscribers. */
+  public static final String END_TO_END_LATENCY_METRIC = "workflow_stream_end_to_end_latency";
+
+  /** 1 to 2048 items. */
+  static final ValueBuckets BATCH_SIZE_BUCKETS = ValueBuckets.exponential(1, 2, 12);
+
+  /** 1ms to 8s. */
+  public static final DurationBuckets LATENCY_BUCKETS =
+      DurationBuckets.exponential(com.uber.m3.util.Duration.ofMillis(1), 2, 14);
+
+  static final Duration RETRY_INITIAL_INTERVAL = Duration.ofMillis(100);
+  static final Duration RETRY_MAX_INTERVAL = Duration.ofSeconds(10);
+
+  /** Weight of the last observation in the moving averages of the rate and the latency. */
+  private static final double SMOOTHING = 0.3;
+
+  private final WorkflowStreamClient client;
+  private final AdaptiveBatchingOptions options;
+  private final Histogram batchSize;
+  private final Histogram publishLatency;
+  private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor();
+
+  // All the following fields are guarded by this.
+  private final Map<String, TopicHandle> topics = new HashMap<>();
+
+  /** Publish times of the pending items. */
+  private long[] pendingPublishNanos = new long[16];
+
+  private int pendingItems;
+  private long pendingBytes;
+  private ScheduledFuture<?> scheduledFlush;
+  private boolean flushing;
+  private long lastFlushNanos;
+  private double ratePerSecond;
+  private long signalLatencyNanos;
+  private long delayNanos;
+
+  /** Delay of the retry of a failed flush, or zero when the last flush succeeded. */
+  private long retryDelayNanos;
+
+  public AdaptiveStreamPublisher(
+      WorkflowStreamClient client, AdaptiveBatchingOptions options, Scope metricsScope) {
+    this.client = client;
+    this.options = options;
+    this.batchSize = metricsScope.histogram(BATCH_SIZE_METRIC, BATCH_SIZE_BUCKETS);
+    this.publishLatency = metricsScope.histogram(PUBLISH_LATENCY_METRIC, LATENCY_BUCKETS);
+    this.delayNanos = options.getMinDelay().toNanos();
+  }
+
+  public void publish(String topic, Object value) {
+    publish(topic, value, false);
+  }
+
+  /**
+   * Publishes a value to a topic.
+   *
+   * @param forceFlush flushes without waiting for more items, for example for the last item.
+   */
+  public void publish(String topic, Object value, boolean forceFlush) {
+    // Only weighs the value with a byte limit, as that serializes it a second time.
+    long size = options.getMaxBytes() > 0 ? payloadSize(value) : 0;
+    synchronized (this) {
+      topics.computeIfAbsent(topic, client::topic).publish(value);
+      if (pendingItems == pendingPublishNanos.length) {
+        pendingPublishNanos = Arrays.copyOf(pendingPublishNanos, pendingItems * 2);
+      }
+      pendingPublishNanos[pendingItems++] = System.nanoTime();
+      pendingBytes += size;
+      if (forceFlush || isFull()) {
+        scheduleFlush(0);
+      } else if (pendingItems == 1) {
+        scheduleFlush(delayNanos);
+      }
+    }
+  }
+
+  /** Flushes the published items and waits until the workflow received them. */
+  public void flush() {
+    try {
+      // Flushes the client even without pending items, as a failed flush leaves items in it.
+      flusher.submit(() -> flushPending(true)).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while flushing", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /** Current delay between the first pending item and the flush. */
+  public synchronized Duration getFlushDelay() {
+    return Duration.ofNanos(delayNanos);
+  }
+
+  /** Flushes the published items and stops the flushing thread. */
+  @Override
+  public void close() {
+    try {
+      flush();
+    } finally {
+      flusher.shutdown();
+    }
+  }
+
+  /**
+   * Returns the delay between the first pending item and the flush. One signal is sent at a time,
+   * so the items published during a signal wait for it anyway. When the publish rate brings at
+   * least one item per signal latency, waiting for that latency gathers a batch at the cost of a
+   * single signal. Otherwise waiting only adds latency, so the shortest delay is used.
+   */
+  static long nextDelayNanos(
+      double ratePerSecond, long signalLatencyNanos, AdaptiveBatchingOptions options) {
+    double itemsPerSignal = ratePerSecond * signalLatencyNanos / 1e9;
+    long minDelay = options.getMinDelay().toNanos();
+    long delay = itemsPerSignal >= 1 ? signalLatencyNanos : minDelay;
+    return Math.max(minDelay, Math.min(options.getMaxDelay().toNanos(), delay));
+  }
+
+  private boolean isFull() {
+    return pendingItems >= options.getMaxItems()
+        || (options.getMaxBytes() > 0 && pendingBytes >= options.getMaxBytes());
+  }
+
+  /**
+   * Schedules a flush unless one is running, which schedules the next one when done, or a failed
+   * one is waiting for its retry.
+   */
+  private void scheduleFlush(long delay) {
+    if (flushing || (retryDelayNanos > 0 && scheduledFlush != null)) {
+      return;
+    }
+    if (scheduledFlush != null) {
+      if (delay > 0 || scheduledFlush.getDelay(TimeUnit.NANOSECONDS) <= 0) {
+        return;
+      }
+      scheduledFlush.cancel(false);
+    }
+    scheduledFlush =
+        flusher.schedule(
+            () -> {
+              try {
+                flushPending(false);
+              } catch (RuntimeException e) {
+                // The items stay in the client, and the flush is retried.
+                log.warn("Failed to flush the workflow stream", e);
+              }
+            },
+            delay,
+            TimeUnit.NANOSECONDS);
+  }
+
+  /** Runs on the flusher thread. */
+  private void flushPending(boolean always) {
+    int items;
+    long bytes;
+    long[] publishNanos;
+    synchronized (this) {
+      scheduledFlush = null;
+      // A retry flushes the client even without pending items, as the failed items are in it.
+      if (pendingItems == 0 && !always && retryDelayNanos == 0) {
+        return;
+      }
+      items = pendingItems;
+      bytes = pendingBytes;
+      publishNanos = Arrays.copyOf(pendingPublishNanos, items);
+      pendingItems = 0;
+      pendingBytes = 0;
+      flushing = true;
+    }
+    long start = System.nanoTime();
+    try {
+      client.flush();
+    } catch (RuntimeException e) {
+      retry(publishNanos, bytes);
+      throw e;
+    }
+    long end = System.nanoTime();
+    if (items > 0) {
+      batchSize.recordValue(items);
+    }
+    for (long published : publishNanos) {
+      publishLatency.recordDuration(com.uber.m3.util.Duration.ofNanos(end - published));
+    }
+    synchronized (this) {
+      flushing = false;
+      retryDelayNanos = 0;
+      if (lastFlushNanos != 0 && start > lastFlushNanos) {
+        // The flushed items were published since the previous flush.
+        double rate = items * 1e9 / (start - lastFlushNanos);
+        ratePerSecond = SMOOTHING * rate + (1 - SMOOTHING) * ratePerSecond;
+      }
+      lastFlushNanos = start;
+      signalLatencyNanos =
+          signalLatencyNanos == 0
+              ? end - start
+              : (long) (SMOOTHING * (end - start) + (1 - SMOOTHING) * signalLatencyNanos);
+      delayNanos = nextDelayNanos(ratePerSecond, signalLatencyNanos, options);
+      if (pendingItems > 0) {
+        long due = pendingPublishNanos[0] + delayNanos - System.nanoTime();
+        scheduleFlush(isFull() ? 0 : Math.max(0, due));
+      }
+    }
+  }
+
+  /**
+   * Puts the items of a failed flush back in front of the pending ones, which were published
+   * during the flush, and schedules a retry.
+   */
+  private synchronized void retry(long[] publishNanos, long bytes) {
+    flushing = false;
+    long[] pending = new long[Math.max(16, publishNanos.length + pendingItems)];
+    System.arraycopy(publishNanos, 0, pending, 0, publishNanos.length);
+    System.arraycopy(pendingPublishNanos, 0, pending, publishNanos.length, pendingItems);
+    pendingPublishNanos = pending;
+    pendingItems += publishNanos.length;
+    pendingBytes += bytes;
+    retryDelayNanos =
+        retryDelayNanos == 0
+            ? RETRY_INITIAL_INTERVAL.toNanos()
+            : Math.min(retryDelayNanos * 2, RETRY_MAX_INTERVAL.toNanos());
+    if (scheduledFlush != null) {
+      scheduledFlush.cancel(false);
+      scheduledFlush = null;
+    }
+    scheduleFlush(retryDelayNanos);
+  }
+
+  private static long payloadSize(Object value) {
+    // The size of the default encoding, as the client may use another converter.
+    return DefaultDataConverter.STANDARD_INSTANCE
+        .toPayload(value)
+        .map(Payload::getSerializedSize)
+        .orElse(0);
+  }
+}
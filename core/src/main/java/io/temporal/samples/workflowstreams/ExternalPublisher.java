@@ -4,10 +4,12 @@ import io.temporal.client.WorkflowClient;
 import io.temporal.client.WorkflowOptions;
 import io.temporal.samples.workflowstreams.Shared.HubInput;
 import io.temporal.samples.workflowstreams.Shared.NewsEvent;
-import io.temporal.workflowstreams.TopicHandle;
 import io.temporal.workflowstreams.WorkflowStreamClient;
 import io.temporal.workflowstreams.WorkflowStreamItem;
 import io.temporal.workflowstreams.WorkflowStreamSubscription;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -15,6 +17,10 @@ import java.util.UUID;
  * hosts the stream. A separate process publishes news into it using the same client factory used to
  * subscribe, then signals the workflow to close. Here the publisher and a subscriber run as two
  * threads.
+ *
+ * <p>The hub only sees the items through signals: the publisher reports the sizes of the items it
+ * flushed, and the subscriber registers before it reads and acks every few items. The hub assumes a
+ * single publisher, as it counts the offsets from the reported items.
  */
 public class ExternalPublisher {
 
@@ -22,6 +28,16 @@ public class ExternalPublisher {
     "markets open higher", "new bridge opens downtown", "local team wins championship",
   };
 
+  private static final String SUBSCRIBER_ID = "subscriber";
+
+  /** The subscriber acks after this many items or this long, whichever comes first. */
+  private static final int ACK_EVERY = 10;
+
+  private static final Duration ACK_INTERVAL = Duration.ofSeconds(1);
+
+  /** The publisher reports the items it published to the hub after this many items. */
+  private static final int REPORT_EVERY = 10;
+
   /** The sentinel the publisher sends last so the subscriber knows to stop. */
   private static final String DONE_HEADLINE = "-- end of feed --";
 
@@ -42,16 +58,30 @@ public class ExternalPublisher {
     Thread subscriber =
         new Thread(
             () -> {
+              // Registers first, so the hub keeps the items until this subscriber acks them.
+              workflow.register(SUBSCRIBER_ID, 0);
+              long acked = 0;
+              long lastAck = System.nanoTime();
               try (WorkflowStreamClient stream =
                       WorkflowStreamClient.newInstance(client, workflowId);
                   WorkflowStreamSubscription subscription =
                       stream.topic(Shared.TOPIC_NEWS).subscribe(0)) {
                 for (WorkflowStreamItem item : subscription) {
                   NewsEvent evt = Shared.decode(item, NewsEvent.class);
+                  long next = item.getOffset() + 1;
                   if (evt.headline.equals(DONE_HEADLINE)) {
+                    workflow.ack(SUBSCRIBER_ID, next);
                     return;
                   }
                   System.out.printf("[subscriber] %s%n", evt.headline);
+                  // Lets the hub truncate the headlines this subscriber is done with. Acks are
+                  // batched, as every signal adds to the history of the hub.
+                  if (next - acked >= ACK_EVERY
+                      || System.nanoTime() - lastAck >= ACK_INTERVAL.toNanos()) {
+                    workflow.ack(SUBSCRIBER_ID, next);
+                    acked = next;
+                    lastAck = System.nanoTime();
+                  }
                 }
               }
             });
@@ -59,12 +89,29 @@ public class ExternalPublisher {
     Thread publisher =
         new Thread(
             () -> {
+              // Flushes each headline after a short delay, as they are sparse, and reports the
+              // batch size and latency histograms to the client metrics scope.
               try (WorkflowStreamClient producer =
-                  WorkflowStreamClient.newInstance(client, workflowId)) {
-                TopicHandle news = producer.topic(Shared.TOPIC_NEWS);
+                      WorkflowStreamClient.newInstance(
+                          client, workflowId, AdaptiveStreamPublisher.CLIENT_OPTIONS);
+                  AdaptiveStreamPublisher news =
+                      new AdaptiveStreamPublisher(
+                          producer,
+                          AdaptiveBatchingOptions.getDefaultInstance(),
+                          client.getWorkflowServiceStubs().getOptions().getMetricsScope())) {
+                List<Integer> unreported = new ArrayList<>();
                 for (String headline : HEADLINES) {
-                  news.publish(new NewsEvent(headline));
+                  NewsEvent evt = new NewsEvent(headline);
+                  news.publish(Shared.TOPIC_NEWS, evt);
+                  unreported.add(Shared.payloadSize(evt));
                   System.out.printf("[publisher]  sent: %s%n", headline);
+                  if (unreported.size() >= REPORT_EVERY) {
+                    // Reports the items once they are delivered, so the hub tracks their offsets
+                    // and sizes.
+                    news.flush();
+                    workflow.published(unreported);
+                    unreported = new ArrayList<>();
+                  }
                   try {
                     Thread.sleep(500);
                   } catch (InterruptedException e) {
@@ -74,8 +121,11 @@ public class ExternalPublisher {
                 }
                 // Force-flush the sentinel and wait for the server to confirm delivery
                 // before signaling the workflow to close.
-                news.publish(new NewsEvent(DONE_HEADLINE), /* forceFlush */ true);
-                producer.flush();
+                NewsEvent done = new NewsEvent(DONE_HEADLINE);
+                news.publish(Shared.TOPIC_NEWS, done, /* forceFlush */ true);
+                unreported.add(Shared.payloadSize(done));
+                news.flush();
+                workflow.published(unreported);
               }
               workflow.close();
               System.out.println("[publisher]  signaled close");
@@ -1,13 +1,19 @@
 package io.temporal.samples.workflowstreams;
 
 import io.temporal.samples.workflowstreams.Shared.HubInput;
+import io.temporal.workflow.QueryMethod;
 import io.temporal.workflow.SignalMethod;
 import io.temporal.workflow.WorkflowInterface;
 import io.temporal.workflow.WorkflowMethod;
+import java.util.List;
 
 /**
  * Scenario 4: does no work of its own; it exists only to host the stream for an external publisher
  * and shuts down on a close signal.
+ *
+ * <p>The hub keeps the items until all the registered subscribers acknowledged them. The publisher
+ * reports the items it published, so the hub knows the head of the stream and the size of the
+ * retained items, and continues as new once enough bytes went through a run.
  */
 @WorkflowInterface
 public interface HubWorkflow {
@@ -16,4 +22,26 @@ public interface HubWorkflow {
 
   @SignalMethod
   void close();
+
+  /**
+   * Reports items a client published, once they were delivered.
+   *
+   * @param itemBytes the payload sizes of the items, in offset order.
+   */
+  @SignalMethod
+  void published(List<Integer> itemBytes);
+
+  /** Registers a subscriber that reads from an offset, so the items it didn't ack are kept. */
+  @SignalMethod
+  void register(String subscriberId, long fromOffset);
+
+  /**
+   * Acknowledges that a registered subscriber processed the items before an offset. Send it every
+   * few items rather than for every item, as every signal adds to the history.
+   */
+  @SignalMethod
+  void ack(String subscriberId, long nextOffset);
+
+  @QueryMethod
+  StreamRetention.State getRetentionState();
 }
@@ -4,19 +4,41 @@ import io.temporal.samples.workflowstreams.Shared.HubInput;
 import io.temporal.workflow.Workflow;
 import io.temporal.workflow.WorkflowInit;
 import io.temporal.workflowstreams.WorkflowStream;
+import java.util.List;
 
 public class HubWorkflowImpl implements HubWorkflow {
 
+  static final long DEFAULT_CONTINUE_AS_NEW_AFTER_BYTES = 1024 * 1024;
+
+  private final WorkflowStream stream;
+  private final StreamRetention retention;
   private boolean closed;
 
   @WorkflowInit
   public HubWorkflowImpl(HubInput input) {
-    WorkflowStream.newInstance(input.streamState);
+    stream = WorkflowStream.newInstance(input.streamState);
+    long continueAsNewAfterBytes =
+        input.continueAsNewAfterBytes != 0
+            ? input.continueAsNewAfterBytes
+            : DEFAULT_CONTINUE_AS_NEW_AFTER_BYTES;
+    // The items are only dropped once every registered subscriber read them.
+    RetentionPolicy policy =
+        RetentionPolicy.newBuilder()
+            .setUntilAcked(true)
+            .setContinueAsNewAfterBytes(continueAsNewAfterBytes)
+            .build();
+    retention = new StreamRetention(stream, policy, input.retentionState);
   }
 
   @Override
   public String host(HubInput input) {
-    Workflow.await(() -> closed);
+    Workflow.await(() -> closed || retention.shouldContinueAsNew());
+    if (!closed) {
+      // Carries the retained items, the offsets and the registered subscribers to the next run.
+      input.streamState = stream.getState();
+      input.retentionState = retention.getState();
+      Workflow.continueAsNew(input);
+    }
 
     // The publisher publishes its own terminator into the stream before signaling close
     // (see ExternalPublisher). Hold the run open briefly so subscribers' final poll
@@ -29,4 +51,24 @@ public class HubWorkflowImpl implements HubWorkflow {
   public void close() {
     closed = true;
   }
+
+  @Override
+  public void published(List<Integer> itemBytes) {
+    retention.published(itemBytes);
+  }
+
+  @Override
+  public void register(String subscriberId, long fromOffset) {
+    retention.register(subscriberId, fromOffset);
+  }
+
+  @Override
+  public void ack(String subscriberId, long nextOffset) {
+    retention.ack(subscriberId, nextOffset);
+  }
+
+  @Override
+  public StreamRetention.State getRetentionState() {
+    return retention.getState();
+  }
 }
@@ -1,5 +1,6 @@
 package io.temporal.samples.workflowstreams;
 
+import com.uber.m3.tally.Histogram;
 import io.temporal.client.WorkflowClient;
 import io.temporal.client.WorkflowOptions;
 import io.temporal.samples.workflowstreams.Shared.LlmInput;
@@ -9,6 +10,9 @@ import io.temporal.workflowstreams.SubscribeOptions;
 import io.temporal.workflowstreams.WorkflowStreamClient;
 import io.temporal.workflowstreams.WorkflowStreamItem;
 import io.temporal.workflowstreams.WorkflowStreamSubscription;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -43,6 +47,18 @@ public class Llm {
     WorkflowClient.start(workflow::complete, new LlmInput(prompt, null));
     System.out.println("Started workflow: " + workflowId);
 
+    // Publisher and subscriber clocks are compared, so the latency is only meaningful when both
+    // run on the same host, as in this sample.
+    Histogram endToEndLatency =
+        client
+            .getWorkflowServiceStubs()
+            .getOptions()
+            .getMetricsScope()
+            .histogram(
+                AdaptiveStreamPublisher.END_TO_END_LATENCY_METRIC,
+                AdaptiveStreamPublisher.LATENCY_BUCKETS);
+    List<Long> latencies = new ArrayList<>();
+
     try (WorkflowStreamClient stream = WorkflowStreamClient.newInstance(client, workflowId);
         WorkflowStreamSubscription subscription =
             stream.subscribe(
@@ -60,12 +76,32 @@ public class Llm {
           TextDelta evt = Shared.decode(item, TextDelta.class);
           System.out.print(evt.text);
           System.out.flush();
+          if (evt.publishedAtMillis > 0) {
+            long latency = System.currentTimeMillis() - evt.publishedAtMillis;
+            endToEndLatency.recordDuration(com.uber.m3.util.Duration.ofMillis(latency));
+            latencies.add(latency);
+          }
         } else if (item.getTopic().equals(Shared.TOPIC_COMPLETE)) {
           System.out.println();
           break;
         }
       }
     }
+    printLatencies(latencies);
     System.exit(0);
   }
+
+  /** Prints the publish-to-render latency percentiles of the deltas. */
+  private static void printLatencies(List<Long> latencies) {
+    if (latencies.isEmpty()) {
+      return;
+    }
+    Collections.sort(latencies);
+    System.out.printf(
+        "%n%d deltas, publish-to-render latency p50=%dms p90=%dms max=%dms%n",
+        latencies.size(),
+        latencies.get(latencies.size() / 2),
+        latencies.get(latencies.size() * 9 / 10),
+        latencies.get(latencies.size() - 1));
+  }
 }
@@ -6,14 +6,12 @@ import com.openai.core.http.StreamResponse;
 import com.openai.models.chat.completions.ChatCompletionChunk;
 import com.openai.models.chat.completions.ChatCompletionCreateParams;
 import io.temporal.activity.Activity;
+import io.temporal.activity.ActivityExecutionContext;
 import io.temporal.samples.workflowstreams.Shared.LlmInput;
 import io.temporal.samples.workflowstreams.Shared.RetryEvent;
 import io.temporal.samples.workflowstreams.Shared.TextComplete;
 import io.temporal.samples.workflowstreams.Shared.TextDelta;
-import io.temporal.workflowstreams.TopicHandle;
 import io.temporal.workflowstreams.WorkflowStreamClient;
-import io.temporal.workflowstreams.WorkflowStreamClientOptions;
-import java.time.Duration;
 
 /**
  * Calls OpenAI with streaming enabled and republishes each token delta to the workflow stream. The
@@ -30,16 +28,19 @@ public class LlmActivitiesImpl implements LlmActivities {
 
   @Override
   public String streamCompletion(LlmInput input) {
-    WorkflowStreamClientOptions options =
-        WorkflowStreamClientOptions.newBuilder().setBatchInterval(Duration.ofMillis(200)).build();
-    try (WorkflowStreamClient streamClient = WorkflowStreamClient.fromActivity(options)) {
-      TopicHandle deltas = streamClient.topic(Shared.TOPIC_DELTA);
-      TopicHandle complete = streamClient.topic(Shared.TOPIC_COMPLETE);
-      TopicHandle retry = streamClient.topic(Shared.TOPIC_RETRY);
-
-      int attempt = Activity.getExecutionContext().getInfo().getAttempt();
+    ActivityExecutionContext context = Activity.getExecutionContext();
+    // The publisher flushes the token deltas by count, size or a delay tuned to the token rate,
+    // instead of a fixed batch interval.
+    try (WorkflowStreamClient streamClient =
+            WorkflowStreamClient.fromActivity(AdaptiveStreamPublisher.CLIENT_OPTIONS);
+        AdaptiveStreamPublisher publisher =
+            new AdaptiveStreamPublisher(
+                streamClient,
+                AdaptiveBatchingOptions.getDefaultInstance(),
+                context.getMetricsScope())) {
+      int attempt = context.getInfo().getAttempt();
       if (attempt > 1) {
-        retry.publish(new RetryEvent(attempt), /* forceFlush */ true);
+        publisher.publish(Shared.TOPIC_RETRY, new RetryEvent(attempt), /* forceFlush */ true);
       }
 
       String model = input.model != null && !input.model.isEmpty() ? input.model : DEFAULT_MODEL;
@@ -61,13 +62,13 @@ public class LlmActivitiesImpl implements LlmActivities {
                         .filter(text -> !text.isEmpty())
                         .ifPresent(
                             text -> {
-                              deltas.publish(new TextDelta(text));
+                              publisher.publish(Shared.TOPIC_DELTA, new TextDelta(text));
                               full.append(text);
                             }));
       }
 
       String fullText = full.toString();
-      complete.publish(new TextComplete(fullText), /* forceFlush */ true);
+      publisher.publish(Shared.TOPIC_COMPLETE, new TextComplete(fullText), /* forceFlush */ true);
       return fullText;
     }
   }
@@ -0,0 +1,110 @@
+package io.temporal.samples.workflowstreams;
+
+import io.temporal.client.WorkflowClient;
+import io.temporal.client.WorkflowOptions;
+import io.temporal.samples.workflowstreams.Shared.TickEvent;
+import io.temporal.samples.workflowstreams.Shared.TickerInput;
+import io.temporal.samples.workflowstreams.WorkflowStreamMultiplexer.LocalSubscription;
+import io.temporal.samples.workflowstreams.WorkflowStreamMultiplexer.OverflowPolicy;
+import io.temporal.samples.workflowstreams.WorkflowStreamMultiplexer.SubscriberStats;
+import io.temporal.workflowstreams.WorkflowStreamItem;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scenario 7: many viewers, one upstream. A dashboard process that shows the same workflow to many
+ * viewers would poll the workflow once per viewer. Here {@link WorkflowStreamMultiplexer} polls
+ * the ticker workflow once and fans the ticks out to {@link #VIEWERS} local subscriptions. One of
+ * the viewers is deliberately slow: its small buffer overflows and it drops the oldest ticks
+ * instead of holding back the others. The lag of every viewer is printed every second.
+ */
+public class MultiplexedSubscribers {
+
+  private static final int TICK_COUNT = 40;
+
+  private static final int VIEWERS = 50;
+
+  private static final int BUFFER_SIZE = 8;
+
+  /** How long the slow viewer takes to render a tick. Ticks are published every 200ms. */
+  private static final long SLOW_RENDER_MS = 1000;
+
+  public static void main(String[] args) throws InterruptedException {
+    WorkflowClient client = Shared.newWorkflowClient();
+
+    String workflowId = "workflow-streams-multiplexed-" + UUID.randomUUID();
+    TickerWorkflow workflow =
+        client.newWorkflowStub(
+            TickerWorkflow.class,
+            WorkflowOptions.newBuilder()
+                .setWorkflowId(workflowId)
+                .setTaskQueue(Shared.TASK_QUEUE)
+                .build());
+    // Keeps every tick: no truncation in this scenario.
+    WorkflowClient.start(workflow::tick, new TickerInput(TICK_COUNT, TICK_COUNT, TICK_COUNT));
+    System.out.println("Started workflow: " + workflowId);
+
+    int lastN = TICK_COUNT - 1;
+    try (WorkflowStreamMultiplexer multiplexer =
+        new WorkflowStreamMultiplexer(client, BUFFER_SIZE, OverflowPolicy.DROP_OLDEST)) {
+      List<Thread> viewers = new ArrayList<>();
+      for (int i = 0; i < VIEWERS; i++) {
+        long renderMs = i == 0 ? SLOW_RENDER_MS : 0;
+        LocalSubscription subscription = multiplexer.subscribe(workflowId, Shared.TOPIC_TICK, 0);
+        Thread viewer = new Thread(() -> view(subscription, renderMs, lastN));
+        viewer.start();
+        viewers.add(viewer);
+      }
+      System.out.printf(
+          "%d viewers share %d upstream subscription(s)%n",
+          VIEWERS, multiplexer.getUpstreamCount());
+
+      while (viewers.stream().anyMatch(Thread::isAlive)) {
+        printLag(multiplexer.getStats());
+        Thread.sleep(1000);
+      }
+    }
+    System.exit(0);
+  }
+
+  /** Renders ticks until the last one, then closes the subscription. */
+  private static void view(LocalSubscription subscription, long renderMs, int lastN) {
+    try (LocalSubscription s = subscription) {
+      while (!s.isEnded()) {
+        WorkflowStreamItem item = s.poll(1, TimeUnit.SECONDS);
+        if (item == null) {
+          continue;
+        }
+        Thread.sleep(renderMs);
+        if (Shared.decode(item, TickEvent.class).n == lastN) {
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Prints the slowest viewer, and the others in aggregate. */
+  private static void printLag(List<SubscriberStats> stats) {
+    if (stats.isEmpty()) {
+      return;
+    }
+    SubscriberStats slowest = stats.get(0);
+    for (SubscriberStats s : stats) {
+      if (s.getLag() > slowest.getLag()) {
+        slowest = s;
+      }
+    }
+    long othersLag = 0;
+    for (SubscriberStats s : stats) {
+      if (s != slowest) {
+        othersLag = Math.max(othersLag, s.getLag());
+      }
+    }
+    System.out.println(slowest);
+    System.out.printf("  %d other viewer(s), max lag=%d%n", stats.size() - 1, othersLag);
+  }
+}
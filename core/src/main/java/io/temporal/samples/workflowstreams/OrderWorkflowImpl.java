@@ -7,7 +7,6 @@ import io.temporal.samples.workflowstreams.Shared.StatusEvent;
 import io.temporal.workflow.Workflow;
 import io.temporal.workflow.WorkflowInit;
 import io.temporal.workflowstreams.WorkflowStream;
-import io.temporal.workflowstreams.WorkflowTopicHandle;
 import java.time.Duration;
 
 public class OrderWorkflowImpl implements OrderWorkflow {
@@ -18,9 +17,14 @@ public class OrderWorkflowImpl implements OrderWorkflow {
    */
   static final Duration DRAIN_DELAY = Duration.ofMillis(500);
 
-  private final WorkflowStream stream;
-  private final WorkflowTopicHandle status;
-  private final WorkflowTopicHandle progress;
+  /**
+   * Bounds the log of a long-running order, for example one retrying its payment for days. The
+   * last items, including the terminator, are always kept.
+   */
+  static final RetentionPolicy RETENTION =
+      RetentionPolicy.newBuilder().setKeepLast(100).setMaxAge(Duration.ofHours(1)).build();
+
+  private final StreamRetention retention;
 
   private final PaymentActivities activities =
       Workflow.newActivityStub(
@@ -34,20 +38,19 @@ public class OrderWorkflowImpl implements OrderWorkflow {
    */
   @WorkflowInit
   public OrderWorkflowImpl(OrderInput input) {
-    stream = WorkflowStream.newInstance(input.streamState);
-    status = stream.topic(Shared.TOPIC_STATUS);
-    progress = stream.topic(Shared.TOPIC_PROGRESS);
+    WorkflowStream stream = WorkflowStream.newInstance(input.streamState);
+    retention = new StreamRetention(stream, RETENTION, input.retentionState);
   }
 
   @Override
   public String processOrder(OrderInput input) {
-    status.publish(new StatusEvent("received", input.orderId));
+    retention.publish(Shared.TOPIC_STATUS, new StatusEvent("received", input.orderId));
 
     String chargeId = activities.chargeCard(input.orderId);
 
-    status.publish(new StatusEvent("shipped", input.orderId));
-    progress.publish(new ProgressEvent("charge id: " + chargeId));
-    status.publish(new StatusEvent("complete", input.orderId));
+    retention.publish(Shared.TOPIC_STATUS, new StatusEvent("shipped", input.orderId));
+    retention.publish(Shared.TOPIC_PROGRESS, new ProgressEvent("charge id: " + chargeId));
+    retention.publish(Shared.TOPIC_STATUS, new StatusEvent("complete", input.orderId));
 
     // The "complete" status event above is the in-band terminator subscribers break on
     // (see Publisher). Hold the run open briefly so subscribers' next poll delivers it
@@ -0,0 +1,170 @@
+package io.temporal.samples.workflowstreams;
+
+import io.temporal.samples.workflowstreams.StreamRetention.RetainedItem;
+import io.temporal.samples.workflowstreams.StreamRetention.State;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Declares which items of a workflow stream are retained. An item is truncated as soon as one of
+ * the set limits drops it:
+ *
+ * <ul>
+ *   <li>keep last: only the last items are kept.
+ *   <li>max bytes: the oldest items are dropped until the retained payloads fit.
+ *   <li>max age: items published longer ago are dropped.
+ *   <li>until acked: items acknowledged by all the registered subscribers are dropped.
+ * </ul>
+ *
+ * <p>A subscriber resuming from a truncated offset is fast-forwarded to the first retained item.
+ * Without any limit, nothing is truncated. See {@link StreamRetention}.
+ */
+public final class RetentionPolicy {
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static final class Builder {
+    private int keepLast;
+    private long maxBytes;
+    private Duration maxAge;
+    private boolean untilAcked;
+    private int minTruncation = 1;
+    private long continueAsNewAfterBytes;
+
+    private Builder() {}
+
+    /** Keeps only the last items. Zero, the default, for no limit. */
+    public Builder setKeepLast(int keepLast) {
+      this.keepLast = keepLast;
+      return this;
+    }
+
+    /** Keeps at most this size of payloads. Zero, the default, for no limit. */
+    public Builder setMaxBytes(long maxBytes) {
+      this.maxBytes = maxBytes;
+      return this;
+    }
+
+    /** Keeps the items published within this duration. Null, the default, for no limit. */
+    public Builder setMaxAge(Duration maxAge) {
+      this.maxAge = maxAge;
+      return this;
+    }
+
+    /** Drops the items that all the registered subscribers acknowledged. Default is false. */
+    public Builder setUntilAcked(boolean untilAcked) {
+      this.untilAcked = untilAcked;
+      return this;
+    }
+
+    /**
+     * Truncates only when at least this many offsets can be dropped, to truncate in steps instead
+     * of on every publish. Default is 1.
+     */
+    public Builder setMinTruncation(int minTruncation) {
+      this.minTruncation = minTruncation;
+      return this;
+    }
+
+    /**
+     * Suggests continue-as-new once the items published in the run reach this size, as they are
+     * all in its history. Zero, the default, to only follow the suggestion of the server.
+     */
+    public Builder setContinueAsNewAfterBytes(long continueAsNewAfterBytes) {
+      this.continueAsNewAfterBytes = continueAsNewAfterBytes;
+      return this;
+    }
+
+    public RetentionPolicy build() {
+      if (keepLast < 0 || maxBytes < 0 || minTruncation < 1 || continueAsNewAfterBytes < 0) {
+        throw new IllegalArgumentException("Negative retention limit");
+      }
+      if (maxAge != null && maxAge.isNegative()) {
+        throw new IllegalArgumentException("Negative maxAge: " + maxAge);
+      }
+      return new RetentionPolicy(this);
+    }
+  }
+
+  private final int keepLast;
+  private final long maxBytes;
+  private final Duration maxAge;
+  private final boolean untilAcked;
+  private final int minTruncation;
+  private final long continueAsNewAfterBytes;
+
+  private RetentionPolicy(Builder builder) {
+    this.keepLast = builder.keepLast;
+    this.maxBytes = builder.maxBytes;
+    this.maxAge = builder.maxAge;
+    this.untilAcked = builder.untilAcked;
+    this.minTruncation = builder.minTruncation;
+    this.continueAsNewAfterBytes = builder.continueAsNewAfterBytes;
+  }
+
+  public int getKeepLast() {
+    return keepLast;
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  public Duration getMaxAge() {
+    return maxAge;
+  }
+
+  public boolean isUntilAcked() {
+    return untilAcked;
+  }
+
+  public int getMinTruncation() {
+    return minTruncation;
+  }
+
+  public long getContinueAsNewAfterBytes() {
+    return continueAsNewAfterBytes;
+  }
+
+  /**
+   * Returns the offset to truncate the stream to: the first offset to retain. Returns the current
+   * base offset when nothing is to be truncated.
+   */
+  long truncationOffset(State state, long nowMillis) {
+    List<RetainedItem> items = state.items;
+    int drop = 0;
+    if (keepLast > 0) {
+      drop = Math.max(drop, items.size() - keepLast);
+    }
+    if (maxBytes > 0) {
+      long bytes = 0;
+      for (RetainedItem item : items) {
+        bytes += item.bytes;
+      }
+      int i = 0;
+      for (; i < items.size() && bytes > maxBytes; i++) {
+        bytes -= items.get(i).bytes;
+      }
+      drop = Math.max(drop, i);
+    }
+    if (maxAge != null) {
+      long cutoff = nowMillis - maxAge.toMillis();
+      int i = 0;
+      while (i < items.size() && items.get(i).publishedAtMillis < cutoff) {
+        i++;
+      }
+      drop = Math.max(drop, i);
+    }
+    long offset =
+        drop == 0
+            ? state.baseOffset
+            : drop < items.size() ? items.get(drop).offset : state.nextOffset;
+    if (untilAcked && !state.acks.isEmpty()) {
+      offset = Math.max(offset, Collections.min(state.acks.values()));
+    }
+    return offset - state.baseOffset >= minTruncation ? offset : state.baseOffset;
+  }
+}
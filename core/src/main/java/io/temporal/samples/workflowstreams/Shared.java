@@ -1,5 +1,6 @@
 package io.temporal.samples.workflowstreams;
 
+import io.temporal.api.common.v1.Payload;
 import io.temporal.client.WorkflowClient;
 import io.temporal.common.converter.DefaultDataConverter;
 import io.temporal.envconfig.ClientConfigProfile;
@@ -52,14 +53,24 @@ public final class Shared {
     return DefaultDataConverter.STANDARD_INSTANCE.fromPayload(item.getPayload(), type, type);
   }
 
+  /** Size of the default encoding of a value, the same on every worker. */
+  public static int payloadSize(Object value) {
+    return DefaultDataConverter.STANDARD_INSTANCE
+        .toPayload(value)
+        .map(Payload::getSerializedSize)
+        .orElse(0);
+  }
+
   // Each workflow input carries an optional WorkflowStreamState so the stream can survive
   // continue-as-new: thread the prior run's state back in and pass it to
-  // WorkflowStream.newInstance. It is null on a fresh start.
+  // WorkflowStream.newInstance. It is null on a fresh start. The workflows that apply a
+  // retention policy thread their StreamRetention.State the same way.
 
   /** Input to OrderWorkflow (scenarios 1 and 2). */
   public static class OrderInput {
     public String orderId;
     public WorkflowStreamState streamState;
+    public StreamRetention.State retentionState;
 
     public OrderInput() {}
 
@@ -83,7 +94,12 @@ public final class Shared {
   /** Input to HubWorkflow (scenario 4). */
   public static class HubInput {
     public String hubId;
+
+    /** Continues as new once this many bytes were published in a run. Zero for the default. */
+    public long continueAsNewAfterBytes;
+
     public WorkflowStreamState streamState;
+    public StreamRetention.State retentionState;
 
     public HubInput() {}
 
@@ -102,6 +118,7 @@ public final class Shared {
     public int truncateEvery;
     public long intervalMs;
     public WorkflowStreamState streamState;
+    public StreamRetention.State retentionState;
 
     public TickerInput() {}
 
@@ -190,10 +207,14 @@ public final class Shared {
   public static class TextDelta {
     public String text;
 
+    /** Wall clock time of the publish, for the subscriber to measure the end-to-end latency. */
+    public long publishedAtMillis;
+
     public TextDelta() {}
 
     public TextDelta(String text) {
       this.text = text;
+      this.publishedAtMillis = System.currentTimeMillis();
     }
   }
 
@@ -0,0 +1,196 @@
+package io.temporal.samples.workflowstreams;
+
+import io.temporal.workflow.Workflow;
+import io.temporal.workflowstreams.WorkflowStream;
+import io.temporal.workflowstreams.WorkflowTopicHandle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Applies a {@link RetentionPolicy} to a workflow stream. Publish through {@link #publish} so the
+ * offset, size and publish time of every item are tracked, and the stream is truncated as the
+ * policy drops items. Items published by a client, as to a hub workflow, are tracked once the
+ * client reports them with {@link #published}, for example from a signal handler. Offsets are
+ * counted from the items tracked, so all the items must be published or reported through the
+ * retention.
+ *
+ * <p>Subscribers are registered with {@link #register} and report their progress with {@link
+ * #ack}. Acks are clamped to the tracked head, and acks of subscribers that are not registered are
+ * ignored.
+ *
+ * <p>Reports the {@value #RETAINED_BYTES_METRIC} and {@value #RETAINED_ITEMS_METRIC} gauges and the
+ * {@value #TRUNCATED_ITEMS_METRIC} counter to the workflow metrics scope. When {@link
+ * #shouldContinueAsNew()}, pass {@link #getState()} to the next run along with the stream state,
+ * so the next run continues from the same offsets.
+ */
+public final class StreamRetention {
+
+  public static final String RETAINED_BYTES_METRIC = "workflow_stream_retained_bytes";
+  public static final String RETAINED_ITEMS_METRIC = "workflow_stream_retained_items";
+  public static final String TRUNCATED_ITEMS_METRIC = "workflow_stream_truncated_items";
+
+  /** Retention bookkeeping, threaded through continue-as-new. */
+  public static class State {
+    /** First retained offset. */
+    public long baseOffset;
+
+    /** Offset of the next item published or reported. */
+    public long nextOffset;
+
+    /** Tracked items from the base offset, oldest first. */
+    public List<RetainedItem> items = new ArrayList<>();
+
+    /** Next offset to read by subscriber id. Sorted so replays iterate in the same order. */
+    public Map<String, Long> acks = new TreeMap<>();
+
+    public State() {}
+  }
+
+  public static class RetainedItem {
+    public long offset;
+    public int bytes;
+    public long publishedAtMillis;
+
+    public RetainedItem() {}
+
+    public RetainedItem(long offset, int bytes, long publishedAtMillis) {
+      this.offset = offset;
+      this.bytes = bytes;
+      this.publishedAtMillis = publishedAtMillis;
+    }
+  }
+
+  private final WorkflowStream stream;
+  private final RetentionPolicy policy;
+  private final State state;
+  private final Map<String, WorkflowTopicHandle> topics = new HashMap<>();
+
+  private long retainedBytes;
+
+  /** Bytes published in this run, which are all in its history. */
+  private long publishedBytes;
+
+  /**
+   * @param state the state of the previous run, or null on a fresh start.
+   */
+  public StreamRetention(WorkflowStream stream, RetentionPolicy policy, State state) {
+    this.stream = stream;
+    this.policy = policy;
+    this.state = state != null ? state : new State();
+    for (RetainedItem item : this.state.items) {
+      retainedBytes += item.bytes;
+    }
+  }
+
+  /** Publishes a value to a topic, then truncates the items the policy drops. */
+  public void publish(String topic, Object value) {
+    topics.computeIfAbsent(topic, stream::topic).publish(value);
+    track(Shared.payloadSize(value));
+    enforce();
+  }
+
+  /**
+   * Tracks items a client published and reported after they were delivered, then truncates the
+   * items the policy drops. Their publish time is the time of the report.
+   *
+   * @param itemBytes the payload sizes of the items, in offset order.
+   */
+  public void published(List<Integer> itemBytes) {
+    for (int bytes : itemBytes) {
+      track(bytes);
+    }
+    enforce();
+  }
+
+  /**
+   * Registers a subscriber that reads from an offset. With {@link RetentionPolicy#isUntilAcked()},
+   * nothing from that offset is dropped until the subscriber acks it.
+   */
+  public void register(String subscriberId, long fromOffset) {
+    long offset = Math.min(Math.max(fromOffset, state.baseOffset), state.nextOffset);
+    state.acks.putIfAbsent(subscriberId, offset);
+  }
+
+  /**
+   * Acknowledges that a subscriber processed the items before an offset. Ignored if the subscriber
+   * is not registered. Clamped to the tracked head, so a subscriber can't drop items that the
+   * others have not read yet.
+   */
+  public void ack(String subscriberId, long nextOffset) {
+    if (!state.acks.containsKey(subscriberId)) {
+      return;
+    }
+    state.acks.merge(subscriberId, Math.min(nextOffset, state.nextOffset), Math::max);
+    enforce();
+  }
+
+  /** Removes a subscriber, so its acks no longer hold items back. */
+  public void unregister(String subscriberId) {
+    if (state.acks.remove(subscriberId) != null) {
+      enforce();
+    }
+  }
+
+  /**
+   * Truncates the items the policy drops. Called on every publish and ack; call it from a timer
+   * too when items should expire by age while nothing is published.
+   */
+  public void enforce() {
+    long offset = policy.truncationOffset(state, Workflow.currentTimeMillis());
+    if (offset > state.baseOffset) {
+      stream.truncate(offset);
+      int dropped = 0;
+      while (dropped < state.items.size() && state.items.get(dropped).offset < offset) {
+        retainedBytes -= state.items.get(dropped).bytes;
+        dropped++;
+      }
+      state.items.subList(0, dropped).clear();
+      Workflow.getMetricsScope().counter(TRUNCATED_ITEMS_METRIC).inc(offset - state.baseOffset);
+      state.baseOffset = offset;
+    }
+    Workflow.getMetricsScope().gauge(RETAINED_BYTES_METRIC).update(retainedBytes);
+    Workflow.getMetricsScope().gauge(RETAINED_ITEMS_METRIC).update(state.items.size());
+  }
+
+  /** Size of the tracked items from the base offset. */
+  public long getRetainedBytes() {
+    return retainedBytes;
+  }
+
+  public int getRetainedItems() {
+    return state.items.size();
+  }
+
+  public long getBaseOffset() {
+    return state.baseOffset;
+  }
+
+  /** Offset of the next tracked item. */
+  public long getNextOffset() {
+    return state.nextOffset;
+  }
+
+  /**
+   * Returns true when the server suggests continue-as-new, or when the items published in this run
+   * reach {@link RetentionPolicy#getContinueAsNewAfterBytes()}. Only the retained items are carried
+   * to the next run, so truncating keeps its input bounded.
+   */
+  public boolean shouldContinueAsNew() {
+    long limit = policy.getContinueAsNewAfterBytes();
+    return Workflow.getInfo().isContinueAsNewSuggested() || (limit > 0 && publishedBytes >= limit);
+  }
+
+  /** The state to pass to the next run on continue-as-new. */
+  public State getState() {
+    return state;
+  }
+
+  private void track(int bytes) {
+    state.items.add(new RetainedItem(state.nextOffset++, bytes, Workflow.currentTimeMillis()));
+    retainedBytes += bytes;
+    publishedBytes += bytes;
+  }
+}
@@ -1,6 +1,7 @@
 package io.temporal.samples.workflowstreams;
 
 import io.temporal.samples.workflowstreams.Shared.TickerInput;
+import io.temporal.workflow.QueryMethod;
 import io.temporal.workflow.WorkflowInterface;
 import io.temporal.workflow.WorkflowMethod;
 
@@ -13,4 +14,8 @@ import io.temporal.workflow.WorkflowMethod;
 public interface TickerWorkflow {
   @WorkflowMethod
   String tick(TickerInput input);
+
+  /** The offsets and the items the ticker retains. */
+  @QueryMethod
+  StreamRetention.State getRetentionState();
 }
@@ -5,38 +5,39 @@ import io.temporal.samples.workflowstreams.Shared.TickerInput;
 import io.temporal.workflow.Workflow;
 import io.temporal.workflow.WorkflowInit;
 import io.temporal.workflowstreams.WorkflowStream;
-import io.temporal.workflowstreams.WorkflowTopicHandle;
 import java.time.Duration;
 
 public class TickerWorkflowImpl implements TickerWorkflow {
 
-  private final WorkflowStream stream;
-  private final WorkflowTopicHandle tick;
+  private final StreamRetention retention;
 
   @WorkflowInit
   public TickerWorkflowImpl(TickerInput input) {
-    stream = WorkflowStream.newInstance(input.streamState);
-    tick = stream.topic(Shared.TOPIC_TICK);
+    WorkflowStream stream = WorkflowStream.newInstance(input.streamState);
+    int keepLast = input.keepLast != 0 ? input.keepLast : 10;
+    int truncateEvery = input.truncateEvery != 0 ? input.truncateEvery : 5;
+    // Drop everything except the last keepLast entries, truncateEvery entries at a time.
+    // Future polls positioned before the new base offset are fast-forwarded.
+    retention =
+        new StreamRetention(
+            stream,
+            RetentionPolicy.newBuilder()
+                .setKeepLast(keepLast)
+                .setMinTruncation(truncateEvery)
+                .build(),
+            input.retentionState);
   }
 
   @Override
   public String tick(TickerInput input) {
     int count = input.count != 0 ? input.count : 50;
-    int keepLast = input.keepLast != 0 ? input.keepLast : 10;
-    int truncateEvery = input.truncateEvery != 0 ? input.truncateEvery : 5;
     long intervalMs = input.intervalMs != 0 ? input.intervalMs : 200;
 
     int published = 0;
     for (int n = 0; n < count; n++) {
-      tick.publish(new TickEvent(n));
+      retention.publish(Shared.TOPIC_TICK, new TickEvent(n));
       published++;
       Workflow.sleep(Duration.ofMillis(intervalMs));
-
-      if (published % truncateEvery == 0 && published > keepLast) {
-        // Drop everything except the last keepLast entries. Future polls positioned
-        // before the new base offset are fast-forwarded.
-        stream.truncate(published - keepLast);
-      }
     }
 
     // The final tick (n == count - 1) is the in-band terminator subscribers break on.
@@ -45,4 +46,9 @@ public class TickerWorkflowImpl implements TickerWorkflow {
     Workflow.sleep(OrderWorkflowImpl.DRAIN_DELAY);
     return "ticker emitted " + published + " events";
   }
+
+  @Override
+  public StreamRetention.State getRetentionState() {
+    return retention.getState();
+  }
 }
@@ -0,0 +1,73 @@
+package io.temporal.samples.batch.common;
+
+import static org.junit.Assert.assertEquals;
+
+import com.uber.m3.tally.NoopScope;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+public class ReadAheadBufferTest {
+
+  /** Values of 40 bytes. */
+  private static String value(int key) {
+    char[] chars = new char[40];
+    Arrays.fill(chars, (char) ('a' + key));
+    return new String(chars);
+  }
+
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testBudgetIsInBytes() throws InterruptedException {
+    ReadAheadBuffer<Integer, String> buffer =
+        new ReadAheadBuffer<>(executor, String::length, 100, new NoopScope());
+    AtomicInteger loads = new AtomicInteger();
+
+    buffer.readAhead(
+        List.of(0, 1, 2, 3, 4),
+        key -> {
+          loads.incrementAndGet();
+          return value(key);
+        });
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+
+    // Two values of 40 bytes fit, the eldest ones were dropped as the others loaded.
+    assertEquals(5, loads.get());
+    assertEquals(80, buffer.getBufferedBytes());
+    assertEquals(value(4), buffer.get(4, () -> "loaded again"));
+    assertEquals(value(3), buffer.get(3, () -> "loaded again"));
+    assertEquals(2, buffer.getHitCount());
+    assertEquals(0, buffer.getBufferedBytes());
+
+    assertEquals("loaded again", buffer.get(0, () -> "loaded again"));
+    assertEquals(1, buffer.getStallCount());
+  }
+
+  @Test
+  public void testFailedLoadIsRetriedOnDemand() throws InterruptedException {
+    ReadAheadBuffer<Integer, String> buffer =
+        new ReadAheadBuffer<>(executor, String::length, 100, new NoopScope());
+    buffer.readAhead(
+        List.of(0),
+        key -> {
+          throw new IllegalStateException("source unavailable");
+        });
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+
+    assertEquals(value(0), buffer.get(0, () -> value(0)));
+    assertEquals(1, buffer.getStallCount());
+  }
+}
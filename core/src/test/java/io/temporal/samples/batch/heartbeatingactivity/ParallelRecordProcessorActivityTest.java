@@ -0,0 +1,159 @@
+package io.temporal.samples.batch.heartbeatingactivity;
+
+import static io.temporal.samples.batch.heartbeatingactivity.RecordLoaderImpl.RECORD_COUNT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.temporal.testing.TestWorkflowRule;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ParallelRecordProcessorActivityTest {
+
+  private static final int PARALLELISM = 20;
+
+  private static final long RECORD_LATENCY_MILLIS = 5;
+
+  private static final int FAILING_RECORD = RECORD_COUNT / 2;
+
+  private static final AtomicIntegerArray processedCounts = new AtomicIntegerArray(RECORD_COUNT);
+
+  private static volatile boolean failOnce;
+
+  private static volatile boolean errorOnce;
+
+  /** Released once the first PARALLELISM records are processed at the same time. */
+  private static volatile CountDownLatch allInFlight;
+
+  private static final AtomicInteger inFlight = new AtomicInteger();
+
+  private static final AtomicInteger maxInFlight = new AtomicInteger();
+
+  /**
+   * Simulates a record processing latency and optionally fails a single record once. The first
+   * PARALLELISM records wait for each other, so they only complete if they run concurrently.
+   */
+  public static class SlowRecordProcessorImpl implements RecordProcessor {
+
+    @Override
+    public void processRecord(SingleRecord r) {
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      try {
+        if (r.getId() < PARALLELISM) {
+          allInFlight.countDown();
+          if (!allInFlight.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Records are not processed concurrently");
+          }
+        }
+        Thread.sleep(RECORD_LATENCY_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      } finally {
+        inFlight.decrementAndGet();
+      }
+      if (r.getId() == FAILING_RECORD && failOnce) {
+        failOnce = false;
+        throw new IllegalStateException("simulated failure of " + r);
+      }
+      if (r.getId() == FAILING_RECORD && errorOnce) {
+        errorOnce = false;
+        throw new AssertionError("simulated error of " + r);
+      }
+      processedCounts.incrementAndGet(r.getId());
+    }
+  }
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(PARALLELISM);
+
+  @Rule
+  public TestWorkflowRule testWorkflowRule =
+      TestWorkflowRule.newBuilder()
+          .setWorkflowTypes(HeartbeatingActivityBatchWorkflowImpl.class)
+          .setActivityImplementations(
+              new ParallelRecordProcessorActivityImpl(
+                  new RecordLoaderImpl(), new SlowRecordProcessorImpl(), executor, PARALLELISM))
+          .build();
+
+  @Before
+  public void setUp() {
+    allInFlight = new CountDownLatch(PARALLELISM);
+    maxInFlight.set(0);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+    for (int i = 0; i < RECORD_COUNT; i++) {
+      processedCounts.set(i, 0);
+    }
+    failOnce = false;
+    errorOnce = false;
+  }
+
+  @Test
+  public void testConcurrency() {
+    HeartbeatingActivityBatchWorkflow workflow =
+        testWorkflowRule.newWorkflowStub(HeartbeatingActivityBatchWorkflow.class);
+    int processed = workflow.processBatch();
+
+    assertEquals(RECORD_COUNT, processed);
+    for (int i = 0; i < RECORD_COUNT; i++) {
+      assertEquals(1, processedCounts.get(i));
+    }
+    // The first records only complete once PARALLELISM of them are in flight.
+    assertEquals(PARALLELISM, maxInFlight.get());
+  }
+
+  @Test
+  public void testErrorFailsTheActivity() {
+    errorOnce = true;
+    HeartbeatingActivityBatchWorkflow workflow =
+        testWorkflowRule.newWorkflowStub(HeartbeatingActivityBatchWorkflow.class);
+    int processed = workflow.processBatch();
+
+    // The retry processes the records after the failed one instead of skipping them.
+    assertEquals(RECORD_COUNT, processed);
+    for (int i = 0; i < RECORD_COUNT; i++) {
+      assertTrue(processedCounts.get(i) >= 1);
+    }
+  }
+
+  @Test
+  public void testRetryResumesFromWatermark() {
+    failOnce = true;
+    HeartbeatingActivityBatchWorkflow workflow =
+        testWorkflowRule.newWorkflowStub(HeartbeatingActivityBatchWorkflow.class);
+    int processed = workflow.processBatch();
+
+    assertEquals(RECORD_COUNT, processed);
+    for (int i = 0; i < RECORD_COUNT; i++) {
+      // Records below the failed one are never reprocessed, nothing is skipped.
+      if (i < FAILING_RECORD) {
+        assertEquals(1, processedCounts.get(i));
+      } else {
+        assertTrue(processedCounts.get(i) >= 1);
+      }
+    }
+  }
+
+  @Test
+  public void testWatermark() {
+    CompletionWatermark watermark = new CompletionWatermark(10);
+    watermark.complete(12);
+    watermark.complete(11);
+    assertEquals(10, watermark.get());
+    watermark.complete(10);
+    assertEquals(13, watermark.get());
+    watermark.complete(14);
+    assertEquals(13, watermark.get());
+  }
+}
@@ -0,0 +1,182 @@
+package io.temporal.samples.batch.iterator;
+
+import static io.temporal.samples.batch.iterator.RecordLoaderImpl.PAGE_COUNT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.temporal.api.common.v1.WorkflowExecution;
+import io.temporal.api.enums.v1.EventType;
+import io.temporal.api.history.v1.HistoryEvent;
+import io.temporal.client.WorkflowClient;
+import io.temporal.client.WorkflowFailedException;
+import io.temporal.client.WorkflowStub;
+import io.temporal.common.converter.DataConverter;
+import io.temporal.common.converter.DefaultDataConverter;
+import io.temporal.failure.ApplicationFailure;
+import io.temporal.testing.TestWorkflowRule;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Compares InlineIteratorBatchWorkflow to IteratorBatchWorkflow that starts a child workflow per
+ * record by the number of history events per record. IteratorBatchBenchmark in core/src/jmh
+ * compares their throughput.
+ */
+public class InlineIteratorBatchWorkflowTest {
+
+  private static final int PAGE_SIZE = 20;
+
+  private static final int CHUNK_SIZE = 10;
+
+  private static final int RECORD_COUNT = PAGE_SIZE * PAGE_COUNT;
+
+  public static class TestRecordProcessorWorkflowImpl implements RecordProcessorWorkflow {
+
+    @Override
+    public void processRecord(SingleRecord r) {}
+  }
+
+  public static class TestRecordChunkProcessorImpl extends RecordChunkProcessorImpl {
+
+    @Override
+    protected void processRecord(SingleRecord record) {
+      if (record.getId() % 7 == 0) {
+        throw new IllegalArgumentException("simulated failure of " + record);
+      }
+    }
+  }
+
+  @Rule
+  public TestWorkflowRule testWorkflowRule =
+      TestWorkflowRule.newBuilder()
+          .setWorkflowTypes(
+              IteratorBatchWorkflowImpl.class,
+              InlineIteratorBatchWorkflowImpl.class,
+              TestRecordProcessorWorkflowImpl.class)
+          .setActivityImplementations(new RecordLoaderImpl(), new TestRecordChunkProcessorImpl())
+          .build();
+
+  @Test
+  public void testChunkFailuresAreReportedPerRecord() {
+    WorkflowClient client = testWorkflowRule.getWorkflowClient();
+    InlineIteratorBatchWorkflow inlineMode =
+        testWorkflowRule.newWorkflowStub(InlineIteratorBatchWorkflow.class);
+    WorkflowExecution execution =
+        WorkflowClient.start(inlineMode::processBatch, PAGE_SIZE, CHUNK_SIZE, 0);
+    // Failed records don't fail the batch.
+    assertEquals(RECORD_COUNT, (int) WorkflowStub.fromTyped(inlineMode).getResult(Integer.class));
+
+    int processed = 0;
+    Map<Integer, String> failures = new HashMap<>();
+    for (ChunkResult result : chunkResultsOfAllRuns(client, execution)) {
+      processed += result.getProcessedCount();
+      failures.putAll(result.getFailures());
+    }
+    // Every seventh record fails, from record 0.
+    int failed = (RECORD_COUNT + 6) / 7;
+    assertEquals(RECORD_COUNT - failed, processed);
+    assertEquals(failed, failures.size());
+    assertTrue(failures.get(7).contains("simulated failure"));
+  }
+
+  @Test
+  public void testRejectsNonPositiveChunkSize() {
+    InlineIteratorBatchWorkflow inlineMode =
+        testWorkflowRule.newWorkflowStub(InlineIteratorBatchWorkflow.class);
+    try {
+      inlineMode.processBatch(PAGE_SIZE, 0, 0);
+      fail("unreachable");
+    } catch (WorkflowFailedException e) {
+      assertEquals("invalid input", ((ApplicationFailure) e.getCause()).getType());
+    }
+  }
+
+  @Test
+  public void testInlineModeVersusChildWorkflowMode() {
+    WorkflowClient client = testWorkflowRule.getWorkflowClient();
+
+    IteratorBatchWorkflow childMode = testWorkflowRule.newWorkflowStub(IteratorBatchWorkflow.class);
+    WorkflowExecution childModeExecution =
+        WorkflowClient.start(childMode::processBatch, PAGE_SIZE, 0);
+    int childModeProcessed = WorkflowStub.fromTyped(childMode).getResult(Integer.class);
+
+    InlineIteratorBatchWorkflow inlineMode =
+        testWorkflowRule.newWorkflowStub(InlineIteratorBatchWorkflow.class);
+    WorkflowExecution inlineModeExecution =
+        WorkflowClient.start(inlineMode::processBatch, PAGE_SIZE, CHUNK_SIZE, 0);
+    int inlineModeProcessed = WorkflowStub.fromTyped(inlineMode).getResult(Integer.class);
+
+    assertEquals(RECORD_COUNT, childModeProcessed);
+    assertEquals(RECORD_COUNT, inlineModeProcessed);
+
+    // Child workflow ids are derived from the parent workflow id and the record id.
+    long childModeEvents = countEventsOfAllRuns(client, childModeExecution);
+    for (int i = 0; i < RECORD_COUNT; i++) {
+      childModeEvents +=
+          client.fetchHistory(childModeExecution.getWorkflowId() + "/" + i).getEvents().size();
+    }
+    long inlineModeEvents = countEventsOfAllRuns(client, inlineModeExecution);
+
+    // A chunk of records adds a few events, a child workflow adds a whole execution per record.
+    assertTrue(inlineModeEvents * 4 < childModeEvents);
+  }
+
+  /** Counts history events of the given run and all runs that it continued as new to. */
+  private static long countEventsOfAllRuns(WorkflowClient client, WorkflowExecution execution) {
+    return eventsOfAllRuns(client, execution).size();
+  }
+
+  /** Results of the chunk activities of the given run and all runs that it continued as new to. */
+  private static List<ChunkResult> chunkResultsOfAllRuns(
+      WorkflowClient client, WorkflowExecution execution) {
+    DataConverter converter = DefaultDataConverter.newDefaultInstance();
+    Set<Long> chunkActivities = new HashSet<>();
+    List<ChunkResult> results = new ArrayList<>();
+    for (HistoryEvent event : eventsOfAllRuns(client, execution)) {
+      if (event.getEventType() == EventType.EVENT_TYPE_ACTIVITY_TASK_SCHEDULED
+          && event
+              .getActivityTaskScheduledEventAttributes()
+              .getActivityType()
+              .getName()
+              .equals("ProcessRecords")) {
+        chunkActivities.add(event.getEventId());
+      } else if (event.getEventType() == EventType.EVENT_TYPE_ACTIVITY_TASK_COMPLETED
+          && chunkActivities.remove(
+              event.getActivityTaskCompletedEventAttributes().getScheduledEventId())) {
+        results.add(
+            converter.fromPayloads(
+                0,
+                Optional.of(event.getActivityTaskCompletedEventAttributes().getResult()),
+                ChunkResult.class,
+                ChunkResult.class));
+      }
+    }
+    return results;
+  }
+
+  /** History events of the given run and all runs that it continued as new to, run by run. */
+  private static List<HistoryEvent> eventsOfAllRuns(
+      WorkflowClient client, WorkflowExecution execution) {
+    List<HistoryEvent> result = new ArrayList<>();
+    String runId = execution.getRunId();
+    while (runId != null) {
+      List<HistoryEvent> events = client.fetchHistory(execution.getWorkflowId(), runId).getEvents();
+      result.addAll(events);
+      HistoryEvent last = events.get(events.size() - 1);
+      if (last.getEventType() == EventType.EVENT_TYPE_WORKFLOW_EXECUTION_CONTINUED_AS_NEW) {
+        runId = last.getWorkflowExecutionContinuedAsNewEventAttributes().getNewExecutionRunId();
+      } else {
+        runId = null;
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,111 @@
+package io.temporal.samples.batch.iterator;
+
+import static io.temporal.samples.batch.iterator.RecordLoaderImpl.PAGE_COUNT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.uber.m3.tally.NoopScope;
+import io.temporal.samples.batch.common.ReadAheadBuffer;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+public class PrefetchingRecordLoaderTest {
+
+  private static final int PAGE_SIZE = 10;
+
+  /** Counts the loads and the ones that ran in the background. */
+  private static class CountingRecordLoader implements RecordLoader {
+
+    private final RecordLoader delegate = new RecordLoaderImpl();
+
+    private final Thread callerThread = Thread.currentThread();
+
+    private final AtomicInteger loadCount = new AtomicInteger();
+
+    private final AtomicInteger backgroundLoadCount = new AtomicInteger();
+
+    @Override
+    public List<SingleRecord> getRecords(int pageSize, int offset) {
+      loadCount.incrementAndGet();
+      if (Thread.currentThread() != callerThread) {
+        backgroundLoadCount.incrementAndGet();
+      }
+      return delegate.getRecords(pageSize, offset);
+    }
+  }
+
+  /** Executor that lets the test wait until the submitted loads complete. */
+  private static class CountingExecutor extends ThreadPoolExecutor {
+
+    private final AtomicInteger submitted = new AtomicInteger();
+
+    private final Semaphore completed = new Semaphore(0);
+
+    private int awaited;
+
+    CountingExecutor() {
+      super(2, 2, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      submitted.incrementAndGet();
+      super.execute(command);
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+      // The future of the load is already done at this point.
+      completed.release();
+    }
+
+    void awaitSubmitted() throws InterruptedException {
+      int count = submitted.get();
+      assertTrue(completed.tryAcquire(count - awaited, 10, TimeUnit.SECONDS));
+      awaited = count;
+    }
+  }
+
+  private final CountingExecutor executor = new CountingExecutor();
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testPagesAreLoadedAhead() throws InterruptedException {
+    CountingRecordLoader source = new CountingRecordLoader();
+    PrefetchingRecordLoader loader =
+        new PrefetchingRecordLoader(source, executor, 2, 1024 * 1024, new NoopScope());
+    ReadAheadBuffer<?, ?> buffer = loader.getBuffer();
+
+    int offset = 0;
+    while (true) {
+      List<SingleRecord> page = loader.getRecords(PAGE_SIZE, offset);
+      if (page.isEmpty()) {
+        break;
+      }
+      for (int i = 0; i < page.size(); i++) {
+        assertEquals(offset + i, page.get(i).getId());
+      }
+      // Simulates page processing that takes until the next pages are loaded.
+      executor.awaitSubmitted();
+      offset += page.size();
+    }
+
+    assertEquals(PAGE_SIZE * PAGE_COUNT, offset);
+    // Only the very first page is loaded on demand, the others while the previous one is processed.
+    assertEquals(1, buffer.getStallCount());
+    assertEquals(PAGE_COUNT, buffer.getHitCount());
+    assertEquals(source.loadCount.get() - 1, source.backgroundLoadCount.get());
+    // Every page is loaded once, plus the pages read ahead after the last non-empty one.
+    assertTrue(source.loadCount.get() <= PAGE_COUNT + 2);
+  }
+}
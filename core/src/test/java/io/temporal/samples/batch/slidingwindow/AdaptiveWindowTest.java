@@ -0,0 +1,67 @@
+package io.temporal.samples.batch.slidingwindow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class AdaptiveWindowTest {
+
+  private static final long CHILD_LATENCY_MILLIS = 1000;
+
+  /**
+   * Simulates children with a fixed latency. Completions arrive at the rate of window size per
+   * child latency.
+   */
+  private static long completeWindow(AdaptiveWindow window, long nowMillis, long latencyMillis) {
+    int size = window.windowSize();
+    for (int i = 0; i < size; i++) {
+      nowMillis += latencyMillis / size;
+      window.onCompletion(nowMillis, size - 1, false);
+    }
+    return nowMillis;
+  }
+
+  @Test
+  public void testGrowsWhileLatencyIsStable() {
+    AdaptiveWindow window = new AdaptiveWindow(10, 20);
+    long now = 1;
+    for (int i = 0; i < 50; i++) {
+      now = completeWindow(window, now, CHILD_LATENCY_MILLIS);
+    }
+    assertEquals(20, window.windowSize());
+    assertTrue(window.completionRate() > 10);
+  }
+
+  @Test
+  public void testShrinksOnFailure() {
+    AdaptiveWindow window = new AdaptiveWindow(10, 20);
+    long now = completeWindow(window, 1, CHILD_LATENCY_MILLIS);
+    int size = window.windowSize();
+    window.onCompletion(now + 100, size - 1, true);
+    assertEquals(size / 2, window.windowSize());
+  }
+
+  @Test
+  public void testShrinksWhenLatencyRises() {
+    AdaptiveWindow window = new AdaptiveWindow(10, 100);
+    long now = 1;
+    for (int i = 0; i < 5; i++) {
+      now = completeWindow(window, now, CHILD_LATENCY_MILLIS);
+    }
+    int healthySize = window.windowSize();
+    for (int i = 0; i < 5; i++) {
+      now = completeWindow(window, now, CHILD_LATENCY_MILLIS * 10);
+    }
+    assertTrue(window.windowSize() < healthySize);
+  }
+
+  @Test
+  public void testFixedWindow() {
+    AdaptiveWindow window = new AdaptiveWindow(7, 7);
+    window.setMinimumSize(7);
+    long now = completeWindow(window, 1, CHILD_LATENCY_MILLIS);
+    window.onCompletion(now, 6, true);
+    assertEquals(7, window.windowSize());
+  }
+}
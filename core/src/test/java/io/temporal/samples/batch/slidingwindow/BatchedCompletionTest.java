@@ -0,0 +1,166 @@
+package io.temporal.samples.batch.slidingwindow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.temporal.api.common.v1.WorkflowExecution;
+import io.temporal.api.enums.v1.EventType;
+import io.temporal.api.history.v1.HistoryEvent;
+import io.temporal.client.WorkflowClient;
+import io.temporal.client.WorkflowOptions;
+import io.temporal.client.WorkflowStub;
+import io.temporal.testing.TestWorkflowRule;
+import io.temporal.worker.Worker;
+import io.temporal.workflow.Workflow;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Measures the number of parent history events per record when the children of {@link
+ * RecordProcessorWorkflowImpl} report completions through batched signals compared to children
+ * that signal the parent per record.
+ */
+public class BatchedCompletionTest {
+
+  private static final int RECORD_COUNT = 200;
+
+  private static final int PAGE_SIZE = 50;
+
+  private static final int SLIDING_WINDOW_SIZE = 50;
+
+  /** Task queue of the batch whose children signal the parent per record. */
+  private static final String PER_RECORD_TASK_QUEUE = "PerRecordSignals";
+
+  /** Child that signals the parent directly, as before completions were batched. */
+  public static class SignalPerRecordWorkflowImpl implements RecordProcessorWorkflow {
+
+    @Override
+    public void processRecord(SingleRecord r) {
+      Workflow.sleep(Duration.ofSeconds(Workflow.newRandom().nextInt(10)));
+      String parentId = Workflow.getInfo().getParentWorkflowId().get();
+      SlidingWindowBatchWorkflow parent =
+          Workflow.newExternalWorkflowStub(SlidingWindowBatchWorkflow.class, parentId);
+      // Needs to retry due to a continue-as-new atomicity
+      // bug in the testservice:
+      // https://github.com/temporalio/sdk-java/issues/1538
+      while (true) {
+        try {
+          parent.reportCompletion(r.getId());
+          break;
+        } catch (Exception e) {
+          continue;
+        }
+      }
+    }
+  }
+
+  @Rule
+  public TestWorkflowRule testWorkflowRule =
+      TestWorkflowRule.newBuilder()
+          .setWorkflowTypes(SlidingWindowBatchWorkflowImpl.class, RecordProcessorWorkflowImpl.class)
+          .setDoNotStart(true)
+          .build();
+
+  private CompletionAggregator aggregator;
+
+  @Before
+  public void setUp() {
+    WorkflowClient client = testWorkflowRule.getWorkflowClient();
+    aggregator = new CompletionAggregator(client, 100, Duration.ofMillis(200), 4);
+    testWorkflowRule
+        .getWorker()
+        .registerActivitiesImplementations(
+            new RecordLoaderImpl(), new CompletionReporterImpl(aggregator));
+    Worker perRecordWorker = testWorkflowRule.getTestEnvironment().newWorker(PER_RECORD_TASK_QUEUE);
+    perRecordWorker.registerWorkflowImplementationTypes(
+        SlidingWindowBatchWorkflowImpl.class, SignalPerRecordWorkflowImpl.class);
+    perRecordWorker.registerActivitiesImplementations(new RecordLoaderImpl());
+    testWorkflowRule.getTestEnvironment().start();
+  }
+
+  @After
+  public void tearDown() {
+    aggregator.shutdown();
+  }
+
+  @Test
+  public void testBatchedCompletions() {
+    WorkflowExecution perRecord = runBatch(PER_RECORD_TASK_QUEUE);
+    WorkflowExecution batched = runBatch(testWorkflowRule.getTaskQueue());
+    List<List<HistoryEvent>> perRecordRuns = fetchRuns(perRecord);
+    List<List<HistoryEvent>> batchedRuns = fetchRuns(batched);
+
+    long perRecordSignals = countSignals(perRecordRuns);
+    long batchedSignals = countSignals(batchedRuns);
+    // An order of magnitude fewer signals, up to 100 records each.
+    assertTrue(perRecordSignals >= RECORD_COUNT);
+    assertTrue(batchedSignals * 10 <= perRecordSignals);
+    assertTrue(countEvents(batchedRuns) < countEvents(perRecordRuns));
+
+    // The local activity doesn't make the histories of the children longer.
+    assertTrue(
+        countChildEvents(batched.getWorkflowId()) <= countChildEvents(perRecord.getWorkflowId()));
+  }
+
+  /** Runs the batch on a task queue and returns its first run. */
+  private WorkflowExecution runBatch(String taskQueue) {
+    SlidingWindowBatchWorkflow workflow =
+        testWorkflowRule
+            .getWorkflowClient()
+            .newWorkflowStub(
+                SlidingWindowBatchWorkflow.class,
+                WorkflowOptions.newBuilder().setTaskQueue(taskQueue).build());
+    ProcessBatchInput input = new ProcessBatchInput();
+    input.setPageSize(PAGE_SIZE);
+    input.setSlidingWindowSize(SLIDING_WINDOW_SIZE);
+    input.setOffset(0);
+    input.setMaximumOffset(RECORD_COUNT);
+    WorkflowClient.start(workflow::processBatch, input);
+    WorkflowStub stub = WorkflowStub.fromTyped(workflow);
+    assertEquals(RECORD_COUNT, (int) stub.getResult(Integer.class));
+    return stub.getExecution();
+  }
+
+  /** Number of history events of the child that processed the last record. */
+  private long countChildEvents(String parentWorkflowId) {
+    String childId = parentWorkflowId + "/" + (RECORD_COUNT - 1);
+    WorkflowClient client = testWorkflowRule.getWorkflowClient();
+    client.newUntypedWorkflowStub(childId).getResult(Void.class);
+    return client.fetchHistory(childId).getEvents().size();
+  }
+
+  /** Returns the histories of all the runs of a workflow, from the first one. */
+  private List<List<HistoryEvent>> fetchRuns(WorkflowExecution execution) {
+    WorkflowClient client = testWorkflowRule.getWorkflowClient();
+    String workflowId = execution.getWorkflowId();
+    List<List<HistoryEvent>> runs = new ArrayList<>();
+    String runId = execution.getRunId();
+    while (runId != null) {
+      List<HistoryEvent> events = client.fetchHistory(workflowId, runId).getEvents();
+      runs.add(events);
+      HistoryEvent last = events.get(events.size() - 1);
+      if (last.getEventType() == EventType.EVENT_TYPE_WORKFLOW_EXECUTION_CONTINUED_AS_NEW) {
+        runId = last.getWorkflowExecutionContinuedAsNewEventAttributes().getNewExecutionRunId();
+      } else {
+        runId = null;
+      }
+    }
+    return runs;
+  }
+
+  private static long countEvents(List<List<HistoryEvent>> runs) {
+    return runs.stream().mapToLong(List::size).sum();
+  }
+
+  private static long countSignals(List<List<HistoryEvent>> runs) {
+    return runs.stream()
+        .flatMap(List::stream)
+        .filter(e -> e.getEventType() == EventType.EVENT_TYPE_WORKFLOW_EXECUTION_SIGNALED)
+        .count();
+  }
+}
@@ -0,0 +1,73 @@
+package io.temporal.samples.batch.slidingwindow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.temporal.api.common.v1.Payload;
+import io.temporal.common.converter.DataConverter;
+import io.temporal.common.converter.DefaultDataConverter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+
+public class RecordIdSetTest {
+
+  private static final DataConverter converter = DefaultDataConverter.newDefaultInstance();
+
+  @Test
+  public void testAddRemove() {
+    RecordIdSet set = new RecordIdSet();
+    assertTrue(set.add(100));
+    assertTrue(set.add(102));
+    assertFalse(set.add(102));
+    assertTrue(set.add(98));
+    assertEquals(Arrays.asList(98, 100, 102), set.toList());
+    assertTrue(set.remove(98));
+    assertFalse(set.remove(98));
+    assertFalse(set.contains(99));
+    assertTrue(set.removeAll(Arrays.asList(100, 101)));
+    assertEquals(1, set.size());
+    assertTrue(set.remove(102));
+    assertTrue(set.isEmpty());
+  }
+
+  @Test
+  public void testSerializationRoundTrip() {
+    RecordIdSet set = new RecordIdSet();
+    for (int i = 10_000; i < 20_000; i += 3) {
+      set.add(i);
+    }
+    // Completes the lowest records to move the window.
+    for (int i = 10_000; i < 15_000; i += 3) {
+      set.remove(i);
+    }
+    Payload payload = converter.toPayload(set).get();
+    RecordIdSet deserialized = converter.fromPayload(payload, RecordIdSet.class, RecordIdSet.class);
+    assertEquals(set.toList(), deserialized.toList());
+    assertEquals(set.size(), deserialized.size());
+  }
+
+  /**
+   * Compares the payload size of in-flight record ids stored in a HashSet and in a RecordIdSet. See
+   * RecordIdSetBenchmark for the serialization time.
+   */
+  @Test
+  public void testPayloadSize() {
+    for (int windowSize : new int[] {1_000, 10_000, 100_000}) {
+      // Some window far from the beginning of the partition.
+      int offset = 1_000_000;
+      Set<Integer> hashSet = new HashSet<>();
+      RecordIdSet recordIdSet = new RecordIdSet();
+      for (int i = offset; i < offset + windowSize; i++) {
+        hashSet.add(i);
+        recordIdSet.add(i);
+      }
+
+      int hashSetSize = converter.toPayload(hashSet).get().getSerializedSize();
+      int recordIdSetSize = converter.toPayload(recordIdSet).get().getSerializedSize();
+      assertTrue(recordIdSetSize * 10 < hashSetSize);
+    }
+  }
+}
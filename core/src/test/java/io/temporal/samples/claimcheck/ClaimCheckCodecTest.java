@@ -0,0 +1,223 @@
+package io.temporal.samples.claimcheck;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.protobuf.ByteString;
+import io.temporal.activity.ActivityInterface;
+import io.temporal.activity.ActivityOptions;
+import io.temporal.api.common.v1.Payload;
+import io.temporal.client.WorkflowClientOptions;
+import io.temporal.client.WorkflowOptions;
+import io.temporal.common.WorkflowExecutionHistory;
+import io.temporal.common.converter.CodecDataConverter;
+import io.temporal.common.converter.DataConverter;
+import io.temporal.common.converter.DefaultDataConverter;
+import io.temporal.payload.codec.PayloadCodecException;
+import io.temporal.testing.TestEnvironmentOptions;
+import io.temporal.testing.TestWorkflowEnvironment;
+import io.temporal.worker.Worker;
+import io.temporal.workflow.Workflow;
+import io.temporal.workflow.WorkflowInterface;
+import io.temporal.workflow.WorkflowMethod;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClaimCheckCodecTest {
+
+  private static final int RECORD_SIZE = 256 * 1024;
+
+  private static final int RECORD_COUNT = 10;
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @WorkflowInterface
+  public interface LargePayloadWorkflow {
+    @WorkflowMethod
+    int process(int count);
+  }
+
+  @ActivityInterface
+  public interface LargePayloadActivities {
+    String load(int index);
+  }
+
+  public static class LargePayloadWorkflowImpl implements LargePayloadWorkflow {
+
+    private final LargePayloadActivities activities =
+        Workflow.newActivityStub(
+            LargePayloadActivities.class,
+            ActivityOptions.newBuilder().setStartToCloseTimeout(Duration.ofSeconds(10)).build());
+
+    @Override
+    public int process(int count) {
+      int total = 0;
+      for (int i = 0; i < count; i++) {
+        total += activities.load(i).length();
+      }
+      return total;
+    }
+  }
+
+  public static class LargePayloadActivitiesImpl implements LargePayloadActivities {
+
+    @Override
+    public String load(int index) {
+      // Only a few distinct records, so some of them are deduplicated.
+      StringBuilder record = new StringBuilder(RECORD_SIZE);
+      while (record.length() < RECORD_SIZE) {
+        record.append("record ").append(index % 3).append(' ').append(record.length()).append(' ');
+      }
+      return record.substring(0, RECORD_SIZE);
+    }
+  }
+
+  /** Blob store that counts the reads. */
+  private static class CountingBlobStore extends InMemoryBlobStore {
+    private final AtomicInteger reads = new AtomicInteger();
+
+    @Override
+    public ByteString get(String key) {
+      reads.incrementAndGet();
+      return super.get(key);
+    }
+  }
+
+  private static final DataConverter converter = DefaultDataConverter.newDefaultInstance();
+
+  @Test
+  public void testLargePayloadIsOffloaded() {
+    CountingBlobStore store = new CountingBlobStore();
+    ClaimCheckCodec codec = new ClaimCheckCodec(store, 1024, 1024 * 1024);
+    Payload payload = newPayload('a', 10_000);
+    Payload encoded = encode(codec, payload);
+    assertEquals(ClaimCheckCodec.METADATA_ENCODING, encoded.getMetadataOrThrow("encoding"));
+    assertTrue(encoded.getSerializedSize() < 100);
+    assertEquals(payload, decode(codec, encoded));
+    // Served from the cache
+    assertEquals(0, store.reads.get());
+    // Another worker decodes from the store
+    assertEquals(payload, decode(new ClaimCheckCodec(store, 1024, 1024 * 1024), encoded));
+    assertEquals(1, store.reads.get());
+  }
+
+  @Test
+  public void testSmallPayloadIsPassedThrough() {
+    ClaimCheckCodec codec = new ClaimCheckCodec(new InMemoryBlobStore());
+    Payload payload = newPayload('a', 100);
+    assertSame(payload, encode(codec, payload));
+    assertSame(payload, decode(codec, payload));
+  }
+
+  @Test
+  public void testEqualPayloadsAreStoredOnce() {
+    InMemoryBlobStore store = new InMemoryBlobStore();
+    ClaimCheckCodec codec = new ClaimCheckCodec(store, 1024, 1024 * 1024);
+    Payload first = encode(codec, newPayload('a', 10_000));
+    Payload second = encode(codec, newPayload('a', 10_000));
+    encode(codec, newPayload('b', 10_000));
+    assertEquals(first, second);
+    assertEquals(2, store.size());
+  }
+
+  @Test
+  public void testCacheIsLimitedBySize() {
+    CountingBlobStore store = new CountingBlobStore();
+    // Fits two payloads only
+    ClaimCheckCodec codec = new ClaimCheckCodec(store, 1024, 25_000);
+    Payload a = encode(codec, newPayload('a', 10_000));
+    Payload b = encode(codec, newPayload('b', 10_000));
+    Payload c = encode(codec, newPayload('c', 10_000));
+    decode(codec, b);
+    decode(codec, c);
+    assertEquals(0, store.reads.get());
+    decode(codec, a);
+    assertEquals(1, store.reads.get());
+  }
+
+  @Test
+  public void testFileBlobStore() {
+    FileBlobStore store = new FileBlobStore(temporaryFolder.getRoot().toPath());
+    Payload payload = newPayload('a', 100_000);
+    Payload encoded = encode(new ClaimCheckCodec(store, 1024, 1024 * 1024), payload);
+    assertEquals(payload, decode(new ClaimCheckCodec(store, 1024, 1024 * 1024), encoded));
+  }
+
+  @Test
+  public void testInvalidClaimCheck() {
+    InMemoryBlobStore store = new InMemoryBlobStore();
+    ClaimCheckCodec codec = new ClaimCheckCodec(store, 1024, 1024 * 1024);
+    Payload encoded = encode(codec, newPayload('a', 10_000));
+    // A blob that doesn't match its key
+    String key = "0".repeat(64);
+    store.put(key, newPayload('b', 10_000).toByteString());
+    Payload tampered = encoded.toBuilder().setData(ByteString.copyFromUtf8(key)).build();
+    assertThrows(PayloadCodecException.class, () -> decode(codec, tampered));
+    Payload traversal = encoded.toBuilder().setData(ByteString.copyFromUtf8("../etc")).build();
+    assertThrows(PayloadCodecException.class, () -> decode(codec, traversal));
+  }
+
+  /** Compares the history size of a workflow with large activity results. */
+  @Test
+  public void testHistorySize() {
+    long withoutClaimCheck = historyBytes(DefaultDataConverter.newDefaultInstance());
+    long withClaimCheck =
+        historyBytes(
+            new CodecDataConverter(
+                DefaultDataConverter.newDefaultInstance(),
+                Collections.singletonList(new ClaimCheckCodec(new InMemoryBlobStore()))));
+    assertTrue(withClaimCheck * 10 < withoutClaimCheck);
+  }
+
+  private static long historyBytes(DataConverter dataConverter) {
+    TestWorkflowEnvironment testEnv =
+        TestWorkflowEnvironment.newInstance(
+            TestEnvironmentOptions.newBuilder()
+                .setWorkflowClientOptions(
+                    WorkflowClientOptions.newBuilder().setDataConverter(dataConverter).build())
+                .build());
+    try {
+      Worker worker = testEnv.newWorker("claim-check");
+      worker.registerWorkflowImplementationTypes(LargePayloadWorkflowImpl.class);
+      worker.registerActivitiesImplementations(new LargePayloadActivitiesImpl());
+      testEnv.start();
+
+      LargePayloadWorkflow workflow =
+          testEnv
+              .getWorkflowClient()
+              .newWorkflowStub(
+                  LargePayloadWorkflow.class,
+                  WorkflowOptions.newBuilder()
+                      .setWorkflowId("large-payload")
+                      .setTaskQueue("claim-check")
+                      .build());
+      assertEquals(RECORD_SIZE * RECORD_COUNT, workflow.process(RECORD_COUNT));
+
+      WorkflowExecutionHistory history = testEnv.getWorkflowClient().fetchHistory("large-payload");
+      return history.getHistory().getSerializedSize();
+    } finally {
+      testEnv.close();
+    }
+  }
+
+  private static Payload newPayload(char c, int size) {
+    char[] value = new char[size];
+    Arrays.fill(value, c);
+    return converter.toPayload(new String(value)).get();
+  }
+
+  private static Payload encode(ClaimCheckCodec codec, Payload payload) {
+    return codec.encode(Collections.singletonList(payload)).get(0);
+  }
+
+  private static Payload decode(ClaimCheckCodec codec, Payload payload) {
+    return codec.decode(Collections.singletonList(payload)).get(0);
+  }
+}
@@ -0,0 +1,125 @@
+package io.temporal.samples.compressedpayloads;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.protobuf.ByteString;
+import io.temporal.api.common.v1.Payload;
+import io.temporal.common.converter.DataConverter;
+import io.temporal.common.converter.DefaultDataConverter;
+import io.temporal.common.converter.EncodingKeys;
+import io.temporal.payload.codec.PayloadCodecException;
+import io.temporal.samples.workflowstreams.Shared;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class CompressionCodecTest {
+
+  private static final DataConverter converter = DefaultDataConverter.newDefaultInstance();
+
+  @Test
+  public void testRoundTrip() {
+    Payload payload = newEventsPayload(1000);
+    for (CompressionCodec.Algorithm algorithm : CompressionCodec.Algorithm.values()) {
+      CompressionCodec codec = new CompressionCodec(1024, algorithm);
+      Payload encoded = encode(codec, payload);
+      assertEquals(
+          algorithm.getName(),
+          encoded.getMetadataOrThrow(CompressionCodec.METADATA_COMPRESSION_KEY).toStringUtf8());
+      assertTrue(encoded.getSerializedSize() * 4 < payload.getSerializedSize());
+      // Any codec instance decodes any algorithm.
+      assertEquals(payload, decode(new CompressionCodec(), encoded));
+    }
+  }
+
+  @Test
+  public void testSmallPayloadIsPassedThrough() {
+    Payload payload = newEventsPayload(1);
+    assertTrue(payload.getSerializedSize() < CompressionCodec.DEFAULT_THRESHOLD_BYTES);
+    CompressionCodec codec = new CompressionCodec();
+    assertSame(payload, encode(codec, payload));
+    assertSame(payload, decode(codec, payload));
+  }
+
+  @Test
+  public void testIncompressiblePayloadIsPassedThrough() {
+    byte[] data = new byte[100_000];
+    new Random(1).nextBytes(data);
+    Payload payload =
+        Payload.newBuilder()
+            .putMetadata(
+                EncodingKeys.METADATA_ENCODING_KEY, ByteString.copyFromUtf8("binary/plain"))
+            .setData(ByteString.copyFrom(data))
+            .build();
+    CompressionCodec codec = new CompressionCodec();
+    assertSame(payload, encode(codec, payload));
+    CompressionCodec zstd = new CompressionCodec(1024, CompressionCodec.Algorithm.ZSTD);
+    assertSame(payload, encode(zstd, payload));
+  }
+
+  @Test
+  public void testAlgorithmSelection() {
+    CompressionCodec codec = new CompressionCodec();
+    byte[] small = newEventsPayload(1000).toByteArray();
+    assertTrue(small.length < CompressionCodec.DEFAULT_LARGE_PAYLOAD_BYTES);
+    assertEquals(CompressionCodec.Algorithm.ZSTD, codec.selectAlgorithm(small));
+    byte[] large = newEventsPayload(50_000).toByteArray();
+    assertTrue(large.length > CompressionCodec.DEFAULT_LARGE_PAYLOAD_BYTES);
+    assertEquals(CompressionCodec.Algorithm.LZ4, codec.selectAlgorithm(large));
+  }
+
+  @Test
+  public void testCorruptedPayload() {
+    CompressionCodec codec = new CompressionCodec();
+    Payload encoded = encode(codec, newEventsPayload(1000));
+    ByteString data = encoded.getData();
+    Payload truncated = encoded.toBuilder().setData(data.substring(0, data.size() / 2)).build();
+    assertThrows(PayloadCodecException.class, () -> decode(codec, truncated));
+    Payload unknown =
+        encoded.toBuilder()
+            .putMetadata(CompressionCodec.METADATA_COMPRESSION_KEY, ByteString.copyFromUtf8("xz"))
+            .build();
+    assertThrows(PayloadCodecException.class, () -> decode(codec, unknown));
+  }
+
+  @Test
+  public void testUncompressedSizeOverMaximum() {
+    Payload encoded = encode(new CompressionCodec(), newEventsPayload(1000));
+    Payload huge =
+        encoded.toBuilder()
+            .putMetadata(
+                CompressionCodec.METADATA_UNCOMPRESSED_SIZE_KEY,
+                ByteString.copyFromUtf8(String.valueOf(Integer.MAX_VALUE)))
+            .build();
+    assertThrows(PayloadCodecException.class, () -> decode(new CompressionCodec(), huge));
+    // A codec with a lower maximum rejects the payload, and doesn't compress payloads over it.
+    CompressionCodec small =
+        new CompressionCodec(1024, CompressionCodec.DEFAULT_LARGE_PAYLOAD_BYTES, 2048);
+    assertThrows(PayloadCodecException.class, () -> decode(small, encoded));
+    Payload payload = newEventsPayload(1000);
+    assertEquals(payload, encode(small, payload));
+  }
+
+  /** JSON array of stream events like the ones published in the workflow streams sample. */
+  private static Payload newEventsPayload(int count) {
+    List<Object> events = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      events.add(new Shared.StatusEvent(i % 2 == 0 ? "processing" : "shipped", "order-" + i));
+      events.add(new Shared.ProgressEvent("Processed " + i + " of " + count + " items"));
+    }
+    return converter.toPayload(events).get();
+  }
+
+  private static Payload encode(CompressionCodec codec, Payload payload) {
+    return codec.encode(Collections.singletonList(payload)).get(0);
+  }
+
+  private static Payload decode(CompressionCodec codec, Payload payload) {
+    return codec.decode(Collections.singletonList(payload)).get(0);
+  }
+}
@@ -0,0 +1,199 @@
+package io.temporal.samples.dsl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.temporal.activity.ActivityInterface;
+import io.temporal.client.WorkflowFailedException;
+import io.temporal.client.WorkflowOptions;
+import io.temporal.failure.ApplicationFailure;
+import io.temporal.samples.dsl.model.Flow;
+import io.temporal.samples.dsl.model.FlowAction;
+import io.temporal.testing.TestWorkflowRule;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class DslParallelWorkflowTest {
+
+  private static final AtomicInteger running = new AtomicInteger();
+  private static final AtomicInteger maxRunning = new AtomicInteger();
+  private static final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+  @ActivityInterface
+  public interface CompensationActivities {
+    String fail();
+
+    String undoOne();
+
+    String undoTwo();
+
+    String undoThree();
+  }
+
+  /** Records the activity calls and how many activities run at the same time. */
+  public static class TrackingActivities implements DslActivities, CompensationActivities {
+    @Override
+    public String one() {
+      return run("one");
+    }
+
+    @Override
+    public String two() {
+      return run("two");
+    }
+
+    @Override
+    public String three() {
+      return run("three");
+    }
+
+    @Override
+    public String four() {
+      return run("four");
+    }
+
+    @Override
+    public String fail() {
+      run("fail");
+      throw new IllegalStateException("simulated failure");
+    }
+
+    @Override
+    public String undoOne() {
+      return run("undoOne");
+    }
+
+    @Override
+    public String undoTwo() {
+      return run("undoTwo");
+    }
+
+    @Override
+    public String undoThree() {
+      return run("undoThree");
+    }
+
+    private static String run(String name) {
+      calls.add(name);
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(200);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        running.decrementAndGet();
+      }
+      return name;
+    }
+  }
+
+  @Rule
+  public TestWorkflowRule testWorkflowRule =
+      TestWorkflowRule.newBuilder()
+          .setWorkflowTypes(DslWorkflowImpl.class)
+          .setActivityImplementations(new TrackingActivities())
+          .build();
+
+  @Before
+  public void setUp() {
+    running.set(0);
+    maxRunning.set(0);
+    calls.clear();
+  }
+
+  @Test
+  public void testParallelBlock() throws Exception {
+    Flow flow =
+        new ObjectMapper()
+            .readValue(
+                DslParallelWorkflowTest.class.getClassLoader().getResource("dsl/parallelflow.json"),
+                Flow.class);
+
+    String result = newWorkflowStub().run(flow, "test input");
+
+    // Results are in the flow order whatever the completion order.
+    assertEquals("one,two,three,four", result);
+    assertEquals(2, maxRunning.get());
+    assertEquals("one", calls.get(0));
+    assertEquals("four", calls.get(3));
+  }
+
+  @Test
+  public void testIndependentActionsRunConcurrently() {
+    List<FlowAction> actions = new ArrayList<>();
+    for (String name : Arrays.asList("One", "Two", "Three")) {
+      FlowAction action = action(name, null);
+      action.setDependsOn(Collections.emptyList());
+      actions.add(action);
+    }
+    actions.add(action("Four", null));
+    actions.get(3).setDependsOn(Arrays.asList("One", "Two", "Three"));
+
+    String result = newWorkflowStub().run(new Flow("dag", "dag", "", actions), "test input");
+
+    assertEquals("one,two,three,four", result);
+    assertEquals(3, maxRunning.get());
+    assertEquals("four", calls.get(3));
+  }
+
+  @Test
+  public void testCompensationInReverseTopologicalOrder() {
+    FlowAction block = new FlowAction();
+    block.setParallel(Arrays.asList(action("Two", "UndoTwo"), action("Fail", null)));
+    List<FlowAction> actions =
+        Arrays.asList(action("One", "UndoOne"), block, action("Three", "UndoThree"));
+
+    try {
+      newWorkflowStub().run(new Flow("saga", "saga", "", actions), "test input");
+      fail("unreachable");
+    } catch (WorkflowFailedException e) {
+      assertTrue(e.getCause() instanceof ApplicationFailure);
+    }
+
+    // Three depends on the failed action so it never runs.
+    assertEquals(Arrays.asList("one", "undoTwo", "undoOne"), without(calls, "two", "fail"));
+    assertTrue(calls.indexOf("undoTwo") > calls.indexOf("two"));
+  }
+
+  @Test
+  public void testDependencyCycle() {
+    FlowAction one = action("One", null);
+    one.setDependsOn(Collections.singletonList("Two"));
+    FlowAction two = action("Two", null);
+    two.setDependsOn(Collections.singletonList("One"));
+
+    try {
+      newWorkflowStub().run(new Flow("cycle", "cycle", "", Arrays.asList(one, two)), "test input");
+      fail("unreachable");
+    } catch (WorkflowFailedException e) {
+      assertEquals("illegal flow", ((ApplicationFailure) e.getCause()).getType());
+    }
+    assertEquals(Collections.emptyList(), calls);
+  }
+
+  private DslWorkflow newWorkflowStub() {
+    return testWorkflowRule
+        .getWorkflowClient()
+        .newWorkflowStub(
+            DslWorkflow.class,
+            WorkflowOptions.newBuilder().setTaskQueue(testWorkflowRule.getTaskQueue()).build());
+  }
+
+  private static FlowAction action(String name, String compensateBy) {
+    return new FlowAction(name, compensateBy, 1, 5, 0);
+  }
+
+  private static List<String> without(List<String> list, String... removed) {
+    List<String> result = new ArrayList<>(list);
+    result.removeAll(Arrays.asList(removed));
+    return result;
+  }
+}
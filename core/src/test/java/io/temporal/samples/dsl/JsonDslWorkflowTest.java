@@ -0,0 +1,131 @@
+package io.temporal.samples.dsl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.temporal.client.WorkflowFailedException;
+import io.temporal.client.WorkflowOptions;
+import io.temporal.failure.ApplicationFailure;
+import io.temporal.samples.dsl.model.Flow;
+import io.temporal.samples.dsl.model.FlowAction;
+import io.temporal.testing.TestWorkflowRule;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class JsonDslWorkflowTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  @Rule
+  public TestWorkflowRule testWorkflowRule =
+      TestWorkflowRule.newBuilder()
+          .setWorkflowTypes(JsonDslWorkflowImpl.class)
+          .setActivityImplementations(new DslActivitiesImpl())
+          .build();
+
+  @Test
+  public void testJqFlow() throws Exception {
+    Flow flow =
+        MAPPER.readValue(
+            JsonDslWorkflowTest.class.getClassLoader().getResource("dsl/orderflow.json"),
+            Flow.class);
+
+    JsonNode state = newWorkflowStub().run(flow, MAPPER.readTree("{\"order\":{\"amount\":42}}"));
+
+    assertEquals(42, state.path("order").path("amount").asInt());
+    assertEquals("Activity one done...", state.path("one").asText());
+    // Only the branch picked by the amount ran.
+    assertEquals("Activity two done...", state.path("approval").asText());
+    assertEquals("Activity four done...", state.path("done").asText());
+  }
+
+  @Test
+  public void testJsonPathFlow() throws Exception {
+    FlowAction one = new FlowAction("One", null, 1, 5, 0);
+    one.setInputSelector("$.order");
+    one.setResultMerger("$.one");
+    FlowAction two = new FlowAction("Two", null, 1, 5, 0);
+    two.setCondition("$[?(@.order.amount < 100)]");
+    two.setResultMerger("$.approval");
+    FlowAction three = new FlowAction("Three", null, 1, 5, 0);
+    three.setDependsOn(Collections.singletonList("One"));
+    three.setCondition("$[?(@.order.amount >= 100)]");
+    three.setResultMerger("$.approval");
+    Flow flow = new Flow("jsonPathFlow", "", "", Arrays.asList(one, two, three));
+    flow.setExpressionLanguage("jsonpath");
+
+    JsonNode state = newWorkflowStub().run(flow, MAPPER.readTree("{\"order\":{\"amount\":420}}"));
+
+    assertEquals("Activity one done...", state.path("one").asText());
+    assertEquals("Activity three done...", state.path("approval").asText());
+  }
+
+  @Test
+  public void testInvalidExpression() {
+    FlowAction one = new FlowAction("One", null, 1, 5, 0);
+    one.setInputSelector(".order | ");
+    try {
+      newWorkflowStub()
+          .run(
+              new Flow("invalid", "", "", Collections.singletonList(one)),
+              MAPPER.createObjectNode());
+      fail("unreachable");
+    } catch (WorkflowFailedException e) {
+      assertEquals("illegal flow", ((ApplicationFailure) e.getCause()).getType());
+    }
+  }
+
+  @Test
+  public void testExpressionFailsAtRuntime() throws Exception {
+    FlowAction one = new FlowAction("One", null, 1, 5, 0);
+    // Valid, but an object and a number can't be added.
+    one.setInputSelector(".order + 1");
+    try {
+      newWorkflowStub()
+          .run(
+              new Flow("failing", "", "", Collections.singletonList(one)),
+              MAPPER.readTree("{\"order\":{\"amount\":42}}"));
+      fail("unreachable");
+    } catch (WorkflowFailedException e) {
+      assertEquals("expression failure", ((ApplicationFailure) e.getCause()).getType());
+    }
+  }
+
+  @Test
+  public void testEqualFlowsShareCachedPlan() throws Exception {
+    URL resource = JsonDslWorkflowTest.class.getClassLoader().getResource("dsl/orderflow.json");
+    assertSame(
+        FlowPlan.cached(MAPPER.readValue(resource, Flow.class)),
+        FlowPlan.cached(MAPPER.readValue(resource, Flow.class)));
+  }
+
+  @Test
+  public void testConditionSkipsAction() throws Exception {
+    FlowAction one = new FlowAction("One", null, 1, 5, 0);
+    one.setCondition(".enabled");
+    one.setResultMerger(".one = $result");
+
+    JsonNode state =
+        newWorkflowStub()
+            .run(
+                new Flow("skipped", "", "", Collections.singletonList(one)),
+                MAPPER.readTree("{\"enabled\":false}"));
+
+    assertFalse(state.has("one"));
+  }
+
+  private JsonDslWorkflow newWorkflowStub() {
+    return testWorkflowRule
+        .getWorkflowClient()
+        .newWorkflowStub(
+            JsonDslWorkflow.class,
+            WorkflowOptions.newBuilder().setTaskQueue(testWorkflowRule.getTaskQueue()).build());
+  }
+}
@@ -0,0 +1,143 @@
+package io.temporal.samples.dsl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.temporal.api.common.v1.WorkflowExecution;
+import io.temporal.api.enums.v1.EventType;
+import io.temporal.api.history.v1.HistoryEvent;
+import io.temporal.client.WorkflowClient;
+import io.temporal.client.WorkflowOptions;
+import io.temporal.client.WorkflowStub;
+import io.temporal.samples.dsl.model.Flow;
+import io.temporal.samples.dsl.model.FlowAction;
+import io.temporal.samples.dsl.model.FlowReference;
+import io.temporal.testing.TestWorkflowRule;
+import java.net.URL;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class RegisteredDslWorkflowTest {
+
+  private static final URL SAMPLE_FLOW =
+      RegisteredDslWorkflowTest.class.getClassLoader().getResource("dsl/sampleflow.json");
+
+  private final FlowRegistry registry = new FlowRegistry();
+
+  @Rule
+  public TestWorkflowRule testWorkflowRule =
+      TestWorkflowRule.newBuilder()
+          .setActivityImplementations(new DslActivitiesImpl())
+          .setDoNotStart(true)
+          .build();
+
+  @Before
+  public void setUp() {
+    testWorkflowRule
+        .getWorker()
+        .registerWorkflowImplementationFactory(
+            RegisteredDslWorkflow.class, () -> new RegisteredDslWorkflowImpl(registry));
+    testWorkflowRule.getTestEnvironment().start();
+  }
+
+  @Test
+  public void testRunRegisteredFlow() throws Exception {
+    FlowPlan plan = registry.register(SAMPLE_FLOW, "1");
+    FlowReference reference = new FlowReference("sampleFlow", "1");
+    reference.setHash(plan.getHash());
+
+    String result = newWorkflowStub().run(reference, "test input");
+
+    assertEquals(
+        "Activity one done...,Activity two done...,Activity three done...,Activity four done...",
+        result);
+  }
+
+  @Test
+  public void testUnknownFlow() throws Exception {
+    RegisteredDslWorkflow workflow = newWorkflowStub();
+    WorkflowExecution execution =
+        WorkflowClient.start(workflow::run, new FlowReference("sampleFlow", "2"), "test input");
+    assertTrue(awaitWorkflowTaskFailure(execution).contains("is not registered"));
+
+    // The workflow task is retried, and runs the flow once it is registered.
+    registry.register(SAMPLE_FLOW, "2");
+    assertEquals(
+        "Activity one done...,Activity two done...,Activity three done...,Activity four done...",
+        WorkflowStub.fromTyped(workflow).getResult(String.class));
+  }
+
+  @Test
+  public void testHashMismatch() throws Exception {
+    registry.register(SAMPLE_FLOW, "1");
+    FlowReference reference = new FlowReference("sampleFlow", "1");
+    reference.setHash("0".repeat(64));
+    RegisteredDslWorkflow workflow = newWorkflowStub();
+    WorkflowExecution execution = WorkflowClient.start(workflow::run, reference, "test input");
+    assertTrue(awaitWorkflowTaskFailure(execution).contains("has a different content"));
+    WorkflowStub.fromTyped(workflow).terminate("hash mismatch");
+  }
+
+  @Test
+  public void testPlan() throws Exception {
+    Flow flow = new ObjectMapper().readValue(SAMPLE_FLOW, Flow.class);
+    FlowPlan plan = FlowPlan.compile(flow);
+    assertEquals(plan.getHash(), FlowPlan.compile(flow).getHash());
+    // Actions with the same configuration share their options.
+    FlowPlan shared =
+        FlowPlan.compile(
+            new Flow(
+                "shared",
+                "shared",
+                "",
+                Arrays.asList(
+                    new FlowAction("One", null, 3, 5, 0), new FlowAction("Two", null, 3, 5, 0))));
+    assertSame(
+        shared.getActivityOptions(shared.getGraph().getNodes().get(0)),
+        shared.getActivityOptions(shared.getGraph().getNodes().get(1)));
+
+    registry.register(flow, "1");
+    assertSame(registry.get("sampleFlow", "1"), registry.register(flow, "1"));
+    flow.getActions().get(0).setRetries(1);
+    assertNotEquals(plan.getHash(), FlowPlan.compile(flow).getHash());
+    try {
+      registry.register(flow, "1");
+      fail("unreachable");
+    } catch (IllegalStateException e) {
+      // A registered version can't change.
+    }
+  }
+
+  /** Waits until a workflow task of the execution failed, and returns the failure message. */
+  private String awaitWorkflowTaskFailure(WorkflowExecution execution)
+      throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (System.currentTimeMillis() < deadline) {
+      for (HistoryEvent event :
+          testWorkflowRule
+              .getWorkflowClient()
+              .fetchHistory(execution.getWorkflowId(), execution.getRunId())
+              .getEvents()) {
+        if (event.getEventType() == EventType.EVENT_TYPE_WORKFLOW_TASK_FAILED) {
+          return event.getWorkflowTaskFailedEventAttributes().getFailure().getMessage();
+        }
+      }
+      Thread.sleep(100);
+    }
+    throw new AssertionError("No workflow task failed");
+  }
+
+  private RegisteredDslWorkflow newWorkflowStub() {
+    return testWorkflowRule
+        .getWorkflowClient()
+        .newWorkflowStub(
+            RegisteredDslWorkflow.class,
+            WorkflowOptions.newBuilder().setTaskQueue(testWorkflowRule.getTaskQueue()).build());
+  }
+}
@@ -0,0 +1,165 @@
+package io.temporal.samples.encryptedpayloads;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.protobuf.ByteString;
+import io.temporal.api.common.v1.Payload;
+import io.temporal.common.converter.CodecDataConverter;
+import io.temporal.common.converter.DataConverter;
+import io.temporal.common.converter.DefaultDataConverter;
+import io.temporal.common.converter.EncodingKeys;
+import io.temporal.payload.codec.PayloadCodecException;
+import io.temporal.samples.compressedpayloads.CompressionCodec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class CryptCodecTest {
+
+  private static final ByteString JSON_ENCODING = ByteString.copyFromUtf8("json/plain");
+
+  private final CryptCodec codec = new CryptCodec();
+
+  @Test
+  public void testRoundTrip() {
+    List<Payload> payloads = newPayloads(0, 10);
+    List<Payload> encoded = codec.encode(payloads);
+    for (Payload payload : encoded) {
+      assertEquals(
+          CryptCodec.METADATA_ENCODING,
+          payload.getMetadataOrThrow(EncodingKeys.METADATA_ENCODING_KEY));
+    }
+    assertEquals(payloads, codec.decode(encoded));
+  }
+
+  @Test
+  public void testNonceIsNotReused() {
+    List<Payload> payloads = newPayloads(0, 1);
+    Payload first = codec.encode(payloads).get(0);
+    Payload second = codec.encode(payloads).get(0);
+    assertNotEquals(first.getData(), second.getData());
+  }
+
+  @Test
+  public void testPayloadsEncodedByAnotherCodecInstanceAreDecoded() {
+    List<Payload> payloads = newPayloads(0, 3);
+    assertEquals(payloads, new CryptCodec().decode(codec.encode(payloads)));
+  }
+
+  @Test
+  public void testConcurrentRoundTrips() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        int thread = t;
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < 200; i++) {
+                    List<Payload> payloads = newPayloads(thread * 1000 + i, 5);
+                    assertEquals(payloads, codec.decode(codec.encode(payloads)));
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testNotEncryptedPayloadIsPassedThrough() {
+    List<Payload> payloads = newPayloads(0, 1);
+    assertEquals(payloads, codec.decode(payloads));
+    assertEquals(Collections.emptyList(), codec.decode(Collections.emptyList()));
+  }
+
+  @Test
+  public void testParallelRoundTripKeepsOrder() {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    AtomicInteger tasks = new AtomicInteger();
+    try {
+      CryptCodec parallelCodec =
+          new CryptCodec(
+              command -> {
+                tasks.incrementAndGet();
+                executor.execute(command);
+              },
+              100);
+      List<Payload> payloads = newPayloads(0, 50);
+      List<Payload> encoded = parallelCodec.encode(payloads);
+      assertTrue(tasks.get() > 0);
+      assertEquals(payloads, codec.decode(encoded));
+      assertEquals(payloads, parallelCodec.decode(codec.encode(payloads)));
+
+      // Small lists are processed in the calling thread.
+      tasks.set(0);
+      List<Payload> small = newPayloads(0, 2);
+      assertEquals(small, parallelCodec.decode(parallelCodec.encode(small)));
+      assertEquals(0, tasks.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testParallelDecodeFailure() {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      CryptCodec parallelCodec = new CryptCodec(executor, 100);
+      List<Payload> encoded = new ArrayList<>(codec.encode(newPayloads(0, 20)));
+      Payload corrupted = encoded.get(10);
+      encoded.set(
+          10,
+          corrupted.toBuilder()
+              .setData(corrupted.getData().concat(ByteString.copyFromUtf8("corrupted")))
+              .build());
+      assertThrows(PayloadCodecException.class, () -> parallelCodec.decode(encoded));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testCompressThenEncrypt() {
+    DataConverter converter =
+        new CodecDataConverter(
+            DefaultDataConverter.newDefaultInstance(),
+            Arrays.asList(new CryptCodec(), new CompressionCodec()));
+    StringBuilder value = new StringBuilder();
+    for (int i = 0; i < 10_000; i++) {
+      value.append("value ").append(i).append(' ');
+    }
+    Payload payload = converter.toPayload(value.toString()).get();
+    assertEquals(
+        CryptCodec.METADATA_ENCODING,
+        payload.getMetadataOrThrow(EncodingKeys.METADATA_ENCODING_KEY));
+    // Only the compressed payload becomes this small after encryption.
+    assertTrue(payload.getSerializedSize() * 2 < value.length());
+    assertEquals(value.toString(), converter.fromPayload(payload, String.class, String.class));
+  }
+
+  private static List<Payload> newPayloads(int start, int count) {
+    List<Payload> payloads = new ArrayList<>(count);
+    for (int i = start; i < start + count; i++) {
+      payloads.add(
+          Payload.newBuilder()
+              .putMetadata(EncodingKeys.METADATA_ENCODING_KEY, JSON_ENCODING)
+              .setData(ByteString.copyFromUtf8("\"value " + i + "\""))
+              .build());
+    }
+    return payloads;
+  }
+}
@@ -0,0 +1,208 @@
+package io.temporal.samples.fileprocessing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.temporal.client.WorkflowFailedException;
+import io.temporal.client.WorkflowOptions;
+import io.temporal.failure.ApplicationFailure;
+import io.temporal.testing.TestWorkflowRule;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BatchFileProcessingTest {
+
+  private static final String HOST_NAME_1 = "host1";
+  private static final String HOST_NAME_2 = "host2";
+
+  private static final int FILE_COUNT = 8;
+  private static final long FILE_SIZE = 1024 * 1024;
+
+  /** Number of downloads running by host. */
+  private static final Map<String, AtomicInteger> downloading = new ConcurrentHashMap<>();
+
+  /** Set when a host processed a file while it was downloading another one. */
+  private static final AtomicBoolean pipelined = new AtomicBoolean();
+
+  /** Files processed by a host that didn't download them. */
+  private static final List<String> misplaced = Collections.synchronizedList(new ArrayList<>());
+
+  private static final AtomicInteger deleted = new AtomicInteger();
+
+  private static final AtomicInteger downloads = new AtomicInteger();
+
+  /** Makes the uploads fail. */
+  private static final AtomicBoolean failUploads = new AtomicBoolean();
+
+  /**
+   * Store that pretends to download files to the hosts in turn and checks that the other
+   * activities run on the host that downloaded the file.
+   */
+  public static class FakeStoreActivities implements StoreActivities {
+    private final String host;
+
+    public FakeStoreActivities(String host) {
+      this.host = host;
+    }
+
+    @Override
+    public TaskQueueFileNamePair download(URL url) {
+      int index = downloads.getAndIncrement();
+      String target = index % 2 == 0 ? HOST_NAME_1 : HOST_NAME_2;
+      AtomicInteger counter = downloading.computeIfAbsent(target, h -> new AtomicInteger());
+      counter.incrementAndGet();
+      try {
+        // Downloads take different times, so they overlap with the processing of other files.
+        sleep(100 * (index % 4 + 1));
+      } finally {
+        counter.decrementAndGet();
+      }
+      return new TaskQueueFileNamePair(target, "/" + target + "/file" + index, FILE_SIZE);
+    }
+
+    @Override
+    public String process(String inputFileName) {
+      checkHost(inputFileName);
+      AtomicInteger counter = downloading.get(host);
+      if (counter != null && counter.get() > 0) {
+        pipelined.set(true);
+      }
+      sleep(300);
+      return inputFileName + ".processed";
+    }
+
+    @Override
+    public void upload(String localFileName, URL url) {
+      checkHost(localFileName);
+      if (failUploads.get()) {
+        throw ApplicationFailure.newNonRetryableFailure("Upload failed", "upload");
+      }
+    }
+
+    @Override
+    public void deleteLocalFiles(String localFileName) {
+      checkHost(localFileName);
+      deleted.incrementAndGet();
+    }
+
+    private void checkHost(String fileName) {
+      if (!fileName.startsWith("/" + host + "/")) {
+        misplaced.add(host + ":" + fileName);
+      }
+    }
+
+    private static void sleep(long millis) {
+      try {
+        Thread.sleep(millis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  @Rule
+  public TestWorkflowRule testWorkflowRule =
+      TestWorkflowRule.newBuilder()
+          .setWorkflowTypes(BatchFileProcessingWorkflowImpl.class)
+          .setActivityImplementations(new FakeStoreActivities("common"))
+          .setUseTimeskipping(false)
+          .setDoNotStart(true)
+          .build();
+
+  @Before
+  public void setUp() {
+    downloading.clear();
+    pipelined.set(false);
+    misplaced.clear();
+    deleted.set(0);
+    downloads.set(0);
+    failUploads.set(false);
+    testWorkflowRule
+        .getTestEnvironment()
+        .newWorker(HOST_NAME_1)
+        .registerActivitiesImplementations(new FakeStoreActivities(HOST_NAME_1));
+    testWorkflowRule
+        .getTestEnvironment()
+        .newWorker(HOST_NAME_2)
+        .registerActivitiesImplementations(new FakeStoreActivities(HOST_NAME_2));
+    testWorkflowRule.getTestEnvironment().start();
+  }
+
+  @Test
+  public void testProcessFiles() throws MalformedURLException {
+    BatchFileProcessingWorkflow workflow = newWorkflowStub();
+    BatchFileProcessingProgress result = workflow.processFiles(newInput(FILE_COUNT, 4));
+
+    assertEquals(FILE_COUNT, result.getTotalFiles());
+    assertEquals(FILE_COUNT, result.getCompletedFiles());
+    assertEquals(0, result.getFailedFiles());
+    assertEquals(0, result.getInFlightFiles());
+    assertEquals(FILE_COUNT * FILE_SIZE, result.getCompletedBytes());
+    assertEquals(FILE_COUNT / 2, (int) result.getFilesPerHost().get(HOST_NAME_1));
+    assertEquals(FILE_COUNT / 2, (int) result.getFilesPerHost().get(HOST_NAME_2));
+    assertTrue(result.getFilesPerSecond() > 0);
+    assertTrue(result.getMegabytesPerSecond() > 0);
+    assertEquals(Collections.emptyList(), misplaced);
+    assertEquals(FILE_COUNT, deleted.get());
+    assertTrue("Expected downloads to overlap with processing", pipelined.get());
+
+    BatchFileProcessingProgress queried = workflow.getProgress();
+    assertEquals(FILE_COUNT, queried.getCompletedFiles());
+    assertEquals(result.getFilesPerSecond(), queried.getFilesPerSecond(), 0.0);
+  }
+
+  @Test
+  public void testDeletesFilesOfFailedChains() throws MalformedURLException {
+    failUploads.set(true);
+    BatchFileProcessingProgress result = newWorkflowStub().processFiles(newInput(2, 2));
+
+    assertEquals(2, result.getFailedFiles());
+    // Every download is deleted, including the ones of the retried chains.
+    assertEquals(downloads.get(), deleted.get());
+    assertEquals(Collections.emptyList(), misplaced);
+  }
+
+  @Test
+  public void testRejectsNonPositiveMaxFilesInFlight() throws MalformedURLException {
+    try {
+      newWorkflowStub().processFiles(newInput(FILE_COUNT, 0));
+      fail("unreachable");
+    } catch (WorkflowFailedException e) {
+      assertEquals("invalid input", ((ApplicationFailure) e.getCause()).getType());
+    }
+    assertEquals(0, downloads.get());
+  }
+
+  private static BatchFileProcessingInput newInput(int fileCount, int maxFilesInFlight)
+      throws MalformedURLException {
+    List<URL> sources = new ArrayList<>();
+    for (int i = 0; i < fileCount; i++) {
+      sources.add(new URL("http://dummy/source/" + i));
+    }
+    BatchFileProcessingInput input = new BatchFileProcessingInput();
+    input.setSources(sources);
+    input.setDestination(new URL("http://dummy/destination"));
+    input.setMaxFilesInFlight(maxFilesInFlight);
+    return input;
+  }
+
+  private BatchFileProcessingWorkflow newWorkflowStub() {
+    return testWorkflowRule
+        .getWorkflowClient()
+        .newWorkflowStub(
+            BatchFileProcessingWorkflow.class,
+            WorkflowOptions.newBuilder().setTaskQueue(testWorkflowRule.getTaskQueue()).build());
+  }
+}
@@ -0,0 +1,153 @@
+package io.temporal.samples.fileprocessing;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+
+import io.temporal.client.WorkflowOptions;
+import io.temporal.samples.fileprocessing.StoreActivities.TaskQueueFileNamePair;
+import io.temporal.testing.TestWorkflowRule;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ChunkedFileProcessingTest {
+
+  private static final String HOST_NAME = "host1";
+
+  private static final int CHUNK_BYTES = 1024 * 1024;
+
+  /** Not a multiple of the chunk size, so the last chunk is shorter. */
+  private static final int FILE_SIZE = 5 * CHUNK_BYTES + 1000;
+
+  /** Fails more times than the chunk activity is retried. */
+  private static final long FAILING_CHUNK_OFFSET = 2L * CHUNK_BYTES;
+
+  private static final int CHUNK_FAILURES = 5;
+
+  private static final Map<Long, AtomicInteger> chunkAttempts = new ConcurrentHashMap<>();
+
+  private static final AtomicInteger downloads = new AtomicInteger();
+
+  private static volatile String downloadedFileName;
+
+  private static volatile byte[] uploaded;
+
+  /** Counts the activity calls, fails a chunk and captures the uploaded content. */
+  public static class TestStoreActivities extends StoreActivitiesImpl implements StoreActivities {
+
+    public TestStoreActivities() {
+      super(HOST_NAME, CHUNK_BYTES);
+    }
+
+    @Override
+    public TaskQueueFileNamePair download(URL url) {
+      downloads.incrementAndGet();
+      TaskQueueFileNamePair downloaded = super.download(url);
+      downloadedFileName = downloaded.getFileName();
+      return downloaded;
+    }
+
+    @Override
+    public String processChunk(String inputFileName, long offset, long length) {
+      int attempt =
+          chunkAttempts.computeIfAbsent(offset, o -> new AtomicInteger()).incrementAndGet();
+      if (offset == FAILING_CHUNK_OFFSET && attempt <= CHUNK_FAILURES) {
+        throw new IllegalStateException("simulated failure of the chunk at " + offset);
+      }
+      return super.processChunk(inputFileName, offset, length);
+    }
+
+    @Override
+    public void upload(String localFileName, URL url) {
+      try {
+        uploaded = Files.readAllBytes(Paths.get(localFileName));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Rule
+  public TestWorkflowRule testWorkflowRule =
+      TestWorkflowRule.newBuilder()
+          .setActivityImplementations(new TestStoreActivities())
+          .setDoNotStart(true)
+          .build();
+
+  @Before
+  public void setUp() {
+    chunkAttempts.clear();
+    downloads.set(0);
+    downloadedFileName = null;
+    uploaded = null;
+    testWorkflowRule
+        .getWorker()
+        .registerWorkflowImplementationFactory(
+            FileProcessingWorkflow.class, () -> new FileProcessingWorkflowImpl(CHUNK_BYTES));
+    testWorkflowRule
+        .getTestEnvironment()
+        .newWorker(HOST_NAME)
+        .registerActivitiesImplementations(new TestStoreActivities());
+    testWorkflowRule.getTestEnvironment().start();
+  }
+
+  @After
+  public void tearDown() {
+    if (downloadedFileName != null) {
+      new StoreActivitiesImpl(HOST_NAME).deleteLocalFiles(downloadedFileName);
+    }
+  }
+
+  @Test
+  public void testRetriesFailedChunkOnly() throws IOException {
+    byte[] content = new byte[FILE_SIZE];
+    new Random(42).nextBytes(content);
+    Path source = temporaryFolder.newFile("source").toPath();
+    Files.write(source, content);
+
+    FileProcessingWorkflow workflow =
+        testWorkflowRule
+            .getWorkflowClient()
+            .newWorkflowStub(
+                FileProcessingWorkflow.class,
+                WorkflowOptions.newBuilder().setTaskQueue(testWorkflowRule.getTaskQueue()).build());
+    workflow.processFile(source.toUri().toURL(), new URL("http://dummy"));
+
+    assertArrayEquals(content, uploaded);
+    assertEquals(1, downloads.get());
+    assertEquals(6, chunkAttempts.size());
+    for (Map.Entry<Long, AtomicInteger> entry : chunkAttempts.entrySet()) {
+      int expected = entry.getKey() == FAILING_CHUNK_OFFSET ? CHUNK_FAILURES + 1 : 1;
+      assertEquals("attempts of the chunk at " + entry.getKey(), expected, entry.getValue().get());
+    }
+    // The merge deletes the chunk files.
+    try (Stream<Path> files =
+        Files.list(Paths.get(downloadedFileName).getParent())) {
+      assertFalse(files.anyMatch(f -> f.getFileName().toString().startsWith("processed.chunk")));
+    }
+  }
+
+  @Test
+  public void testRejectsInvalidChunkBytes() {
+    assertThrows(IllegalArgumentException.class, () -> new FileProcessingWorkflowImpl(0));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new FileProcessingWorkflowImpl(Integer.MAX_VALUE + 1L));
+  }
+}
@@ -0,0 +1,198 @@
+package io.temporal.samples.fileprocessing;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.temporal.activity.ActivityOptions;
+import io.temporal.samples.fileprocessing.StoreActivities.TaskQueueFileNamePair;
+import io.temporal.samples.fileprocessing.StoreActivitiesImpl.DownloadProgress;
+import io.temporal.testing.TestActivityEnvironment;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StoreActivitiesImplTest {
+
+  private static final String HOST_TASK_QUEUE = "host1";
+
+  /**
+   * Size of the sparse file. Small by default, set a multi-GB size with
+   * -PfileProcessingTestFileSize=<bytes>.
+   */
+  private static final long LARGE_FILE_SIZE =
+      Long.getLong("fileprocessing.test.fileSize", 16L * 1024 * 1024);
+
+  private static final byte[] MARKER = "temporal".getBytes(StandardCharsets.US_ASCII);
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private TestActivityEnvironment testEnvironment;
+
+  private final List<Path> downloaded = new ArrayList<>();
+
+  @Before
+  public void setUp() {
+    testEnvironment = TestActivityEnvironment.newInstance();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    testEnvironment.close();
+    for (Path file : downloaded) {
+      Files.deleteIfExists(file.resolveSibling("processed"));
+      Files.deleteIfExists(file);
+      Files.deleteIfExists(file.getParent());
+    }
+  }
+
+  /**
+   * Downloads and processes a sparse file. With a multi-GB size, it would not fit into the heap and
+   * crosses the 2GB boundary.
+   */
+  @Test
+  public void testLargeSparseFile() throws IOException {
+    Path source = temporaryFolder.getRoot().toPath().resolve("large");
+    Assume.assumeTrue(
+        "Not enough disk space",
+        Files.getFileStore(temporaryFolder.getRoot().toPath()).getUsableSpace()
+            > 3 * LARGE_FILE_SIZE);
+    // Markers at the start, in the middle or at the 2GB boundary, and at the end of the file
+    long middle = Math.min(LARGE_FILE_SIZE / 2, Integer.MAX_VALUE - 3);
+    long[] markers = {0, middle, LARGE_FILE_SIZE - MARKER.length};
+    try (FileChannel channel =
+        FileChannel.open(
+            source,
+            StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.SPARSE)) {
+      for (long position : markers) {
+        channel.write(ByteBuffer.wrap(MARKER), position);
+      }
+    }
+    List<Long> offsets = new ArrayList<>();
+    testEnvironment.setActivityHeartbeatListener(
+        DownloadProgress.class, progress -> offsets.add(progress.getOffset()));
+    testEnvironment.registerActivitiesImplementations(
+        new StoreActivitiesImpl(HOST_TASK_QUEUE, Math.max(1024 * 1024, LARGE_FILE_SIZE / 8)));
+    StoreActivities activities = newActivityStub();
+
+    TaskQueueFileNamePair result = activities.download(source.toUri().toURL());
+    Path destination = Paths.get(result.getFileName());
+    downloaded.add(destination);
+    assertEquals(HOST_TASK_QUEUE, result.getHostTaskQueue());
+    assertEquals(LARGE_FILE_SIZE, Files.size(destination));
+    for (long position : markers) {
+      assertArrayEquals(MARKER, read(destination, position, MARKER.length));
+    }
+    for (Long offset : offsets) {
+      assertTrue(offset > 0 && offset <= LARGE_FILE_SIZE);
+    }
+
+    // The process activity heartbeats the offset only
+    testEnvironment.setActivityHeartbeatListener(Long.class, offset -> {});
+    Path processed = Paths.get(activities.process(destination.toString()));
+    assertEquals(LARGE_FILE_SIZE, Files.size(processed));
+    for (long position : markers) {
+      assertArrayEquals(MARKER, read(processed, position, MARKER.length));
+    }
+  }
+
+  @Test
+  public void testDownloadResumesFromHeartbeatOffset() throws IOException {
+    byte[] content = newContent(10 * 1024 * 1024);
+    Path source = temporaryFolder.newFile("source").toPath();
+    Files.write(source, content);
+    // A previous attempt downloaded 4MB. They are filled with a different content to see that
+    // they are not downloaded again.
+    int resumeOffset = 4 * 1024 * 1024;
+    Path destination = Files.createTempDirectory("download").resolve("downloaded");
+    downloaded.add(destination);
+    byte[] partial = new byte[resumeOffset + 1000];
+    Arrays.fill(partial, (byte) 'x');
+    Files.write(destination, partial);
+    testEnvironment.setHeartbeatDetails(
+        new DownloadProgress(HOST_TASK_QUEUE, destination.toString(), resumeOffset));
+    List<Long> offsets = new ArrayList<>();
+    testEnvironment.setActivityHeartbeatListener(
+        DownloadProgress.class, progress -> offsets.add(progress.getOffset()));
+    testEnvironment.registerActivitiesImplementations(
+        new StoreActivitiesImpl(HOST_TASK_QUEUE, 1024 * 1024));
+    StoreActivities activities = newActivityStub();
+
+    TaskQueueFileNamePair result = activities.download(source.toUri().toURL());
+
+    assertEquals(destination.toString(), result.getFileName());
+    byte[] expected = content.clone();
+    Arrays.fill(expected, 0, resumeOffset, (byte) 'x');
+    assertArrayEquals(expected, Files.readAllBytes(destination));
+    for (Long offset : offsets) {
+      assertTrue(offset > resumeOffset);
+    }
+  }
+
+  @Test
+  public void testDownloadRestartsOnAnotherHost() throws IOException {
+    byte[] content = newContent(3 * 1024 * 1024);
+    Path source = temporaryFolder.newFile("source").toPath();
+    Files.write(source, content);
+    Path partial = temporaryFolder.newFile("partial").toPath();
+    Files.write(partial, new byte[1024 * 1024]);
+    testEnvironment.setHeartbeatDetails(
+        new DownloadProgress("host2", partial.toString(), 1024 * 1024));
+    testEnvironment.registerActivitiesImplementations(
+        new StoreActivitiesImpl(HOST_TASK_QUEUE, 1024 * 1024));
+    StoreActivities activities = newActivityStub();
+
+    TaskQueueFileNamePair result = activities.download(source.toUri().toURL());
+    Path destination = Paths.get(result.getFileName());
+    downloaded.add(destination);
+
+    assertNotEquals(partial, destination);
+    assertArrayEquals(content, Files.readAllBytes(destination));
+  }
+
+  private StoreActivities newActivityStub() {
+    return testEnvironment.newActivityStub(
+        StoreActivities.class,
+        ActivityOptions.newBuilder()
+            .setStartToCloseTimeout(Duration.ofMinutes(10))
+            .setHeartbeatTimeout(Duration.ofMinutes(1))
+            .build());
+  }
+
+  private static byte[] newContent(int size) {
+    byte[] content = new byte[size];
+    new Random(42).nextBytes(content);
+    return content;
+  }
+
+  private static byte[] read(Path file, long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, position + buffer.position()) < 0) {
+          break;
+        }
+      }
+    }
+    return buffer.array();
+  }
+}
@@ -0,0 +1,179 @@
+package io.temporal.samples.keymanagementencryption.awsencryptionsdk;
+
+import static org.junit.Assert.assertEquals;
+
+import com.amazonaws.encryptionsdk.AwsCrypto;
+import com.amazonaws.encryptionsdk.CryptoAlgorithm;
+import com.google.protobuf.ByteString;
+import io.temporal.api.common.v1.Payload;
+import io.temporal.common.converter.EncodingKeys;
+import io.temporal.payload.codec.PayloadCodec;
+import io.temporal.payload.context.WorkflowSerializationContext;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+import software.amazon.cryptography.materialproviders.IKeyring;
+import software.amazon.cryptography.materialproviders.MaterialProviders;
+import software.amazon.cryptography.materialproviders.model.AesWrappingAlg;
+import software.amazon.cryptography.materialproviders.model.CreateRawAesKeyringInput;
+import software.amazon.cryptography.materialproviders.model.MaterialProvidersConfig;
+import software.amazon.cryptography.materialproviders.model.OnDecryptInput;
+import software.amazon.cryptography.materialproviders.model.OnDecryptOutput;
+import software.amazon.cryptography.materialproviders.model.OnEncryptInput;
+import software.amazon.cryptography.materialproviders.model.OnEncryptOutput;
+
+public class KeyringCodecTest {
+
+  /** Stands in for the KMS keyring and counts the calls to it. */
+  private static class CountingKeyring implements IKeyring {
+    private final IKeyring keyring;
+    private final AtomicInteger encryptCalls = new AtomicInteger();
+    private final AtomicInteger decryptCalls = new AtomicInteger();
+
+    CountingKeyring(IKeyring keyring) {
+      this.keyring = keyring;
+    }
+
+    @Override
+    public OnEncryptOutput OnEncrypt(OnEncryptInput input) {
+      encryptCalls.incrementAndGet();
+      return keyring.OnEncrypt(input);
+    }
+
+    @Override
+    public OnDecryptOutput OnDecrypt(OnDecryptInput input) {
+      decryptCalls.incrementAndGet();
+      return keyring.OnDecrypt(input);
+    }
+  }
+
+  private static final AwsCrypto CRYPTO =
+      AwsCrypto.builder()
+          .withEncryptionAlgorithm(CryptoAlgorithm.ALG_AES_256_GCM_HKDF_SHA512_COMMIT_KEY)
+          .build();
+
+  private static final ByteString JSON_ENCODING = ByteString.copyFromUtf8("json/plain");
+
+  private final AtomicLong nanoTime = new AtomicLong();
+
+  private CountingKeyring keyring;
+
+  @Before
+  public void setUp() {
+    MaterialProviders materialProviders =
+        MaterialProviders.builder()
+            .MaterialProvidersConfig(MaterialProvidersConfig.builder().build())
+            .build();
+    IKeyring rawKeyring =
+        materialProviders.CreateRawAesKeyring(
+            CreateRawAesKeyringInput.builder()
+                .keyNamespace("test")
+                .keyName("test-key")
+                .wrappingKey(ByteBuffer.wrap(new byte[32]))
+                .wrappingAlg(AesWrappingAlg.ALG_AES256_GCM_IV12_TAG16)
+                .build());
+    keyring = new CountingKeyring(rawKeyring);
+  }
+
+  @Test
+  public void testWithoutCache() {
+    PayloadCodec codec = new KeyringCodec(CRYPTO, keyring, false);
+    List<Payload> payloads = newPayloads(10, 100);
+    assertEquals(payloads, codec.decode(codec.encode(payloads)));
+    assertEquals(10, keyring.encryptCalls.get());
+    assertEquals(10, keyring.decryptCalls.get());
+  }
+
+  @Test
+  public void testDataKeysAreReused() {
+    PayloadCodec codec = newCachingCodec(Duration.ofMinutes(1), 1000, 1_000_000);
+    List<Payload> payloads = newPayloads(100, 100);
+    List<Payload> encoded = codec.encode(payloads);
+    assertEquals(payloads, codec.decode(encoded));
+    assertEquals(1, keyring.encryptCalls.get());
+    assertEquals(1, keyring.decryptCalls.get());
+
+    // The payloads are regular messages, so they are decrypted without the cache.
+    PayloadCodec uncached = new KeyringCodec(CRYPTO, keyring, false);
+    assertEquals(payloads, uncached.decode(encoded));
+  }
+
+  @Test
+  public void testMaxMessages() {
+    PayloadCodec codec = newCachingCodec(Duration.ofMinutes(1), 10, 1_000_000);
+    codec.encode(newPayloads(100, 100));
+    assertEquals(10, keyring.encryptCalls.get());
+  }
+
+  @Test
+  public void testMaxBytes() {
+    PayloadCodec codec = newCachingCodec(Duration.ofMinutes(1), 1000, 10_000);
+    // Each serialized payload is a bit over 1000 bytes, so only 9 fit into a data key.
+    codec.encode(newPayloads(90, 1000));
+    assertEquals(10, keyring.encryptCalls.get());
+  }
+
+  @Test
+  public void testMaxAge() {
+    PayloadCodec codec = newCachingCodec(Duration.ofSeconds(10), 1000, 1_000_000);
+    List<Payload> encoded = codec.encode(newPayloads(5, 100));
+    codec.decode(encoded);
+    nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(5));
+    codec.decode(codec.encode(newPayloads(5, 100)));
+    assertEquals(1, keyring.encryptCalls.get());
+    assertEquals(1, keyring.decryptCalls.get());
+
+    nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(6));
+    codec.encode(newPayloads(5, 100));
+    codec.decode(encoded);
+    assertEquals(2, keyring.encryptCalls.get());
+    assertEquals(2, keyring.decryptCalls.get());
+  }
+
+  @Test
+  public void testDataKeysAreCachedPerSerializationContext() {
+    DataKeyCache cache =
+        new DataKeyCache(10, Duration.ofMinutes(1), 1000, 1_000_000, nanoTime::get);
+    PayloadCodec codec = new KeyringCodec(CRYPTO, keyring, true, cache);
+    PayloadCodec workflow1 =
+        codec.withContext(new WorkflowSerializationContext("default", "workflow1"));
+    PayloadCodec workflow2 =
+        codec.withContext(new WorkflowSerializationContext("default", "workflow2"));
+    List<Payload> payloads = newPayloads(10, 100);
+    List<Payload> encoded1 = workflow1.encode(payloads);
+    List<Payload> encoded2 = workflow2.encode(payloads);
+    workflow1.encode(payloads);
+    assertEquals(2, keyring.encryptCalls.get());
+
+    assertEquals(payloads, workflow1.decode(encoded1));
+    assertEquals(payloads, workflow2.decode(encoded2));
+    assertEquals(2, keyring.decryptCalls.get());
+  }
+
+  private PayloadCodec newCachingCodec(Duration maxAge, long maxMessages, long maxBytes) {
+    DataKeyCache cache = new DataKeyCache(10, maxAge, maxMessages, maxBytes, nanoTime::get);
+    return new KeyringCodec(CRYPTO, keyring, false, cache);
+  }
+
+  private static List<Payload> newPayloads(int count, int size) {
+    List<Payload> payloads = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      StringBuilder data = new StringBuilder();
+      while (data.length() < size) {
+        data.append("payload ").append(i).append(' ');
+      }
+      payloads.add(
+          Payload.newBuilder()
+              .putMetadata(EncodingKeys.METADATA_ENCODING_KEY, JSON_ENCODING)
+              .setData(ByteString.copyFromUtf8(data.substring(0, size)))
+              .build());
+    }
+    return payloads;
+  }
+}
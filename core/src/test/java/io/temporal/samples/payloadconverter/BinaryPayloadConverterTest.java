@@ -0,0 +1,111 @@
+package io.temporal.samples.payloadconverter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import io.temporal.api.common.v1.Payload;
+import io.temporal.common.converter.DataConverter;
+import io.temporal.common.converter.DefaultDataConverter;
+import io.temporal.samples.batch.slidingwindow.SingleRecord;
+import io.temporal.samples.dsl.model.Flow;
+import io.temporal.samples.dsl.model.FlowAction;
+import io.temporal.samples.hello.HelloAccumulator.Greeting;
+import io.temporal.samples.payloadconverter.binary.BinaryPayloadConverter;
+import io.temporal.samples.payloadconverter.binary.BinaryPayloadConverter.Format;
+import io.temporal.samples.workflowstreams.Shared;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import org.junit.Test;
+
+public class BinaryPayloadConverterTest {
+
+  private final DataConverter json = DefaultDataConverter.newDefaultInstance();
+
+  @Test
+  public void testFlow() {
+    for (Format format : Format.values()) {
+      DataConverter converter = newDataConverter(format);
+      Flow flow = newFlow();
+      Payload payload = converter.toPayload(flow).get();
+      assertEquals(format.getEncodingType(), encoding(payload));
+      assertTrue(payload.getSerializedSize() < json.toPayload(flow).get().getSerializedSize());
+      Flow decoded = converter.fromPayload(payload, Flow.class, Flow.class);
+      assertEquals(flow.getId(), decoded.getId());
+      assertEquals(flow.getActions().size(), decoded.getActions().size());
+      FlowAction action = decoded.getActions().get(7);
+      assertEquals("Action7", action.getAction());
+      assertEquals(7, action.getRetries());
+    }
+  }
+
+  @Test
+  public void testStreamEventAndRecord() {
+    for (Format format : Format.values()) {
+      DataConverter converter = newDataConverter(format);
+      Payload event = converter.toPayload(new Shared.StatusEvent("processing", "order-1")).get();
+      assertEquals(format.getEncodingType(), encoding(event));
+      Shared.StatusEvent decodedEvent =
+          converter.fromPayload(event, Shared.StatusEvent.class, Shared.StatusEvent.class);
+      assertEquals("processing", decodedEvent.kind);
+      assertEquals("order-1", decodedEvent.orderId);
+
+      Payload record = converter.toPayload(new SingleRecord(42)).get();
+      assertEquals(
+          42, converter.fromPayload(record, SingleRecord.class, SingleRecord.class).getId());
+    }
+  }
+
+  @Test
+  public void testCollection() {
+    Type type = new TypeReference<Deque<Greeting>>() {}.getType();
+    Deque<Greeting> greetings = new ArrayDeque<>();
+    for (int i = 0; i < 10; i++) {
+      greetings.add(new Greeting("Hello " + i, "blue", "key-" + i));
+    }
+    for (Format format : new Format[] {Format.SMILE, Format.CBOR}) {
+      DataConverter converter = newDataConverter(format);
+      Payload payload = converter.toPayload(greetings).get();
+      assertEquals(format.getEncodingType(), encoding(payload));
+      @SuppressWarnings("unchecked")
+      Deque<Greeting> decoded = converter.fromPayload(payload, Deque.class, type);
+      assertEquals(10, decoded.size());
+      assertEquals("key-9", decoded.getLast().getGreetingKey());
+    }
+    // Protobuf doesn't support collections, so they are left to the JSON converter
+    Payload payload = newDataConverter(Format.PROTOBUF).toPayload(greetings).get();
+    assertEquals("json/plain", encoding(payload));
+  }
+
+  @Test
+  public void testOtherTypesUseJson() {
+    DataConverter converter = newDataConverter(Format.SMILE);
+    assertEquals("json/plain", encoding(converter.toPayload(new Shared.TickEvent(1)).get()));
+    List<Object> mixed = new ArrayList<>();
+    mixed.add(new Shared.StatusEvent("processing", "order-1"));
+    mixed.add(new Shared.TickEvent(1));
+    assertEquals("json/plain", encoding(converter.toPayload(mixed).get()));
+    assertEquals("json/plain", encoding(converter.toPayload("text").get()));
+  }
+
+  private static DataConverter newDataConverter(Format format) {
+    return BinaryPayloadConverter.newDataConverter(
+        new BinaryPayloadConverter(
+            format, Shared.StatusEvent.class, SingleRecord.class, Flow.class, Greeting.class));
+  }
+
+  private static String encoding(Payload payload) {
+    return payload.getMetadataOrThrow("encoding").toStringUtf8();
+  }
+
+  private static Flow newFlow() {
+    List<FlowAction> actions = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      actions.add(new FlowAction("Action" + i, "Compensate" + i, i, 3 + i % 5, i + 1));
+    }
+    return new Flow("flow", "Flow", "Flow with 20 actions", actions);
+  }
+}
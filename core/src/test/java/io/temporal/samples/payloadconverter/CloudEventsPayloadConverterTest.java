@@ -1,11 +1,14 @@
 package io.temporal.samples.payloadconverter;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import io.cloudevents.CloudEvent;
 import io.cloudevents.core.builder.CloudEventBuilder;
 import io.cloudevents.jackson.JsonCloudEventData;
+import io.temporal.api.common.v1.Payload;
 import io.temporal.client.WorkflowClient;
 import io.temporal.client.WorkflowClientOptions;
 import io.temporal.client.WorkflowOptions;
@@ -14,8 +17,10 @@ import io.temporal.samples.payloadconverter.cloudevents.CEWorkflow;
 import io.temporal.samples.payloadconverter.cloudevents.CEWorkflowImpl;
 import io.temporal.samples.payloadconverter.cloudevents.CloudEventsPayloadConverter;
 import io.temporal.testing.TestWorkflowRule;
+import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import org.junit.Rule;
@@ -72,4 +77,39 @@ public class CloudEventsPayloadConverterTest {
     assertNotNull(result);
     assertEquals("hello 9", result);
   }
+
+  @Test
+  public void testRoundTripAndDataProjection() throws IOException {
+    CloudEventsPayloadConverter converter = new CloudEventsPayloadConverter();
+    CloudEvent jsonEvent =
+        CloudEventBuilder.v1()
+            .withId("1")
+            .withType("example.demo")
+            .withSource(URI.create("http://temporal.io"))
+            .withData(
+                "application/json",
+                "{\"greeting\": \"hello\"}".getBytes(StandardCharsets.UTF_8))
+            .build();
+    Payload payload = converter.toData(jsonEvent).get();
+
+    CloudEvent decoded = converter.fromData(payload, CloudEvent.class, CloudEvent.class);
+    assertEquals("1", decoded.getId());
+    assertEquals(
+        "hello", ((JsonCloudEventData) decoded.getData()).getNode().get("greeting").asText());
+
+    JsonNode data = converter.fromData(payload, JsonNode.class, JsonNode.class);
+    assertEquals("hello", data.get("greeting").asText());
+
+    byte[] binary = {0, 1, 2, 3};
+    CloudEvent binaryEvent =
+        CloudEventBuilder.v1()
+            .withId("2")
+            .withType("example.demo")
+            .withSource(URI.create("http://temporal.io"))
+            .withData("application/octet-stream", binary)
+            .build();
+    JsonNode binaryData =
+        converter.fromData(converter.toData(binaryEvent).get(), JsonNode.class, JsonNode.class);
+    assertArrayEquals(binary, binaryData.binaryValue());
+  }
 }
@@ -0,0 +1,101 @@
+package io.temporal.samples.workflowstreams;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.uber.m3.tally.NoopScope;
+import io.temporal.workflowstreams.TopicHandle;
+import io.temporal.workflowstreams.WorkflowStreamClient;
+import java.time.Duration;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AdaptiveStreamPublisherTest {
+
+  private WorkflowStreamClient client;
+  private TopicHandle topic;
+
+  @Before
+  public void setUp() {
+    client = mock(WorkflowStreamClient.class);
+    topic = mock(TopicHandle.class);
+    when(client.topic("delta")).thenReturn(topic);
+  }
+
+  private AdaptiveStreamPublisher newPublisher(int maxItems, Duration delay) {
+    AdaptiveBatchingOptions options =
+        AdaptiveBatchingOptions.newBuilder()
+            .setMaxItems(maxItems)
+            .setMinDelay(delay)
+            .setMaxDelay(delay)
+            .build();
+    return new AdaptiveStreamPublisher(client, options, new NoopScope());
+  }
+
+  @Test
+  public void testNextDelay() {
+    AdaptiveBatchingOptions options =
+        AdaptiveBatchingOptions.newBuilder()
+            .setMinDelay(Duration.ofMillis(10))
+            .setMaxDelay(Duration.ofMillis(500))
+            .build();
+    long latency = Duration.ofMillis(50).toNanos();
+    // Less than one item per signal: waiting only adds latency.
+    assertEquals(
+        Duration.ofMillis(10).toNanos(),
+        AdaptiveStreamPublisher.nextDelayNanos(5, latency, options));
+    // Enough items to batch them during a signal.
+    assertEquals(latency, AdaptiveStreamPublisher.nextDelayNanos(100, latency, options));
+    // Never longer than the maximum delay.
+    assertEquals(
+        Duration.ofMillis(500).toNanos(),
+        AdaptiveStreamPublisher.nextDelayNanos(100, Duration.ofSeconds(2).toNanos(), options));
+  }
+
+  @Test
+  public void testFlushesOnMaxItems() {
+    try (AdaptiveStreamPublisher publisher = newPublisher(3, Duration.ofMinutes(1))) {
+      for (int i = 0; i < 3; i++) {
+        publisher.publish("delta", "token " + i);
+      }
+      verify(client, timeout(5000)).flush();
+      publisher.publish("delta", "token 3");
+      verify(client, after(200).times(1)).flush();
+      verify(topic, times(4)).publish(any());
+    }
+  }
+
+  @Test
+  public void testFlushesAfterDelay() {
+    try (AdaptiveStreamPublisher publisher = newPublisher(100, Duration.ofMillis(20))) {
+      publisher.publish("delta", "token");
+      verify(client, timeout(5000)).flush();
+    }
+  }
+
+  @Test
+  public void testForceFlush() {
+    try (AdaptiveStreamPublisher publisher = newPublisher(100, Duration.ofMinutes(1))) {
+      publisher.publish("delta", "token");
+      publisher.publish("delta", "last", /* forceFlush */ true);
+      verify(client, timeout(5000)).flush();
+    }
+  }
+
+  @Test
+  public void testRetriesFailedFlush() {
+    doThrow(new RuntimeException("unavailable")).doNothing().when(client).flush();
+    try (AdaptiveStreamPublisher publisher = newPublisher(100, Duration.ofMinutes(1))) {
+      publisher.publish("delta", "last", /* forceFlush */ true);
+      // Retried after the initial backoff, without waiting for another publish.
+      verify(client, timeout(5000).times(2)).flush();
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package io.temporal.samples.workflowstreams;
+
+import static org.junit.Assert.assertEquals;
+
+import io.temporal.samples.workflowstreams.StreamRetention.RetainedItem;
+import io.temporal.samples.workflowstreams.StreamRetention.State;
+import java.time.Duration;
+import org.junit.Test;
+
+public class RetentionPolicyTest {
+
+  /** Ten items of 100 bytes at offsets 0 to 9, published one second apart. */
+  private static State newState() {
+    State state = new State();
+    for (int i = 0; i < 10; i++) {
+      state.items.add(new RetainedItem(i, 100, i * 1000L));
+    }
+    state.nextOffset = 10;
+    return state;
+  }
+
+  @Test
+  public void testNoLimit() {
+    RetentionPolicy policy = RetentionPolicy.newBuilder().build();
+    assertEquals(0, policy.truncationOffset(newState(), 10_000));
+  }
+
+  @Test
+  public void testKeepLast() {
+    RetentionPolicy policy = RetentionPolicy.newBuilder().setKeepLast(4).build();
+    assertEquals(6, policy.truncationOffset(newState(), 10_000));
+  }
+
+  @Test
+  public void testMaxBytes() {
+    RetentionPolicy policy = RetentionPolicy.newBuilder().setMaxBytes(250).build();
+    assertEquals(8, policy.truncationOffset(newState(), 10_000));
+  }
+
+  @Test
+  public void testMaxAge() {
+    RetentionPolicy policy = RetentionPolicy.newBuilder().setMaxAge(Duration.ofSeconds(3)).build();
+    // Items published before 6000 are older than three seconds.
+    assertEquals(6, policy.truncationOffset(newState(), 9_000));
+    // Every item expired: the whole log goes.
+    assertEquals(10, policy.truncationOffset(newState(), 60_000));
+  }
+
+  @Test
+  public void testStrictestLimitWins() {
+    RetentionPolicy policy = RetentionPolicy.newBuilder().setKeepLast(8).setMaxBytes(500).build();
+    assertEquals(5, policy.truncationOffset(newState(), 10_000));
+  }
+
+  @Test
+  public void testUntilAcked() {
+    RetentionPolicy policy = RetentionPolicy.newBuilder().setUntilAcked(true).build();
+    State state = newState();
+    // No registered subscriber: nothing is acknowledged.
+    assertEquals(0, policy.truncationOffset(state, 10_000));
+    state.acks.put("fast", 7L);
+    state.acks.put("slow", 3L);
+    assertEquals(3, policy.truncationOffset(state, 10_000));
+    state.acks.remove("slow");
+    assertEquals(7, policy.truncationOffset(state, 10_000));
+  }
+
+  @Test
+  public void testUntilAckedEverything() {
+    RetentionPolicy policy = RetentionPolicy.newBuilder().setUntilAcked(true).build();
+    State state = newState();
+    state.acks.put("subscriber", 10L);
+    assertEquals(10, policy.truncationOffset(state, 10_000));
+  }
+
+  @Test
+  public void testMinTruncation() {
+    RetentionPolicy policy =
+        RetentionPolicy.newBuilder().setKeepLast(7).setMinTruncation(5).build();
+    State state = newState();
+    assertEquals(0, policy.truncationOffset(state, 10_000));
+    state.items.add(new RetainedItem(10, 100, 10_000));
+    state.items.add(new RetainedItem(11, 100, 11_000));
+    state.nextOffset = 12;
+    assertEquals(5, policy.truncationOffset(state, 12_000));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeLimit() {
+    RetentionPolicy.newBuilder().setKeepLast(-1).build();
+  }
+}
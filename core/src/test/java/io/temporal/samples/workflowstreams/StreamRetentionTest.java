@@ -0,0 +1,102 @@
+package io.temporal.samples.workflowstreams;
+
+import static org.junit.Assert.assertEquals;
+
+import io.temporal.client.WorkflowOptions;
+import io.temporal.samples.workflowstreams.Shared.TickEvent;
+import io.temporal.testing.TestWorkflowRule;
+import io.temporal.workflow.Workflow;
+import io.temporal.workflow.WorkflowInit;
+import io.temporal.workflow.WorkflowInterface;
+import io.temporal.workflow.WorkflowMethod;
+import io.temporal.workflowstreams.WorkflowStream;
+import io.temporal.workflowstreams.WorkflowStreamState;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class StreamRetentionTest {
+
+  public static class RetainingInput {
+    public int itemsPerRun;
+    public int runs;
+    public WorkflowStreamState streamState;
+    public StreamRetention.State retentionState;
+
+    public RetainingInput() {}
+
+    public RetainingInput(int itemsPerRun, int runs) {
+      this.itemsPerRun = itemsPerRun;
+      this.runs = runs;
+    }
+  }
+
+  @WorkflowInterface
+  public interface RetainingWorkflow {
+    /** Publishes items over several runs, and returns the retention state of the last one. */
+    @WorkflowMethod
+    StreamRetention.State publish(RetainingInput input);
+  }
+
+  public static class RetainingWorkflowImpl implements RetainingWorkflow {
+
+    private final WorkflowStream stream;
+    private final StreamRetention retention;
+
+    @WorkflowInit
+    public RetainingWorkflowImpl(RetainingInput input) {
+      stream = WorkflowStream.newInstance(input.streamState);
+      retention =
+          new StreamRetention(
+              stream, RetentionPolicy.newBuilder().setKeepLast(3).build(), input.retentionState);
+    }
+
+    @Override
+    public StreamRetention.State publish(RetainingInput input) {
+      long first = retention.getNextOffset();
+      for (int i = 0; i < input.itemsPerRun; i++) {
+        retention.publish(Shared.TOPIC_TICK, new TickEvent((int) first + i));
+      }
+      if (--input.runs > 0) {
+        input.streamState = stream.getState();
+        input.retentionState = retention.getState();
+        Workflow.continueAsNew(input);
+      }
+      return retention.getState();
+    }
+  }
+
+  @Rule
+  public TestWorkflowRule testWorkflowRule =
+      TestWorkflowRule.newBuilder().setWorkflowTypes(RetainingWorkflowImpl.class).build();
+
+  @Test
+  public void testOffsetsSurviveContinueAsNew() {
+    RetainingWorkflow workflow =
+        testWorkflowRule
+            .getTestEnvironment()
+            .getWorkflowClient()
+            .newWorkflowStub(
+                RetainingWorkflow.class,
+                WorkflowOptions.newBuilder().setTaskQueue(testWorkflowRule.getTaskQueue()).build());
+    StreamRetention.State state = workflow.publish(new RetainingInput(5, 3));
+    // Offsets continue across the runs, so the last three of the 15 items are retained.
+    assertEquals(15, state.nextOffset);
+    assertEquals(12, state.baseOffset);
+    assertEquals(3, state.items.size());
+    assertEquals(12, state.items.get(0).offset);
+  }
+
+  @Test
+  public void testFreshRunStartsFromZero() {
+    RetainingWorkflow workflow =
+        testWorkflowRule
+            .getTestEnvironment()
+            .getWorkflowClient()
+            .newWorkflowStub(
+                RetainingWorkflow.class,
+                WorkflowOptions.newBuilder().setTaskQueue(testWorkflowRule.getTaskQueue()).build());
+    StreamRetention.State state = workflow.publish(new RetainingInput(2, 1));
+    assertEquals(2, state.nextOffset);
+    assertEquals(0, state.baseOffset);
+  }
+}
@@ -1,20 +1,30 @@
 package io.temporal.samples.workflowstreams;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
+import io.temporal.api.common.v1.WorkflowExecution;
+import io.temporal.api.enums.v1.EventType;
+import io.temporal.api.history.v1.HistoryEvent;
 import io.temporal.client.WorkflowClient;
 import io.temporal.client.WorkflowOptions;
 import io.temporal.client.WorkflowStub;
 import io.temporal.samples.workflowstreams.Shared.HubInput;
+import io.temporal.samples.workflowstreams.Shared.NewsEvent;
 import io.temporal.samples.workflowstreams.Shared.OrderInput;
 import io.temporal.samples.workflowstreams.Shared.PipelineInput;
+import io.temporal.samples.workflowstreams.Shared.TickerInput;
 import io.temporal.testing.TestWorkflowRule;
+import io.temporal.workflowstreams.WorkflowStreamClient;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
 
 /**
- * Workflow-side tests. The client subscribe path needs a live Temporal service, so it is exercised
- * by running the scenarios against a dev server (see README).
+ * Workflow-side tests. The client publish path is exercised against the test server, but the
+ * subscribe path needs a live Temporal service, so it is exercised by running the scenarios against
+ * a dev server (see README).
  */
 public class WorkflowStreamsSampleTest {
 
@@ -22,7 +32,10 @@ public class WorkflowStreamsSampleTest {
   public TestWorkflowRule testWorkflowRule =
       TestWorkflowRule.newBuilder()
           .setWorkflowTypes(
-              OrderWorkflowImpl.class, PipelineWorkflowImpl.class, HubWorkflowImpl.class)
+              OrderWorkflowImpl.class,
+              PipelineWorkflowImpl.class,
+              HubWorkflowImpl.class,
+              TickerWorkflowImpl.class)
           .setActivityImplementations(new PaymentActivitiesImpl())
           .build();
 
@@ -57,4 +70,91 @@ public class WorkflowStreamsSampleTest {
     String result = WorkflowStub.fromTyped(workflow).getResult(String.class);
     assertEquals("hub newsroom closed", result);
   }
+
+  @Test
+  public void testHubWorkflowAcks() {
+    HubWorkflow workflow = newWorkflowStub(HubWorkflow.class);
+    WorkflowExecution execution = WorkflowClient.start(workflow::host, new HubInput("newsroom"));
+    workflow.register("fast", 0);
+    workflow.register("slow", 0);
+    workflow.published(publishNews(execution.getWorkflowId(), 5));
+
+    // Acks from unregistered subscribers are ignored, and acks beyond the head are clamped.
+    workflow.ack("unknown", 5);
+    workflow.ack("fast", 100);
+    StreamRetention.State state = workflow.getRetentionState();
+    assertEquals(0, state.baseOffset);
+    assertEquals(5, state.nextOffset);
+    assertEquals(Long.valueOf(5), state.acks.get("fast"));
+    assertFalse(state.acks.containsKey("unknown"));
+
+    workflow.ack("slow", 3);
+    state = workflow.getRetentionState();
+    assertEquals(3, state.baseOffset);
+    assertEquals(2, state.items.size());
+    assertEquals(3, state.items.get(0).offset);
+
+    workflow.close();
+    String result = WorkflowStub.fromTyped(workflow).getResult(String.class);
+    assertEquals("hub newsroom closed", result);
+  }
+
+  @Test
+  public void testHubWorkflowContinuesAsNew() {
+    WorkflowClient client = testWorkflowRule.getTestEnvironment().getWorkflowClient();
+    HubWorkflow workflow = newWorkflowStub(HubWorkflow.class);
+    HubInput input = new HubInput("newsroom");
+    input.continueAsNewAfterBytes = 1;
+    WorkflowExecution execution = WorkflowClient.start(workflow::host, input);
+    String workflowId = execution.getWorkflowId();
+    // The stub of the started run doesn't follow continue-as-new.
+    HubWorkflow hub = client.newWorkflowStub(HubWorkflow.class, workflowId);
+    hub.register("subscriber", 0);
+    hub.published(publishNews(workflowId, 3));
+    hub.ack("subscriber", 2);
+
+    // The offsets, the retained item and the subscriber survive continue-as-new.
+    StreamRetention.State state = hub.getRetentionState();
+    assertEquals(2, state.baseOffset);
+    assertEquals(3, state.nextOffset);
+    assertEquals(1, state.items.size());
+    assertEquals(Long.valueOf(2), state.acks.get("subscriber"));
+    hub.published(publishNews(workflowId, 1));
+    assertEquals(4, hub.getRetentionState().nextOffset);
+
+    hub.close();
+    assertEquals("hub newsroom closed", WorkflowStub.fromTyped(hub).getResult(String.class));
+    List<HistoryEvent> events = client.fetchHistory(workflowId, execution.getRunId()).getEvents();
+    assertEquals(
+        EventType.EVENT_TYPE_WORKFLOW_EXECUTION_CONTINUED_AS_NEW,
+        events.get(events.size() - 1).getEventType());
+  }
+
+  /** Publishes headlines to a hub as an external client, and returns their payload sizes. */
+  private List<Integer> publishNews(String workflowId, int count) {
+    List<Integer> itemBytes = new ArrayList<>();
+    try (WorkflowStreamClient stream =
+        WorkflowStreamClient.newInstance(
+            testWorkflowRule.getTestEnvironment().getWorkflowClient(), workflowId)) {
+      for (int i = 0; i < count; i++) {
+        NewsEvent evt = new NewsEvent("headline " + i);
+        stream.topic(Shared.TOPIC_NEWS).publish(evt);
+        itemBytes.add(Shared.payloadSize(evt));
+      }
+      stream.flush();
+    }
+    return itemBytes;
+  }
+
+  @Test
+  public void testTickerWorkflow() {
+    TickerWorkflow workflow = newWorkflowStub(TickerWorkflow.class);
+    String result = workflow.tick(new TickerInput(12, 3, 2));
+    assertEquals("ticker emitted 12 events", result);
+    // The last three ticks are kept, and the log is truncated two ticks at a time.
+    StreamRetention.State state = workflow.getRetentionState();
+    assertEquals(8, state.baseOffset);
+    assertEquals(12, state.nextOffset);
+    assertEquals(4, state.items.size());
+  }
 }
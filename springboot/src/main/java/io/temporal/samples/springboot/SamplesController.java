@@ -9,9 +9,11 @@ import io.temporal.samples.springboot.customize.CustomizeWorkflow;
 import io.temporal.samples.springboot.hello.HelloWorkflow;
 import io.temporal.samples.springboot.hello.model.Person;
 import io.temporal.samples.springboot.kafka.MessageWorkflow;
+import io.temporal.samples.springboot.streams.StreamsWorkflow;
 import io.temporal.samples.springboot.update.PurchaseWorkflow;
 import io.temporal.samples.springboot.update.model.ProductRepository;
 import io.temporal.samples.springboot.update.model.Purchase;
+import java.util.UUID;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -135,6 +137,28 @@ public class SamplesController {
     return new ResponseEntity<>("\" Message workflow completed\"", HttpStatus.OK);
   }
 
+  @GetMapping("/streams")
+  public String streams(Model model) {
+    model.addAttribute("sample", "Workflow Streams Gateway");
+    return "streams";
+  }
+
+  @PostMapping(value = "/streams", produces = {MediaType.TEXT_HTML_VALUE})
+  ResponseEntity startStreams() {
+    String workflowId = "StreamsSample-" + UUID.randomUUID();
+    StreamsWorkflow workflow =
+        client.newWorkflowStub(
+            StreamsWorkflow.class,
+            WorkflowOptions.newBuilder()
+                .setTaskQueue("StreamsSampleTaskQueue")
+                .setWorkflowId(workflowId)
+                .build());
+    WorkflowClient.start(workflow::publish, 20);
+
+    // bypass thymeleaf, the page subscribes to the stream of the returned workflow
+    return new ResponseEntity<>("\"" + workflowId + "\"", HttpStatus.OK);
+  }
+
   @GetMapping("/customize")
   public String customize(Model model) {
     model.addAttribute("sample", "Customizing Options");
@@ -48,6 +48,10 @@ public class KafkaConfig {
   @KafkaListener(id = "samples-topic", topics = "samples-topic")
   public void kafkaListener(String message) {
     SseEmitter latestEm = messageController.getLatestEmitter();
+    if (latestEm == null) {
+      // no page is listening
+      return;
+    }
 
     try {
       latestEm.send(message);
@@ -1,14 +1,16 @@
 package io.temporal.samples.springboot.kafka;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 public class MessageController {
-  private final List<SseEmitter> emitters = new ArrayList<>();
+  // Emitters are added and removed by request and container threads while the Kafka listener
+  // thread reads them.
+  private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
 
   @GetMapping("/kafka-messages")
   public SseEmitter getKafkaMessages() {
@@ -20,6 +22,8 @@ public class MessageController {
 
     emitter.onTimeout(() -> emitters.remove(emitter));
 
+    emitter.onError(e -> emitters.remove(emitter));
+
     return emitter;
   }
 
@@ -28,6 +32,11 @@ public class MessageController {
   }
 
   public SseEmitter getLatestEmitter() {
-    return emitters.isEmpty() ? null : emitters.get(emitters.size() - 1);
+    // Iterates a snapshot, as an emitter can be removed between a size check and a get.
+    SseEmitter latest = null;
+    for (SseEmitter emitter : emitters) {
+      latest = emitter;
+    }
+    return latest;
   }
 }
@@ -0,0 +1,29 @@
+package io.temporal.samples.springboot.streams;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+public class StreamController {
+
+  @Autowired StreamGateway gateway;
+
+  /**
+   * Streams a topic of a workflow stream as server-sent events. Event ids are stream offsets, so a
+   * reconnecting EventSource resumes after the last event it received with its Last-Event-ID.
+   */
+  @GetMapping(value = "/streams/{workflowId}/{topic}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter stream(
+      @PathVariable String workflowId,
+      @PathVariable String topic,
+      @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+      @RequestParam(defaultValue = "0") long offset) {
+    return gateway.connect(workflowId, topic, lastEventId != null ? lastEventId + 1 : offset);
+  }
+}
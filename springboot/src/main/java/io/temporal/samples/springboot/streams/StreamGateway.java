@@ -0,0 +1,274 @@
+package io.temporal.samples.springboot.streams;
+
+import io.temporal.samples.workflowstreams.WorkflowStreamMultiplexer;
+import io.temporal.samples.workflowstreams.WorkflowStreamMultiplexer.LocalSubscription;
+import io.temporal.samples.workflowstreams.WorkflowStreamMultiplexer.OverflowPolicy;
+import io.temporal.samples.workflowstreams.WorkflowStreamMultiplexer.UpstreamConnector;
+import io.temporal.workflowstreams.WorkflowStreamItem;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Bridges workflow stream topics to server-sent events clients. The clients are local
+ * subscriptions of a {@link WorkflowStreamMultiplexer}, so all the clients of a workflow topic
+ * share a single upstream subscription and the workflow is polled once however many browsers watch
+ * it.
+ *
+ * <p>Every client has a bounded buffer. The upstream never waits for the clients: a client whose
+ * buffer is full is disconnected. Its EventSource reconnects with the id of the last event it
+ * received as Last-Event-ID, which is a stream offset, and resumes right after it without missing
+ * events. A client that joins later gets the recent events the multiplexer kept, or is
+ * fast-forwarded to the oldest one.
+ *
+ * <p>The events of a client are sent by a sender thread while it has events to send. The number of
+ * sender threads is fixed, and the clients with events to send wait for a free one in a bounded
+ * queue. A client that finds the queue full is disconnected. A send blocks until the client reads,
+ * so a slow client holds a sender thread but never the others. A send that takes longer than the
+ * send timeout disconnects the client.
+ */
+@Component
+public class StreamGateway implements DisposableBean {
+
+  /** Name of the last event, after which the browser should not reconnect. */
+  public static final String END_EVENT = "end";
+
+  private final WorkflowStreamMultiplexer multiplexer;
+  private final long timeoutMillis;
+  private final long sendTimeoutNanos;
+  private final ThreadPoolExecutor sender;
+  private final ScheduledExecutorService watchdog;
+
+  private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+  private final AtomicLong slowClientDisconnects = new AtomicLong();
+
+  public StreamGateway(
+      UpstreamConnector connector,
+      @Value("${samples.streams.queue-size:256}") int queueSize,
+      @Value("${samples.streams.replay-size:256}") int replaySize,
+      @Value("${samples.streams.timeout:PT5M}") Duration timeout,
+      @Value("${samples.streams.send-timeout:PT10S}") Duration sendTimeout,
+      @Value("${samples.streams.sender-threads:16}") int senderThreads,
+      @Value("${samples.streams.sender-queue-size:4096}") int senderQueueSize) {
+    this.multiplexer =
+        new WorkflowStreamMultiplexer(connector, queueSize, replaySize, OverflowPolicy.DISCONNECT);
+    this.timeoutMillis = timeout.toMillis();
+    this.sendTimeoutNanos = sendTimeout.toNanos();
+    // At most senderThreads threads, which stop when idle, whatever the number of clients.
+    this.sender =
+        new ThreadPoolExecutor(
+            senderThreads,
+            senderThreads,
+            60,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(senderQueueSize));
+    sender.allowCoreThreadTimeOut(true);
+    this.watchdog = Executors.newSingleThreadScheduledExecutor();
+    ScheduledFuture<?> unused =
+        watchdog.scheduleWithFixedDelay(this::disconnectStalledClients, 1, 1, TimeUnit.SECONDS);
+  }
+
+  /** Connects a client to a topic of a workflow stream, from an offset. */
+  public SseEmitter connect(String workflowId, String topic, long fromOffset) {
+    // The browser reconnects on timeout, with its Last-Event-ID.
+    SseEmitter emitter = new SseEmitter(timeoutMillis);
+    Client client = new Client(emitter);
+    clients.add(client);
+    emitter.onCompletion(client::close);
+    emitter.onTimeout(client::close);
+    emitter.onError(e -> client.close());
+    client.start(multiplexer.subscribe(workflowId, topic, fromOffset, client::schedule));
+    return emitter;
+  }
+
+  /** Number of upstream subscriptions, one per workflow topic with connected clients. */
+  public int getUpstreamCount() {
+    return multiplexer.getUpstreamCount();
+  }
+
+  /** Number of connected clients. */
+  public int getClientCount() {
+    return clients.size();
+  }
+
+  /**
+   * Number of clients disconnected because their buffer was full, no sender was free or a send
+   * timed out.
+   */
+  public long getSlowClientDisconnects() {
+    return slowClientDisconnects.get();
+  }
+
+  @Override
+  public void destroy() {
+    watchdog.shutdownNow();
+    multiplexer.close();
+    sender.shutdownNow();
+  }
+
+  private void disconnectStalledClients() {
+    long now = System.nanoTime();
+    for (Client client : clients) {
+      long started = client.sendStartedNanos;
+      if (started != 0 && now - started > sendTimeoutNanos) {
+        client.disconnect();
+      }
+    }
+  }
+
+  /** A connected client, and the local subscription it is sent the events of. */
+  private final class Client {
+    private final SseEmitter emitter;
+
+    /** When the send in progress started, or zero. */
+    private volatile long sendStartedNanos;
+
+    private LocalSubscription subscription;
+    private boolean draining;
+    private boolean pending;
+    private boolean closed;
+
+    Client(SseEmitter emitter) {
+      this.emitter = emitter;
+    }
+
+    void start(LocalSubscription subscription) {
+      boolean close;
+      synchronized (this) {
+        this.subscription = subscription;
+        close = closed;
+      }
+      if (close) {
+        subscription.close();
+      } else {
+        schedule();
+      }
+    }
+
+    /** Called when events are available. Runs on the upstream thread, so it doesn't block. */
+    void schedule() {
+      synchronized (this) {
+        pending = true;
+        if (subscription == null || draining || closed) {
+          return;
+        }
+        draining = true;
+      }
+      try {
+        sender.execute(this::drain);
+      } catch (RejectedExecutionException e) {
+        // No sender free. The browser reconnects and resumes from its last event.
+        synchronized (this) {
+          draining = false;
+        }
+        if (close()) {
+          slowClientDisconnects.incrementAndGet();
+          // Not sending, so completing doesn't wait.
+          emitter.complete();
+        }
+      }
+    }
+
+    /** Sends the buffered events until none is left. */
+    private void drain() {
+      while (true) {
+        LocalSubscription current;
+        synchronized (this) {
+          if (!pending || closed) {
+            draining = false;
+            return;
+          }
+          pending = false;
+          current = subscription;
+        }
+        try {
+          send(current);
+        } catch (IOException | IllegalStateException e) {
+          // Disconnected, or already completed by the container.
+          close();
+          return;
+        }
+      }
+    }
+
+    private void send(LocalSubscription subscription) throws IOException {
+      WorkflowStreamItem item;
+      while ((item = subscription.tryPoll()) != null) {
+        // Payloads are JSON encoded by the default data converter.
+        send(
+            SseEmitter.event()
+                .id(Long.toString(item.getOffset()))
+                .name(item.getTopic())
+                .data(item.getPayload().getData().toStringUtf8()));
+      }
+      if (!subscription.isEnded()) {
+        return;
+      }
+      if (subscription.isDisconnected()) {
+        // The buffered events were sent: the browser resumes after the last one.
+        slowClientDisconnects.incrementAndGet();
+      } else {
+        Throwable error = subscription.getError();
+        send(
+            SseEmitter.event()
+                .name(END_EVENT)
+                .data(error == null ? "" : String.valueOf(error.getMessage())));
+      }
+      close();
+      emitter.complete();
+    }
+
+    private void send(SseEmitter.SseEventBuilder event) throws IOException {
+      sendStartedNanos = System.nanoTime();
+      try {
+        emitter.send(event);
+      } finally {
+        sendStartedNanos = 0;
+      }
+    }
+
+    /** Disconnects a client that doesn't read. Its browser reconnects if it is still there. */
+    void disconnect() {
+      if (close()) {
+        slowClientDisconnects.incrementAndGet();
+        try {
+          // Completing waits for the blocked send, so it doesn't run on the watchdog thread.
+          sender.execute(emitter::complete);
+        } catch (RejectedExecutionException e) {
+          // The blocked send fails when the request times out.
+        }
+      }
+    }
+
+    /** Closes the subscription. Returns false if it was already closed. */
+    boolean close() {
+      LocalSubscription current;
+      synchronized (this) {
+        if (closed) {
+          return false;
+        }
+        closed = true;
+        current = subscription;
+      }
+      clients.remove(this);
+      // Null until the client starts. Then start closes the subscription.
+      if (current != null) {
+        current.close();
+      }
+      return true;
+    }
+  }
+}
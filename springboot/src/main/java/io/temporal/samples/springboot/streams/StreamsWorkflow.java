@@ -0,0 +1,13 @@
+package io.temporal.samples.springboot.streams;
+
+import io.temporal.workflow.WorkflowInterface;
+import io.temporal.workflow.WorkflowMethod;
+
+@WorkflowInterface
+public interface StreamsWorkflow {
+  String TOPIC = "events";
+
+  /** Publishes count events to the {@value #TOPIC} topic of its stream. */
+  @WorkflowMethod
+  String publish(int count);
+}
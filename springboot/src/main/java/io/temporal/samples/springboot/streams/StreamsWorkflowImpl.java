@@ -0,0 +1,30 @@
+package io.temporal.samples.springboot.streams;
+
+import io.temporal.spring.boot.WorkflowImpl;
+import io.temporal.workflow.Workflow;
+import io.temporal.workflow.WorkflowInit;
+import io.temporal.workflowstreams.WorkflowStream;
+import io.temporal.workflowstreams.WorkflowTopicHandle;
+import java.time.Duration;
+
+@WorkflowImpl(taskQueues = "StreamsSampleTaskQueue")
+public class StreamsWorkflowImpl implements StreamsWorkflow {
+
+  private final WorkflowTopicHandle events;
+
+  @WorkflowInit
+  public StreamsWorkflowImpl(int count) {
+    events = WorkflowStream.newInstance(null).topic(TOPIC);
+  }
+
+  @Override
+  public String publish(int count) {
+    for (int n = 0; n < count; n++) {
+      events.publish("event " + n);
+      Workflow.sleep(Duration.ofMillis(500));
+    }
+    // hold the run open briefly so the subscribers' final poll delivers the last events
+    Workflow.sleep(Duration.ofSeconds(2));
+    return "published " + count + " events";
+  }
+}
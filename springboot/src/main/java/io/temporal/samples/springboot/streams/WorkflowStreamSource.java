@@ -0,0 +1,28 @@
+package io.temporal.samples.springboot.streams;
+
+import io.temporal.client.WorkflowClient;
+import io.temporal.samples.workflowstreams.WorkflowStreamMultiplexer;
+import io.temporal.samples.workflowstreams.WorkflowStreamMultiplexer.UpstreamConnector;
+import io.temporal.workflowstreams.WorkflowStreamClient;
+import io.temporal.workflowstreams.WorkflowStreamListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Subscribes with a {@link WorkflowStreamClient} listener. Replaced by a fake in the gateway load
+ * test.
+ */
+@Component
+public class WorkflowStreamSource implements UpstreamConnector {
+
+  private final UpstreamConnector connector;
+
+  public WorkflowStreamSource(WorkflowClient client) {
+    this.connector = WorkflowStreamMultiplexer.newConnector(client);
+  }
+
+  @Override
+  public Runnable connect(
+      String workflowId, String topic, long fromOffset, WorkflowStreamListener listener) {
+    return connector.connect(workflowId, topic, fromOffset, listener);
+  }
+}
@@ -0,0 +1,248 @@
+package io.temporal.samples.springboot;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.protobuf.ByteString;
+import io.temporal.api.common.v1.Payload;
+import io.temporal.samples.springboot.streams.StreamGateway;
+import io.temporal.samples.workflowstreams.WorkflowStreamMultiplexer.UpstreamConnector;
+import io.temporal.workflowstreams.WorkflowStreamItem;
+import io.temporal.workflowstreams.WorkflowStreamListener;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.Assert;
+
+/**
+ * Connects thousands of concurrent SSE clients to the gateway. The test server does not serve
+ * workflow stream polls, so the upstream subscriptions are replaced by a fake connector that the
+ * test publishes to, and everything from the connector to the HTTP clients is real.
+ */
+@SpringBootTest(
+    classes = StreamsGatewayLoadTest.Configuration.class,
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+      "samples.streams.send-timeout=PT1S",
+      "samples.streams.sender-threads=2",
+      "samples.streams.sender-queue-size=4096"
+    })
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+// set this to omit setting up embedded kafka
+@EnableAutoConfiguration(exclude = {KafkaAutoConfiguration.class})
+@DirtiesContext
+public class StreamsGatewayLoadTest {
+
+  private static final int CLIENTS = Integer.getInteger("streams.loadtest.clients", 2000);
+
+  private static final int EVENTS = 50;
+
+  private static final Duration TIMEOUT = Duration.ofMinutes(2);
+
+  /** Upstream subscriptions opened by the gateway, by workflow id. */
+  static final Map<String, List<Subscription>> SUBSCRIPTIONS = new ConcurrentHashMap<>();
+
+  static class Subscription {
+    final long fromOffset;
+    final WorkflowStreamListener listener;
+    volatile boolean closed;
+
+    Subscription(long fromOffset, WorkflowStreamListener listener) {
+      this.fromOffset = fromOffset;
+      this.listener = listener;
+    }
+  }
+
+  @LocalServerPort int port;
+
+  @Autowired StreamGateway gateway;
+
+  private final HttpClient httpClient =
+      HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+  @Test
+  public void testThousandsOfClientsShareOneUpstream() throws Exception {
+    long slowClientDisconnects = gateway.getSlowClientDisconnects();
+    List<EventCollector> collectors = new ArrayList<>();
+    List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>();
+    for (int i = 0; i < CLIENTS; i++) {
+      EventCollector collector = new EventCollector();
+      collectors.add(collector);
+      responses.add(connect("load", null, collector));
+    }
+    awaitTrue(() -> gateway.getClientCount() == CLIENTS, "all the clients should be connected");
+    Assert.isTrue(SUBSCRIPTIONS.get("load").size() == 1, "Clients should share one upstream");
+
+    Subscription upstream = SUBSCRIPTIONS.get("load").get(0);
+    for (int offset = 0; offset < EVENTS; offset++) {
+      upstream.listener.onNext(item(offset, "\"event " + offset + "\""));
+    }
+    upstream.listener.onCompleted();
+
+    CompletableFuture.allOf(responses.toArray(new CompletableFuture[0]))
+        .get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+    for (EventCollector collector : collectors) {
+      Assert.isTrue(collector.ids.size() == EVENTS, "Every client should get every event");
+      for (int offset = 0; offset < EVENTS; offset++) {
+        Assert.isTrue(collector.ids.get(offset) == offset, "Events should be in offset order");
+      }
+      Assert.isTrue(collector.ended, "Every client should get the end event");
+    }
+    Assert.isTrue(
+        gateway.getSlowClientDisconnects() == slowClientDisconnects,
+        "No client should be disconnected");
+    awaitTrue(() -> upstream.closed, "the upstream should be closed with its last client");
+  }
+
+  @Test
+  public void testResumeFromLastEventId() throws Exception {
+    EventCollector collector = new EventCollector();
+    CompletableFuture<HttpResponse<Void>> response = connect("resume", "4", collector);
+    awaitTrue(() -> SUBSCRIPTIONS.containsKey("resume"), "the upstream should be opened");
+
+    Subscription upstream = SUBSCRIPTIONS.get("resume").get(0);
+    Assert.isTrue(upstream.fromOffset == 5, "Should resume after the last event id");
+    for (int offset = 5; offset < 8; offset++) {
+      upstream.listener.onNext(item(offset, "\"event " + offset + "\""));
+    }
+    upstream.listener.onCompleted();
+
+    response.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+    Assert.isTrue(collector.ids.equals(List.of(5L, 6L, 7L)), "Should get the following events");
+  }
+
+  @Test
+  public void testStalledClientDoesNotHoldBackOthers() throws Exception {
+    long slowClientDisconnects = gateway.getSlowClientDisconnects();
+    EventCollector stalled = new EventCollector(0);
+    connect("stalled", null, stalled);
+    EventCollector collector = new EventCollector();
+    CompletableFuture<HttpResponse<Void>> response = connect("stalled", null, collector);
+    awaitTrue(() -> gateway.getClientCount() >= 2, "both clients should be connected");
+
+    // Large enough to fill the socket buffers of the client that doesn't read.
+    String data = "\"" + "x".repeat(64 * 1024) + "\"";
+    Subscription upstream = SUBSCRIPTIONS.get("stalled").get(0);
+    for (int offset = 0; offset < 200; offset++) {
+      upstream.listener.onNext(item(offset, data));
+    }
+    upstream.listener.onCompleted();
+
+    response.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+    Assert.isTrue(collector.ids.size() == 200, "The reading client should get every event");
+    Assert.isTrue(collector.ended, "The reading client should get the end event");
+    awaitTrue(
+        () -> gateway.getSlowClientDisconnects() > slowClientDisconnects,
+        "the stalled client should be disconnected once its send timed out");
+  }
+
+  private static WorkflowStreamItem item(long offset, String data) {
+    WorkflowStreamItem item = mock(WorkflowStreamItem.class);
+    when(item.getOffset()).thenReturn(offset);
+    when(item.getTopic()).thenReturn("events");
+    when(item.getPayload())
+        .thenReturn(Payload.newBuilder().setData(ByteString.copyFromUtf8(data)).build());
+    return item;
+  }
+
+  private CompletableFuture<HttpResponse<Void>> connect(
+      String workflowId, String lastEventId, EventCollector collector) {
+    HttpRequest.Builder request =
+        HttpRequest.newBuilder(
+                URI.create("http://localhost:" + port + "/streams/" + workflowId + "/events"))
+            .header("Accept", "text/event-stream");
+    if (lastEventId != null) {
+      request.header("Last-Event-ID", lastEventId);
+    }
+    return httpClient.sendAsync(
+        request.build(), HttpResponse.BodyHandlers.fromLineSubscriber(collector));
+  }
+
+  private static void awaitTrue(BooleanSupplier condition, String description)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + TIMEOUT.toNanos();
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() > deadline) {
+        throw new AssertionError("Timed out waiting until " + description);
+      }
+      Thread.sleep(50);
+    }
+  }
+
+  /** Collects the ids of the events of an SSE response without holding a thread. */
+  static class EventCollector implements Flow.Subscriber<String> {
+    final List<Long> ids = new CopyOnWriteArrayList<>();
+    final long demand;
+    volatile boolean ended;
+
+    EventCollector() {
+      this(Long.MAX_VALUE);
+    }
+
+    /** Reads only the given number of lines, then stops reading. */
+    EventCollector(long demand) {
+      this.demand = demand;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      if (demand > 0) {
+        subscription.request(demand);
+      }
+    }
+
+    @Override
+    public void onNext(String line) {
+      if (line.startsWith("id:")) {
+        ids.add(Long.parseLong(line.substring("id:".length()).trim()));
+      } else if (line.equals("event:" + StreamGateway.END_EVENT)) {
+        ended = true;
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {}
+
+    @Override
+    public void onComplete() {}
+  }
+
+  @ComponentScan
+  public static class Configuration {
+    @Bean
+    @Primary
+    UpstreamConnector fakeConnector() {
+      return (workflowId, topic, fromOffset, listener) -> {
+        Subscription subscription = new Subscription(fromOffset, listener);
+        SUBSCRIPTIONS
+            .computeIfAbsent(workflowId, id -> new CopyOnWriteArrayList<>())
+            .add(subscription);
+        return () -> subscription.closed = true;
+      };
+    }
+  }
+}
@@ -0,0 +1,605 @@
+package io.temporal.samples.workflowstreams;
+
+import io.temporal.client.WorkflowClient;
+import io.temporal.workflowstreams.WorkflowStreamClient;
+import io.temporal.workflowstreams.WorkflowStreamItem;
+import io.temporal.workflowstreams.WorkflowStreamListener;
+import io.temporal.workflowstreams.WorkflowStreamSubscriptionHandle;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-local fan-out of workflow streams. Every {@link WorkflowStreamClient} subscription polls
+ * the workflow, so hundreds of viewers of the same workflow multiply the load on the service. The
+ * multiplexer keeps a single upstream subscription per workflow and topic, and fans its items out
+ * to any number of local subscriptions.
+ *
+ * <p>Every local subscription has its own offset cursor and a bounded buffer. The upstream never
+ * waits for the local subscribers: when the buffer of a slow subscriber is full, its oldest item
+ * is dropped, or the subscriber is disconnected and can subscribe again from {@link
+ * LocalSubscription#getNextOffset()}, depending on the {@link OverflowPolicy}.
+ *
+ * <p>The upstream starts at the offset of the first local subscriber and keeps the last items it
+ * received. A later subscriber gets the kept items from its offset on. If its offset is older than
+ * the kept items, or than the upstream offset when no item is kept, it is fast-forwarded to the
+ * first item it can get, like a subscriber that resumes from a truncated offset. The upstream is
+ * closed when its last local subscription is closed.
+ */
+public class WorkflowStreamMultiplexer implements AutoCloseable {
+
+  /** What happens when the buffer of a local subscription is full. */
+  public enum OverflowPolicy {
+    /** Drops the oldest buffered item. The subscriber misses items but stays connected. */
+    DROP_OLDEST,
+    /** Disconnects the subscriber. It gets the buffered items and can subscribe again. */
+    DISCONNECT
+  }
+
+  public static final int DEFAULT_BUFFER_SIZE = 256;
+
+  /** Default number of recent items kept for the subscribers that join later. */
+  public static final int DEFAULT_REPLAY_SIZE = 256;
+
+  /**
+   * Opens the upstream subscriptions. Replaced in tests, where the test server doesn't serve
+   * workflow stream polls.
+   */
+  public interface UpstreamConnector {
+    /**
+     * Subscribes to a topic of a workflow stream from an offset.
+     *
+     * @return the action that closes the subscription.
+     */
+    Runnable connect(
+        String workflowId, String topic, long fromOffset, WorkflowStreamListener listener);
+  }
+
+  /** Connects the upstream subscriptions with {@link WorkflowStreamClient} listeners. */
+  public static UpstreamConnector newConnector(WorkflowClient client) {
+    return (workflowId, topic, fromOffset, listener) -> {
+      WorkflowStreamClient stream = WorkflowStreamClient.newInstance(client, workflowId);
+      WorkflowStreamSubscriptionHandle handle = stream.topic(topic).subscribe(fromOffset, listener);
+      return () -> {
+        handle.close();
+        stream.close();
+      };
+    };
+  }
+
+  private final UpstreamConnector connector;
+  private final int bufferSize;
+  private final int replaySize;
+  private final OverflowPolicy overflowPolicy;
+
+  private final AtomicInteger subscriptionIds = new AtomicInteger();
+
+  /** Disconnected subscriptions, which are no longer in the stats. */
+  private final AtomicLong disconnectedCount = new AtomicLong();
+
+  /** Upstream subscriptions by workflow id and topic. Guarded by this. */
+  private final Map<List<String>, Upstream> upstreams = new HashMap<>();
+
+  public WorkflowStreamMultiplexer(WorkflowClient client) {
+    this(client, DEFAULT_BUFFER_SIZE, OverflowPolicy.DROP_OLDEST);
+  }
+
+  /**
+   * @param client the client of the upstream subscriptions.
+   * @param bufferSize the maximum number of items buffered for a local subscription.
+   * @param overflowPolicy what happens when the buffer of a local subscription is full.
+   */
+  public WorkflowStreamMultiplexer(
+      WorkflowClient client, int bufferSize, OverflowPolicy overflowPolicy) {
+    this(newConnector(client), bufferSize, DEFAULT_REPLAY_SIZE, overflowPolicy);
+  }
+
+  /**
+   * @param connector opens the upstream subscriptions.
+   * @param bufferSize the maximum number of items buffered for a local subscription.
+   * @param replaySize the number of recent items kept for the subscribers that join later.
+   * @param overflowPolicy what happens when the buffer of a local subscription is full.
+   */
+  public WorkflowStreamMultiplexer(
+      UpstreamConnector connector, int bufferSize, int replaySize, OverflowPolicy overflowPolicy) {
+    this.connector = connector;
+    this.bufferSize = bufferSize;
+    this.replaySize = replaySize;
+    this.overflowPolicy = overflowPolicy;
+  }
+
+  /** Subscribes to a topic of a workflow stream from an offset. */
+  public LocalSubscription subscribe(String workflowId, String topic, long fromOffset) {
+    return subscribe(workflowId, topic, fromOffset, null);
+  }
+
+  /**
+   * Subscribes to a topic of a workflow stream from an offset.
+   *
+   * @param onAvailable called when items are added to the buffer or the subscription ends. Called
+   *     on the upstream thread, so it must not block. Null to only {@link LocalSubscription#poll}.
+   */
+  public LocalSubscription subscribe(
+      String workflowId, String topic, long fromOffset, Runnable onAvailable) {
+    Upstream upstream;
+    LocalSubscription subscription;
+    boolean created = false;
+    synchronized (this) {
+      List<String> key = List.of(workflowId, topic);
+      upstream = upstreams.get(key);
+      if (upstream == null) {
+        upstream = new Upstream(key, fromOffset);
+        upstreams.put(key, upstream);
+        created = true;
+      }
+      subscription = upstream.add(fromOffset, onAvailable);
+    }
+    if (created) {
+      upstream.connect();
+    }
+    return subscription;
+  }
+
+  /**
+   * Statistics of all the local subscriptions. Disconnected subscriptions are removed, see {@link
+   * #getDisconnectedCount()}.
+   */
+  public List<SubscriberStats> getStats() {
+    List<Upstream> snapshot;
+    synchronized (this) {
+      snapshot = new ArrayList<>(upstreams.values());
+    }
+    List<SubscriberStats> result = new ArrayList<>();
+    for (Upstream upstream : snapshot) {
+      for (LocalSubscription subscription : upstream.subscriptions()) {
+        result.add(subscription.getStats());
+      }
+    }
+    return result;
+  }
+
+  /** Number of local subscriptions disconnected because their buffer was full. */
+  public long getDisconnectedCount() {
+    return disconnectedCount.get();
+  }
+
+  /** Number of upstream subscriptions, one per workflow and topic with local subscribers. */
+  public synchronized int getUpstreamCount() {
+    return upstreams.size();
+  }
+
+  /** Closes all the local and upstream subscriptions. */
+  @Override
+  public void close() {
+    List<Upstream> snapshot;
+    synchronized (this) {
+      snapshot = new ArrayList<>(upstreams.values());
+    }
+    for (Upstream upstream : snapshot) {
+      for (LocalSubscription subscription : upstream.subscriptions()) {
+        subscription.close();
+      }
+    }
+  }
+
+  /** Closes the upstream once it has no local subscription left. */
+  private void release(Upstream upstream) {
+    synchronized (this) {
+      synchronized (upstream) {
+        if (!upstream.subscriptions.isEmpty() || upstream.released) {
+          return;
+        }
+        upstream.released = true;
+      }
+      upstreams.remove(upstream.key, upstream);
+    }
+    upstream.disconnect();
+  }
+
+  /** Single subscription to the workflow stream, shared by the local subscriptions. */
+  private final class Upstream implements WorkflowStreamListener {
+    private final List<String> key;
+    private final List<LocalSubscription> subscriptions = new ArrayList<>();
+    private final ArrayDeque<WorkflowStreamItem> replay = new ArrayDeque<>();
+
+    /** Offset following the last received item, the start offset until an item is received. */
+    private volatile long headOffset;
+
+    private boolean ended;
+    private Throwable error;
+    private boolean released;
+    private Runnable disconnect;
+
+    Upstream(List<String> key, long fromOffset) {
+      this.key = key;
+      this.headOffset = fromOffset;
+    }
+
+    void connect() {
+      Runnable connection = connector.connect(key.get(0), key.get(1), headOffset, this);
+      boolean disconnectNow;
+      synchronized (this) {
+        disconnect = connection;
+        disconnectNow = released;
+      }
+      if (disconnectNow) {
+        connection.run();
+      }
+    }
+
+    void disconnect() {
+      Runnable connection;
+      synchronized (this) {
+        connection = disconnect;
+        disconnect = null;
+      }
+      // Null when not connected yet. Then connect closes the connection.
+      if (connection != null) {
+        connection.run();
+      }
+    }
+
+    synchronized LocalSubscription add(long fromOffset, Runnable onAvailable) {
+      LocalSubscription subscription =
+          new LocalSubscription(this, subscriptionIds.incrementAndGet(), fromOffset, onAvailable);
+      List<WorkflowStreamItem> kept = new ArrayList<>();
+      for (WorkflowStreamItem item : replay) {
+        if (item.getOffset() >= fromOffset) {
+          kept.add(item);
+        }
+      }
+      // At most a buffer of kept items, so the new subscriber doesn't start overflowed.
+      List<WorkflowStreamItem> replayed =
+          kept.subList(Math.max(0, kept.size() - bufferSize), kept.size());
+      // The items before the oldest kept one, or before the head when none is kept, are gone.
+      WorkflowStreamItem oldest = replay.peekFirst();
+      long firstOffset = oldest != null ? oldest.getOffset() : headOffset;
+      if (!replayed.isEmpty()) {
+        subscription.fastForward(replayed.get(0).getOffset());
+      } else if (firstOffset > fromOffset) {
+        subscription.fastForward(firstOffset);
+      }
+      for (WorkflowStreamItem item : replayed) {
+        subscription.offer(item);
+      }
+      if (ended) {
+        subscription.end(error);
+      }
+      subscriptions.add(subscription);
+      return subscription;
+    }
+
+    synchronized List<LocalSubscription> subscriptions() {
+      return new ArrayList<>(subscriptions);
+    }
+
+    void remove(LocalSubscription subscription) {
+      boolean empty;
+      synchronized (this) {
+        subscriptions.remove(subscription);
+        empty = subscriptions.isEmpty();
+      }
+      if (empty) {
+        release(this);
+      }
+    }
+
+    @Override
+    public CompletionStage<Void> onNext(WorkflowStreamItem item) {
+      List<LocalSubscription> targets;
+      synchronized (this) {
+        headOffset = item.getOffset() + 1;
+        replay.addLast(item);
+        while (replay.size() > replaySize) {
+          replay.removeFirst();
+        }
+        targets = new ArrayList<>(subscriptions);
+      }
+      // Never waits for the local subscribers, so a slow one can't hold back the others.
+      for (LocalSubscription subscription : targets) {
+        subscription.offer(item);
+      }
+      return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void onCompleted() {
+      end(null);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      end(t);
+    }
+
+    private void end(Throwable t) {
+      List<LocalSubscription> targets;
+      synchronized (this) {
+        ended = true;
+        error = t;
+        targets = new ArrayList<>(subscriptions);
+      }
+      for (LocalSubscription subscription : targets) {
+        subscription.end(t);
+      }
+    }
+  }
+
+  /**
+   * A local subscription to a workflow stream topic. Items are buffered until they are polled.
+   * Thread safe.
+   */
+  public final class LocalSubscription implements AutoCloseable {
+    private final Upstream upstream;
+    private final int id;
+    private final Runnable onAvailable;
+
+    private final ArrayDeque<WorkflowStreamItem> buffer = new ArrayDeque<>();
+    private final ArrayDeque<Long> receivedNanos = new ArrayDeque<>();
+
+    /** Offset following the last polled item. */
+    private long nextOffset;
+
+    /** Offset following the last buffered item, to skip duplicates. */
+    private long bufferedOffset;
+
+    private long delivered;
+    private long dropped;
+    private boolean ended;
+    private boolean disconnected;
+    private boolean closed;
+    private Throwable error;
+
+    private LocalSubscription(Upstream upstream, int id, long fromOffset, Runnable onAvailable) {
+      this.upstream = upstream;
+      this.id = id;
+      this.onAvailable = onAvailable;
+      this.nextOffset = fromOffset;
+      this.bufferedOffset = fromOffset;
+    }
+
+    /**
+     * Returns the next item, waiting up to the timeout. Returns null on timeout or when the
+     * subscription has ended and all its items were polled, see {@link #isEnded()}.
+     */
+    public synchronized WorkflowStreamItem poll(long timeout, TimeUnit unit)
+        throws InterruptedException {
+      long deadline = System.nanoTime() + unit.toNanos(timeout);
+      while (buffer.isEmpty() && !ended && !closed) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return null;
+        }
+        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+      }
+      return tryPoll();
+    }
+
+    /** Returns the next buffered item without waiting, or null. */
+    public synchronized WorkflowStreamItem tryPoll() {
+      WorkflowStreamItem item = buffer.pollFirst();
+      if (item == null) {
+        return null;
+      }
+      receivedNanos.pollFirst();
+      nextOffset = item.getOffset() + 1;
+      delivered++;
+      return item;
+    }
+
+    /**
+     * True once no more items will be buffered and all the buffered items were polled: the
+     * workflow reached a terminal state, the stream failed, the subscriber was disconnected or the
+     * subscription was closed.
+     */
+    public synchronized boolean isEnded() {
+      return buffer.isEmpty() && (ended || closed);
+    }
+
+    /** True if the subscriber was disconnected because it didn't keep up. */
+    public synchronized boolean isDisconnected() {
+      return disconnected;
+    }
+
+    /** Failure of the upstream subscription, or null. */
+    public synchronized Throwable getError() {
+      return error;
+    }
+
+    /** Offset to subscribe again from after a disconnect: the one after the last polled item. */
+    public synchronized long getNextOffset() {
+      return nextOffset;
+    }
+
+    public synchronized SubscriberStats getStats() {
+      Long oldest = receivedNanos.peekFirst();
+      long lagMillis =
+          oldest == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest);
+      return new SubscriberStats(
+          id,
+          upstream.key.get(0),
+          upstream.key.get(1),
+          nextOffset,
+          Math.max(0, upstream.headOffset - nextOffset),
+          lagMillis,
+          buffer.size(),
+          delivered,
+          dropped,
+          disconnected);
+    }
+
+    @Override
+    public void close() {
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+        closed = true;
+        buffer.clear();
+        receivedNanos.clear();
+        notifyAll();
+      }
+      upstream.remove(this);
+    }
+
+    private synchronized void fastForward(long offset) {
+      nextOffset = offset;
+      bufferedOffset = offset;
+    }
+
+    private void offer(WorkflowStreamItem item) {
+      boolean disconnect = false;
+      synchronized (this) {
+        if (closed || ended || item.getOffset() < bufferedOffset) {
+          return;
+        }
+        if (buffer.size() >= bufferSize) {
+          if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+            // Keeps the buffered items, so the subscriber resumes right after them.
+            disconnected = true;
+            ended = true;
+            disconnect = true;
+          } else {
+            buffer.removeFirst();
+            receivedNanos.removeFirst();
+            dropped++;
+          }
+        }
+        if (!disconnect) {
+          buffer.addLast(item);
+          receivedNanos.addLast(System.nanoTime());
+          bufferedOffset = item.getOffset() + 1;
+        }
+        notifyAll();
+      }
+      if (disconnect) {
+        disconnectedCount.incrementAndGet();
+        upstream.remove(this);
+      }
+      if (onAvailable != null) {
+        onAvailable.run();
+      }
+    }
+
+    private void end(Throwable t) {
+      synchronized (this) {
+        if (ended || closed) {
+          return;
+        }
+        ended = true;
+        error = t;
+        notifyAll();
+      }
+      if (onAvailable != null) {
+        onAvailable.run();
+      }
+    }
+  }
+
+  /** Snapshot of the state of a local subscription. */
+  public static final class SubscriberStats {
+    private final int id;
+    private final String workflowId;
+    private final String topic;
+    private final long nextOffset;
+    private final long lag;
+    private final long lagMillis;
+    private final int buffered;
+    private final long delivered;
+    private final long dropped;
+    private final boolean disconnected;
+
+    SubscriberStats(
+        int id,
+        String workflowId,
+        String topic,
+        long nextOffset,
+        long lag,
+        long lagMillis,
+        int buffered,
+        long delivered,
+        long dropped,
+        boolean disconnected) {
+      this.id = id;
+      this.workflowId = workflowId;
+      this.topic = topic;
+      this.nextOffset = nextOffset;
+      this.lag = lag;
+      this.lagMillis = lagMillis;
+      this.buffered = buffered;
+      this.delivered = delivered;
+      this.dropped = dropped;
+      this.disconnected = disconnected;
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public String getWorkflowId() {
+      return workflowId;
+    }
+
+    public String getTopic() {
+      return topic;
+    }
+
+    /** Offset following the last polled item. */
+    public long getNextOffset() {
+      return nextOffset;
+    }
+
+    /**
+     * Offsets between the last item received by the upstream and the last polled item. Offsets are
+     * global across topics, so this is an upper bound of the number of items behind.
+     */
+    public long getLag() {
+      return lag;
+    }
+
+    /** How long the oldest buffered item has been waiting. */
+    public long getLagMillis() {
+      return lagMillis;
+    }
+
+    public int getBuffered() {
+      return buffered;
+    }
+
+    public long getDelivered() {
+      return delivered;
+    }
+
+    /** Items dropped because the buffer was full. */
+    public long getDropped() {
+      return dropped;
+    }
+
+    public boolean isDisconnected() {
+      return disconnected;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "subscriber %d %s/%s: next=%d lag=%d (%dms) buffered=%d delivered=%d dropped=%d%s",
+          id,
+          workflowId,
+          topic,
+          nextOffset,
+          lag,
+          lagMillis,
+          buffered,
+          delivered,
+          dropped,
+          disconnected ? " disconnected" : "");
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package io.temporal.samples.workflowstreams;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.temporal.samples.workflowstreams.WorkflowStreamMultiplexer.LocalSubscription;
+import io.temporal.samples.workflowstreams.WorkflowStreamMultiplexer.OverflowPolicy;
+import io.temporal.samples.workflowstreams.WorkflowStreamMultiplexer.SubscriberStats;
+import io.temporal.workflowstreams.WorkflowStreamItem;
+import io.temporal.workflowstreams.WorkflowStreamListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/** Fan-out tests. The upstream subscription is replaced by a listener the test feeds directly. */
+public class WorkflowStreamMultiplexerTest {
+
+  private final List<WorkflowStreamListener> listeners = new ArrayList<>();
+  private final List<Long> fromOffsets = new ArrayList<>();
+  private int disconnects;
+
+  private WorkflowStreamMultiplexer newMultiplexer(int bufferSize, OverflowPolicy policy) {
+    return new WorkflowStreamMultiplexer(
+        (workflowId, topic, fromOffset, listener) -> {
+          listeners.add(listener);
+          fromOffsets.add(fromOffset);
+          return () -> disconnects++;
+        },
+        bufferSize,
+        4,
+        policy);
+  }
+
+  private static WorkflowStreamItem item(long offset) {
+    WorkflowStreamItem item = mock(WorkflowStreamItem.class);
+    when(item.getOffset()).thenReturn(offset);
+    when(item.getTopic()).thenReturn("tick");
+    return item;
+  }
+
+  @Test
+  public void testSharesOneUpstream() throws InterruptedException {
+    WorkflowStreamMultiplexer multiplexer = newMultiplexer(16, OverflowPolicy.DROP_OLDEST);
+    LocalSubscription first = multiplexer.subscribe("wf", "tick", 0);
+    LocalSubscription second = multiplexer.subscribe("wf", "tick", 0);
+    LocalSubscription other = multiplexer.subscribe("wf", "status", 0);
+    assertEquals(2, listeners.size());
+    assertEquals(2, multiplexer.getUpstreamCount());
+
+    WorkflowStreamItem item = item(0);
+    assertTrue(listeners.get(0).onNext(item).toCompletableFuture().isDone());
+    assertSame(item, first.poll(1, TimeUnit.SECONDS));
+    assertSame(item, second.poll(1, TimeUnit.SECONDS));
+    assertNull(other.tryPoll());
+    assertEquals(1, first.getNextOffset());
+
+    first.close();
+    assertEquals(0, disconnects);
+    second.close();
+    assertEquals(1, disconnects);
+    assertEquals(1, multiplexer.getUpstreamCount());
+  }
+
+  @Test
+  public void testSlowSubscriberDropsOldest() {
+    WorkflowStreamMultiplexer multiplexer = newMultiplexer(2, OverflowPolicy.DROP_OLDEST);
+    LocalSubscription slow = multiplexer.subscribe("wf", "tick", 0);
+    LocalSubscription fast = multiplexer.subscribe("wf", "tick", 0);
+    for (long offset = 0; offset < 5; offset++) {
+      listeners.get(0).onNext(item(offset));
+      assertEquals(offset, fast.tryPoll().getOffset());
+    }
+
+    SubscriberStats stats = slow.getStats();
+    assertEquals(5, stats.getLag());
+    assertEquals(2, stats.getBuffered());
+    assertEquals(3, stats.getDropped());
+    assertEquals(0, fast.getStats().getLag());
+
+    assertEquals(3, slow.tryPoll().getOffset());
+    assertEquals(4, slow.tryPoll().getOffset());
+    assertEquals(0, slow.getStats().getLag());
+  }
+
+  @Test
+  public void testSlowSubscriberDisconnects() {
+    WorkflowStreamMultiplexer multiplexer = newMultiplexer(2, OverflowPolicy.DISCONNECT);
+    LocalSubscription slow = multiplexer.subscribe("wf", "tick", 0);
+    LocalSubscription fast = multiplexer.subscribe("wf", "tick", 0);
+    for (long offset = 0; offset < 3; offset++) {
+      listeners.get(0).onNext(item(offset));
+      fast.tryPoll();
+    }
+    assertTrue(slow.isDisconnected());
+    assertFalse(fast.isDisconnected());
+    assertEquals(1, multiplexer.getStats().size());
+    assertEquals(1, multiplexer.getDisconnectedCount());
+
+    // Drains the buffered items, then resumes from the kept items.
+    assertEquals(0, slow.tryPoll().getOffset());
+    assertEquals(1, slow.tryPoll().getOffset());
+    assertTrue(slow.isEnded());
+    LocalSubscription resumed = multiplexer.subscribe("wf", "tick", slow.getNextOffset());
+    assertEquals(2, resumed.tryPoll().getOffset());
+    assertEquals(1, listeners.size());
+  }
+
+  @Test
+  public void testLateSubscriberIsFastForwarded() {
+    WorkflowStreamMultiplexer multiplexer = newMultiplexer(16, OverflowPolicy.DROP_OLDEST);
+    multiplexer.subscribe("wf", "tick", 0);
+    for (long offset = 0; offset < 10; offset++) {
+      listeners.get(0).onNext(item(offset));
+    }
+    // Only the last 4 items are kept.
+    LocalSubscription late = multiplexer.subscribe("wf", "tick", 1);
+    assertEquals(6, late.getNextOffset());
+    assertEquals(6, late.tryPoll().getOffset());
+    LocalSubscription recent = multiplexer.subscribe("wf", "tick", 8);
+    assertEquals(8, recent.tryPoll().getOffset());
+  }
+
+  @Test
+  public void testSubscriberOlderThanUpstreamIsFastForwarded() {
+    WorkflowStreamMultiplexer multiplexer = newMultiplexer(16, OverflowPolicy.DROP_OLDEST);
+    multiplexer.subscribe("wf", "tick", 5);
+    // Nothing received yet, and the upstream starts after the requested offset.
+    LocalSubscription older = multiplexer.subscribe("wf", "tick", 2);
+    assertEquals(5, older.getNextOffset());
+    listeners.get(0).onNext(item(5));
+    assertEquals(1, older.getStats().getLag());
+    assertEquals(5, older.tryPoll().getOffset());
+    assertEquals(0, older.getStats().getLag());
+    assertEquals(List.of(5L), fromOffsets);
+  }
+
+  @Test
+  public void testCompletionAfterBufferedItems() {
+    WorkflowStreamMultiplexer multiplexer = newMultiplexer(16, OverflowPolicy.DROP_OLDEST);
+    List<String> events = new ArrayList<>();
+    LocalSubscription subscription =
+        multiplexer.subscribe("wf", "tick", 0, () -> events.add("available"));
+    listeners.get(0).onNext(item(0));
+    listeners.get(0).onCompleted();
+    assertEquals(2, events.size());
+    assertFalse(subscription.isEnded());
+    assertEquals(0, subscription.tryPoll().getOffset());
+    assertTrue(subscription.isEnded());
+    assertNull(subscription.getError());
+
+    LocalSubscription late = multiplexer.subscribe("wf", "tick", 0);
+    assertEquals(0, late.tryPoll().getOffset());
+    assertTrue(late.isEnded());
+  }
+}